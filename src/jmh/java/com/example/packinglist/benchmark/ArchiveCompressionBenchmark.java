@@ -0,0 +1,122 @@
+package com.example.packinglist.benchmark;
+
+import com.example.packinglist.config.PackingListProperties;
+import com.example.packinglist.model.InvoiceEntry;
+import com.example.packinglist.service.PackingListService;
+import com.example.packinglist.zip.CompressionPolicy;
+import com.example.packinglist.zip.ZipWriter;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Time against size of the output ZIP for the three generated files of one invoice:
+ * {@code zipOutputStream} is how the files were zipped before, every entry at the default level
+ * through a 1 KB buffer; {@code sequential} and {@code parallel} are {@link ZipWriter} with its
+ * per entry levels, deflating large entries on the writing thread or in blocks on every core.
+ * The ZIP sizes are printed once per trial, they do not change between iterations.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ArchiveCompressionBenchmark {
+
+    private static final String DATE = "250814";
+
+    @Param({"1000", "10000", "50000"})
+    public int rows;
+
+    @Param({"zipOutputStream", "sequential", "parallel"})
+    public String compression;
+
+    private final Map<String, byte[]> files = new LinkedHashMap<>();
+    private ExecutorService executor;
+    private CompressionPolicy policy;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        PackingListService service = new PackingListService(new PackingListProperties());
+        List<InvoiceEntry> entries = service.parseInvoiceCsv(InvoiceFixtures.invoiceFile(InvoiceFixtures.invoiceCsv(rows, 42)));
+        files.put("packing-list-" + DATE + ".csv", readAndDelete(service.generatePackingList(DATE, entries, "1Z999AA12345678901", 12.5, 3, 100, 7.1)));
+        files.put("packing-list-" + DATE + ".html", readAndDelete(service.generatePackingListHtml(DATE, entries, "1Z999AA12345678901", 12.5, 3, 100, 7.1)));
+        files.put("import_inv-" + DATE + ".csv", readAndDelete(service.generateMsdosCsv(DATE, entries)));
+
+        executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        policy = new CompressionPolicy(128 * 1024, compression.equals("parallel") ? executor : null);
+
+        long plain = files.values().stream().mapToLong(file -> file.length).sum();
+        long zipped = zip();
+        System.out.printf("%n%d rows, %s: %,d bytes zipped to %,d (%.1f %%)%n", rows, compression, plain, zipped, 100.0 * zipped / plain);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        executor.shutdown();
+    }
+
+    private static byte[] readAndDelete(File file) throws IOException {
+        try {
+            return Files.readAllBytes(file.toPath());
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Benchmark
+    public long zip() throws IOException {
+        CountingOutputStream out = new CountingOutputStream();
+        if (compression.equals("zipOutputStream")) {
+            try (ZipOutputStream zos = new ZipOutputStream(out)) {
+                byte[] buffer = new byte[1024];
+                for (Map.Entry<String, byte[]> file : files.entrySet()) {
+                    zos.putNextEntry(new ZipEntry(file.getKey()));
+                    InputStream in = new ByteArrayInputStream(file.getValue());
+                    int length;
+                    while ((length = in.read(buffer)) > 0) {
+                        zos.write(buffer, 0, length);
+                    }
+                    zos.closeEntry();
+                }
+            }
+        } else {
+            ZipWriter zip = new ZipWriter(out, policy);
+            for (Map.Entry<String, byte[]> file : files.entrySet()) {
+                try (OutputStream entry = zip.newEntry(file.getKey())) {
+                    entry.write(file.getValue());
+                }
+            }
+            zip.finish();
+        }
+        return out.count;
+    }
+
+    private static final class CountingOutputStream extends OutputStream {
+        long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.packinglist.benchmark;
+
+import com.example.packinglist.config.PackingListProperties;
+import com.example.packinglist.service.PackingListService;
+import com.example.packinglist.sort.SortedInvoices;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * HTML packing list rendering to a byte sink, as it runs inside the ZIP. Reports bytes/sec
+ * through the {@code bytes} counter; with {@code -prof gc}, gc.alloc.rate.norm divided by
+ * rows/1000 gives allocations per 1,000 rows.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class HtmlRenderBenchmark {
+
+    private static final String DATE = "250101";
+
+    @Param({"1000", "100000"})
+    public int rows;
+
+    private PackingListService service;
+    private SortedInvoices sorted;
+
+    @Setup
+    public void setUp() throws IOException {
+        service = new PackingListService(new PackingListProperties());
+        sorted = SortedInvoices.of(service.parseInvoiceCsv(InvoiceFixtures.invoiceFile(InvoiceFixtures.invoiceCsv(rows, 42))));
+    }
+
+    /**
+     * Counts what the renderer writes; reported by JMH as a rate
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Output {
+        public long bytes;
+
+        final OutputStream stream = new OutputStream() {
+            @Override
+            public void write(int b) {
+                bytes++;
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+                bytes += len;
+            }
+        };
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            bytes = 0;
+        }
+    }
+
+    @Benchmark
+    public void renderHtml(Output output) throws IOException {
+        service.writePackingListHtml(output.stream, DATE, sorted, "1Z999AA12345678901", 12.5, 3, 100, 7.1, PackingListService.DEFAULT_ITEMS_PER_PAGE);
+    }
+}
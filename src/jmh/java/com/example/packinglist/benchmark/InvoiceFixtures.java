@@ -0,0 +1,125 @@
+package com.example.packinglist.benchmark;
+
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+/**
+ * Synthetic supplier invoices shaped like the real ones: a few dozen POs and
+ * descriptions repeated across rows, mixed numeric/alphanumeric item numbers
+ * and roughly one row in ten repeating an item number.
+ */
+public final class InvoiceFixtures {
+
+    public static final String HEADER = "PO/NO.,ITEM NO.,DESCRIPTION OF GOODS,QTY,UNIT VALUE (USD)";
+
+    private static final String[] DESCRIPTIONS = {
+            "Cubic zirconia Brass Necklace", "Cubic zirconia Brass bracelet", "Brass Earring",
+            "Sterling Silver Ring", "Stainless Steel Chain", "Glass Bead Anklet"
+    };
+
+    // Seen in hand-edited invoices: blanks, spreadsheet errors, units typed into the cell
+    private static final String[] MALFORMED = {"", "N/A", "#VALUE!", "12 pcs", "1O", "$"};
+
+    private InvoiceFixtures() {
+    }
+
+    /**
+     * Builds an invoice CSV with the given number of data rows. The same seed always
+     * gives the same file.
+     */
+    public static byte[] invoiceCsv(int rows, long seed) {
+        // Drawing from ~90% of the row count leaves about one duplicate per ten rows
+        return invoiceCsv(rows, seed, rows - rows / 10, 0);
+    }
+
+    /**
+     * Builds an invoice CSV with more or fewer repeated item numbers and some quantities and
+     * unit values that cannot be parsed, the way hand-edited invoices come in
+     *
+     * @param duplicateShare  share of rows left over once every distinct item number has a row, 0 to below 1
+     * @param malformedShare  share of rows with a malformed quantity or unit value
+     */
+    public static byte[] invoiceCsv(int rows, long seed, double duplicateShare, double malformedShare) {
+        return invoiceCsv(rows, seed, rows - (int) (rows * duplicateShare), malformedShare);
+    }
+
+    private static byte[] invoiceCsv(int rows, long seed, int distinctItems, double malformedShare) {
+        Random random = new Random(seed);
+        StringBuilder sb = new StringBuilder(rows * 56 + 64);
+        sb.append(HEADER).append('\n');
+        for (int i = 0; i < rows; i++) {
+            sb.append('W').append(240600 + random.nextInt(40)).append(',');
+            sb.append(itemNumber(random, distinctItems)).append(',');
+            sb.append(DESCRIPTIONS[random.nextInt(DESCRIPTIONS.length)]).append(' ').append(random.nextInt(10)).append(',');
+            if (malformedShare > 0 && random.nextDouble() < malformedShare) {
+                String malformed = MALFORMED[random.nextInt(MALFORMED.length)];
+                if (random.nextBoolean()) {
+                    sb.append(malformed).append(",$2.50\n");
+                } else {
+                    sb.append(1 + random.nextInt(48)).append(',').append(malformed).append('\n');
+                }
+                continue;
+            }
+            sb.append(1 + random.nextInt(48)).append(',');
+            sb.append('$').append(1 + random.nextInt(20)).append('.').append(10 + random.nextInt(90)).append('\n');
+        }
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * The same invoice as {@link #invoiceCsv} as an .xlsx workbook, the way a supplier's
+     * spreadsheet holds it: numeric item numbers, quantities and unit values as numbers,
+     * the unit values with a currency format.
+     */
+    public static byte[] invoiceXlsx(int rows, long seed) throws IOException {
+        String[] lines = new String(invoiceCsv(rows, seed), StandardCharsets.UTF_8).split("\n");
+        // Only a window of rows is kept in memory while the workbook is written
+        try (SXSSFWorkbook workbook = new SXSSFWorkbook(1000)) {
+            Sheet sheet = workbook.createSheet("Invoice");
+            CellStyle money = workbook.createCellStyle();
+            money.setDataFormat(workbook.createDataFormat().getFormat("\"$\"#,##0.00"));
+            for (int r = 0; r < lines.length; r++) {
+                String[] fields = lines[r].split(",");
+                Row row = sheet.createRow(r);
+                for (int c = 0; c < fields.length; c++) {
+                    String field = fields[c];
+                    if (r > 0 && c == 4) {
+                        row.createCell(c).setCellValue(Double.parseDouble(field.substring(1)));
+                        row.getCell(c).setCellStyle(money);
+                    } else if (r > 0 && (c == 1 || c == 3) && field.chars().allMatch(Character::isDigit)) {
+                        row.createCell(c).setCellValue(Long.parseLong(field));
+                    } else {
+                        row.createCell(c).setCellValue(field);
+                    }
+                }
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            workbook.write(out);
+            return out.toByteArray();
+        }
+    }
+
+    public static MockMultipartFile invoiceFile(byte[] csv) {
+        return new MockMultipartFile("csvFile", "invoice.csv", "text/csv", csv);
+    }
+
+    private static String itemNumber(Random random, int distinctItems) {
+        int number = 1000 + random.nextInt(Math.max(1, distinctItems));
+        switch (random.nextInt(4)) {
+            case 0:
+                return "a" + number;
+            case 1:
+                return number + "B";
+            default:
+                return Integer.toString(number);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.packinglist.benchmark;
+
+import com.example.packinglist.config.PackingListProperties;
+import com.example.packinglist.csv.ParseStats;
+import com.example.packinglist.service.PackingListService;
+import com.example.packinglist.sort.SortedInvoices;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reading and sorting the same invoice from a CSV and from an .xlsx workbook, as
+ * {@code /upload} does. Divide rows by the score for rows/sec. Run with a small
+ * {@code -Xmx} to check that the workbook is streamed rather than loaded whole.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class InvoiceFormatBenchmark {
+
+    @Param({"10000", "200000"})
+    public int rows;
+
+    private PackingListService service;
+    private byte[] csv;
+    private byte[] xlsx;
+
+    @Setup
+    public void setUp() throws IOException {
+        service = new PackingListService(new PackingListProperties());
+        csv = InvoiceFixtures.invoiceCsv(rows, 42);
+        xlsx = InvoiceFixtures.invoiceXlsx(rows, 42);
+    }
+
+    @Benchmark
+    public int readCsv() throws IOException {
+        try (SortedInvoices sorted = service.readInvoiceCsv(new ByteArrayInputStream(csv), "invoice.csv", new ParseStats())) {
+            return sorted.size();
+        }
+    }
+
+    @Benchmark
+    public int readXlsx() throws IOException {
+        try (SortedInvoices sorted = service.readInvoiceCsv(new ByteArrayInputStream(xlsx), "invoice.xlsx", new ParseStats())) {
+            return sorted.size();
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.packinglist.benchmark;
+
+import com.example.packinglist.config.PackingListProperties;
+import com.example.packinglist.model.InvoiceEntry;
+import com.example.packinglist.service.PackingListService;
+import com.example.packinglist.sort.ExternalInvoiceSorter;
+import com.example.packinglist.sort.SortedInvoices;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of each stage of the /upload pipeline on its own, plus the whole
+ * path end to end. Run with {@code -prof gc} to see the allocation rate.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class InvoicePipelineBenchmark {
+
+    private static final String DATE = "250814";
+
+    @Param({"100", "10000", "1000000"})
+    public int rows;
+
+    private PackingListService service;
+    private MockMultipartFile invoiceFile;
+    private List<InvoiceEntry> sortedEntries;
+    private List<InvoiceEntry> unsortedEntries;
+    private File packingListFile;
+    private File msdosCsvFile;
+    private File packingListHtmlFile;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        service = new PackingListService(new PackingListProperties());
+        invoiceFile = InvoiceFixtures.invoiceFile(InvoiceFixtures.invoiceCsv(rows, 42));
+        sortedEntries = service.parseInvoiceCsv(invoiceFile);
+
+        unsortedEntries = new ArrayList<>(sortedEntries);
+        Collections.shuffle(unsortedEntries, new Random(42));
+
+        packingListFile = service.generatePackingList(DATE, sortedEntries, "1Z999AA12345678901", 12.5, 3, 100, 7.1);
+        msdosCsvFile = service.generateMsdosCsv(DATE, sortedEntries);
+        packingListHtmlFile = service.generatePackingListHtml(DATE, sortedEntries, "1Z999AA12345678901", 12.5, 3, 100, 7.1);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        packingListFile.delete();
+        msdosCsvFile.delete();
+        packingListHtmlFile.delete();
+    }
+
+    @Benchmark
+    public List<InvoiceEntry> parseInvoiceCsv() throws IOException {
+        return service.parseInvoiceCsv(invoiceFile);
+    }
+
+    @Benchmark
+    public List<InvoiceEntry> sortByItemNumber() {
+        List<InvoiceEntry> copy = new ArrayList<>(unsortedEntries);
+        copy.sort(ExternalInvoiceSorter.ITEM_NUMBER_ORDER);
+        return copy;
+    }
+
+    @Benchmark
+    public int externalSort() throws IOException {
+        // Parse + bounded-memory sort as used by /upload
+        try (SortedInvoices sorted = service.readInvoiceCsv(invoiceFile)) {
+            return sorted.size();
+        }
+    }
+
+    /**
+     * Includes building the columnar rows and the duplicate marking
+     */
+    @Benchmark
+    public void generatePackingListHtml() throws IOException {
+        service.writePackingListHtml(OutputStream.nullOutputStream(), DATE, SortedInvoices.of(sortedEntries),
+                "1Z999AA12345678901", 12.5, 3, 100, 7.1, 72);
+    }
+
+    @Benchmark
+    public void generatePackingList() throws IOException {
+        service.writePackingList(Writer.nullWriter(), DATE, sortedEntries, "1Z999AA12345678901", 12.5, 3, 100, 7.1);
+    }
+
+    @Benchmark
+    public void generateMsdosCsv() throws IOException {
+        service.writeMsdosCsv(Writer.nullWriter(), sortedEntries);
+    }
+
+    @Benchmark
+    public void createZipFile(Blackhole blackhole) throws IOException {
+        File zip = service.createZipFile(DATE, packingListFile, msdosCsvFile, packingListHtmlFile);
+        blackhole.consume(zip.length());
+        zip.delete();
+    }
+
+    @Benchmark
+    public void endToEnd() throws IOException {
+        try (SortedInvoices sorted = service.readInvoiceCsv(invoiceFile)) {
+            service.writeZip(OutputStream.nullOutputStream(), DATE, sorted, "1Z999AA12345678901", 12.5, 3, 100, 7.1);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.packinglist.benchmark;
+
+import com.example.packinglist.config.PackingListProperties;
+import com.example.packinglist.model.ShipmentDetails;
+import com.example.packinglist.pdf.PackingListPdfRenderer;
+import com.example.packinglist.service.PackingListService;
+import com.example.packinglist.service.PipelineProgress;
+import com.example.packinglist.sort.SortedInvoices;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * PDF packing list rendering to a byte sink. {@code pooledWriters} is what the /pdf endpoint
+ * does; {@code freshRenderer} builds a new renderer, and so new page writers and font
+ * objects, for every document, which is what the pool saves.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PdfRenderBenchmark {
+
+    private static final String DATE = "250101";
+    private static final ShipmentDetails DETAILS = ShipmentDetails.of("1Z999AA12345678901", 100, 7.1, 3, 12.5);
+
+    @Param({"1000", "10000"})
+    public int rows;
+
+    private PackingListService service;
+    private SortedInvoices sorted;
+
+    private static final OutputStream SINK = new OutputStream() {
+        @Override
+        public void write(int b) {
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+        }
+    };
+
+    @Setup
+    public void setUp() throws IOException {
+        service = new PackingListService(new PackingListProperties());
+        sorted = SortedInvoices.of(service.parseInvoiceCsv(InvoiceFixtures.invoiceFile(InvoiceFixtures.invoiceCsv(rows, 42))));
+    }
+
+    @Benchmark
+    public void pooledWriters() throws IOException {
+        service.writePackingListPdf(SINK, DATE, sorted, DETAILS);
+    }
+
+    @Benchmark
+    public void freshRenderer() throws IOException {
+        new PackingListPdfRenderer().render(SINK, DATE, sorted, DETAILS, PackingListService.DEFAULT_ITEMS_PER_PAGE, new PipelineProgress());
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.packinglist.benchmark;
+
+import com.example.packinglist.config.PackingListProperties;
+import com.example.packinglist.model.ShipmentDetails;
+import com.example.packinglist.service.PackingListPreview;
+import com.example.packinglist.service.PackingListService;
+import com.example.packinglist.sort.SortedInvoices;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Looking at the first page of a packing list: the whole HTML document, as the ZIP has it,
+ * against {@code /preview} which keeps only the first page's rows and renders that page.
+ * Both parse the whole invoice.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+@State(Scope.Benchmark)
+public class PreviewBenchmark {
+
+    private static final String DATE = "250101";
+    private static final ShipmentDetails DETAILS = ShipmentDetails.of("1Z999AA12345678901", 100, 7.1, 3, 12.5);
+
+    @Param({"10000", "100000"})
+    public int rows;
+
+    private PackingListService service;
+    private MockMultipartFile invoiceFile;
+
+    @Setup
+    public void setUp() throws IOException {
+        service = new PackingListService(new PackingListProperties());
+        invoiceFile = InvoiceFixtures.invoiceFile(InvoiceFixtures.invoiceCsv(rows, 42));
+    }
+
+    @Benchmark
+    public void wholeDocument() throws IOException {
+        try (SortedInvoices sorted = service.readInvoiceCsv(invoiceFile)) {
+            service.writePackingListHtml(OutputStream.nullOutputStream(), DATE, sorted, DETAILS.getTracking(),
+                    DETAILS.getWeight(), DETAILS.getBoxes(), DETAILS.getRmb(), DETAILS.getRate(), PackingListService.DEFAULT_ITEMS_PER_PAGE);
+        }
+    }
+
+    @Benchmark
+    public PackingListPreview firstPage() throws IOException {
+        return service.previewPackingListHtml(invoiceFile, DATE, DETAILS, 1, 1, PackingListService.DEFAULT_ITEMS_PER_PAGE);
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.packinglist.benchmark;
+
+import com.example.packinglist.config.PackingListProperties;
+import com.example.packinglist.model.InvoiceEntry;
+import com.example.packinglist.reconcile.ReconciliationReport;
+import com.example.packinglist.reconcile.ReconciliationService;
+import com.example.packinglist.service.PackingListService;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Invoice vs received counts hash join. Time per row should stay flat from 10k to 1M rows;
+ * a nested scan would grow with the row count.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ReconciliationBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    public int rows;
+
+    private ReconciliationService service;
+    private byte[] invoice;
+    private byte[] received;
+
+    @Setup
+    public void setUp() throws IOException {
+        PackingListService packingListService = new PackingListService(new PackingListProperties());
+        service = new ReconciliationService(packingListService);
+        invoice = InvoiceFixtures.invoiceCsv(rows, 42);
+        received = receivedCsv(packingListService.parseInvoiceCsv(InvoiceFixtures.invoiceFile(invoice)), 7);
+    }
+
+    /**
+     * The received counts of an invoice as a warehouse would send them back: about 2% of
+     * lines missing, 5% with a different count and 1% of extra items
+     */
+    private static byte[] receivedCsv(List<InvoiceEntry> invoiced, long seed) {
+        Random random = new Random(seed);
+        StringBuilder sb = new StringBuilder(invoiced.size() * 24 + 32);
+        sb.append("PO/NO.,ITEM NO.,QTY,NOTES\n");
+        for (InvoiceEntry entry : invoiced) {
+            int roll = random.nextInt(100);
+            if (roll < 2) {
+                continue;
+            }
+            int qty = roll < 7 ? entry.getQty() + random.nextInt(5) - 2 : entry.getQty();
+            sb.append(entry.getPoNo()).append(',').append(entry.getItemNo()).append(',').append(qty).append(",\n");
+            if (roll == 99) {
+                sb.append(entry.getPoNo()).append(",X").append(entry.getItemNo()).append(",1,extra\n");
+            }
+        }
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public ReconciliationReport reconcile() throws IOException {
+        return service.reconcile(new ByteArrayInputStream(invoice), "invoice.csv",
+                new ByteArrayInputStream(received), "received.csv");
+    }
+}
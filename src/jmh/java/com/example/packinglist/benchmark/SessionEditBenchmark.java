@@ -0,0 +1,69 @@
+package com.example.packinglist.benchmark;
+
+import com.example.packinglist.config.PackingListProperties;
+import com.example.packinglist.csv.ParseStats;
+import com.example.packinglist.model.ShipmentDetails;
+import com.example.packinglist.service.PackingListService;
+import com.example.packinglist.service.PipelineProgress;
+import com.example.packinglist.service.RenderedInvoice;
+import com.example.packinglist.sort.SortedInvoices;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A changed box count or exchange rate: uploading the invoice again against re-rendering only
+ * the headers of an editing session. Both write the whole ZIP, so compressing it is in both.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SessionEditBenchmark {
+
+    private static final String DATE = "250814";
+
+    @Param({"1000", "50000"})
+    public int rows;
+
+    private PackingListService service;
+    private byte[] csv;
+    private RenderedInvoice rendered;
+    private int edit;
+
+    @Setup
+    public void setUp() throws IOException {
+        service = new PackingListService(new PackingListProperties());
+        csv = InvoiceFixtures.invoiceCsv(rows, 42);
+        try (SortedInvoices sorted = service.readInvoiceCsv(new ByteArrayInputStream(csv), "invoice.csv", new ParseStats())) {
+            rendered = service.renderWithoutDetails(DATE, sorted);
+        }
+    }
+
+    private ShipmentDetails nextEdit() {
+        edit++;
+        return new ShipmentDetails("1Z999AA12345678901", 100 + edit % 50, 7.1, 1 + edit % 9, 12.5);
+    }
+
+    @Benchmark
+    public void reupload() throws IOException {
+        try (SortedInvoices sorted = service.readInvoiceCsv(new ByteArrayInputStream(csv), "invoice.csv", new ParseStats())) {
+            service.writeZip(OutputStream.nullOutputStream(), DATE, sorted, nextEdit(), new PipelineProgress());
+        }
+    }
+
+    @Benchmark
+    public void sessionEdit() throws IOException {
+        service.writeZip(OutputStream.nullOutputStream(), rendered, nextEdit());
+    }
+
+    @Benchmark
+    public void sessionHtml() throws IOException {
+        service.writePackingListHtml(OutputStream.nullOutputStream(), rendered, nextEdit());
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.packinglist.benchmark;
+
+import com.example.packinglist.config.PackingListProperties;
+import com.example.packinglist.model.InvoiceEntry;
+import com.example.packinglist.service.PackingListService;
+import com.example.packinglist.sort.ItemOrdering;
+import com.example.packinglist.sort.KeySorter;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-memory row sorting: a comparator that derives the order on every comparison
+ * ({@code comparator}, what {@code List.sort} did before) against keys built once per row,
+ * sorted sequentially or with {@code Arrays.parallelSort}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SortBenchmark {
+
+    @Param({"100000", "1000000"})
+    public int rows;
+
+    @Param({"LEXICAL", "NATURAL", "PO_THEN_ITEM"})
+    public ItemOrdering ordering;
+
+    private List<InvoiceEntry> shuffled;
+
+    @Setup
+    public void setUp() throws IOException {
+        PackingListService service = new PackingListService(new PackingListProperties());
+        shuffled = new ArrayList<>(service.parseInvoiceCsv(InvoiceFixtures.invoiceFile(InvoiceFixtures.invoiceCsv(rows, 42))));
+        Collections.shuffle(shuffled, new Random(42));
+    }
+
+    @Benchmark
+    public List<InvoiceEntry> comparator() {
+        List<InvoiceEntry> copy = new ArrayList<>(shuffled);
+        copy.sort(ordering.comparator());
+        return copy;
+    }
+
+    @Benchmark
+    public List<InvoiceEntry> keyed() {
+        List<InvoiceEntry> copy = new ArrayList<>(shuffled);
+        KeySorter.sort(copy, ordering, InvoiceEntry::getPoNo, InvoiceEntry::getItemNo, Integer.MAX_VALUE);
+        return copy;
+    }
+
+    @Benchmark
+    public List<InvoiceEntry> keyedParallel() {
+        List<InvoiceEntry> copy = new ArrayList<>(shuffled);
+        KeySorter.sort(copy, ordering, InvoiceEntry::getPoNo, InvoiceEntry::getItemNo, 1);
+        return copy;
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.packinglist.benchmark;
+
+import com.example.packinglist.tracking.TrackingScanner;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scanning a generated carrier manifest for tracking numbers, as {@code /upload} does with its
+ * {@code trackingFile}. Divide the megabytes by the score for MB/sec. One line in four holds a
+ * tracking number; the rest are addresses and notes that have to be read and thrown away.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TrackingScanBenchmark {
+
+    @Param({"16", "256"})
+    public int megabytes;
+
+    private byte[] manifest;
+
+    @Setup
+    public void setUp() {
+        manifest = manifest(megabytes * 1024 * 1024, 42);
+    }
+
+    @Benchmark
+    public int scan() throws IOException {
+        return TrackingScanner.scan(new ByteArrayInputStream(manifest)).getNumbers().size();
+    }
+
+    static byte[] manifest(int size, long seed) {
+        Random random = new Random(seed);
+        ByteArrayOutputStream out = new ByteArrayOutputStream(size + 256);
+        StringBuilder line = new StringBuilder();
+        int n = 0;
+        while (out.size() < size) {
+            line.setLength(0);
+            if (n % 4 == 0) {
+                line.append("W").append(240000 + random.nextInt(100000)).append(",\"")
+                        .append(random.nextInt(99999)).append(" Industrial Park Rd, Suite ").append(random.nextInt(500))
+                        .append("\",").append(random.nextInt(40) + 1).append(" CTNS,")
+                        .append(String.format("1Z%06X%010d", random.nextInt(0xFFFFFF), random.nextInt(Integer.MAX_VALUE)));
+            } else {
+                line.append("Delivered 2024-06-").append(10 + random.nextInt(20))
+                        .append(" signed by RECEIVING DOCK, weight ").append(random.nextInt(900)).append(".")
+                        .append(random.nextInt(10)).append(" kg; ref #").append(random.nextLong());
+            }
+            line.append("\r\n");
+            byte[] bytes = line.toString().getBytes(StandardCharsets.US_ASCII);
+            out.write(bytes, 0, bytes.length);
+            n++;
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,348 @@
+package com.example.packinglist.benchmark;
+
+import com.example.packinglist.PackinglistApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.MemoryUsage;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Fires concurrent multipart uploads at the app and reports throughput, latency percentiles,
+ * errors, the heap high-water mark and temp files left behind. Not a JMH benchmark: it measures
+ * the whole server, like the morning peak when dozens of clerks upload at once.
+ * <p>
+ * The uploads come from a generated corpus of invoices of varied sizes, duplicate densities and
+ * malformed values. Without {@code --url} the app is started in this JVM on a free port, with
+ * its own temp directory and the result cache off, so that the heap and the temp files can be
+ * measured; arguments of the form {@code --name=value} are passed on to it. With {@code --url}
+ * an app that is already running is measured, and only from the outside.
+ *
+ * <pre>
+ * --url http://localhost:8080   --concurrency 40   --requests 1000   --warmup 100
+ * --corpus 24   --rows 100,2000,20000   --duplicates 0,0.1,0.5   --malformed 0,0.02
+ * </pre>
+ */
+public class UploadLoadTest {
+
+    private static final String BOUNDARY = "----packinglist-load-test";
+    // How long the app gets to clean up after the last response before temp files count as left behind
+    private static final Duration SETTLE = Duration.ofSeconds(3);
+
+    public static void main(String[] args) throws Exception {
+        String url = option(args, "--url", null);
+        int concurrency = Integer.parseInt(option(args, "--concurrency", "40"));
+        int requests = Integer.parseInt(option(args, "--requests", "1000"));
+        int warmup = Integer.parseInt(option(args, "--warmup", "100"));
+        int corpusSize = Integer.parseInt(option(args, "--corpus", "24"));
+        int[] rowCounts = Arrays.stream(option(args, "--rows", "100,2000,20000").split(",")).mapToInt(Integer::parseInt).toArray();
+        double[] duplicates = Arrays.stream(option(args, "--duplicates", "0,0.1,0.5").split(",")).mapToDouble(Double::parseDouble).toArray();
+        double[] malformed = Arrays.stream(option(args, "--malformed", "0,0.02").split(",")).mapToDouble(Double::parseDouble).toArray();
+
+        PrintStream report = System.out;
+        Path workDir = null;
+        ConfigurableApplicationContext app = null;
+        if (url == null) {
+            // Before anything creates a temp file, so that everything the app leaves behind ends up here
+            workDir = Path.of(System.getProperty("java.io.tmpdir"), "packinglist-load-" + System.currentTimeMillis());
+            Files.createDirectories(workDir);
+            System.setProperty("java.io.tmpdir", workDir.toString());
+            Path log = workDir.resolve("app.log");
+            report.printf("Starting the app, its output goes to %s%n", log);
+            PrintStream appLog = new PrintStream(Files.newOutputStream(log), true, StandardCharsets.UTF_8);
+            System.setOut(appLog);
+            System.setErr(appLog);
+
+            List<String> appArgs = new ArrayList<>(List.of("--server.port=0", "--packinglist.cache.enabled=false",
+                    "--packinglist.history.directory=" + workDir.resolve("history")));
+            Arrays.stream(args).filter(arg -> arg.startsWith("--") && arg.contains("=")).forEach(appArgs::add);
+            app = new SpringApplicationBuilder(PackinglistApplication.class).run(appArgs.toArray(new String[0]));
+            url = "http://localhost:" + app.getEnvironment().getProperty("local.server.port");
+        }
+
+        Invoice[] corpus = corpus(corpusSize, rowCounts, duplicates, malformed);
+        long corpusBytes = Arrays.stream(corpus).mapToLong(invoice -> invoice.body.length).sum();
+        ExecutorService clients = Executors.newFixedThreadPool(concurrency);
+        HttpClient http = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+        URI upload = URI.create(url + "/upload");
+
+        try {
+            Set<Path> tempFilesBefore = workDir != null ? tempFiles(workDir) : Set.of();
+            report.printf("Warming up with %d uploads%n", warmup);
+            run(clients, http, upload, corpus, warmup);
+
+            report.printf("Corpus: %d invoices of %s rows, duplicates %s, malformed %s, %d KB in all%n",
+                    corpus.length, join(rowCounts), join(duplicates), join(malformed), corpusBytes / 1024);
+            report.printf("%d uploads, %d at a time, against %s%s%n", requests, concurrency, url,
+                    app != null ? " (in this JVM)" : "");
+            HeapSampler heap = app != null ? HeapSampler.start() : null;
+            long start = System.nanoTime();
+            Result result = run(clients, http, upload, corpus, requests);
+            double seconds = (System.nanoTime() - start) / 1e9;
+            if (heap != null) {
+                heap.stop();
+            }
+
+            report.printf("throughput  %.1f uploads/s, %.1f MB/s of invoices%n",
+                    requests / seconds, result.bytesSent / seconds / (1024 * 1024));
+            report.printf("latency ms  %s%n", percentiles(result.latencies(invoice -> true)));
+            for (int rows : rowCounts) {
+                report.printf("  %6d rows  %s%n", rows, percentiles(result.latencies(invoice -> invoice.rows == rows)));
+            }
+            int failed = requests - result.succeeded();
+            report.printf("errors      %d (%.1f%%)%s%n", failed, 100.0 * failed / requests,
+                    failed == 0 ? "" : result.statuses.entrySet().stream()
+                            .filter(status -> !status.getKey().equals("200"))
+                            .map(status -> status.getKey() + " x" + status.getValue())
+                            .collect(Collectors.joining(", ", ": ", "")));
+
+            if (heap == null) {
+                report.println("heap        not measured, the app runs elsewhere");
+                report.println("temp files  not measured, the app runs elsewhere");
+                return;
+            }
+            report.printf("heap        high-water %d MB used (sampled every %d ms), %d MB committed, %d MB max; "
+                            + "app and clients together, the corpus is %d MB of it%n",
+                    heap.maxUsed / (1024 * 1024), HeapSampler.INTERVAL_MS, heap.maxCommitted / (1024 * 1024),
+                    ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getMax() / (1024 * 1024),
+                    corpusBytes / (1024 * 1024));
+
+            Thread.sleep(SETTLE.toMillis());
+            List<Path> leftOver = new ArrayList<>(tempFiles(workDir));
+            leftOver.removeAll(tempFilesBefore);
+            Path tempDir = workDir;
+            report.printf("temp files  %d left behind in %s%n", leftOver.size(), tempDir);
+            leftOver.stream().limit(10).forEach(file -> report.printf("              %s%n", tempDir.relativize(file)));
+        } finally {
+            clients.shutdownNow();
+            if (app != null) {
+                app.close();
+            }
+        }
+    }
+
+    private static final class Invoice {
+        final int rows;
+        final byte[] body;
+
+        Invoice(int rows, byte[] body) {
+            this.rows = rows;
+            this.body = body;
+        }
+    }
+
+    /**
+     * Invoices with every combination of size, duplicate share and malformed share in turn,
+     * each from its own seed, in shuffled order so sizes are mixed at any moment
+     */
+    private static Invoice[] corpus(int size, int[] rowCounts, double[] duplicates, double[] malformed) {
+        List<Invoice> corpus = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            int rows = rowCounts[i % rowCounts.length];
+            double duplicateShare = duplicates[i / rowCounts.length % duplicates.length];
+            double malformedShare = malformed[i / rowCounts.length / duplicates.length % malformed.length];
+            byte[] csv = InvoiceFixtures.invoiceCsv(rows, 42 + i, duplicateShare, malformedShare);
+            corpus.add(new Invoice(rows, multipartBody(csv)));
+        }
+        Collections.shuffle(corpus, new Random(42));
+        return corpus.toArray(new Invoice[0]);
+    }
+
+    private static final class Result {
+        final Invoice[] invoices;
+        final long[] latencies;
+        final int[] statusCodes;
+        final Map<String, Integer> statuses = new TreeMap<>();
+        long bytesSent;
+
+        Result(int count) {
+            invoices = new Invoice[count];
+            latencies = new long[count];
+            statusCodes = new int[count];
+        }
+
+        int succeeded() {
+            return statuses.getOrDefault("200", 0);
+        }
+
+        long[] latencies(Predicate<Invoice> which) {
+            List<Long> selected = new ArrayList<>();
+            for (int i = 0; i < latencies.length; i++) {
+                if (statusCodes[i] == 200 && which.test(invoices[i])) {
+                    selected.add(latencies[i]);
+                }
+            }
+            return selected.stream().mapToLong(Long::longValue).sorted().toArray();
+        }
+    }
+
+    private static Result run(ExecutorService clients, HttpClient http, URI upload, Invoice[] corpus, int count) throws Exception {
+        Result result = new Result(count);
+        AtomicLong bytesSent = new AtomicLong();
+        List<Future<?>> pending = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int request = i;
+            Invoice invoice = corpus[i % corpus.length];
+            pending.add(clients.submit(() -> {
+                HttpRequest post = HttpRequest.newBuilder(upload)
+                        .timeout(Duration.ofMinutes(2))
+                        .header("Content-Type", "multipart/form-data; boundary=" + BOUNDARY)
+                        .POST(HttpRequest.BodyPublishers.ofByteArray(invoice.body))
+                        .build();
+                long start = System.nanoTime();
+                int status;
+                try {
+                    status = http.send(post, HttpResponse.BodyHandlers.discarding()).statusCode();
+                } catch (Exception e) {
+                    status = 0;
+                }
+                result.invoices[request] = invoice;
+                result.latencies[request] = System.nanoTime() - start;
+                result.statusCodes[request] = status;
+                bytesSent.addAndGet(invoice.body.length);
+            }));
+        }
+        for (Future<?> future : pending) {
+            future.get();
+        }
+        for (int status : result.statusCodes) {
+            result.statuses.merge(status == 0 ? "no response" : Integer.toString(status), 1, Integer::sum);
+        }
+        result.bytesSent = bytesSent.get();
+        return result;
+    }
+
+    /**
+     * Keeps the highest heap use seen while the uploads run. Sampling misses peaks shorter than
+     * the interval, so the figure is a floor for the true high-water mark.
+     */
+    private static final class HeapSampler implements Runnable {
+        static final int INTERVAL_MS = 10;
+
+        private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        private final Thread thread = new Thread(this, "heap-sampler");
+        private volatile boolean running = true;
+        volatile long maxUsed;
+        volatile long maxCommitted;
+
+        static HeapSampler start() {
+            HeapSampler sampler = new HeapSampler();
+            sampler.thread.setDaemon(true);
+            sampler.thread.start();
+            return sampler;
+        }
+
+        @Override
+        public void run() {
+            while (running) {
+                MemoryUsage heap = memory.getHeapMemoryUsage();
+                maxUsed = Math.max(maxUsed, heap.getUsed());
+                maxCommitted = Math.max(maxCommitted, heap.getCommitted());
+                try {
+                    Thread.sleep(INTERVAL_MS);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+
+        void stop() throws InterruptedException {
+            running = false;
+            thread.join();
+        }
+    }
+
+    /**
+     * Regular files under the app's temp directory, apart from the history database and the app's log
+     */
+    private static Set<Path> tempFiles(Path workDir) throws IOException {
+        Path history = workDir.resolve("history");
+        Path log = workDir.resolve("app.log");
+        try (Stream<Path> files = Files.walk(workDir)) {
+            return files.filter(Files::isRegularFile)
+                    .filter(file -> !file.startsWith(history) && !file.equals(log))
+                    .collect(Collectors.toSet());
+        }
+    }
+
+    private static String percentiles(long[] sorted) {
+        if (sorted.length == 0) {
+            return "no successful uploads";
+        }
+        return String.format("p50 %.1f  p95 %.1f  p99 %.1f  max %.1f", percentile(sorted, 50),
+                percentile(sorted, 95), percentile(sorted, 99), sorted[sorted.length - 1] / 1e6);
+    }
+
+    private static double percentile(long[] sorted, int percentile) {
+        int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, index)] / 1e6;
+    }
+
+    private static byte[] multipartBody(byte[] csv) {
+        StringBuilder fields = new StringBuilder();
+        String[][] params = {{"rmb", "100"}, {"rate", "7.1"}, {"boxes", "3"}, {"weight", "12.5"}, {"manualTracking", "1Z999AA12345678901"}};
+        for (String[] param : params) {
+            fields.append("--").append(BOUNDARY).append("\r\n")
+                    .append("Content-Disposition: form-data; name=\"").append(param[0]).append("\"\r\n\r\n")
+                    .append(param[1]).append("\r\n");
+        }
+        fields.append("--").append(BOUNDARY).append("\r\n")
+                .append("Content-Disposition: form-data; name=\"csvFile\"; filename=\"invoice.csv\"\r\n")
+                .append("Content-Type: text/csv\r\n\r\n");
+        byte[] head = fields.toString().getBytes(StandardCharsets.UTF_8);
+        byte[] tail = ("\r\n--" + BOUNDARY + "--\r\n").getBytes(StandardCharsets.UTF_8);
+
+        byte[] body = new byte[head.length + csv.length + tail.length];
+        System.arraycopy(head, 0, body, 0, head.length);
+        System.arraycopy(csv, 0, body, head.length, csv.length);
+        System.arraycopy(tail, 0, body, head.length + csv.length, tail.length);
+        return body;
+    }
+
+    private static String join(int[] values) {
+        return Arrays.stream(values).mapToObj(Integer::toString).collect(Collectors.joining("/"));
+    }
+
+    private static String join(double[] values) {
+        return Arrays.stream(values).mapToObj(value -> value == (long) value ? Long.toString((long) value) : Double.toString(value))
+                .collect(Collectors.joining("/"));
+    }
+
+    private static String option(String[] args, String name, String defaultValue) {
+        for (int i = 0; i < args.length - 1; i++) {
+            if (args[i].equals(name)) {
+                return args[i + 1];
+            }
+        }
+        return defaultValue;
+    }
+}
@@ -0,0 +1,211 @@
+package com.example.packinglist.admission;
+
+import com.example.packinglist.config.PackingListProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Admission control for uploads. A multipart POST takes permits weighted by its Content-Length
+ * from a shared byte budget before the container reads the body, and gives them back once its
+ * response has been written, streamed responses included. So the heap and temp space taken by
+ * uploads in flight stays bounded however many arrive at once.
+ * <p>
+ * An upload that does not fit waits its turn, first come first served, for up to the queue
+ * timeout and is then answered 503. When too many are already waiting it is answered 429 at
+ * once. Both answers carry Retry-After, and neither reads the request body.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+public class UploadAdmissionFilter extends OncePerRequestFilter {
+
+    // Permits are kilobytes, so a budget of up to 2 TB fits in an int
+    private static final long PERMIT_BYTES = 1024;
+
+    private final PackingListProperties.Uploads uploads;
+    private final int budget;
+    private final int minWeight;
+    private final Semaphore permits;
+    private final AtomicInteger queued = new AtomicInteger();
+    private final Timer queueWait;
+    private final Counter rejectedQueueFull;
+    private final Counter rejectedTimeout;
+
+    public UploadAdmissionFilter(PackingListProperties properties, MeterRegistry registry) {
+        this.uploads = properties.getUploads();
+        this.budget = (int) Math.max(1, Math.min(Integer.MAX_VALUE, permitsFor(uploads.getMaxConcurrentBytes().toBytes())));
+        this.minWeight = (int) Math.min(budget, permitsFor(uploads.getMinWeight().toBytes()));
+        // Fair, so a large upload is not passed over forever by a stream of small ones
+        this.permits = new Semaphore(budget, true);
+
+        Gauge.builder("packinglist.uploads.queued", queued, AtomicInteger::get)
+                .description("Uploads waiting for admission")
+                .register(registry);
+        Gauge.builder("packinglist.uploads.admitted", permits, p -> (double) (budget - p.availablePermits()) * PERMIT_BYTES)
+                .description("Upload bytes admitted and not yet answered")
+                .baseUnit("bytes")
+                .register(registry);
+        queueWait = Timer.builder("packinglist.uploads.queue.wait")
+                .description("Time uploads that did not fit right away waited for admission")
+                .register(registry);
+        rejectedQueueFull = Counter.builder("packinglist.uploads.rejected")
+                .description("Uploads turned away because the server was saturated")
+                .tag("reason", "queue_full")
+                .register(registry);
+        rejectedTimeout = Counter.builder("packinglist.uploads.rejected")
+                .description("Uploads turned away because the server was saturated")
+                .tag("reason", "timeout")
+                .register(registry);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String contentType = request.getContentType();
+        return !uploads.isAdmissionControl() || !"POST".equals(request.getMethod())
+                || contentType == null || !contentType.toLowerCase(Locale.ROOT).startsWith("multipart/");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        int weight = weight(request.getContentLengthLong());
+        try {
+            if (!admit(weight, response)) {
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            reject(response, HttpStatus.SERVICE_UNAVAILABLE, "The server is shutting down, please try again shortly");
+            return;
+        }
+
+        Runnable release = releaseOnce(weight);
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            // Streamed responses are written after this returns; hold the permits until they are done
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new ReleasingListener(release));
+            } else {
+                release.run();
+            }
+        }
+    }
+
+    /**
+     * Takes the permits, waiting for them if needed, or answers the request when it cannot
+     */
+    private boolean admit(int weight, HttpServletResponse response) throws InterruptedException, IOException {
+        // A zero timeout still respects the queue, unlike tryAcquire without one
+        if (permits.tryAcquire(weight, 0, TimeUnit.SECONDS)) {
+            return true;
+        }
+        if (queued.incrementAndGet() > uploads.getMaxQueued()) {
+            queued.decrementAndGet();
+            rejectedQueueFull.increment();
+            reject(response, HttpStatus.TOO_MANY_REQUESTS, "Too many uploads are waiting right now, please try again shortly");
+            return false;
+        }
+        long start = System.nanoTime();
+        boolean admitted;
+        try {
+            admitted = permits.tryAcquire(weight, uploads.getQueueTimeout().toMillis(), TimeUnit.MILLISECONDS);
+        } finally {
+            queued.decrementAndGet();
+            queueWait.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+        if (!admitted) {
+            rejectedTimeout.increment();
+            reject(response, HttpStatus.SERVICE_UNAVAILABLE, "The server is busy with other uploads, please try again shortly");
+        }
+        return admitted;
+    }
+
+    /**
+     * Permits charged for a request body of the given length. Without a Content-Length the size
+     * is unknown, so the upload is charged the whole budget and runs on its own.
+     */
+    private int weight(long contentLength) {
+        if (contentLength < 0) {
+            return budget;
+        }
+        return (int) Math.min(budget, Math.max(minWeight, permitsFor(contentLength)));
+    }
+
+    private static long permitsFor(long bytes) {
+        return (bytes + PERMIT_BYTES - 1) / PERMIT_BYTES;
+    }
+
+    private Runnable releaseOnce(int weight) {
+        AtomicBoolean released = new AtomicBoolean();
+        return () -> {
+            if (released.compareAndSet(false, true)) {
+                permits.release(weight);
+            }
+        };
+    }
+
+    private void reject(HttpServletResponse response, HttpStatus status, String message) throws IOException {
+        byte[] bytes = message.getBytes(StandardCharsets.UTF_8);
+        response.setStatus(status.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, uploads.getRetryAfter().toSeconds())));
+        response.setContentType(new MediaType(MediaType.TEXT_PLAIN, StandardCharsets.UTF_8).toString());
+        response.setContentLength(bytes.length);
+        response.getOutputStream().write(bytes);
+    }
+
+    /**
+     * Gives the permits back however the async request ends; error and timeout are followed by complete
+     */
+    private static final class ReleasingListener implements AsyncListener {
+
+        private final Runnable release;
+
+        ReleasingListener(Runnable release) {
+            this.release = release;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            release.run();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            release.run();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            release.run();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            // Listeners are dropped when async processing starts again; stay for the new cycle
+            event.getAsyncContext().addListener(this);
+        }
+    }
+}
@@ -0,0 +1,245 @@
+package com.example.packinglist.cache;
+
+import com.example.packinglist.config.PackingListProperties;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Finished ZIP files keyed by a hash of the uploaded CSV bytes and the form parameters.
+ * Staff often re-upload the same invoice with the same values while fixing up a
+ * printout; a repeat request is then answered from memory without parsing anything.
+ * Entries are evicted least-recently-used once the total size exceeds the budget, and
+ * expire after a fixed time to live.
+ * <p>
+ * Hits, misses, evictions and the memory held are published as {@code packinglist.cache.*} meters.
+ */
+@Component
+public class ResultCache implements MeterBinder {
+
+    private final boolean enabled;
+    private final long maxBytes;
+    private final long maxEntryBytes;
+    private final long ttlNanos;
+
+    // Access-ordered, so iteration starts at the least recently used entry
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    @Autowired
+    public ResultCache(PackingListProperties properties) {
+        this(properties.getCache().isEnabled(),
+                properties.getCache().getMaxSize().toBytes(),
+                properties.getCache().getMaxEntrySize().toBytes(),
+                properties.getCache().getTtl());
+    }
+
+    public ResultCache(boolean enabled, long maxBytes, long maxEntryBytes, Duration ttl) {
+        this.enabled = enabled;
+        this.maxBytes = maxBytes;
+        this.maxEntryBytes = Math.min(maxEntryBytes, maxBytes);
+        this.ttlNanos = ttl.toNanos();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Computes the cache key: SHA-256 over the file content followed by each parameter.
+     * The stream is read to the end but not closed.
+     */
+    public static String key(InputStream content, Object... parameters) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+        DigestInputStream in = new DigestInputStream(content, digest);
+        byte[] buffer = new byte[16 * 1024];
+        while (in.read(buffer) != -1) {
+            // Reading is all it takes to update the digest
+        }
+        for (Object parameter : parameters) {
+            // Separator byte keeps ("ab", "c") and ("a", "bc") apart
+            digest.update((byte) 0);
+            digest.update(String.valueOf(parameter).getBytes(StandardCharsets.UTF_8));
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Returns the cached result for the key, or null if there is none or it has expired
+     */
+    public byte[] get(String key) {
+        if (!enabled) {
+            return null;
+        }
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null && System.nanoTime() - entry.createdAt > ttlNanos) {
+                remove(key);
+                entry = null;
+            }
+            if (entry == null) {
+                misses.incrementAndGet();
+                return null;
+            }
+            hits.incrementAndGet();
+            return entry.content;
+        }
+    }
+
+    public void put(String key, byte[] content) {
+        if (!enabled || content.length > maxEntryBytes) {
+            return;
+        }
+        synchronized (this) {
+            remove(key);
+            entries.put(key, new Entry(content, System.nanoTime()));
+            totalBytes += content.length;
+
+            Iterator<Map.Entry<String, Entry>> eldest = entries.entrySet().iterator();
+            while (totalBytes > maxBytes && eldest.hasNext()) {
+                totalBytes -= eldest.next().getValue().content.length;
+                eldest.remove();
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    private void remove(String key) {
+        Entry removed = entries.remove(key);
+        if (removed != null) {
+            totalBytes -= removed.content.length;
+        }
+    }
+
+    /**
+     * Wraps the response stream so that everything written to it is also captured for
+     * the cache. Call {@link Recorder#commit()} once the result is complete; results
+     * larger than the per-entry limit are passed through but not kept.
+     */
+    public Recorder recorder(String key, OutputStream out) {
+        return new Recorder(key, out);
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("packinglist.cache.gets", hits, AtomicLong::get)
+                .description("Uploads looked up in the result cache")
+                .tag("result", "hit")
+                .register(registry);
+        FunctionCounter.builder("packinglist.cache.gets", misses, AtomicLong::get)
+                .description("Uploads looked up in the result cache")
+                .tag("result", "miss")
+                .register(registry);
+        FunctionCounter.builder("packinglist.cache.evictions", evictions, AtomicLong::get)
+                .description("Cached results dropped to stay within the memory budget")
+                .register(registry);
+        Gauge.builder("packinglist.cache.size", this, ResultCache::getTotalBytes)
+                .description("Bytes of cached results held in memory")
+                .baseUnit("bytes")
+                .register(registry);
+        Gauge.builder("packinglist.cache.entries", this, ResultCache::size)
+                .description("Cached results held in memory")
+                .register(registry);
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getTotalBytes() {
+        return totalBytes;
+    }
+
+    private static final class Entry {
+        final byte[] content;
+        final long createdAt;
+
+        Entry(byte[] content, long createdAt) {
+            this.content = content;
+            this.createdAt = createdAt;
+        }
+    }
+
+    public final class Recorder extends FilterOutputStream {
+        private final String key;
+        private ByteArrayOutputStream copy;
+
+        private Recorder(String key, OutputStream out) {
+            super(out);
+            this.key = key;
+            this.copy = enabled ? new ByteArrayOutputStream(64 * 1024) : null;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            if (copy != null) {
+                copy.write(b);
+                checkSize();
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            if (copy != null) {
+                copy.write(b, off, len);
+                checkSize();
+            }
+        }
+
+        private void checkSize() {
+            if (copy.size() > maxEntryBytes) {
+                // Too big to cache, stop copying
+                copy = null;
+            }
+        }
+
+        public void commit() {
+            if (copy != null) {
+                put(key, copy.toByteArray());
+                copy = null;
+            }
+        }
+    }
+}
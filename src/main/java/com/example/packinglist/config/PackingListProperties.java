@@ -0,0 +1,267 @@
+package com.example.packinglist.config;
+
+import com.example.packinglist.sort.ItemOrdering;
+import com.example.packinglist.sort.KeySorter;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/**
+ * Tunables for the packing list pipeline, bound from {@code packinglist.*} properties.
+ */
+@Data
+@ConfigurationProperties(prefix = "packinglist")
+public class PackingListProperties {
+
+    private final Output output = new Output();
+
+    private final Sort sort = new Sort();
+
+    private final Cache cache = new Cache();
+
+    private final Jobs jobs = new Jobs();
+
+    private final Batch batch = new Batch();
+
+    private final History history = new History();
+
+    private final Preview preview = new Preview();
+
+    private final Uploads uploads = new Uploads();
+
+    private final Sessions sessions = new Sessions();
+
+    private final Tracking tracking = new Tracking();
+
+    @Data
+    public static class Output {
+        /**
+         * Write the generated files straight into the ZIP on the response.
+         * Set to false to fall back to staging each file in a temp file first.
+         */
+        private boolean streaming = true;
+
+        /**
+         * Render the HTML and import CSV on their own threads while the packing list CSV
+         * streams into the ZIP. Those two files are spooled until their ZIP entry comes up.
+         */
+        private boolean concurrent = false;
+
+        /**
+         * Use virtual threads for the concurrent renderers. Needs Java 21; on older
+         * runtimes a bounded platform thread pool is used instead.
+         */
+        private boolean virtualThreads = false;
+
+        /**
+         * Spooled files larger than this are moved from memory to a temp file.
+         */
+        private DataSize spoolThreshold = DataSize.ofMegabytes(4);
+
+        /**
+         * Deflate ZIP entries larger than one compression block in parallel blocks on every
+         * core, pigz style. Has no effect on a single core.
+         */
+        private boolean parallelCompression = true;
+
+        /**
+         * ZIP entries up to this size are deflated at the default level, or stored when that
+         * does not make them smaller; larger ones at a faster level, block by block.
+         */
+        private DataSize compressionBlockSize = DataSize.ofKilobytes(128);
+    }
+
+    @Data
+    public static class Sort {
+        /**
+         * Rows sorted in memory before a sorted run is spilled to disk.
+         */
+        private int maxRowsInMemory = 50_000;
+
+        /**
+         * Where spilled runs are written; defaults to java.io.tmpdir.
+         */
+        private String spillDirectory;
+
+        /**
+         * Row order of the generated files: lexical item number, natural item number
+         * (1015 < 1016B < 23463) or PO then item number.
+         */
+        private ItemOrdering order = ItemOrdering.LEXICAL;
+
+        /**
+         * Rows at which sorting switches to Arrays.parallelSort.
+         */
+        private int parallelThreshold = KeySorter.DEFAULT_PARALLEL_THRESHOLD;
+    }
+
+    @Data
+    public static class Cache {
+        /**
+         * Keep finished ZIPs in memory so identical re-uploads skip all processing.
+         */
+        private boolean enabled = true;
+
+        /**
+         * Total size of all cached ZIPs; least recently used ones are evicted first.
+         */
+        private DataSize maxSize = DataSize.ofMegabytes(64);
+
+        /**
+         * Larger results are streamed as usual but not cached.
+         */
+        private DataSize maxEntrySize = DataSize.ofMegabytes(8);
+
+        /**
+         * How long a cached result stays valid.
+         */
+        private Duration ttl = Duration.ofMinutes(30);
+    }
+
+    @Data
+    public static class Jobs {
+        /**
+         * Worker threads generating packing lists in the background.
+         */
+        private int threads = 2;
+
+        /**
+         * Jobs waiting for a free worker before new submissions are turned away.
+         */
+        private int queueDepth = 16;
+
+        /**
+         * What to do with a submission when all workers are busy and the queue is full.
+         */
+        private RejectionPolicy rejectionPolicy = RejectionPolicy.REJECT;
+
+        /**
+         * Uploads to /upload larger than this run as a background job; 0 keeps every upload inline.
+         */
+        private DataSize asyncThreshold = DataSize.ofMegabytes(20);
+
+        /**
+         * How long a finished job and its ZIP are kept for download.
+         */
+        private Duration resultTtl = Duration.ofHours(1);
+    }
+
+    @Data
+    public static class Batch {
+        /**
+         * Invoices of a batch processed at the same time, shared by all batch requests.
+         */
+        private int threads = 4;
+
+        /**
+         * Most invoices accepted in one batch request.
+         */
+        private int maxInvoices = 50;
+
+        /**
+         * Invoices of all batch requests waiting for a thread before new batches are turned away.
+         */
+        private int queueDepth = 200;
+
+        /**
+         * Largest CSV file a batch ZIP may unpack to, the same as a single upload by default.
+         */
+        private DataSize maxEntrySize = DataSize.ofMegabytes(200);
+
+        /**
+         * Most bytes all CSV files of one batch ZIP may unpack to together.
+         */
+        private DataSize maxUnpackedSize = DataSize.ofGigabytes(1);
+    }
+
+    @Data
+    public static class History {
+        /**
+         * Record every processed invoice in the shipment history database.
+         */
+        private boolean enabled = true;
+
+        /**
+         * Directory of the history database file.
+         */
+        private String directory = "./data";
+
+        /**
+         * Invoices waiting to be written before new ones are dropped from the history.
+         */
+        private int queueDepth = 32;
+    }
+
+    @Data
+    public static class Preview {
+        /**
+         * Most pages a single preview request may render.
+         */
+        private int maxPages = 10;
+    }
+
+    @Data
+    public static class Uploads {
+        /**
+         * Admit multipart uploads against the byte budget below before their body is read.
+         */
+        private boolean admissionControl = true;
+
+        /**
+         * Upload bytes in flight at once. Each upload holds its Content-Length from admission
+         * until its response has been written; one larger than this runs on its own.
+         */
+        private DataSize maxConcurrentBytes = DataSize.ofMegabytes(256);
+
+        /**
+         * Least an upload is charged, so a flood of small files is bounded as well.
+         */
+        private DataSize minWeight = DataSize.ofMegabytes(1);
+
+        /**
+         * Uploads waiting for room before new ones are turned away with 429.
+         */
+        private int maxQueued = 32;
+
+        /**
+         * How long an upload waits for room before it is turned away with 503.
+         */
+        private Duration queueTimeout = Duration.ofSeconds(10);
+
+        /**
+         * Sent as Retry-After with the 429 and 503 answers.
+         */
+        private Duration retryAfter = Duration.ofSeconds(10);
+    }
+
+    @Data
+    public static class Sessions {
+        /**
+         * Total size of all open editing sessions; least recently used ones are closed first.
+         */
+        private DataSize maxSize = DataSize.ofMegabytes(128);
+
+        /**
+         * How long a session stays open without being used.
+         */
+        private Duration idleTimeout = Duration.ofMinutes(30);
+    }
+
+    @Data
+    public static class Tracking {
+        /**
+         * Most tracking numbers a manifest that names none of the invoice's POs may hold for
+         * all of them to be used; with more, the tracking number is left empty.
+         */
+        private int maxUnmatchedNumbers = 1;
+    }
+
+    public enum RejectionPolicy {
+        /** Answer 503 with Retry-After */
+        REJECT,
+        /** Run the job on the submitting request thread */
+        CALLER_RUNS
+    }
+}
@@ -0,0 +1,169 @@
+package com.example.packinglist.controller;
+
+import com.example.packinglist.model.ShipmentDetails;
+import com.example.packinglist.service.BatchInvoice;
+import com.example.packinglist.service.BatchResult;
+import com.example.packinglist.service.BatchService;
+import com.example.packinglist.service.PackingListService;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+
+import static com.example.packinglist.controller.TextResponses.textResponse;
+
+/**
+ * Many invoices in one request: either several {@code csvFile} parts or one {@code zipFile}
+ * of CSVs. Each shipment value is given once for all invoices or once per invoice, in order.
+ */
+@Controller
+public class BatchController {
+
+    private final PackingListService packingListService;
+    private final BatchService batchService;
+
+    public BatchController(PackingListService packingListService, BatchService batchService) {
+        this.packingListService = packingListService;
+        this.batchService = batchService;
+    }
+
+    @PostMapping("/batch")
+    public ResponseEntity<StreamingResponseBody> handleBatch(
+            @RequestParam(value = "csvFile", required = false) List<MultipartFile> csvFiles,
+            @RequestParam(value = "zipFile", required = false) MultipartFile zipFile,
+            @RequestParam(value = "manualTracking", required = false) List<String> manualTracking,
+            @RequestParam(value = "trackingFile", required = false) MultipartFile trackingFile,
+            @RequestParam("rmb") List<Double> rmb,
+            @RequestParam("rate") List<Double> rate,
+            @RequestParam("boxes") List<Integer> boxes,
+            @RequestParam("weight") List<Double> weight,
+            @RequestParam(value = "merged", defaultValue = "false") boolean merged
+    ) {
+        List<BatchService.SpooledFile> unpacked = Collections.emptyList();
+        BatchResult result = null;
+        boolean handedOff = false;
+        try {
+            List<String> names = new ArrayList<>();
+            List<InputStreamSource> contents = new ArrayList<>();
+            if (zipFile != null && !zipFile.isEmpty()) {
+                try (InputStream in = zipFile.getInputStream()) {
+                    unpacked = batchService.unpackCsvFiles(in, batchService.getMaxInvoices());
+                }
+                for (BatchService.SpooledFile file : unpacked) {
+                    names.add(file.getName());
+                    contents.add(file);
+                }
+            } else if (csvFiles != null) {
+                for (MultipartFile csvFile : csvFiles) {
+                    if (csvFile.isEmpty() && (csvFile.getOriginalFilename() == null || csvFile.getOriginalFilename().isEmpty())) {
+                        continue;   // File input left empty on the form
+                    }
+                    String problem = packingListService.validateUpload(csvFile);
+                    if (problem != null) {
+                        return textResponse(HttpStatus.BAD_REQUEST, csvFile.getOriginalFilename() + ": " + problem);
+                    }
+                    names.add(csvFile.getOriginalFilename());
+                    contents.add(csvFile);
+                }
+            }
+
+            int count = names.size();
+            if (count == 0) {
+                return textResponse(HttpStatus.BAD_REQUEST, "Upload one or more CSV files, or a ZIP file containing them");
+            }
+            if (count > batchService.getMaxInvoices()) {
+                return textResponse(HttpStatus.BAD_REQUEST, "A batch can contain at most " + batchService.getMaxInvoices() + " invoices");
+            }
+            String mismatch = checkValueCount(count, "manualTracking", manualTracking, "rmb", rmb, "rate", rate, "boxes", boxes, "weight", weight);
+            if (mismatch != null) {
+                return textResponse(HttpStatus.BAD_REQUEST, mismatch);
+            }
+
+            List<BatchInvoice> invoices = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                ShipmentDetails details = ShipmentDetails.of(valueFor(manualTracking, i), valueFor(rmb, i),
+                        valueFor(rate, i), valueFor(boxes, i), valueFor(weight, i));
+                invoices.add(new BatchInvoice(names.get(i), contents.get(i), details));
+            }
+
+            String today = new SimpleDateFormat("yyMMdd").format(new Date());
+            result = batchService.process(invoices, today, merged, packingListService.readTrackingManifest(trackingFile));
+            List<String> errors = result.getErrors();
+            if (!errors.isEmpty()) {
+                return textResponse(HttpStatus.BAD_REQUEST, "Some invoices could not be processed:\n" + String.join("\n", errors));
+            }
+
+            BatchResult files = result;
+            List<BatchService.SpooledFile> inputs = unpacked;
+            StreamingResponseBody body = out -> {
+                try (files) {
+                    files.writeZip(out);
+                } finally {
+                    BatchService.closeAll(inputs);
+                }
+            };
+            handedOff = true;
+            return ResponseEntity.ok()
+                    .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=packing-files-batch-" + today + ".zip")
+                    .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                    .body(body);
+
+        } catch (IllegalArgumentException e) {
+            return textResponse(HttpStatus.BAD_REQUEST, e.getMessage());
+        } catch (BatchService.ArchiveTooLargeException e) {
+            return textResponse(HttpStatus.PAYLOAD_TOO_LARGE, e.getMessage());
+        } catch (RejectedExecutionException e) {
+            return textResponse(HttpStatus.SERVICE_UNAVAILABLE, "Too many batches are being processed right now, please try again shortly");
+        } catch (Exception e) {
+            System.err.println("Error processing batch: " + e.getMessage());
+            e.printStackTrace();
+            return textResponse(HttpStatus.INTERNAL_SERVER_ERROR, "An error occurred while processing your files. Please check your files and try again.");
+        } finally {
+            if (!handedOff) {
+                BatchService.closeAll(unpacked);
+                if (result != null) {
+                    try {
+                        result.close();
+                    } catch (IOException ignored) {
+                        // Spool cleanup is best effort
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Each value list must have one entry for all invoices or one per invoice
+     */
+    private static String checkValueCount(int invoices, Object... namesAndValues) {
+        for (int i = 0; i < namesAndValues.length; i += 2) {
+            List<?> values = (List<?>) namesAndValues[i + 1];
+            if (values != null && values.size() != 1 && values.size() != invoices) {
+                return "Expected 1 or " + invoices + " values for " + namesAndValues[i] + ", got " + values.size();
+            }
+        }
+        return null;
+    }
+
+    private static <T> T valueFor(List<T> values, int invoice) {
+        if (values == null || values.isEmpty()) {
+            return null;
+        }
+        return values.size() == 1 ? values.get(0) : values.get(invoice);
+    }
+}
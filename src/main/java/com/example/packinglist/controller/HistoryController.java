@@ -0,0 +1,94 @@
+package com.example.packinglist.controller;
+
+import com.example.packinglist.history.HistoryService;
+import com.example.packinglist.history.ShipmentHistoryRepository;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.util.Locale;
+import java.util.function.Supplier;
+
+/**
+ * Queries over the shipment history: when did an item or PO arrive, and how much of it.
+ * Dates are arrival dates in ISO format (yyyy-MM-dd); every filter is optional.
+ */
+@RestController
+@RequestMapping("/history")
+public class HistoryController {
+
+    private static final int MAX_LIMIT = 1000;
+
+    private final HistoryService history;
+
+    public HistoryController(HistoryService history) {
+        this.history = history;
+    }
+
+    @GetMapping("/search")
+    public ResponseEntity<Object> search(
+            @RequestParam(value = "item", required = false) String item,
+            @RequestParam(value = "po", required = false) String po,
+            @RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(value = "limit", defaultValue = "100") int limit) {
+        return query(limit, () -> history.search(blankToNull(item), blankToNull(po), from, to, limit));
+    }
+
+    @GetMapping("/items/{itemNo}/last")
+    public ResponseEntity<Object> lastArrival(@PathVariable String itemNo) {
+        if (!history.isEnabled()) {
+            return disabled();
+        }
+        return history.lastArrival(itemNo)
+                .<ResponseEntity<Object>>map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @GetMapping("/aggregate")
+    public ResponseEntity<Object> aggregate(
+            @RequestParam(value = "groupBy", defaultValue = "item") String groupBy,
+            @RequestParam(value = "item", required = false) String item,
+            @RequestParam(value = "po", required = false) String po,
+            @RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(value = "limit", defaultValue = "100") int limit) {
+        ShipmentHistoryRepository.GroupBy group;
+        try {
+            group = ShipmentHistoryRepository.GroupBy.valueOf(groupBy.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().contentType(MediaType.TEXT_PLAIN).body("groupBy must be item or po");
+        }
+        return query(limit, () -> history.aggregate(group, blankToNull(item), blankToNull(po), from, to, limit));
+    }
+
+    @GetMapping("/shipments")
+    public ResponseEntity<Object> shipments(
+            @RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(value = "limit", defaultValue = "100") int limit) {
+        return query(limit, () -> history.shipments(from, to, limit));
+    }
+
+    private ResponseEntity<Object> query(int limit, Supplier<Object> results) {
+        if (!history.isEnabled()) {
+            return disabled();
+        }
+        if (limit < 1 || limit > MAX_LIMIT) {
+            return ResponseEntity.badRequest().contentType(MediaType.TEXT_PLAIN).body("limit must be between 1 and " + MAX_LIMIT);
+        }
+        return ResponseEntity.ok(results.get());
+    }
+
+    private static ResponseEntity<Object> disabled() {
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).contentType(MediaType.TEXT_PLAIN)
+                .body("Shipment history is turned off (packinglist.history.enabled)");
+    }
+
+    private static String blankToNull(String value) {
+        return value == null || value.isBlank() ? null : value.trim();
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.packinglist.controller;
+
+import com.example.packinglist.job.Job;
+import com.example.packinglist.job.JobService;
+import com.example.packinglist.job.JobStatus;
+import com.example.packinglist.model.ShipmentDetails;
+import com.example.packinglist.service.PackingListService;
+import com.example.packinglist.tracking.TrackingManifest;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.net.URI;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Background generation for invoices too large to wait for in one request:
+ * submit with POST /jobs, poll GET /jobs/{id}, download GET /jobs/{id}/result
+ */
+@RestController
+@RequestMapping("/jobs")
+public class JobController {
+
+    // Rough time for a worker to free up, sent with 503 so clients back off
+    static final String RETRY_AFTER_SECONDS = "30";
+
+    private final PackingListService packingListService;
+    private final JobService jobService;
+
+    public JobController(PackingListService packingListService, JobService jobService) {
+        this.packingListService = packingListService;
+        this.jobService = jobService;
+    }
+
+    @PostMapping
+    public ResponseEntity<Object> submit(
+            @RequestParam("csvFile") MultipartFile csvFile,
+            @RequestParam(value = "manualTracking", required = false) String manualTracking,
+            @RequestParam(value = "trackingFile", required = false) MultipartFile trackingFile,
+            @RequestParam("rmb") double rmb,
+            @RequestParam("rate") double rate,
+            @RequestParam("boxes") int boxes,
+            @RequestParam("weight") double weight
+    ) throws IOException {
+        String problem = packingListService.validateUpload(csvFile);
+        if (problem != null) {
+            return ResponseEntity.badRequest().contentType(MediaType.TEXT_PLAIN).body(problem);
+        }
+
+        String today = new SimpleDateFormat("yyMMdd").format(new Date());
+        Job job;
+        try {
+            ShipmentDetails details = ShipmentDetails.of(manualTracking, rmb, rate, boxes, weight);
+            TrackingManifest manifest = details.getTracking().isEmpty() ? packingListService.readTrackingManifest(trackingFile) : null;
+            job = jobService.submit(csvFile, today, details, manifest);
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS)
+                    .contentType(MediaType.TEXT_PLAIN)
+                    .body("Too many packing lists are being generated right now, please try again shortly");
+        }
+        return ResponseEntity.accepted()
+                .location(URI.create("/jobs/" + job.getId()))
+                .body(JobStatus.of(job));
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<JobStatus> status(@PathVariable String id) {
+        return jobService.get(id)
+                .map(job -> ResponseEntity.ok(JobStatus.of(job)))
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @GetMapping("/{id}/result")
+    public ResponseEntity<Object> result(@PathVariable String id) {
+        Optional<Job> found = jobService.get(id);
+        if (found.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        Job job = found.get();
+        switch (job.getState()) {
+            case SUCCEEDED:
+                Resource zip = new FileSystemResource(job.getResult());
+                return ResponseEntity.ok()
+                        .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=packing-files-" + job.getDate() + ".zip")
+                        .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                        .body(zip);
+            case FAILED:
+                return ResponseEntity.unprocessableEntity().contentType(MediaType.TEXT_PLAIN).body(job.getError());
+            default:
+                // Not ready yet: point back at the status so clients keep polling
+                return ResponseEntity.status(HttpStatus.CONFLICT)
+                        .location(URI.create("/jobs/" + job.getId()))
+                        .body(JobStatus.of(job));
+        }
+    }
+}
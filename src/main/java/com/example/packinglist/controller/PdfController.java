@@ -0,0 +1,90 @@
+package com.example.packinglist.controller;
+
+import com.example.packinglist.csv.CsvHeaderException;
+import com.example.packinglist.model.ShipmentDetails;
+import com.example.packinglist.service.PackingListService;
+import com.example.packinglist.sort.SortedInvoices;
+import com.example.packinglist.tracking.TrackingManifest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+import static com.example.packinglist.controller.TextResponses.textResponse;
+
+/**
+ * The packing list as a PDF, laid out on the server so it prints the same from every
+ * workstation. Takes the same fields as {@code /upload} and opens in the browser.
+ */
+@Controller
+public class PdfController {
+
+    private final PackingListService packingListService;
+
+    public PdfController(PackingListService packingListService) {
+        this.packingListService = packingListService;
+    }
+
+    @PostMapping("/pdf")
+    public ResponseEntity<StreamingResponseBody> handlePdf(
+            @RequestParam("csvFile") MultipartFile csvFile,
+            @RequestParam(value = "manualTracking", required = false) String manualTracking,
+            @RequestParam(value = "trackingFile", required = false) MultipartFile trackingFile,
+            @RequestParam("rmb") double rmb,
+            @RequestParam("rate") double rate,
+            @RequestParam("boxes") int boxes,
+            @RequestParam("weight") double weight
+    ) {
+        SortedInvoices invoiceEntries = null;
+        boolean handedOff = false;
+        try {
+            String problem = packingListService.validateUpload(csvFile);
+            if (problem != null) {
+                return textResponse(HttpStatus.BAD_REQUEST, problem);
+            }
+
+            String today = new SimpleDateFormat("yyMMdd").format(new Date());
+            ShipmentDetails typed = ShipmentDetails.of(manualTracking, rmb, rate, boxes, weight);
+            TrackingManifest manifest = typed.getTracking().isEmpty() ? packingListService.readTrackingManifest(trackingFile) : null;
+            invoiceEntries = packingListService.readInvoiceCsv(csvFile);
+            if (invoiceEntries.isEmpty()) {
+                return textResponse(HttpStatus.BAD_REQUEST, PackingListService.EMPTY_INVOICE_MESSAGE);
+            }
+
+            SortedInvoices entries = invoiceEntries;
+            ShipmentDetails details = packingListService.withManifestTracking(typed, manifest, entries, true);
+            StreamingResponseBody body = out -> {
+                try {
+                    packingListService.writePackingListPdf(out, today, entries, details);
+                } finally {
+                    entries.close();
+                }
+            };
+            handedOff = true;
+            return ResponseEntity.ok()
+                    .header(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=packing-list-" + today + ".pdf")
+                    .contentType(MediaType.APPLICATION_PDF)
+                    .body(body);
+
+        } catch (CsvHeaderException e) {
+            return textResponse(HttpStatus.BAD_REQUEST, e.getMessage());
+        } catch (Exception e) {
+            System.err.println("Error generating PDF: " + e.getMessage());
+            e.printStackTrace();
+            return textResponse(HttpStatus.INTERNAL_SERVER_ERROR, "An error occurred while generating the PDF. Please check your file and try again.");
+        } finally {
+            // Once the response body owns the sorted rows it closes them itself
+            if (invoiceEntries != null && !handedOff) {
+                invoiceEntries.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.packinglist.controller;
+
+import com.example.packinglist.config.PackingListProperties;
+import com.example.packinglist.csv.CsvHeaderException;
+import com.example.packinglist.model.ShipmentDetails;
+import com.example.packinglist.service.PackingListPreview;
+import com.example.packinglist.service.PackingListService;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+import static com.example.packinglist.controller.TextResponses.textResponse;
+
+/**
+ * Shows some pages of the HTML packing list in the browser, to check a printout without
+ * downloading and unpacking the whole ZIP. Takes the same fields as {@code /upload}, plus
+ * the pages to show and how many items go on a page.
+ */
+@Controller
+public class PreviewController {
+
+    static final String TOTAL_PAGES_HEADER = "X-Total-Pages";
+
+    private final PackingListProperties properties;
+    private final PackingListService packingListService;
+
+    public PreviewController(PackingListProperties properties, PackingListService packingListService) {
+        this.properties = properties;
+        this.packingListService = packingListService;
+    }
+
+    @PostMapping("/preview")
+    public ResponseEntity<StreamingResponseBody> handlePreview(
+            @RequestParam("csvFile") MultipartFile csvFile,
+            @RequestParam(value = "manualTracking", required = false) String manualTracking,
+            @RequestParam("rmb") double rmb,
+            @RequestParam("rate") double rate,
+            @RequestParam("boxes") int boxes,
+            @RequestParam("weight") double weight,
+            @RequestParam(value = "from", defaultValue = "1") int fromPage,
+            @RequestParam(value = "to", required = false) Integer toPage,
+            @RequestParam(value = "itemsPerPage", defaultValue = "" + PackingListService.DEFAULT_ITEMS_PER_PAGE) int itemsPerPage
+    ) {
+        try {
+            String problem = packingListService.validateUpload(csvFile);
+            if (problem != null) {
+                return textResponse(HttpStatus.BAD_REQUEST, problem);
+            }
+            int lastPage = toPage != null ? toPage : fromPage;
+            int maxPages = properties.getPreview().getMaxPages();
+            if (fromPage < 1 || lastPage < fromPage) {
+                return textResponse(HttpStatus.BAD_REQUEST, "from must be at least 1 and to no less than from");
+            }
+            if (lastPage - fromPage + 1 > maxPages) {
+                return textResponse(HttpStatus.BAD_REQUEST, "A preview shows at most " + maxPages + " pages");
+            }
+            if (itemsPerPage < 1 || itemsPerPage > 1000) {
+                return textResponse(HttpStatus.BAD_REQUEST, "itemsPerPage must be between 1 and 1000");
+            }
+
+            String today = new SimpleDateFormat("yyMMdd").format(new Date());
+            PackingListPreview preview = packingListService.previewPackingListHtml(csvFile, today,
+                    ShipmentDetails.of(manualTracking, rmb, rate, boxes, weight), fromPage, lastPage, itemsPerPage);
+            if (preview.getTotalPages() == 0) {
+                return textResponse(HttpStatus.BAD_REQUEST, PackingListService.EMPTY_INVOICE_MESSAGE);
+            }
+            if (preview.getToPage() == 0) {
+                return textResponse(HttpStatus.BAD_REQUEST, "The packing list only has " + preview.getTotalPages() + " pages");
+            }
+
+            byte[] html = preview.getHtml();
+            return ResponseEntity.ok()
+                    .header(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=packing-list-" + today + "-preview.html")
+                    .header(TOTAL_PAGES_HEADER, Integer.toString(preview.getTotalPages()))
+                    .contentType(new MediaType(MediaType.TEXT_HTML, StandardCharsets.UTF_8))
+                    .body(out -> out.write(html));
+
+        } catch (CsvHeaderException e) {
+            return textResponse(HttpStatus.BAD_REQUEST, e.getMessage());
+        } catch (Exception e) {
+            System.err.println("Error previewing: " + e.getMessage());
+            e.printStackTrace();
+            return textResponse(HttpStatus.INTERNAL_SERVER_ERROR, "An error occurred while previewing your file. Please check your file and try again.");
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.packinglist.controller;
+
+import com.example.packinglist.csv.CsvHeaderException;
+import com.example.packinglist.reconcile.ReconciliationReport;
+import com.example.packinglist.reconcile.ReconciliationReportWriter;
+import com.example.packinglist.reconcile.ReconciliationService;
+import com.example.packinglist.service.PackingListService;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.BufferedWriter;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static com.example.packinglist.controller.TextResponses.textResponse;
+
+/**
+ * Compares an invoice with the counts actually received. Answers with the discrepancy
+ * report as CSV, HTML, or by default a ZIP holding both.
+ */
+@Controller
+public class ReconciliationController {
+
+    private final PackingListService packingListService;
+    private final ReconciliationService reconciliationService;
+
+    public ReconciliationController(PackingListService packingListService, ReconciliationService reconciliationService) {
+        this.packingListService = packingListService;
+        this.reconciliationService = reconciliationService;
+    }
+
+    @PostMapping("/reconcile")
+    public ResponseEntity<StreamingResponseBody> handleReconcile(
+            @RequestParam("invoiceFile") MultipartFile invoiceFile,
+            @RequestParam("receivedFile") MultipartFile receivedFile,
+            @RequestParam(value = "format", defaultValue = "zip") String format
+    ) {
+        try {
+            for (MultipartFile file : new MultipartFile[]{invoiceFile, receivedFile}) {
+                String problem = packingListService.validateUpload(file);
+                if (problem != null) {
+                    return textResponse(HttpStatus.BAD_REQUEST, file.getName() + ": " + problem);
+                }
+            }
+            if (!format.equals("zip") && !format.equals("csv") && !format.equals("html")) {
+                return textResponse(HttpStatus.BAD_REQUEST, "format must be zip, csv or html");
+            }
+
+            ReconciliationReport report = reconciliationService.reconcile(
+                    invoiceFile.getInputStream(), invoiceFile.getOriginalFilename(),
+                    receivedFile.getInputStream(), receivedFile.getOriginalFilename());
+            System.out.println("Reconciled " + invoiceFile.getOriginalFilename() + " against " + receivedFile.getOriginalFilename()
+                    + ": " + report.getMatched() + " matched, " + report.getDiscrepancies().size() + " discrepancies");
+
+            String name = "reconciliation-" + new SimpleDateFormat("yyMMdd").format(new Date());
+            switch (format) {
+                case "csv":
+                    return ResponseEntity.ok()
+                            .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=" + name + ".csv")
+                            .contentType(new MediaType("text", "csv", StandardCharsets.UTF_8))
+                            .body(out -> ReconciliationReportWriter.writeCsv(writer(out), report));
+                case "html":
+                    return ResponseEntity.ok()
+                            .contentType(new MediaType(MediaType.TEXT_HTML, StandardCharsets.UTF_8))
+                            .body(out -> ReconciliationReportWriter.writeHtml(writer(out), report));
+                default:
+                    StreamingResponseBody body = out -> {
+                        ZipOutputStream zos = new ZipOutputStream(out);
+                        // Never close this writer: closing it would close the ZIP stream and the response
+                        Writer writer = writer(zos);
+                        zos.putNextEntry(new ZipEntry(name + ".csv"));
+                        ReconciliationReportWriter.writeCsv(writer, report);
+                        zos.closeEntry();
+                        zos.putNextEntry(new ZipEntry(name + ".html"));
+                        ReconciliationReportWriter.writeHtml(writer, report);
+                        zos.closeEntry();
+                        zos.finish();
+                    };
+                    return ResponseEntity.ok()
+                            .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=" + name + ".zip")
+                            .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                            .body(body);
+            }
+
+        } catch (CsvHeaderException e) {
+            return textResponse(HttpStatus.BAD_REQUEST, e.getMessage());
+        } catch (Exception e) {
+            System.err.println("Error reconciling: " + e.getMessage());
+            e.printStackTrace();
+            return textResponse(HttpStatus.INTERNAL_SERVER_ERROR, "An error occurred while comparing your files. Please check your files and try again.");
+        }
+    }
+
+    private static Writer writer(OutputStream out) {
+        return new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+    }
+}
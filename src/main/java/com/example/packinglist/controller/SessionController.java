@@ -0,0 +1,168 @@
+package com.example.packinglist.controller;
+
+import com.example.packinglist.csv.CsvHeaderException;
+import com.example.packinglist.model.ShipmentDetails;
+import com.example.packinglist.service.PackingListService;
+import com.example.packinglist.session.InvoiceSession;
+import com.example.packinglist.session.SessionService;
+import com.example.packinglist.sort.SortedInvoices;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.ModelAndView;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Editing sessions: upload an invoice once with POST /sessions, then download its files with
+ * any header values from GET /sessions/{id}/zip or view the HTML packing list at
+ * GET /sessions/{id}/html. Only the headers are rendered again for each download. The upload
+ * form opens a session through POST /sessions/form, which leads on to an edit page.
+ */
+@RestController
+@RequestMapping("/sessions")
+public class SessionController {
+
+    private static final String EXPIRED = "This editing session has expired, please upload the invoice again";
+
+    private final PackingListService packingListService;
+    private final SessionService sessionService;
+
+    public SessionController(PackingListService packingListService, SessionService sessionService) {
+        this.packingListService = packingListService;
+        this.sessionService = sessionService;
+    }
+
+    @PostMapping
+    public ResponseEntity<Object> open(@RequestParam("csvFile") MultipartFile csvFile) throws IOException {
+        return open(csvFile, session -> ResponseEntity.created(URI.create("/sessions/" + session.getId())).body(session));
+    }
+
+    /**
+     * The upload form's "Open for Corrections": opens the session and sends the browser on to
+     * its edit page, filled in with the values typed so far
+     */
+    @PostMapping("/form")
+    public ResponseEntity<Object> openFromForm(
+            @RequestParam("csvFile") MultipartFile csvFile,
+            @RequestParam(value = "manualTracking", required = false) String manualTracking,
+            @RequestParam(value = "rmb", required = false) String rmb,
+            @RequestParam(value = "rate", required = false) String rate,
+            @RequestParam(value = "boxes", required = false) String boxes,
+            @RequestParam(value = "weight", required = false) String weight
+    ) throws IOException {
+        return open(csvFile, session -> ResponseEntity.status(HttpStatus.SEE_OTHER)
+                .location(UriComponentsBuilder.fromPath("/sessions/{id}/edit")
+                        .queryParamIfPresent("manualTracking", Optional.ofNullable(manualTracking))
+                        .queryParamIfPresent("rmb", Optional.ofNullable(rmb))
+                        .queryParamIfPresent("rate", Optional.ofNullable(rate))
+                        .queryParamIfPresent("boxes", Optional.ofNullable(boxes))
+                        .queryParamIfPresent("weight", Optional.ofNullable(weight))
+                        .buildAndExpand(session.getId()).encode().toUri())
+                .build());
+    }
+
+    private ResponseEntity<Object> open(MultipartFile csvFile, Function<InvoiceSession, ResponseEntity<Object>> opened) throws IOException {
+        String problem = packingListService.validateUpload(csvFile);
+        if (problem != null) {
+            return ResponseEntity.badRequest().contentType(MediaType.TEXT_PLAIN).body(problem);
+        }
+
+        String today = new SimpleDateFormat("yyMMdd").format(new Date());
+        InvoiceSession session;
+        try (SortedInvoices entries = packingListService.readInvoiceCsv(csvFile)) {
+            if (entries.isEmpty()) {
+                return ResponseEntity.badRequest().contentType(MediaType.TEXT_PLAIN).body(PackingListService.EMPTY_INVOICE_MESSAGE);
+            }
+            session = sessionService.open(csvFile.getOriginalFilename(), today, entries);
+        } catch (CsvHeaderException e) {
+            return ResponseEntity.badRequest().contentType(MediaType.TEXT_PLAIN).body(e.getMessage());
+        }
+        if (session == null) {
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).contentType(MediaType.TEXT_PLAIN)
+                    .body("This invoice is too large to keep open for editing, please use the regular upload");
+        }
+        return opened.apply(session);
+    }
+
+    @GetMapping("/{id}/edit")
+    public ModelAndView edit(@PathVariable String id) {
+        Optional<InvoiceSession> found = sessionService.get(id);
+        if (found.isEmpty()) {
+            return new ModelAndView("error", Map.of("status", 404, "error", EXPIRED), HttpStatus.NOT_FOUND);
+        }
+        return new ModelAndView("session", Map.of("invoice", found.get()));
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<InvoiceSession> status(@PathVariable String id) {
+        return sessionService.get(id)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @GetMapping("/{id}/zip")
+    public ResponseEntity<StreamingResponseBody> zip(
+            @PathVariable String id,
+            @RequestParam(value = "manualTracking", required = false) String manualTracking,
+            @RequestParam("rmb") double rmb,
+            @RequestParam("rate") double rate,
+            @RequestParam("boxes") int boxes,
+            @RequestParam("weight") double weight
+    ) {
+        Optional<InvoiceSession> found = sessionService.get(id);
+        if (found.isEmpty()) {
+            return notFound();
+        }
+        InvoiceSession session = found.get();
+        ShipmentDetails details = ShipmentDetails.of(manualTracking, rmb, rate, boxes, weight);
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=packing-files-" + session.getDate() + ".zip")
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .body(out -> packingListService.writeZip(out, session.getRendered(), details));
+    }
+
+    @GetMapping("/{id}/html")
+    public ResponseEntity<StreamingResponseBody> html(
+            @PathVariable String id,
+            @RequestParam(value = "manualTracking", required = false) String manualTracking,
+            @RequestParam("rmb") double rmb,
+            @RequestParam("rate") double rate,
+            @RequestParam("boxes") int boxes,
+            @RequestParam("weight") double weight
+    ) {
+        Optional<InvoiceSession> found = sessionService.get(id);
+        if (found.isEmpty()) {
+            return notFound();
+        }
+        InvoiceSession session = found.get();
+        ShipmentDetails details = ShipmentDetails.of(manualTracking, rmb, rate, boxes, weight);
+        return ResponseEntity.ok()
+                .contentType(new MediaType(MediaType.TEXT_HTML, StandardCharsets.UTF_8))
+                .body(out -> packingListService.writePackingListHtml(out, session.getRendered(), details));
+    }
+
+    @DeleteMapping("/{id}")
+    public ResponseEntity<Void> close(@PathVariable String id) {
+        return sessionService.close(id) ? ResponseEntity.noContent().build() : ResponseEntity.notFound().build();
+    }
+
+    private static ResponseEntity<StreamingResponseBody> notFound() {
+        byte[] bytes = EXPIRED.getBytes(StandardCharsets.UTF_8);
+        return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                .contentType(new MediaType(MediaType.TEXT_PLAIN, StandardCharsets.UTF_8))
+                .body(out -> out.write(bytes));
+    }
+}
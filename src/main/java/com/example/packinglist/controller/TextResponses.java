@@ -0,0 +1,35 @@
+package com.example.packinglist.controller;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Plain-text answers for the endpoints that stream their results. The body has to be a
+ * StreamingResponseBody as well, since Spring picks the return value handler from the
+ * declared method return type.
+ */
+final class TextResponses {
+
+    private TextResponses() {
+    }
+
+    static ResponseEntity<StreamingResponseBody> textResponse(HttpStatus status, String message) {
+        return textResponse(status, message, null);
+    }
+
+    static ResponseEntity<StreamingResponseBody> textResponse(HttpStatus status, String message, String retryAfter) {
+        byte[] bytes = message.getBytes(StandardCharsets.UTF_8);
+        ResponseEntity.BodyBuilder response = ResponseEntity.status(status);
+        if (retryAfter != null) {
+            response.header(HttpHeaders.RETRY_AFTER, retryAfter);
+        }
+        return response
+                .contentType(new MediaType(MediaType.TEXT_PLAIN, StandardCharsets.UTF_8))
+                .body(out -> out.write(bytes));
+    }
+}
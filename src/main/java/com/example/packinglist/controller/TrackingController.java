@@ -0,0 +1,35 @@
+package com.example.packinglist.controller;
+
+import com.example.packinglist.service.PackingListService;
+import com.example.packinglist.tracking.TrackingManifest;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+
+/**
+ * Lists the tracking numbers found in a carrier manifest, the same scan {@code /upload} runs
+ * on its {@code trackingFile} to fill in the packing list's tracking number
+ */
+@RestController
+public class TrackingController {
+
+    private final PackingListService packingListService;
+
+    public TrackingController(PackingListService packingListService) {
+        this.packingListService = packingListService;
+    }
+
+    @PostMapping("/tracking")
+    public ResponseEntity<Object> extract(@RequestParam("trackingFile") MultipartFile trackingFile) throws IOException {
+        TrackingManifest manifest = packingListService.readTrackingManifest(trackingFile);
+        if (manifest == null) {
+            return ResponseEntity.badRequest().contentType(MediaType.TEXT_PLAIN).body("Tracking file is required and cannot be empty");
+        }
+        return ResponseEntity.ok(manifest);
+    }
+}
@@ -1,58 +1,93 @@
 package com.example.packinglist.controller;
-import org.springframework.core.io.Resource;
+import com.example.packinglist.cache.ResultCache;
+import com.example.packinglist.config.PackingListProperties;
+import com.example.packinglist.csv.CsvHeaderException;
+import com.example.packinglist.history.HistoryService;
+import com.example.packinglist.history.ShipmentRecord;
+import com.example.packinglist.job.Job;
+import com.example.packinglist.job.JobService;
+import com.example.packinglist.metrics.CountingOutputStream;
+import com.example.packinglist.metrics.PipelineMetrics;
 import com.example.packinglist.model.PackingEntry;
 import com.example.packinglist.model.InvoiceEntry;
+import com.example.packinglist.model.ShipmentDetails;
+import com.example.packinglist.service.PackingListService;
+import com.example.packinglist.sort.SortedInvoices;
+import com.example.packinglist.tracking.TrackingManifest;
 
-import java.util.ArrayList;
-import org.apache.commons.csv.CSVFormat;
-import org.apache.commons.csv.CSVRecord;
-import org.springframework.core.io.InputStreamResource;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.*;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.io.*;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.text.SimpleDateFormat;
 import java.util.*;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipOutputStream;
+import java.util.concurrent.RejectedExecutionException;
+
+import static com.example.packinglist.controller.TextResponses.textResponse;
 
 @Controller
 public class UploadController {
 
+    private final PackingListProperties properties;
+    private final PackingListService packingListService;
+    private final ResultCache resultCache;
+    private final JobService jobService;
+    private final HistoryService history;
+    private final PipelineMetrics metrics;
+
+    public UploadController() {
+        this(new PackingListProperties(), PipelineMetrics.noop());
+    }
+
+    private UploadController(PackingListProperties properties, PipelineMetrics metrics) {
+        this(properties, new PackingListService(properties, metrics), metrics);
+    }
+
+    private UploadController(PackingListProperties properties, PackingListService packingListService, PipelineMetrics metrics) {
+        this(properties, packingListService, new ResultCache(properties),
+                new JobService(properties, packingListService), HistoryService.disabled(), metrics);
+    }
+
+    @Autowired
+    public UploadController(PackingListProperties properties, PackingListService packingListService,
+                            ResultCache resultCache, JobService jobService, HistoryService history, PipelineMetrics metrics) {
+        this.properties = properties;
+        this.packingListService = packingListService;
+        this.resultCache = resultCache;
+        this.jobService = jobService;
+        this.history = history;
+        this.metrics = metrics;
+    }
+
     @GetMapping("/")
     public String showForm() {
         return "upload";
     }
 
     @PostMapping("/upload")
-    public ResponseEntity<?> handleUpload(
+    public ResponseEntity<StreamingResponseBody> handleUpload(
             @RequestParam("csvFile") MultipartFile csvFile,
             @RequestParam(value = "manualTracking", required = false) String manualTracking,
+            @RequestParam(value = "trackingFile", required = false) MultipartFile trackingFile,
             @RequestParam("rmb") double rmb,
             @RequestParam("rate") double rate,
             @RequestParam("boxes") int boxes,
             @RequestParam("weight") double weight // ✅ New: manual input
     ) {
+        SortedInvoices invoiceEntries = null;
+        boolean handedOff = false;
         try {
-            // Validate input files
-            if (csvFile.isEmpty()) {
-                return ResponseEntity.badRequest()
-                    .body("CSV file is required and cannot be empty");
-            }
-
-            // Validate file types
-            String csvContentType = csvFile.getContentType();
-            if (csvContentType == null || (!csvContentType.equals("text/csv") && !csvContentType.equals("application/vnd.ms-excel"))) {
-                return ResponseEntity.badRequest()
-                    .body("Please upload a valid CSV file");
-            }
-
-            List<InvoiceEntry> invoiceEntries = parseInvoiceCsv(csvFile);
-            if (invoiceEntries.isEmpty()) {
-                return ResponseEntity.badRequest()
-                    .body("CSV file appears to be empty or has invalid format. Please check your CSV file contains the required columns: PO/NO., ITEM NO., DESCRIPTION OF GOODS, QTY, UNIT VALUE (USD)");
+            // Validate input file
+            String problem = packingListService.validateUpload(csvFile);
+            if (problem != null) {
+                return textResponse(HttpStatus.BAD_REQUEST, problem);
             }
 
             // Use manual tracking number if provided
@@ -63,40 +98,92 @@ public class UploadController {
             } else {
                 System.out.println("No manual tracking number provided");
             }
+            // Otherwise the tracking numbers come from the carrier's manifest, once the invoice's POs are known
+            TrackingManifest manifest = tracking.isEmpty() ? packingListService.readTrackingManifest(trackingFile) : null;
             
             String today = new SimpleDateFormat("yyMMdd").format(new Date());
 
-            // Generate both files
-            File packingList = generatePackingList(today, invoiceEntries, tracking, weight, boxes, rmb, rate);
-            File msdosCsv = generateMsdosCsv(today, invoiceEntries);
-            File packingListHtml = generatePackingListHtml(today, invoiceEntries, tracking, weight, boxes, rmb, rate);
-            
-            // Create a ZIP file containing all files
-            File zipFile = createZipFile(today, packingList, msdosCsv, packingListHtml);
+            // Large invoices would tie up this request thread for too long, hand them to the job queue
+            long asyncThreshold = properties.getJobs().getAsyncThreshold().toBytes();
+            if (asyncThreshold > 0 && csvFile.getSize() > asyncThreshold) {
+                return submitJob(csvFile, today, ShipmentDetails.of(tracking, rmb, rate, boxes, weight), manifest);
+            }
 
-            // Use FileSystemResource which properly handles cleanup and provides better support for temporary files
-            Resource resource = new org.springframework.core.io.FileSystemResource(zipFile) {
-                @Override
-                public InputStream getInputStream() throws IOException {
-                    return new FileInputStream(zipFile) {
-                        @Override
-                        public void close() throws IOException {
-                            super.close();
-                            // Delete the temporary files after the stream is closed
-                            if (packingList.exists()) packingList.delete();
-                            if (msdosCsv.exists()) msdosCsv.delete();
-                            if (packingListHtml.exists()) packingListHtml.delete(); // Added for HTML
-                            if (zipFile.exists()) zipFile.delete();
+            // Same file with the same values on the same day gives the same ZIP
+            String cacheKey = null;
+            if (resultCache.isEnabled()) {
+                try (InputStream in = csvFile.getInputStream()) {
+                    // The manifest's numbers and their POs decide the tracking just as a typed number would
+                    cacheKey = ResultCache.key(in, manifest != null ? manifest.digest() : tracking, rmb, rate, boxes, weight, today);
+                }
+                byte[] cached = resultCache.get(cacheKey);
+                if (cached != null) {
+                    System.out.println("Serving cached result for " + csvFile.getOriginalFilename());
+                    return zipResponse(today, out -> out.write(cached));
+                }
+            }
+            String key = cacheKey;
+
+            invoiceEntries = packingListService.readInvoiceCsv(csvFile);
+            if (invoiceEntries.isEmpty()) {
+                return textResponse(HttpStatus.BAD_REQUEST, PackingListService.EMPTY_INVOICE_MESSAGE);
+            }
+            ShipmentDetails details = packingListService.withManifestTracking(
+                    ShipmentDetails.of(tracking, rmb, rate, boxes, weight), manifest, invoiceEntries, true);
+            tracking = details.getTracking();
+            ShipmentRecord shipment = ShipmentRecord.of(csvFile.getOriginalFilename(), today, details);
+
+            if (properties.getOutput().isStreaming()) {
+                // Generate all three files straight into the ZIP on the response, no disk involved
+                SortedInvoices entries = invoiceEntries;
+                String trackingNo = tracking;
+                StreamingResponseBody body = out -> {
+                    boolean recorded = false;
+                    try {
+                        ResultCache.Recorder recorder = resultCache.recorder(key, out);
+                        packingListService.writeZip(recorder, today, entries, trackingNo, weight, boxes, rmb, rate);
+                        recorder.commit();
+                        // The history writes in the background and closes the rows when done
+                        history.record(shipment, entries);
+                        recorded = true;
+                    } finally {
+                        if (!recorded) {
+                            entries.close();
                         }
-                    };
+                    }
+                };
+                handedOff = true;
+                return zipResponse(today, body);
+            }
+
+            // Fallback: generate all files as temp files first
+            File packingList = packingListService.generatePackingList(today, invoiceEntries, tracking, weight, boxes, rmb, rate);
+            File msdosCsv = packingListService.generateMsdosCsv(today, invoiceEntries);
+            File packingListHtml = packingListService.generatePackingListHtml(today, invoiceEntries, tracking, weight, boxes, rmb, rate);
+            
+            // Create a ZIP file containing all files
+            File zipFile = packingListService.createZipFile(today, packingList, msdosCsv, packingListHtml);
+            history.record(shipment, invoiceEntries);
+            handedOff = true;
+
+            // Copy the ZIP to the response and delete the temporary files even if the client disconnects
+            StreamingResponseBody body = out -> {
+                try {
+                    ResultCache.Recorder recorder = resultCache.recorder(key, out);
+                    Files.copy(zipFile.toPath(), recorder);
+                    recorder.commit();
+                } finally {
+                    packingList.delete();
+                    msdosCsv.delete();
+                    packingListHtml.delete();
+                    zipFile.delete();
                 }
             };
-            
-            return ResponseEntity.ok()
-                    .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=packing-files-" + today + ".zip")
-                    .contentType(MediaType.APPLICATION_OCTET_STREAM)
-                    .body(resource);
+            return zipResponse(today, body);
 
+        } catch (CsvHeaderException e) {
+            // The message already names the missing columns and the accepted headers
+            return textResponse(HttpStatus.BAD_REQUEST, e.getMessage());
         } catch (Exception e) {
             // Log the error for debugging
             System.err.println("Error processing upload: " + e.getMessage());
@@ -114,629 +201,58 @@ public class UploadController {
                 errorMessage += "Please check your files and try again.";
             }
             
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                .contentType(MediaType.TEXT_PLAIN)
-                .body(errorMessage);
-        }
-    }
-
-
-    public List<InvoiceEntry> parseInvoiceCsv(MultipartFile file) throws IOException {
-        List<InvoiceEntry> result = new ArrayList<>();
-        
-        // Use try-with-resources to ensure proper cleanup of streams
-        try (Reader reader = new InputStreamReader(file.getInputStream())) {
-            CSVFormat format = CSVFormat.DEFAULT.builder()
-                    .setHeader()
-                    .setSkipHeaderRecord(true)
-                    .build();
-            Iterable<CSVRecord> records = format.parse(reader);
-
-            for (CSVRecord record : records) {
-                // Handle different possible column header formats
-                String poNo = getFieldValue(record, "PO/NO.", "PO.NO");
-                String itemNo = getFieldValue(record, "ITEM NO.", "ITEM NO");
-                String description = getFieldValue(record, "DESCRIPTION OF GOODS", "DESCRIPTION");
-                
-                // Safely parse quantity with proper error handling
-                int qty = parseQuantity(getFieldValue(record, "QTY", "QTY"));
-                
-                // Parse unit value (FOB)
-                double unitValue = parseUnitValue(getFieldValue(record, "UNIT VALUE (USD)", "UNIT VALUE"));
-                
-                result.add(new InvoiceEntry(
-                        poNo,
-                        itemNo,
-                        description,
-                        qty,
-                        unitValue
-                ));
+            return textResponse(HttpStatus.INTERNAL_SERVER_ERROR, errorMessage);
+        } finally {
+            // Once the response body or the history owns the sorted rows it closes them itself
+            if (invoiceEntries != null && !handedOff) {
+                invoiceEntries.close();
             }
         }
-        
-        // Sort by item number: lexical (alphabetical) sorting
-        result.sort((a, b) -> {
-            String itemA = a.getItemNo();
-            String itemB = b.getItemNo();
-            
-            // Pure lexical comparison - treats everything as strings
-            return itemA.compareTo(itemB);
-        });
-        
-        return result;
     }
 
-    public List<PackingEntry> parseCsv(MultipartFile file) throws IOException {
-        List<PackingEntry> result = new ArrayList<>();
-        
-        // Use try-with-resources to ensure proper cleanup of streams
-        try (Reader reader = new InputStreamReader(file.getInputStream())) {
-            CSVFormat format = CSVFormat.DEFAULT.builder()
-                    .setHeader()
-                    .setSkipHeaderRecord(true)
-                    .build();
-            Iterable<CSVRecord> records = format.parse(reader);
-
-            for (CSVRecord record : records) {
-                // Handle different possible column header formats
-                String poNo = getFieldValue(record, "PO.NO", "PO/NO.");
-                String itemNo = getFieldValue(record, "ITEM NO", "ITEM NO.");
-                String notes = getFieldValue(record, "NOTES", "");
-                
-                // Safely parse quantity with proper error handling
-                int qty = parseQuantity(record.get("QTY"));
-                
-                result.add(new PackingEntry(
-                        poNo,
-                        itemNo,
-                        qty,
-                        // Safely handle NOTES field to prevent null pointer exceptions
-                        (notes != null && !notes.isEmpty()) ? notes : ""
-                ));
-            }
-        }
-        
-        // Sort by item number: lexical (alphabetical) sorting
-        result.sort((a, b) -> {
-            String itemA = a.getItemNo();
-            String itemB = b.getItemNo();
-            
-            // Pure lexical comparison - treats everything as strings
-            return itemA.compareTo(itemB);
-        });
-        
-        return result;
-    }
-
-    /**
-     * Helper method to get field value with fallback column names
-     */
-    private String getFieldValue(CSVRecord record, String primaryHeader, String fallbackHeader) {
+    private ResponseEntity<StreamingResponseBody> submitJob(MultipartFile csvFile, String date, ShipmentDetails details,
+                                                            TrackingManifest manifest) throws IOException {
+        Job job;
         try {
-            // Try primary header first
-            if (record.isMapped(primaryHeader)) {
-                return record.get(primaryHeader);
-            }
-            // Try fallback header
-            if (record.isMapped(fallbackHeader)) {
-                return record.get(fallbackHeader);
-            }
-            // Return empty string if neither exists
-            return "";
-        } catch (IllegalArgumentException e) {
-            // If neither header exists, return empty string
-            return "";
+            job = jobService.submit(csvFile, date, details, manifest);
+        } catch (RejectedExecutionException e) {
+            return textResponse(HttpStatus.SERVICE_UNAVAILABLE, "Too many packing lists are being generated right now, please try again shortly",
+                    JobController.RETRY_AFTER_SECONDS);
         }
+        String statusUrl = "/jobs/" + job.getId();
+        String message = "This file is large, so the packing list is being generated in the background.\n"
+                + "Progress: " + statusUrl + "\n"
+                + "Download when finished: " + statusUrl + "/result\n";
+        byte[] bytes = message.getBytes(StandardCharsets.UTF_8);
+        return ResponseEntity.accepted()
+                .location(URI.create(statusUrl))
+                .contentType(new MediaType(MediaType.TEXT_PLAIN, StandardCharsets.UTF_8))
+                .body(out -> out.write(bytes));
     }
 
-
-
-
-    public File generatePackingList(String date, List<InvoiceEntry> invoiceEntries, String tracking, double weight, int boxes, double rmb, double rate) throws IOException {
-        String arrival = "XR" + date;
-        String po = "W" + date;
-        double upsFreight = rmb / rate;
-
-        File file = File.createTempFile("packing-list-" + date, ".csv");
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(file))) {
-            // Get today's date for dynamic formatting
-            String todayMonth = new SimpleDateFormat("MM").format(new Date());
-            String todayDate = new SimpleDateFormat("dd").format(new Date());
-            
-            writer.write("ARRIVAL#: " + arrival + "\n");
-            writer.write("DATE:\n");
-            writer.write("P.O.#W25" + todayMonth + todayDate + "=>AMNT:\n");
-            writer.write("\n");
-            writer.write("P.O.#WONA25" + todayMonth + todayDate + ",8%DISC$321.07=>AMNT:\n");
-            writer.write("\n");
-            writer.write("\n"); // Empty row between DATE: and UPS FREIGHT:
-            writer.write(String.format("UPS FREIGHT: %.0f RMB / %.2f RATE = $%.2f\n", rmb, rate, upsFreight));
-            // Combine weight and boxes info in one cell with new format
-            writer.write(String.format("WEIGHT & BOXES: %.1f KG || %d BOXES\n", weight, boxes));
-            if (tracking != null && !tracking.isEmpty()) {
-                writer.write("UPS TRACKING#: " + tracking + "\n\n");
-            } else {
-                writer.write("UPS TRACKING#: \n\n");
-            }
-
-            writer.write("P.O#: " + po + "\n");
-            // Add empty column between QTY and NOTES
-            writer.write("PO#,ITEM#,QTY,,NOTES\n");
-            
-            // Calculate total quantity
-            int totalQty = 0;
-            for (InvoiceEntry entry : invoiceEntries) {
-                writer.write(
-                        entry.getPoNo() + "," +
-                                entry.getItemNo() + "," +
-                                entry.getQty() + "," +
-                                "," + // Empty column
-                                "" + "\n" // Empty notes field as per requirement
-                );
-                totalQty += entry.getQty();
+    private ResponseEntity<StreamingResponseBody> zipResponse(String date, StreamingResponseBody body) {
+        // Time the whole body and count what reaches the client, cached results included
+        StreamingResponseBody measured = out -> {
+            long start = System.nanoTime();
+            CountingOutputStream counted = new CountingOutputStream(out);
+            try {
+                body.writeTo(counted);
+            } finally {
+                metrics.record(PipelineMetrics.Stage.RESPONSE_WRITE, System.nanoTime() - start);
+                metrics.outputBytes(counted.getCount());
             }
-            
-            // Add total qty row at the end
-            writer.write(",,TOTAL QTY: " + totalQty + ",,\n");
-        }
-        return file;
+        };
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=packing-files-" + date + ".zip")
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .body(measured);
     }
 
-    public File generatePackingListHtml(String date, List<InvoiceEntry> invoiceEntries, String tracking, double weight, int boxes, double rmb, double rate) throws IOException {
-        // Configure items per page (can be made configurable via parameter)
-        int itemsPerPage = 72; // 36 items per column × 2 columns per page
-        return generatePackingListHtmlWithPagination(date, invoiceEntries, tracking, weight, boxes, rmb, rate, itemsPerPage);
-    }
-
-    /**
-     * Generates a multi-page HTML packing list with configurable pagination.
-     * Each page contains two columns: left column has first N items, right column has next N items.
-     * Header information (arrival, amount, date, PO#, UPS freight) appears once at the top.
-     * 
-     * @param itemsPerPage Total items per page (will be split evenly between left and right columns, default 72 for 36 rows each)
-     */
-    public File generatePackingListHtmlWithPagination(String date, List<InvoiceEntry> invoiceEntries, String tracking, double weight, int boxes, double rmb, double rate, int itemsPerPage) throws IOException {
-        String po = "W" + date;
-        // Calculate arrival date as P.O.# + 7 days
-        String arrival;
-        try {
-            SimpleDateFormat sdf = new SimpleDateFormat("yyMMdd");
-            Date poDate = sdf.parse(date);
-            Calendar cal = Calendar.getInstance();
-            cal.setTime(poDate);
-            cal.add(Calendar.DAY_OF_MONTH, 7);
-            String arrivalDate = sdf.format(cal.getTime());
-            arrival = "XR" + arrivalDate;
-        } catch (Exception e) {
-            // Fallback to original calculation if parsing fails
-            arrival = "XR" + date;
-        }
-        double upsFreight = rmb / rate;
-
-        // Find all duplicate item numbers across the entire dataset
-        Set<String> allDuplicateItems = findAllDuplicateItemNumbers(invoiceEntries);
-
-        File file = File.createTempFile("packing-list-" + date, ".html");
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(file))) {
-            writer.write("<!DOCTYPE html>\n");
-            writer.write("<html>\n<head>\n");
-            writer.write("<meta charset=\"UTF-8\">\n");
-            writer.write("<title>Packing List - " + date + "</title>\n");
-            writer.write("<style>\n");
-            
-            // Print styles
-            writer.write("@media print {\n");
-            writer.write("  @page { size: A4 portrait; margin: 0.4in 0.3in; }\n");
-            writer.write("  body { margin: 0; padding: 0; }\n");
-            writer.write("  .no-print { display: none; }\n");
-            writer.write("  .page-break { page-break-before: always; }\n");
-            writer.write("}\n");
-            
-            // General styles
-            writer.write("body { font-family: Arial, sans-serif; margin: 0.4in 0.3in; padding: 0; font-size: 10px; line-height: 1.2; }\n");
-            writer.write("table { border-collapse: collapse; }\n");
-            writer.write("td, th { padding: 2px 4px; vertical-align: top; }\n");
-            
-            // Header section styles
-            writer.write(".header-container { display: flex; justify-content: space-between; margin-bottom: 10px; }\n");
-            writer.write(".header-left, .header-right { border: 2px solid #000; padding: 4px; }\n");
-            writer.write(".header-left { width: 200px; }\n");
-            writer.write(".header-right { width: 300px; }\n");
-            writer.write(".header-row { display: flex; margin-bottom: 3px; }\n");
-            writer.write(".header-label { font-weight: bold; width: 70px; }\n");
-            writer.write(".header-value { flex: 1; border-bottom: 1px solid #000; margin-left: 5px; min-height: 12px; }\n");
-            writer.write(".header-value-no-underline { flex: 1; margin-left: 5px; min-height: 12px; }\n");
-            writer.write(".handwriting-line { border-bottom: 1px solid #000; margin: 2px 0; height: 15px; }\n");
-            
-            // Data tables container
-            writer.write(".tables-container { display: flex; gap: 10px; }\n");
-            writer.write(".table-column { flex: 1; }\n");
-            writer.write(".data-table { width: 100%; border: 2px solid #000; }\n");
-            writer.write(".data-table th { border: 1px solid #000; background-color: #f0f0f0; font-weight: bold; text-align: center; padding: 3px; font-size: 10px; }\n");
-            writer.write(".data-table th.item-header, .data-table th.qty-header { font-size: 12px; }\n");
-            writer.write(".data-table td { border: 1px solid #000; text-align: center; padding: 2px; font-size: 8px; }\n");
-            writer.write(".data-table td.item-data, .data-table td.qty-data { font-size: 16px; }\n");
-            writer.write(".duplicate-item { \n");
-            writer.write("  border: 4px solid red; \n");
-            writer.write("  border-radius: 50%; \n");
-            writer.write("  background-color: #ffeeee; \n");
-            writer.write("  box-shadow: 0 0 8px rgba(255, 0, 0, 0.5);\n");
-            writer.write("  font-weight: bold;\n");
-            writer.write("}\n");
-            writer.write("@media print {\n");
-            writer.write("  .duplicate-item {\n");
-            writer.write("    border: 4px solid #000 !important;\n");
-            writer.write("    background-color: #f0f0f0 !important;\n");
-            writer.write("    box-shadow: none !important;\n");
-            writer.write("    font-weight: bold !important;\n");
-            writer.write("  }\n");
-            writer.write("}\n");
-            writer.write(".po-col { width: 15%; }\n");
-            writer.write(".item-col { width: 25%; }\n");
-            writer.write(".qty-col { width: 10%; }\n");
-            writer.write(".receive-check-col { width: 12%; }\n");
-            writer.write(".notes-col { width: 38%; }\n");
-            
-            writer.write("</style>\n");
-            writer.write("</head>\n<body>\n");
-
-            // Calculate pagination
-            int totalEntries = invoiceEntries.size();
-            int totalPages = (int) Math.ceil((double) totalEntries / itemsPerPage);
-            
-            // Calculate total quantity
-            int totalQty = 0;
-            for (InvoiceEntry entry : invoiceEntries) {
-                totalQty += entry.getQty();
-            }
-            
-            // Generate each page
-            for (int pageNum = 0; pageNum < totalPages; pageNum++) {
-                // Add page break for all pages except the first
-                if (pageNum > 0) {
-                    writer.write("<div class=\"page-break\"></div>\n");
-                }
-                
-                // Header section for each page
-                writePageHeader(writer, arrival, po, upsFreight, rmb, rate, weight, boxes, tracking, pageNum + 1, totalPages);
-                
-                // Data tables section for this page
-                boolean isLastPage = (pageNum == totalPages - 1);
-                writePageData(writer, invoiceEntries, pageNum, itemsPerPage, isLastPage, totalQty, allDuplicateItems);
-            }
-
-            writer.write("</body>\n</html>\n");
-        }
-        return file;
-    }
-
-    /**
-     * Writes the header section for a single page
-     */
-    private void writePageHeader(BufferedWriter writer, String arrival, String po, double upsFreight, 
-                                double rmb, double rate, double weight, int boxes, String tracking, 
-                                int currentPage, int totalPages) throws IOException {
-        writer.write("<div class=\"header-container\">\n");
-        
-        // Left header box
-        writer.write("<div class=\"header-left\">\n");
-        
-        // Only show ARRIVAL# on the first page
-        if (currentPage == 1) {
-            writer.write("<div class=\"header-row\">\n");
-            writer.write("<span class=\"header-label\">ARRIVAL#:</span>\n");
-            writer.write("<span class=\"header-value\">" + arrival + "</span>\n");
-            writer.write("</div>\n");
-        }
-        
-        // Get today's date for dynamic formatting
-        String todayMonth = new SimpleDateFormat("MM").format(new Date());
-        String todayDate = new SimpleDateFormat("dd").format(new Date());
-        
-        writer.write("<div class=\"header-row\">\n");
-        writer.write("<span class=\"header-label\">DATE:</span>\n");
-        writer.write("<span class=\"header-value\"></span>\n");
-        writer.write("</div>\n");
-        writer.write("<div class=\"header-row\">\n");
-        writer.write("<span class=\"header-label\">P.O.#W25" + todayMonth + todayDate + "=>AMNT:</span>\n");
-        writer.write("<span class=\"header-value-no-underline\"></span>\n");
-        writer.write("</div>\n");
-        writer.write("<div class=\"handwriting-line\"></div>\n");
-        writer.write("<div class=\"header-row\">\n");
-        writer.write("<span class=\"header-label\">P.O.#WONA25" + todayMonth + todayDate + ",8%DISC$321.07=>AMNT:</span>\n");
-        writer.write("<span class=\"header-value-no-underline\"></span>\n");
-        writer.write("</div>\n");
-        writer.write("<div class=\"handwriting-line\"></div>\n");
-        writer.write("</div>\n");
-        
-        // Right header box
-        writer.write("<div class=\"header-right\">\n");
-        writer.write("<div style=\"text-align: center; font-weight: bold; margin-bottom: 5px; font-size: 11px;\">UPS FREIGHT:</div>\n");
-        writer.write("<div style=\"text-align: center; margin-bottom: 5px; font-size: 16px;\">" + String.format("%.0f RMB / %.2f RATE = $%.2f", rmb, rate, upsFreight) + "</div>\n");
-        writer.write("<div class=\"header-row\">\n");
-        writer.write("<span style=\"width: 80px; font-size: 9px;\">GROSS WEIGHT:</span>\n");
-        writer.write("<span class=\"header-value\">" + String.format("%.1f", weight) + "</span>\n");
-        writer.write("</div>\n");
-        writer.write("<div class=\"header-row\">\n");
-        writer.write("<span style=\"width: 80px; font-size: 9px;\">BOXES:</span>\n");
-        writer.write("<span class=\"header-value\">" + boxes + "</span>\n");
-        writer.write("</div>\n");
-        writer.write("<div class=\"header-row\">\n");
-        writer.write("<span style=\"width: 80px; font-size: 9px;\">UPS TRACKING#:</span>\n");
-        writer.write("<span class=\"header-value\">" + (tracking != null ? tracking : "") + "</span>\n");
-        writer.write("</div>\n");
-        // Add page numbers
-        if (totalPages > 1) {
-            writer.write("<div style=\"text-align: center; margin-top: 5px; font-size: 9px; font-weight: bold;\">\n");
-            writer.write("Page " + currentPage + " of " + totalPages + "\n");
-            writer.write("</div>\n");
-        }
-        writer.write("</div>\n");
-        writer.write("</div>\n");
-    }
-
-    /**
-     * Writes the data table section for a single page with left and right columns
-     */
-    private void writePageData(BufferedWriter writer, List<InvoiceEntry> invoiceEntries, int pageNum, int itemsPerPage, boolean isLastPage, int totalQty, Set<String> allDuplicateItems) throws IOException {
-        writer.write("<div class=\"tables-container\">\n");
-        
-        // Calculate the range of items for this page
-        int startIndex = pageNum * itemsPerPage;
-        int endIndex = Math.min(startIndex + itemsPerPage, invoiceEntries.size());
-        int itemsOnThisPage = endIndex - startIndex;
-        
-        // Use the global duplicate item numbers (passed as parameter)
-        
-        // Calculate entries per column for this page (split evenly)
-        int entriesPerColumn = (int) Math.ceil(itemsOnThisPage / 2.0);
-        
-        // Left column
-        writer.write("<div class=\"table-column\">\n");
-        writeTableHeader(writer);
-        
-        for (int i = 0; i < entriesPerColumn && (startIndex + i) < endIndex; i++) {
-            InvoiceEntry entry = invoiceEntries.get(startIndex + i);
-            writeTableRow(writer, entry, allDuplicateItems.contains(entry.getItemNo()));
-        }
-        
-        writer.write("</table>\n");
-        writer.write("</div>\n");
-        
-        // Right column
-        writer.write("<div class=\"table-column\">\n");
-        writeTableHeader(writer);
-        
-        for (int i = entriesPerColumn; i < itemsOnThisPage && (startIndex + i) < endIndex; i++) {
-            InvoiceEntry entry = invoiceEntries.get(startIndex + i);
-            writeTableRow(writer, entry, allDuplicateItems.contains(entry.getItemNo()));
-        }
-        
-        // Add total quantity row at the end of the last page
-        if (isLastPage) {
-            writer.write("<tr style=\"border-top: 3px solid #000; font-weight: bold;\">\n");
-            writer.write("<td></td>\n");
-            writer.write("<td>TOTAL QTY:</td>\n");
-            writer.write("<td style=\"font-size: 16px;\">" + totalQty + "</td>\n");
-            writer.write("<td></td>\n");
-            writer.write("<td></td>\n");
-            writer.write("</tr>\n");
-        }
-        
-        writer.write("</table>\n");
-        writer.write("</div>\n");
-        writer.write("</div>\n");
-    }
-
-    /**
-     * Writes the table header
-     */
-    private void writeTableHeader(BufferedWriter writer) throws IOException {
-        writer.write("<table class=\"data-table\">\n");
-        writer.write("<tr>\n");
-        writer.write("<th class=\"po-col\">PO/NO</th>\n");
-        writer.write("<th class=\"item-col item-header\">ITEM NO.</th>\n");
-        writer.write("<th class=\"qty-col qty-header\">QTY</th>\n");
-        writer.write("<th class=\"receive-check-col\">RECEIVE CHECK</th>\n");
-        writer.write("<th class=\"notes-col\">NOTES</th>\n");
-        writer.write("</tr>\n");
-    }
-
-    /**
-     * Writes a single table row
-     */
-    private void writeTableRow(BufferedWriter writer, InvoiceEntry entry, boolean isDuplicate) throws IOException {
-        writer.write("<tr>\n");
-        writer.write("<td>" + entry.getPoNo() + "</td>\n");
-        String itemClass = isDuplicate ? " class=\"duplicate-item item-data\"" : " class=\"item-data\"";
-        writer.write("<td" + itemClass + ">" + entry.getItemNo() + "</td>\n");
-        writer.write("<td class=\"qty-data\">" + entry.getQty() + "</td>\n");
-        writer.write("<td><input type=\"checkbox\"></td>\n");
-        writer.write("<td></td>\n");
-        writer.write("</tr>\n");
-    }
-
-    /**
-     * Finds all duplicate item numbers across the entire dataset
-     */
-    private Set<String> findAllDuplicateItemNumbers(List<InvoiceEntry> invoiceEntries) {
-        Map<String, Integer> itemCounts = new HashMap<>();
-        Set<String> duplicates = new HashSet<>();
-        
-        // Count occurrences of each item number across all entries
-        for (InvoiceEntry entry : invoiceEntries) {
-            String itemNo = entry.getItemNo();
-            itemCounts.put(itemNo, itemCounts.getOrDefault(itemNo, 0) + 1);
-        }
-        
-        // Find items that appear more than once
-        for (Map.Entry<String, Integer> entry : itemCounts.entrySet()) {
-            if (entry.getValue() > 1) {
-                duplicates.add(entry.getKey());
-            }
-        }
-        
-        return duplicates;
-    }
-
-    /**
-     * Finds duplicate item numbers within a given range
-     */
-    private Set<String> findDuplicateItemNumbers(List<InvoiceEntry> invoiceEntries, int startIndex, int endIndex) {
-        Map<String, Integer> itemCounts = new HashMap<>();
-        Set<String> duplicates = new HashSet<>();
-        
-        // Count occurrences of each item number in the range
-        for (int i = startIndex; i < endIndex; i++) {
-            String itemNo = invoiceEntries.get(i).getItemNo();
-            itemCounts.put(itemNo, itemCounts.getOrDefault(itemNo, 0) + 1);
-        }
-        
-        // Find items that appear more than once
-        for (Map.Entry<String, Integer> entry : itemCounts.entrySet()) {
-            if (entry.getValue() > 1) {
-                duplicates.add(entry.getKey());
-            }
-        }
-        
-        return duplicates;
-    }
-
-    public File generateMsdosCsv(String date, List<InvoiceEntry> invoiceEntries) throws IOException {
-        File file = File.createTempFile("import_inv-" + date, ".csv");
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(file))) {
-                    // Write MS-DOS style CSV with headers: PO#, ITEM#, CASE_QTY, FOB
-        writer.write("PO#,ITEM#,CASE_QTY,FOB\r\n"); // MS-DOS line ending
-            for (InvoiceEntry entry : invoiceEntries) {
-                writer.write(
-                        entry.getPoNo() + "," +
-                                entry.getItemNo() + "," +
-                                entry.getQty() + "," +
-                                String.format("%.2f", entry.getUnitValue()) + "\r\n" // MS-DOS line ending
-                );
-            }
-        }
-        return file;
-    }
-
-    public File createZipFile(String date, File packingList, File msdosCsv, File packingListHtml) throws IOException {
-        File zipFile = File.createTempFile("packing-files-" + date, ".zip");
-        
-        try (ZipOutputStream zos = new ZipOutputStream(new FileOutputStream(zipFile))) {
-            // Add packing list CSV to zip
-            addFileToZip(zos, packingList, "packing-list-" + date + ".csv");
-            
-            // Add packing list HTML to zip (with bold borders)
-            addFileToZip(zos, packingListHtml, "packing-list-" + date + ".html");
-            
-            // Add MS-DOS CSV to zip
-            addFileToZip(zos, msdosCsv, "import_inv-" + date + ".csv");
-        }
-        
-        return zipFile;
-    }
-
-    private void addFileToZip(ZipOutputStream zos, File file, String entryName) throws IOException {
-        ZipEntry entry = new ZipEntry(entryName);
-        zos.putNextEntry(entry);
-        
-        try (FileInputStream fis = new FileInputStream(file)) {
-            byte[] buffer = new byte[1024];
-            int length;
-            while ((length = fis.read(buffer)) > 0) {
-                zos.write(buffer, 0, length);
-            }
-        }
-        
-        zos.closeEntry();
-    }
-
-    public File generateCsv(String date, List<PackingEntry> entries, String tracking, double weight, int boxes, double rmb, double rate) throws IOException {
-        String arrival = "XR" + date;
-        String po = "W" + date;
-        double upsFreight = rmb / rate;
-
-        File file = File.createTempFile("packing-list-" + date, ".csv");
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(file))) {
-            writer.write("ARRIVAL#: " + arrival + "\n");
-            writer.write("AMNT:\n");
-            writer.write("DATE:\n");
-            writer.write(String.format("UPS FREIGHT: %.0f RMB / %.2f RATE = $%.2f\n", rmb, rate, upsFreight));
-            writer.write(String.format("GROSS WEIGHT: %.1f KG, %d BOXES\n", weight, boxes));
-            if (tracking != null && !tracking.isEmpty()) {
-                writer.write("UPS TRACKING#: " + tracking + "\n\n");
-            } else {
-                writer.write("UPS TRACKING#: \n\n");
-            }
-
-            writer.write("P.O#: " + po + "\n");
-            writer.write("PO/NO.,ITEM NO,QTY,NOTES\n");
-            for (PackingEntry entry : entries) {
-                writer.write(
-                        entry.getPo() + "," +
-                                entry.getItemNo() + "," +
-                                entry.getQty() + "," +
-                                entry.getNotes() + "\n"
-                );
-
-            }
-        }
-        return file;
-    }
-
-    /**
-     * Safely parses a quantity string to an integer with proper error handling.
-     * 
-     * @param qtyString The quantity string from CSV
-     * @return The parsed quantity as integer, or 0 if parsing fails
-     */
-    private int parseQuantity(String qtyString) {
-        if (qtyString == null || qtyString.trim().isEmpty()) {
-            // Return 0 for empty/null quantities
-            return 0;
-        }
-        
-        try {
-            // Trim whitespace and parse
-            String cleanQty = qtyString.trim();
-            
-            // Handle decimal numbers by parsing as double first, then converting to int
-            if (cleanQty.contains(".")) {
-                double doubleValue = Double.parseDouble(cleanQty);
-                return (int) Math.round(doubleValue);
-            }
-            
-            return Integer.parseInt(cleanQty);
-        } catch (NumberFormatException e) {
-            // Log the error and return 0 as default
-            System.err.println("Warning: Invalid quantity value '" + qtyString + "'. Using 0 as default.");
-            return 0;
-        }
+    public List<InvoiceEntry> parseInvoiceCsv(MultipartFile file) throws IOException {
+        return packingListService.parseInvoiceCsv(file);
     }
 
-    /**
-     * Safely parses a unit value string to a double with proper error handling.
-     * 
-     * @param unitValueString The unit value string from CSV
-     * @return The parsed unit value as double, or 0.0 if parsing fails
-     */
-    private double parseUnitValue(String unitValueString) {
-        if (unitValueString == null || unitValueString.trim().isEmpty()) {
-            // Return 0.0 for empty/null unit values
-            return 0.0;
-        }
-        
-        try {
-            // Trim whitespace and remove any currency symbols
-            String cleanValue = unitValueString.trim().replaceAll("[^0-9.-]", "");
-            
-            return Double.parseDouble(cleanValue);
-        } catch (NumberFormatException e) {
-            // Log the error and return 0.0 as default
-            System.err.println("Warning: Invalid unit value '" + unitValueString + "'. Using 0.0 as default.");
-            return 0.0;
-        }
+    public List<PackingEntry> parseCsv(MultipartFile file) throws IOException {
+        return packingListService.parseCsv(file);
     }
-
-
 }
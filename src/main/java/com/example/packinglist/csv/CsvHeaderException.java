@@ -0,0 +1,14 @@
+package com.example.packinglist.csv;
+
+/**
+ * Thrown when a CSV header line does not contain the columns we need, or when an
+ * uploaded workbook cannot be read at all
+ */
+public class CsvHeaderException extends IllegalArgumentException {
+
+    private static final long serialVersionUID = 1L;
+
+    public CsvHeaderException(String message) {
+        super(message);
+    }
+}
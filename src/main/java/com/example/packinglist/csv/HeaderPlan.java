@@ -0,0 +1,95 @@
+package com.example.packinglist.csv;
+
+import org.apache.commons.csv.CSVRecord;
+
+import java.util.*;
+
+/**
+ * Column-index plan resolved once from a CSV header line or the header row of a sheet.
+ * Rows are then read by index, so no header lookups happen per record.
+ */
+public final class HeaderPlan {
+
+    private static final Map<String, InvoiceColumn> ALIASES = new HashMap<>();
+
+    static {
+        for (InvoiceColumn column : InvoiceColumn.values()) {
+            for (String alias : column.getAliases()) {
+                ALIASES.put(normalize(alias), column);
+            }
+        }
+    }
+
+    private final int[] indexes;
+
+    private HeaderPlan(int[] indexes) {
+        this.indexes = indexes;
+    }
+
+    /**
+     * Resolves the header names to column indexes.
+     *
+     * @throws CsvHeaderException if any of the required columns is missing
+     */
+    public static HeaderPlan resolve(List<String> headerNames, Set<InvoiceColumn> required) {
+        int[] indexes = new int[InvoiceColumn.values().length];
+        Arrays.fill(indexes, -1);
+
+        for (int i = 0; i < headerNames.size(); i++) {
+            InvoiceColumn column = ALIASES.get(normalize(headerNames.get(i)));
+            // First matching column wins if a file repeats a header
+            if (column != null && indexes[column.ordinal()] < 0) {
+                indexes[column.ordinal()] = i;
+            }
+        }
+
+        List<String> missing = new ArrayList<>();
+        for (InvoiceColumn column : required) {
+            if (indexes[column.ordinal()] < 0) {
+                missing.add(column.getDisplayName() + " (accepted headers: " + String.join(", ", column.getAliases()) + ")");
+            }
+        }
+        if (!missing.isEmpty()) {
+            throw new CsvHeaderException("CSV file is missing required column(s): " + String.join("; ", missing)
+                    + ". Found headers: " + headerNames);
+        }
+        return new HeaderPlan(indexes);
+    }
+
+    /**
+     * Resolves the plan from the header record of a CSV parsed without a header mapping
+     */
+    public static HeaderPlan resolve(CSVRecord headerRecord, Set<InvoiceColumn> required) {
+        return resolve(headerRecord.toList(), required);
+    }
+
+    public boolean has(InvoiceColumn column) {
+        return indexes[column.ordinal()] >= 0;
+    }
+
+    /**
+     * Value of the column in the given row, or an empty string if the column is
+     * absent from the file or the row is short
+     */
+    public String get(CSVRecord record, InvoiceColumn column) {
+        int index = indexes[column.ordinal()];
+        return index >= 0 && index < record.size() ? record.get(index) : "";
+    }
+
+    /**
+     * Same as {@link #get(CSVRecord, InvoiceColumn)} for a row already split into cells
+     */
+    public String get(String[] cells, InvoiceColumn column) {
+        int index = indexes[column.ordinal()];
+        return index >= 0 && index < cells.length ? cells[index] : "";
+    }
+
+    private static String normalize(String header) {
+        String name = header;
+        // Excel likes to prefix UTF-8 CSVs with a byte order mark
+        if (!name.isEmpty() && name.charAt(0) == '\uFEFF') {
+            name = name.substring(1);
+        }
+        return name.trim().toUpperCase(Locale.ROOT);
+    }
+}
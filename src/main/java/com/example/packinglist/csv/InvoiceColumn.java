@@ -0,0 +1,36 @@
+package com.example.packinglist.csv;
+
+import java.util.List;
+
+/**
+ * Logical columns of an invoice or packing CSV, with the header spellings
+ * suppliers actually send for each of them.
+ */
+public enum InvoiceColumn {
+    PO("PO/NO.", "PO/NO", "PO.NO", "PO.NO.", "PO NO.", "PO NO", "PO#", "P.O.#", "PO", "PO NUMBER"),
+    ITEM("ITEM NO.", "ITEM NO", "ITEM#", "ITEM #", "ITEM", "ITEM NUMBER"),
+    DESCRIPTION("DESCRIPTION OF GOODS", "DESCRIPTION", "DESC"),
+    QTY("QTY", "QUANTITY", "CASE_QTY", "CASE QTY"),
+    UNIT_VALUE("UNIT VALUE (USD)", "UNIT VALUE", "FOB", "UNIT PRICE"),
+    NOTES("NOTES", "NOTE");
+
+    private final List<String> aliases;
+
+    InvoiceColumn(String... aliases) {
+        this.aliases = List.of(aliases);
+    }
+
+    /**
+     * Header names accepted for this column, in preference order
+     */
+    public List<String> getAliases() {
+        return aliases;
+    }
+
+    /**
+     * Name shown to users, e.g. in missing column messages
+     */
+    public String getDisplayName() {
+        return aliases.get(0);
+    }
+}
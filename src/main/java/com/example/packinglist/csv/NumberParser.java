@@ -0,0 +1,214 @@
+package com.example.packinglist.csv;
+
+/**
+ * Parses QTY and UNIT VALUE cells by scanning their characters in place,
+ * without regexes, substrings or boxing. Invalid input is signalled with a
+ * sentinel value rather than an exception so bad rows stay cheap too.
+ */
+public final class NumberParser {
+
+    /** Returned by {@link #parseQuantity} for values that are not a number */
+    public static final int INVALID_QUANTITY = Integer.MIN_VALUE;
+
+    /** Returned by {@link #parseCents} for values that are not an amount */
+    public static final long INVALID_CENTS = Long.MIN_VALUE;
+
+    // More integer digits than this cannot be a real amount and would overflow
+    private static final int MAX_CENTS_DIGITS = 16;
+
+    private NumberParser() {
+    }
+
+    /**
+     * Parses a quantity such as {@code 24}, {@code 1,200} or {@code 2.5}.
+     * Decimals are rounded half up; blank values are 0. Commas are only accepted as thousands
+     * separators between groups of three digits, so {@code 1,2,3} is invalid rather than 123.
+     *
+     * @return the quantity, or {@link #INVALID_QUANTITY}
+     */
+    public static int parseQuantity(CharSequence text) {
+        if (text == null) {
+            return 0;
+        }
+        int start = 0;
+        int end = text.length();
+        while (start < end && isSpace(text.charAt(start))) {
+            start++;
+        }
+        while (end > start && isSpace(text.charAt(end - 1))) {
+            end--;
+        }
+        if (start == end) {
+            return 0;
+        }
+
+        boolean negative = false;
+        char first = text.charAt(start);
+        if (first == '-' || first == '+') {
+            negative = first == '-';
+            start++;
+        }
+
+        long value = 0;
+        int digits = 0;
+        int groupDigits = 0;   // Digits since the last thousands separator
+        boolean grouped = false;
+        int i = start;
+        for (; i < end; i++) {
+            char c = text.charAt(i);
+            if (c >= '0' && c <= '9') {
+                value = value * 10 + (c - '0');
+                digits++;
+                groupDigits++;
+                if (value > Integer.MAX_VALUE) {
+                    return INVALID_QUANTITY;
+                }
+            } else if (c == ',') {
+                // Thousands separator: one to three digits before the first, exactly three between the others
+                if (groupDigits == 0 || groupDigits > 3 || (grouped && groupDigits != 3)) {
+                    return INVALID_QUANTITY;
+                }
+                grouped = true;
+                groupDigits = 0;
+            } else if (c == '.') {
+                break;
+            } else {
+                return INVALID_QUANTITY;
+            }
+        }
+        if (grouped && groupDigits != 3) {
+            return INVALID_QUANTITY;
+        }
+
+        if (i < end) {
+            // Fraction: rounded half up as Math.round does, so -2.5 gives -2 but -2.51 gives -3
+            int firstDigit = -1;
+            boolean beyondHalf = false;   // A non-zero digit after the first one
+            for (int j = i + 1; j < end; j++) {
+                char c = text.charAt(j);
+                if (c < '0' || c > '9') {
+                    return INVALID_QUANTITY;
+                }
+                if (firstDigit < 0) {
+                    firstDigit = c - '0';
+                } else if (c != '0') {
+                    beyondHalf = true;
+                }
+            }
+            if (digits == 0 && firstDigit < 0) {
+                return INVALID_QUANTITY;
+            }
+            boolean roundUp = negative
+                    ? firstDigit > 5 || (firstDigit == 5 && beyondHalf)
+                    : firstDigit >= 5;
+            if (roundUp) {
+                value++;
+            }
+        } else if (digits == 0) {
+            return INVALID_QUANTITY;
+        }
+
+        if (value > Integer.MAX_VALUE) {
+            return INVALID_QUANTITY;
+        }
+        return negative ? (int) -value : (int) value;
+    }
+
+    /**
+     * Parses a money amount such as {@code $3.50}, {@code 1,234.5} or {@code USD 3.355}
+     * into whole cents, rounding half up. Currency symbols, letters, spaces and
+     * thousands separators are ignored; blank values are 0.
+     *
+     * @return the amount in cents, or {@link #INVALID_CENTS}
+     */
+    public static long parseCents(CharSequence text) {
+        if (text == null) {
+            return 0;
+        }
+        boolean negative = false;
+        boolean seenPoint = false;
+        boolean any = false;
+        int integerDigits = 0;
+        int fractionDigits = 0;
+        long cents = 0;
+        boolean roundUp = false;
+
+        for (int i = 0, n = text.length(); i < n; i++) {
+            char c = text.charAt(i);
+            if (c >= '0' && c <= '9') {
+                any = true;
+                if (!seenPoint) {
+                    if (++integerDigits > MAX_CENTS_DIGITS) {
+                        return INVALID_CENTS;
+                    }
+                    cents = cents * 10 + (c - '0');
+                } else if (fractionDigits < 2) {
+                    cents = cents * 10 + (c - '0');
+                    fractionDigits++;
+                } else if (fractionDigits == 2) {
+                    roundUp = c >= '5';
+                    fractionDigits++;
+                }
+            } else if (c == '.') {
+                if (seenPoint) {
+                    return INVALID_CENTS;
+                }
+                seenPoint = true;
+            } else if (c == '-') {
+                // A minus is only valid in front of the number
+                if (negative || any || seenPoint) {
+                    return INVALID_CENTS;
+                }
+                negative = true;
+            }
+            // Anything else ($, letters, spaces, thousands separators) is skipped
+        }
+
+        if (!any) {
+            // Nothing but symbols is invalid, a truly empty cell is simply 0
+            return isBlank(text) ? 0 : INVALID_CENTS;
+        }
+        for (; fractionDigits < 2; fractionDigits++) {
+            cents *= 10;
+        }
+        if (roundUp) {
+            cents++;
+        }
+        return negative ? -cents : cents;
+    }
+
+    /**
+     * Formats cents as a plain decimal with two places, e.g. {@code 350 -> 3.50}
+     */
+    public static String formatCents(long cents) {
+        StringBuilder sb = new StringBuilder(8);
+        appendCents(sb, cents);
+        return sb.toString();
+    }
+
+    public static void appendCents(StringBuilder sb, long cents) {
+        long abs = Math.abs(cents);
+        if (cents < 0) {
+            sb.append('-');
+        }
+        long fraction = abs % 100;
+        sb.append(abs / 100).append('.');
+        if (fraction < 10) {
+            sb.append('0');
+        }
+        sb.append(fraction);
+    }
+
+    private static boolean isBlank(CharSequence text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (!isSpace(text.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isSpace(char c) {
+        return c <= ' ' || c == '\u00A0';
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.packinglist.csv;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Counts rows and unparseable values while reading one file, so problems can be
+ * reported once per file instead of once per bad row.
+ */
+public class ParseStats {
+
+    // Enough examples to find the bad rows without flooding the log
+    private static final int MAX_SAMPLES = 5;
+
+    // Only the parsing thread writes, volatile lets job status requests read it
+    private volatile long rows;
+    private long invalidQuantities;
+    private long invalidUnitValues;
+    private final List<String> samples = new ArrayList<>();
+
+    public void countRow() {
+        rows = rows + 1;
+    }
+
+    public void invalidQuantity(long line, CharSequence value) {
+        invalidQuantities++;
+        sample(line, "QTY", value);
+    }
+
+    public void invalidUnitValue(long line, CharSequence value) {
+        invalidUnitValues++;
+        sample(line, "UNIT VALUE", value);
+    }
+
+    private void sample(long line, String column, CharSequence value) {
+        if (samples.size() < MAX_SAMPLES) {
+            samples.add("line " + line + " " + column + " '" + value + "'");
+        }
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    public long getInvalidQuantities() {
+        return invalidQuantities;
+    }
+
+    public long getInvalidUnitValues() {
+        return invalidUnitValues;
+    }
+
+    public boolean hasInvalidValues() {
+        return invalidQuantities > 0 || invalidUnitValues > 0;
+    }
+
+    /**
+     * One-line report of the invalid values found, e.g. for the log
+     */
+    public String summary(String fileName) {
+        return String.format("%s: %d invalid QTY and %d invalid UNIT VALUE values in %d rows, 0 was used instead. First: %s",
+                fileName, invalidQuantities, invalidUnitValues, rows, String.join(", ", samples));
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.packinglist.history;
+
+import com.example.packinglist.config.PackingListProperties;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.datasource.init.DataSourceInitializer;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import javax.sql.DataSource;
+import java.nio.file.Path;
+
+/**
+ * The embedded H2 file database behind the shipment history, with its tables created from
+ * schema.sql on startup. Only set up while the history is enabled: with
+ * {@code packinglist.history.enabled=false} no database file is opened or created.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(prefix = "packinglist.history", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class HistoryDatabaseConfiguration {
+
+    @Bean
+    public DataSource historyDataSource(PackingListProperties properties) {
+        Path file = Path.of(properties.getHistory().getDirectory(), "shipment-history");
+        return DataSourceBuilder.create()
+                .url("jdbc:h2:file:" + file.toAbsolutePath())
+                .username("sa")
+                .password("")
+                .build();
+    }
+
+    @Bean
+    public DataSourceInitializer historySchemaInitializer(DataSource historyDataSource) {
+        DataSourceInitializer initializer = new DataSourceInitializer();
+        initializer.setDataSource(historyDataSource);
+        initializer.setDatabasePopulator(new ResourceDatabasePopulator(new ClassPathResource("schema.sql")));
+        return initializer;
+    }
+}
@@ -0,0 +1,141 @@
+package com.example.packinglist.history;
+
+import com.example.packinglist.config.PackingListProperties;
+import com.example.packinglist.model.InvoiceEntry;
+import com.example.packinglist.sort.SortedInvoices;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDate;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records processed invoices in the shipment history. Writes happen on a single background
+ * thread after the response has been sent, so the history never slows down an upload;
+ * when the database falls behind and the queue is full, invoices are left out of the history.
+ */
+@Service
+public class HistoryService {
+
+    private final ShipmentHistoryRepository repository;
+    private final ThreadPoolExecutor writer;
+
+    @Autowired
+    public HistoryService(PackingListProperties properties, ObjectProvider<ShipmentHistoryRepository> repository) {
+        this(properties, properties.getHistory().isEnabled() ? repository.getIfAvailable() : null);
+    }
+
+    public HistoryService(PackingListProperties properties, ShipmentHistoryRepository repository) {
+        this.repository = repository;
+        // The thread is only started by the first invoice and stops again when idle
+        this.writer = new ThreadPoolExecutor(1, 1, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(properties.getHistory().getQueueDepth()), runnable -> {
+            Thread thread = new Thread(runnable, "shipment-history");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.writer.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * A history that records nothing, for callers built without a database
+     */
+    public static HistoryService disabled() {
+        return new HistoryService(new PackingListProperties(), (ShipmentHistoryRepository) null);
+    }
+
+    public boolean isEnabled() {
+        return repository != null;
+    }
+
+    /**
+     * Queues the rows of a processed invoice. Takes ownership of {@code rows}: they are
+     * closed once written, or straight away if the history is off or the queue is full.
+     */
+    public void record(ShipmentRecord shipment, SortedInvoices rows) {
+        if (!isEnabled()) {
+            rows.close();
+            return;
+        }
+        try {
+            writer.execute(() -> write(shipment, rows));
+        } catch (RejectedExecutionException e) {
+            rows.close();
+            System.err.println("Shipment history is behind, not recording " + shipment.getFileName());
+        }
+    }
+
+    private void write(ShipmentRecord shipment, SortedInvoices rows) {
+        try (rows) {
+            long id = repository.save(shipment, contentHash(rows), rows);
+            System.out.println("Recorded shipment " + id + " (" + shipment.getFileName() + ", " + rows.size() + " rows)");
+        } catch (RuntimeException e) {
+            System.err.println("Could not record shipment history for " + shipment.getFileName() + ": " + e.getMessage());
+        }
+    }
+
+    public List<ItemArrival> search(String itemNo, String poNo, LocalDate from, LocalDate to, int limit) {
+        return repository.search(itemNo, poNo, from, to, limit);
+    }
+
+    /**
+     * The most recent arrival of an item, if it was ever shipped
+     */
+    public Optional<ItemArrival> lastArrival(String itemNo) {
+        return repository.search(itemNo, null, null, null, 1).stream().findFirst();
+    }
+
+    public List<HistoryTotal> aggregate(ShipmentHistoryRepository.GroupBy groupBy, String itemNo, String poNo,
+                                        LocalDate from, LocalDate to, int limit) {
+        return repository.aggregate(groupBy, itemNo, poNo, from, to, limit);
+    }
+
+    public List<ShipmentSummary> shipments(LocalDate from, LocalDate to, int limit) {
+        return repository.shipments(from, to, limit);
+    }
+
+    /**
+     * SHA-256 over the invoice lines, which identifies the same invoice uploaded again
+     * whatever the file name or form values
+     */
+    static String contentHash(Iterable<InvoiceEntry> rows) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+        StringBuilder line = new StringBuilder(64);
+        for (InvoiceEntry entry : rows) {
+            line.setLength(0);
+            line.append(entry.getPoNo()).append('\t')
+                .append(entry.getItemNo()).append('\t')
+                .append(entry.getQty()).append('\t')
+                .append(entry.getUnitValueCents()).append('\n');
+            digest.update(line.toString().getBytes(StandardCharsets.UTF_8));
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Lets queued invoices finish writing before the database shuts down
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        writer.shutdown();
+        if (!writer.awaitTermination(30, TimeUnit.SECONDS)) {
+            writer.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.packinglist.history;
+
+import lombok.Value;
+
+import java.time.LocalDate;
+
+/**
+ * Totals for one item or PO number over a range of arrivals
+ */
+@Value
+public class HistoryTotal {
+    String key;
+    long totalQty;
+    int shipments;
+    LocalDate firstArrival;
+    LocalDate lastArrival;
+}
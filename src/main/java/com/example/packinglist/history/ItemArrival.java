@@ -0,0 +1,21 @@
+package com.example.packinglist.history;
+
+import lombok.Value;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * One invoice line found in the history
+ */
+@Value
+public class ItemArrival {
+    long shipmentId;
+    LocalDate arrivalDate;
+    String poNo;
+    String itemNo;
+    String description;
+    int qty;
+    BigDecimal unitValue;   // USD
+    String fileName;
+}
@@ -0,0 +1,198 @@
+package com.example.packinglist.history;
+
+import com.example.packinglist.model.InvoiceEntry;
+import com.example.packinglist.model.ShipmentDetails;
+import com.example.packinglist.sort.SortedInvoices;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads and writes the shipment history tables (see schema.sql). Like its database, only
+ * there while the history is enabled.
+ */
+@Repository
+@ConditionalOnProperty(prefix = "packinglist.history", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class ShipmentHistoryRepository {
+
+    public enum GroupBy {
+        ITEM("item_no"),
+        PO("po_no");
+
+        private final String column;
+
+        GroupBy(String column) {
+            this.column = column;
+        }
+    }
+
+    // Invoice lines sent to the database per JDBC batch
+    private static final int BATCH_SIZE = 1000;
+
+    private static final String INSERT_ITEM = "INSERT INTO shipment_item "
+            + "(shipment_id, arrival_date, po_no, item_no, description, qty, unit_value_cents) VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate transactions;
+
+    public ShipmentHistoryRepository(JdbcTemplate jdbc, TransactionTemplate transactions) {
+        this.jdbc = jdbc;
+        this.transactions = transactions;
+    }
+
+    /**
+     * Stores a shipment and all its rows in one transaction. An earlier record of the same
+     * invoice content on the same day is replaced, so regenerating a packing list with
+     * corrected boxes or weight does not count its items twice.
+     *
+     * @return the id of the new shipment
+     */
+    public long save(ShipmentRecord shipment, String contentHash, SortedInvoices rows) {
+        Long id = transactions.execute(status -> {
+            jdbc.update("DELETE FROM shipment WHERE content_hash = ? AND shipped_on = ?",
+                    contentHash, Date.valueOf(shipment.getShippedOn()));
+
+            ShipmentDetails details = shipment.getDetails();
+            KeyHolder key = new GeneratedKeyHolder();
+            jdbc.update(connection -> {
+                PreparedStatement insert = connection.prepareStatement("INSERT INTO shipment "
+                        + "(file_name, shipped_on, arrival_date, tracking, boxes, weight, rmb, rate, row_count, total_qty, content_hash, recorded_at) "
+                        + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)", Statement.RETURN_GENERATED_KEYS);
+                insert.setString(1, shipment.getFileName());
+                insert.setDate(2, Date.valueOf(shipment.getShippedOn()));
+                insert.setDate(3, Date.valueOf(shipment.getArrivalDate()));
+                insert.setString(4, details.getTracking());
+                insert.setInt(5, details.getBoxes());
+                insert.setDouble(6, details.getWeight());
+                insert.setDouble(7, details.getRmb());
+                insert.setDouble(8, details.getRate());
+                insert.setInt(9, rows.size());
+                insert.setInt(10, rows.getTotalQty());
+                insert.setString(11, contentHash);
+                insert.setTimestamp(12, Timestamp.from(Instant.now()));
+                return insert;
+            }, key);
+            long shipmentId = key.getKey().longValue();
+
+            Date arrival = Date.valueOf(shipment.getArrivalDate());
+            List<Object[]> batch = new ArrayList<>(BATCH_SIZE);
+            for (InvoiceEntry entry : rows) {
+                batch.add(new Object[]{shipmentId, arrival, entry.getPoNo(), entry.getItemNo(), entry.getDescription(),
+                        entry.getQty(), entry.getUnitValueCents()});
+                if (batch.size() == BATCH_SIZE) {
+                    jdbc.batchUpdate(INSERT_ITEM, batch);
+                    batch.clear();
+                }
+            }
+            if (!batch.isEmpty()) {
+                jdbc.batchUpdate(INSERT_ITEM, batch);
+            }
+            return shipmentId;
+        });
+        return id;
+    }
+
+    /**
+     * Invoice lines matching all given filters, newest arrival first. Null filters are ignored.
+     */
+    public List<ItemArrival> search(String itemNo, String poNo, LocalDate from, LocalDate to, int limit) {
+        List<Object> params = new ArrayList<>();
+        String sql = "SELECT i.shipment_id, i.arrival_date, i.po_no, i.item_no, i.description, i.qty, i.unit_value_cents, s.file_name "
+                + "FROM shipment_item i JOIN shipment s ON s.id = i.shipment_id"
+                + where(itemNo, poNo, from, to, params)
+                + " ORDER BY i.arrival_date DESC, i.shipment_id DESC LIMIT ?";
+        params.add(limit);
+        return jdbc.query(sql, (rs, n) -> new ItemArrival(
+                rs.getLong(1),
+                rs.getDate(2).toLocalDate(),
+                rs.getString(3),
+                rs.getString(4),
+                rs.getString(5),
+                rs.getInt(6),
+                BigDecimal.valueOf(rs.getLong(7), 2),
+                rs.getString(8)), params.toArray());
+    }
+
+    /**
+     * Quantity and shipment count per item or PO number, largest quantity first
+     */
+    public List<HistoryTotal> aggregate(GroupBy groupBy, String itemNo, String poNo, LocalDate from, LocalDate to, int limit) {
+        List<Object> params = new ArrayList<>();
+        String sql = "SELECT i." + groupBy.column + ", SUM(i.qty), COUNT(DISTINCT i.shipment_id), MIN(i.arrival_date), MAX(i.arrival_date) "
+                + "FROM shipment_item i"
+                + where(itemNo, poNo, from, to, params)
+                + " GROUP BY i." + groupBy.column
+                + " ORDER BY SUM(i.qty) DESC LIMIT ?";
+        params.add(limit);
+        return jdbc.query(sql, (rs, n) -> new HistoryTotal(
+                rs.getString(1),
+                rs.getLong(2),
+                rs.getInt(3),
+                rs.getDate(4).toLocalDate(),
+                rs.getDate(5).toLocalDate()), params.toArray());
+    }
+
+    /**
+     * Recorded shipments arriving in the given range, newest first
+     */
+    public List<ShipmentSummary> shipments(LocalDate from, LocalDate to, int limit) {
+        List<Object> params = new ArrayList<>();
+        StringBuilder sql = new StringBuilder("SELECT id, file_name, shipped_on, arrival_date, tracking, boxes, weight, row_count, total_qty, recorded_at "
+                + "FROM shipment WHERE 1 = 1");
+        if (from != null) {
+            sql.append(" AND arrival_date >= ?");
+            params.add(Date.valueOf(from));
+        }
+        if (to != null) {
+            sql.append(" AND arrival_date <= ?");
+            params.add(Date.valueOf(to));
+        }
+        sql.append(" ORDER BY arrival_date DESC, id DESC LIMIT ?");
+        params.add(limit);
+        return jdbc.query(sql.toString(), (rs, n) -> new ShipmentSummary(
+                rs.getLong(1),
+                rs.getString(2),
+                rs.getDate(3).toLocalDate(),
+                rs.getDate(4).toLocalDate(),
+                rs.getString(5),
+                rs.getInt(6),
+                rs.getDouble(7),
+                rs.getInt(8),
+                rs.getInt(9),
+                rs.getTimestamp(10).toInstant()), params.toArray());
+    }
+
+    private static String where(String itemNo, String poNo, LocalDate from, LocalDate to, List<Object> params) {
+        StringBuilder where = new StringBuilder(" WHERE 1 = 1");
+        if (itemNo != null) {
+            where.append(" AND i.item_no = ?");
+            params.add(itemNo);
+        }
+        if (poNo != null) {
+            where.append(" AND i.po_no = ?");
+            params.add(poNo);
+        }
+        if (from != null) {
+            where.append(" AND i.arrival_date >= ?");
+            params.add(Date.valueOf(from));
+        }
+        if (to != null) {
+            where.append(" AND i.arrival_date <= ?");
+            params.add(Date.valueOf(to));
+        }
+        return where.toString();
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.packinglist.history;
+
+import com.example.packinglist.model.ShipmentDetails;
+import lombok.Value;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * What is known about a processed invoice apart from its rows
+ */
+@Value
+public class ShipmentRecord {
+
+    private static final DateTimeFormatter FILE_DATE = DateTimeFormatter.ofPattern("yyMMdd");
+
+    String fileName;
+    LocalDate shippedOn;
+    LocalDate arrivalDate;
+    ShipmentDetails details;
+
+    /**
+     * @param date the yyMMdd date used in the generated file names; arrival is 7 days later,
+     *             the same ARRIVAL# the HTML packing list prints
+     */
+    public static ShipmentRecord of(String fileName, String date, ShipmentDetails details) {
+        LocalDate shippedOn = LocalDate.parse(date, FILE_DATE);
+        return new ShipmentRecord(fileName, shippedOn, shippedOn.plusDays(7), details);
+    }
+}
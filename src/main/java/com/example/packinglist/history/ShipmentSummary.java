@@ -0,0 +1,23 @@
+package com.example.packinglist.history;
+
+import lombok.Value;
+
+import java.time.Instant;
+import java.time.LocalDate;
+
+/**
+ * One processed invoice in the history
+ */
+@Value
+public class ShipmentSummary {
+    long id;
+    String fileName;
+    LocalDate shippedOn;
+    LocalDate arrivalDate;
+    String tracking;
+    int boxes;
+    double weight;
+    int rows;
+    int totalQty;
+    Instant recordedAt;
+}
@@ -0,0 +1,352 @@
+package com.example.packinglist.html;
+
+import com.example.packinglist.model.ShipmentDetails;
+import com.example.packinglist.service.PipelineProgress;
+import com.example.packinglist.sort.InvoiceCursor;
+import com.example.packinglist.sort.SortedInvoices;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Writes the printable HTML packing list as UTF-8 bytes. Markup that never changes is
+ * encoded once when the class loads, the page header once per document, and rows are
+ * assembled in a pooled {@link Utf8Buffer} instead of through string concatenation.
+ */
+public class PackingListHtmlRenderer {
+
+    private static final byte[] DOCUMENT_START = utf8("<!DOCTYPE html>\n"
+            + "<html>\n<head>\n"
+            + "<meta charset=\"UTF-8\">\n"
+            + "<title>Packing List - ");
+
+    private static final byte[] STYLE = utf8("</title>\n"
+            + "<style>\n"
+            // Print styles
+            + "@media print {\n"
+            + "  @page { size: A4 portrait; margin: 0.4in 0.3in; }\n"
+            + "  body { margin: 0; padding: 0; }\n"
+            + "  .no-print { display: none; }\n"
+            + "  .page-break { page-break-before: always; }\n"
+            + "}\n"
+            // General styles
+            + "body { font-family: Arial, sans-serif; margin: 0.4in 0.3in; padding: 0; font-size: 10px; line-height: 1.2; }\n"
+            + "table { border-collapse: collapse; }\n"
+            + "td, th { padding: 2px 4px; vertical-align: top; }\n"
+            // Header section styles
+            + ".header-container { display: flex; justify-content: space-between; margin-bottom: 10px; }\n"
+            + ".header-left, .header-right { border: 2px solid #000; padding: 4px; }\n"
+            + ".header-left { width: 200px; }\n"
+            + ".header-right { width: 300px; }\n"
+            + ".header-row { display: flex; margin-bottom: 3px; }\n"
+            + ".header-label { font-weight: bold; width: 70px; }\n"
+            + ".header-value { flex: 1; border-bottom: 1px solid #000; margin-left: 5px; min-height: 12px; }\n"
+            + ".header-value-no-underline { flex: 1; margin-left: 5px; min-height: 12px; }\n"
+            + ".handwriting-line { border-bottom: 1px solid #000; margin: 2px 0; height: 15px; }\n"
+            // Data tables container
+            + ".tables-container { display: flex; gap: 10px; }\n"
+            + ".table-column { flex: 1; }\n"
+            + ".data-table { width: 100%; border: 2px solid #000; }\n"
+            + ".data-table th { border: 1px solid #000; background-color: #f0f0f0; font-weight: bold; text-align: center; padding: 3px; font-size: 10px; }\n"
+            + ".data-table th.item-header, .data-table th.qty-header { font-size: 12px; }\n"
+            + ".data-table td { border: 1px solid #000; text-align: center; padding: 2px; font-size: 8px; }\n"
+            + ".data-table td.item-data, .data-table td.qty-data { font-size: 16px; }\n"
+            + ".duplicate-item { \n"
+            + "  border: 4px solid red; \n"
+            + "  border-radius: 50%; \n"
+            + "  background-color: #ffeeee; \n"
+            + "  box-shadow: 0 0 8px rgba(255, 0, 0, 0.5);\n"
+            + "  font-weight: bold;\n"
+            + "}\n"
+            + "@media print {\n"
+            + "  .duplicate-item {\n"
+            + "    border: 4px solid #000 !important;\n"
+            + "    background-color: #f0f0f0 !important;\n"
+            + "    box-shadow: none !important;\n"
+            + "    font-weight: bold !important;\n"
+            + "  }\n"
+            + "}\n"
+            + ".po-col { width: 15%; }\n"
+            + ".item-col { width: 25%; }\n"
+            + ".qty-col { width: 10%; }\n"
+            + ".receive-check-col { width: 12%; }\n"
+            + ".notes-col { width: 38%; }\n"
+            + "</style>\n"
+            + "</head>\n<body>\n");
+
+    private static final byte[] DOCUMENT_END = utf8("</body>\n</html>\n");
+
+    private static final byte[] PAGE_BREAK = utf8("<div class=\"page-break\"></div>\n");
+
+    private static final byte[] HEADER_START = utf8("<div class=\"header-container\">\n"
+            + "<div class=\"header-left\">\n");
+    private static final byte[] HEADER_END = utf8("</div>\n</div>\n");
+    private static final byte[] PAGE_NUMBER_START = utf8("<div style=\"text-align: center; margin-top: 5px; font-size: 9px; font-weight: bold;\">\n"
+            + "Page ");
+    private static final byte[] PAGE_NUMBER_OF = utf8(" of ");
+    private static final byte[] PAGE_NUMBER_END = utf8("\n</div>\n");
+
+    private static final byte[] TABLES_START = utf8("<div class=\"tables-container\">\n");
+    private static final byte[] COLUMN_START = utf8("<div class=\"table-column\">\n"
+            + "<table class=\"data-table\">\n"
+            + "<tr>\n"
+            + "<th class=\"po-col\">PO/NO</th>\n"
+            + "<th class=\"item-col item-header\">ITEM NO.</th>\n"
+            + "<th class=\"qty-col qty-header\">QTY</th>\n"
+            + "<th class=\"receive-check-col\">RECEIVE CHECK</th>\n"
+            + "<th class=\"notes-col\">NOTES</th>\n"
+            + "</tr>\n");
+    private static final byte[] COLUMN_END = utf8("</table>\n</div>\n");
+    private static final byte[] TABLES_END = utf8("</div>\n");
+
+    private static final byte[] ROW_START = utf8("<tr>\n<td>");
+    private static final byte[] ITEM_CELL = utf8("</td>\n<td class=\"item-data\">");
+    private static final byte[] DUPLICATE_ITEM_CELL = utf8("</td>\n<td class=\"duplicate-item item-data\">");
+    private static final byte[] QTY_CELL = utf8("</td>\n<td class=\"qty-data\">");
+    private static final byte[] ROW_END = utf8("</td>\n<td><input type=\"checkbox\"></td>\n<td></td>\n</tr>\n");
+
+    private static final byte[] TOTAL_ROW_START = utf8("<tr style=\"border-top: 3px solid #000; font-weight: bold;\">\n"
+            + "<td></td>\n"
+            + "<td>TOTAL QTY:</td>\n"
+            + "<td style=\"font-size: 16px;\">");
+    private static final byte[] TOTAL_ROW_END = utf8("</td>\n<td></td>\n<td></td>\n</tr>\n");
+
+    /**
+     * Writes the whole document. An item number is marked as a duplicate when another row
+     * has the same one.
+     */
+    public void render(OutputStream out, String date, SortedInvoices invoiceEntries, ShipmentDetails details,
+                       int itemsPerPage, PipelineProgress progress) throws IOException {
+        int totalPages = (int) Math.ceil((double) invoiceEntries.size() / itemsPerPage);
+        // Repeated item numbers were found while the rows were parsed, whatever their order:
+        // counted by the item dictionary for rows in memory, from the invoice summary otherwise
+        renderPages(out, date, invoiceEntries.cursor(), invoiceEntries.size(), invoiceEntries.getTotalQty(), details,
+                itemsPerPage, 0, totalPages, progress);
+    }
+
+    /**
+     * Writes a document holding only pages {@code fromPage} up to but excluding {@code toPage},
+     * counted from zero, laid out and numbered as in the whole document. {@code rows} must
+     * start at the first row of {@code fromPage}; at most one row past the last page is read.
+     *
+     * @param totalRows rows of the whole invoice, which fix the page count
+     * @param totalQty  total quantity of the whole invoice, shown on its last page
+     */
+    public void renderPages(OutputStream out, String date, InvoiceCursor rows, int totalRows, int totalQty,
+                            ShipmentDetails details, int itemsPerPage, int fromPage, int toPage,
+                            PipelineProgress progress) throws IOException {
+        byte[] headerBody = headerBody(details);
+        renderPages(out, date, rows, totalRows, totalQty, buffer -> buffer.write(headerBody),
+                itemsPerPage, fromPage, toPage, progress);
+    }
+
+    /**
+     * Writes the whole document without the shipment details, for re-rendering only the header
+     * when they change. The pieces are the document split where each page's
+     * {@link #headerBody header body} goes: piece, header, piece, ..., header, piece.
+     * Each piece is rendered into the given buffer, which is reset in between.
+     */
+    public List<byte[]> renderWithoutHeader(String date, SortedInvoices invoiceEntries, int itemsPerPage,
+                                            ByteArrayOutputStream piece) throws IOException {
+        List<byte[]> pieces = new ArrayList<>();
+        int totalPages = (int) Math.ceil((double) invoiceEntries.size() / itemsPerPage);
+        renderPages(piece, date, invoiceEntries.cursor(), invoiceEntries.size(), invoiceEntries.getTotalQty(), buffer -> {
+            buffer.flush();
+            pieces.add(piece.toByteArray());
+            piece.reset();
+        }, itemsPerPage, 0, totalPages, new PipelineProgress());
+        pieces.add(piece.toByteArray());
+        return pieces;
+    }
+
+    /**
+     * Where the header body goes on each page
+     */
+    private interface HeaderSlot {
+        void write(Utf8Buffer buffer) throws IOException;
+    }
+
+    private void renderPages(OutputStream out, String date, InvoiceCursor rows, int totalRows, int totalQty,
+                             HeaderSlot headerBody, int itemsPerPage, int fromPage, int toPage,
+                             PipelineProgress progress) throws IOException {
+        int totalPages = (int) Math.ceil((double) totalRows / itemsPerPage);
+        progress.setTotalPages(toPage - fromPage);
+
+        // Same on every page apart from the ARRIVAL# row and the page number
+        byte[] arrivalRow = utf8("<div class=\"header-row\">\n"
+                + "<span class=\"header-label\">ARRIVAL#:</span>\n"
+                + "<span class=\"header-value\">" + arrival(date) + "</span>\n"
+                + "</div>\n");
+
+        try (Utf8Buffer buffer = Utf8Buffer.acquire(out)) {
+            buffer.write(DOCUMENT_START).write(date).write(STYLE);
+
+            boolean hasNext = rows.next();
+            Page page = new Page(itemsPerPage);
+
+            for (int pageNum = fromPage; pageNum < toPage; pageNum++) {
+                page.size = 0;
+                for (int i = 0; i < itemsPerPage && hasNext; i++) {
+                    page.add(rows.poNo(), rows.itemNo(), rows.qty(), rows.repeatedItem());
+                    hasNext = rows.next();
+                }
+
+                // Add page break for all pages except the first one written
+                if (pageNum > fromPage) {
+                    buffer.write(PAGE_BREAK);
+                }
+
+                writePageHeader(buffer, pageNum, totalPages, arrivalRow, headerBody);
+                writePageData(buffer, page, pageNum == totalPages - 1, totalQty);
+                progress.pageRendered();
+            }
+
+            buffer.write(DOCUMENT_END);
+            buffer.flush();
+        }
+    }
+
+    private static void writePageHeader(Utf8Buffer buffer, int pageNum, int totalPages, byte[] arrivalRow, HeaderSlot headerBody) throws IOException {
+        buffer.write(HEADER_START);
+        // Only show ARRIVAL# on the first page
+        if (pageNum == 0) {
+            buffer.write(arrivalRow);
+        }
+        headerBody.write(buffer);
+        if (totalPages > 1) {
+            buffer.write(PAGE_NUMBER_START).write(pageNum + 1).write(PAGE_NUMBER_OF).write(totalPages).write(PAGE_NUMBER_END);
+        }
+        buffer.write(HEADER_END);
+    }
+
+    /**
+     * The rows of the page being written, reused from page to page
+     */
+    private static final class Page {
+        final String[] poNo;
+        final String[] itemNo;
+        final int[] qty;
+        final boolean[] duplicate;
+        int size;
+
+        Page(int capacity) {
+            poNo = new String[capacity];
+            itemNo = new String[capacity];
+            qty = new int[capacity];
+            duplicate = new boolean[capacity];
+        }
+
+        void add(String po, String item, int quantity, boolean isDuplicate) {
+            poNo[size] = po;
+            itemNo[size] = item;
+            qty[size] = quantity;
+            duplicate[size] = isDuplicate;
+            size++;
+        }
+    }
+
+    /**
+     * Left and right table columns of one page, split evenly
+     */
+    private static void writePageData(Utf8Buffer buffer, Page page, boolean isLastPage, int totalQty) throws IOException {
+        int itemsOnThisPage = page.size;
+        int entriesPerColumn = (int) Math.ceil(itemsOnThisPage / 2.0);
+
+        buffer.write(TABLES_START);
+        buffer.write(COLUMN_START);
+        for (int i = 0; i < entriesPerColumn && i < itemsOnThisPage; i++) {
+            writeRow(buffer, page, i);
+        }
+        buffer.write(COLUMN_END);
+
+        buffer.write(COLUMN_START);
+        for (int i = entriesPerColumn; i < itemsOnThisPage; i++) {
+            writeRow(buffer, page, i);
+        }
+        // Total quantity row at the end of the last page
+        if (isLastPage) {
+            buffer.write(TOTAL_ROW_START).write(totalQty).write(TOTAL_ROW_END);
+        }
+        buffer.write(COLUMN_END);
+        buffer.write(TABLES_END);
+    }
+
+    private static void writeRow(Utf8Buffer buffer, Page page, int i) throws IOException {
+        buffer.write(ROW_START).write(page.poNo[i])
+                .write(page.duplicate[i] ? DUPLICATE_ITEM_CELL : ITEM_CELL).write(page.itemNo[i])
+                .write(QTY_CELL).write(page.qty[i])
+                .write(ROW_END);
+    }
+
+    /**
+     * Everything between the ARRIVAL# row and the page number: the handwriting fields
+     * on the left and the freight, weight, boxes and tracking box on the right
+     */
+    public static byte[] headerBody(ShipmentDetails details) {
+        Date now = new Date();
+        String todayMonth = new SimpleDateFormat("MM").format(now);
+        String todayDate = new SimpleDateFormat("dd").format(now);
+        double upsFreight = details.getRmb() / details.getRate();
+        String tracking = details.getTracking() != null ? details.getTracking() : "";
+
+        return utf8("<div class=\"header-row\">\n"
+                + "<span class=\"header-label\">DATE:</span>\n"
+                + "<span class=\"header-value\"></span>\n"
+                + "</div>\n"
+                + "<div class=\"header-row\">\n"
+                + "<span class=\"header-label\">P.O.#W25" + todayMonth + todayDate + "=>AMNT:</span>\n"
+                + "<span class=\"header-value-no-underline\"></span>\n"
+                + "</div>\n"
+                + "<div class=\"handwriting-line\"></div>\n"
+                + "<div class=\"header-row\">\n"
+                + "<span class=\"header-label\">P.O.#WONA25" + todayMonth + todayDate + ",8%DISC$321.07=>AMNT:</span>\n"
+                + "<span class=\"header-value-no-underline\"></span>\n"
+                + "</div>\n"
+                + "<div class=\"handwriting-line\"></div>\n"
+                + "</div>\n"
+                // Right header box
+                + "<div class=\"header-right\">\n"
+                + "<div style=\"text-align: center; font-weight: bold; margin-bottom: 5px; font-size: 11px;\">UPS FREIGHT:</div>\n"
+                + "<div style=\"text-align: center; margin-bottom: 5px; font-size: 16px;\">"
+                + String.format("%.0f RMB / %.2f RATE = $%.2f", details.getRmb(), details.getRate(), upsFreight) + "</div>\n"
+                + "<div class=\"header-row\">\n"
+                + "<span style=\"width: 80px; font-size: 9px;\">GROSS WEIGHT:</span>\n"
+                + "<span class=\"header-value\">" + String.format("%.1f", details.getWeight()) + "</span>\n"
+                + "</div>\n"
+                + "<div class=\"header-row\">\n"
+                + "<span style=\"width: 80px; font-size: 9px;\">BOXES:</span>\n"
+                + "<span class=\"header-value\">" + details.getBoxes() + "</span>\n"
+                + "</div>\n"
+                + "<div class=\"header-row\">\n"
+                + "<span style=\"width: 80px; font-size: 9px;\">UPS TRACKING#:</span>\n"
+                + "<span class=\"header-value\">" + tracking + "</span>\n"
+                + "</div>\n");
+    }
+
+    /**
+     * ARRIVAL# is the P.O. date plus 7 days
+     */
+    public static String arrival(String date) {
+        try {
+            SimpleDateFormat sdf = new SimpleDateFormat("yyMMdd");
+            Calendar cal = Calendar.getInstance();
+            cal.setTime(sdf.parse(date));
+            cal.add(Calendar.DAY_OF_MONTH, 7);
+            return "XR" + sdf.format(cal.getTime());
+        } catch (Exception e) {
+            // Fallback to original calculation if parsing fails
+            return "XR" + date;
+        }
+    }
+
+    private static byte[] utf8(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,139 @@
+package com.example.packinglist.html;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Collects UTF-8 output in a fixed byte array and hands it to the target stream whenever
+ * it fills up. Arrays come from a small shared pool, so rendering allocates no buffers
+ * once the pool is warm. Not thread safe; {@link #close()} returns the array to the pool.
+ */
+public final class Utf8Buffer implements AutoCloseable {
+
+    static final int CAPACITY = 32 * 1024;
+    // Enough for every renderer running at once on a busy server, extra arrays are just dropped
+    private static final int MAX_POOLED = 32;
+
+    private static final Queue<byte[]> POOL = new ConcurrentLinkedQueue<>();
+    private static final AtomicInteger POOLED = new AtomicInteger();
+
+    private final OutputStream out;
+    private byte[] bytes;
+    private int count;
+
+    private Utf8Buffer(OutputStream out, byte[] bytes) {
+        this.out = out;
+        this.bytes = bytes;
+    }
+
+    /**
+     * Takes a buffer from the pool, or a new one if the pool is empty
+     */
+    public static Utf8Buffer acquire(OutputStream out) {
+        byte[] bytes = POOL.poll();
+        if (bytes != null) {
+            POOLED.decrementAndGet();
+        } else {
+            bytes = new byte[CAPACITY];
+        }
+        return new Utf8Buffer(out, bytes);
+    }
+
+    public Utf8Buffer write(byte[] fragment) throws IOException {
+        if (fragment.length > bytes.length - count) {
+            flushBuffer();
+            if (fragment.length > bytes.length) {
+                out.write(fragment);
+                return this;
+            }
+        }
+        System.arraycopy(fragment, 0, bytes, count, fragment.length);
+        count += fragment.length;
+        return this;
+    }
+
+    /**
+     * Appends a string as UTF-8. ASCII, which is nearly everything on a packing list,
+     * is copied byte by byte without an intermediate array.
+     */
+    public Utf8Buffer write(String text) throws IOException {
+        int length = text.length();
+        if (length > bytes.length - count) {
+            flushBuffer();
+            if (length > bytes.length) {
+                out.write(text.getBytes(StandardCharsets.UTF_8));
+                return this;
+            }
+        }
+        int start = count;
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (c >= 0x80) {
+                // Rare: let the JDK encode it, including surrogate pairs
+                count = start;
+                return write(text.getBytes(StandardCharsets.UTF_8));
+            }
+            bytes[count++] = (byte) c;
+        }
+        return this;
+    }
+
+    public Utf8Buffer write(int value) throws IOException {
+        // Longest int is 11 characters
+        if (bytes.length - count < 11) {
+            flushBuffer();
+        }
+        if (value == Integer.MIN_VALUE) {
+            return write(Integer.toString(value));
+        }
+        if (value < 0) {
+            bytes[count++] = '-';
+            value = -value;
+        }
+        int digits = 1;
+        for (int v = value; v >= 10; v /= 10) {
+            digits++;
+        }
+        int end = count + digits;
+        for (int i = end - 1; i >= count; i--) {
+            bytes[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        count = end;
+        return this;
+    }
+
+    private void flushBuffer() throws IOException {
+        if (count > 0) {
+            out.write(bytes, 0, count);
+            count = 0;
+        }
+    }
+
+    /**
+     * Writes out what is buffered; the target stream itself is not flushed
+     */
+    public void flush() throws IOException {
+        flushBuffer();
+    }
+
+    /**
+     * Returns the array to the pool without writing out what is still buffered
+     */
+    @Override
+    public void close() {
+        if (bytes == null) {
+            return;
+        }
+        if (POOLED.incrementAndGet() <= MAX_POOLED) {
+            POOL.offer(bytes);
+        } else {
+            POOLED.decrementAndGet();
+        }
+        bytes = null;
+    }
+}
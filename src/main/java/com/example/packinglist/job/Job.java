@@ -0,0 +1,124 @@
+package com.example.packinglist.job;
+
+import com.example.packinglist.csv.ParseStats;
+import com.example.packinglist.model.ShipmentDetails;
+import com.example.packinglist.service.PipelineProgress;
+import com.example.packinglist.tracking.TrackingManifest;
+
+import java.io.File;
+import java.time.Instant;
+
+/**
+ * One background packing list run: the spooled upload, its progress and, once done, the ZIP
+ */
+public class Job {
+
+    public enum State {
+        QUEUED,
+        RUNNING,
+        SUCCEEDED,
+        FAILED
+    }
+
+    private final String id;
+    private final String fileName;
+    private final String date;
+    private final ShipmentDetails details;
+    private final TrackingManifest manifest;   // Tracking numbers by PO, or null
+    private final File input;
+    private final Instant submittedAt = Instant.now();
+    private final ParseStats stats = new ParseStats();
+    private final PipelineProgress progress = new PipelineProgress();
+
+    private volatile State state = State.QUEUED;
+    private volatile Instant startedAt;
+    private volatile Instant finishedAt;
+    private volatile File result;
+    private volatile String error;
+
+    Job(String id, String fileName, String date, ShipmentDetails details, TrackingManifest manifest, File input) {
+        this.id = id;
+        this.fileName = fileName;
+        this.date = date;
+        this.details = details;
+        this.manifest = manifest;
+        this.input = input;
+    }
+
+    void started() {
+        startedAt = Instant.now();
+        state = State.RUNNING;
+    }
+
+    void succeeded(File result) {
+        this.result = result;
+        finishedAt = Instant.now();
+        state = State.SUCCEEDED;
+    }
+
+    void failed(String error) {
+        this.error = error;
+        finishedAt = Instant.now();
+        state = State.FAILED;
+    }
+
+    public boolean isFinished() {
+        return state == State.SUCCEEDED || state == State.FAILED;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public String getDate() {
+        return date;
+    }
+
+    public ShipmentDetails getDetails() {
+        return details;
+    }
+
+    public TrackingManifest getManifest() {
+        return manifest;
+    }
+
+    File getInput() {
+        return input;
+    }
+
+    public Instant getSubmittedAt() {
+        return submittedAt;
+    }
+
+    public Instant getStartedAt() {
+        return startedAt;
+    }
+
+    public Instant getFinishedAt() {
+        return finishedAt;
+    }
+
+    public ParseStats getStats() {
+        return stats;
+    }
+
+    public PipelineProgress getProgress() {
+        return progress;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public File getResult() {
+        return result;
+    }
+
+    public String getError() {
+        return error;
+    }
+}
@@ -0,0 +1,228 @@
+package com.example.packinglist.job;
+
+import com.example.packinglist.config.PackingListProperties;
+import com.example.packinglist.csv.CsvHeaderException;
+import com.example.packinglist.history.HistoryService;
+import com.example.packinglist.history.ShipmentRecord;
+import com.example.packinglist.model.ShipmentDetails;
+import com.example.packinglist.service.PackingListService;
+import com.example.packinglist.sort.SortedInvoices;
+import com.example.packinglist.tracking.TrackingManifest;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs packing list generation on a bounded pool so large invoices don't hold a request
+ * thread. Uploads are spooled to a temp file before queueing, finished ZIPs stay on disk
+ * until they expire.
+ */
+@Service
+public class JobService {
+
+    private final PackingListService packingListService;
+    private final HistoryService history;
+    private final ThreadPoolExecutor executor;
+    private final Duration resultTtl;
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+    // Expires finished jobs even when no new ones come in; started with the first job
+    private final ScheduledThreadPoolExecutor sweeper = new ScheduledThreadPoolExecutor(1, sweeperThread());
+    private final AtomicBoolean sweeping = new AtomicBoolean();
+
+    public JobService(PackingListProperties properties, PackingListService packingListService) {
+        this(properties, packingListService, HistoryService.disabled());
+    }
+
+    @Autowired
+    public JobService(PackingListProperties properties, PackingListService packingListService, HistoryService history) {
+        PackingListProperties.Jobs config = properties.getJobs();
+        this.packingListService = packingListService;
+        this.history = history;
+        this.resultTtl = config.getResultTtl();
+        RejectedExecutionHandler rejection = config.getRejectionPolicy() == PackingListProperties.RejectionPolicy.CALLER_RUNS
+                ? new ThreadPoolExecutor.CallerRunsPolicy()
+                : new ThreadPoolExecutor.AbortPolicy();
+        // Core threads are started on the first submit, so building the service costs nothing
+        this.executor = new ThreadPoolExecutor(config.getThreads(), config.getThreads(), 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(config.getQueueDepth()), workerThreads(), rejection);
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Spools the upload to disk and queues it
+     *
+     * @throws RejectedExecutionException when all workers are busy and the queue is full
+     */
+    public Job submit(MultipartFile csvFile, String date, ShipmentDetails details) throws IOException {
+        return submit(csvFile, date, details, null);
+    }
+
+    /**
+     * Same as {@link #submit(MultipartFile, String, ShipmentDetails)}, taking the tracking numbers
+     * for the invoice's POs from a carrier manifest when none was typed in
+     */
+    public Job submit(MultipartFile csvFile, String date, ShipmentDetails details, TrackingManifest manifest) throws IOException {
+        expireFinishedJobs();
+        startSweeping();
+
+        String id = UUID.randomUUID().toString();
+        File input = File.createTempFile("job-" + id + "-", ".csv");
+        try (InputStream in = csvFile.getInputStream()) {
+            Files.copy(in, input.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            input.delete();
+            throw e;
+        }
+
+        Job job = new Job(id, csvFile.getOriginalFilename(), date, details, manifest, input);
+        jobs.put(id, job);
+        try {
+            executor.execute(() -> run(job));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(id);
+            input.delete();
+            throw e;
+        }
+        System.out.println("Queued job " + id + " for " + job.getFileName() + " (" + executor.getQueue().size() + " waiting)");
+        return job;
+    }
+
+    public Optional<Job> get(String id) {
+        expireFinishedJobs();
+        return Optional.ofNullable(jobs.get(id));
+    }
+
+    /** Jobs waiting for a worker */
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    public int getActiveCount() {
+        return executor.getActiveCount();
+    }
+
+    private void run(Job job) {
+        job.started();
+        File zipFile = null;
+        SortedInvoices entries = null;
+        try (InputStream in = new FileInputStream(job.getInput())) {
+            entries = packingListService.readInvoiceCsv(in, job.getFileName(), job.getStats());
+            if (entries.isEmpty()) {
+                job.failed(PackingListService.EMPTY_INVOICE_MESSAGE);
+                return;
+            }
+            ShipmentDetails details = packingListService.withManifestTracking(job.getDetails(), job.getManifest(), entries, true);
+            zipFile = File.createTempFile("job-" + job.getId() + "-", ".zip");
+            try (OutputStream out = new BufferedOutputStream(new FileOutputStream(zipFile))) {
+                packingListService.writeZip(out, job.getDate(), entries, details, job.getProgress());
+            }
+            job.succeeded(zipFile);
+            System.out.println("Job " + job.getId() + " finished: " + entries.size() + " rows");
+            history.record(ShipmentRecord.of(job.getFileName(), job.getDate(), details), entries);
+            entries = null;
+        } catch (CsvHeaderException e) {
+            job.failed(e.getMessage());
+        } catch (Exception e) {
+            System.err.println("Error processing job " + job.getId() + ": " + e.getMessage());
+            e.printStackTrace();
+            job.failed("An error occurred while processing your file. Please check your file and try again.");
+        } finally {
+            if (entries != null) {
+                entries.close();
+            }
+            job.getInput().delete();
+            if (job.getState() != Job.State.SUCCEEDED && zipFile != null) {
+                zipFile.delete();
+            }
+        }
+    }
+
+    /** Drops finished jobs older than the result TTL together with their ZIPs */
+    void expireFinishedJobs() {
+        Instant cutoff = Instant.now().minus(resultTtl);
+        jobs.values().removeIf(job -> {
+            if (!job.isFinished() || job.getFinishedAt().isAfter(cutoff)) {
+                return false;
+            }
+            if (job.getResult() != null) {
+                job.getResult().delete();
+            }
+            return true;
+        });
+    }
+
+    /**
+     * Sweeps for expired jobs every result TTL, at most a minute apart, so a finished ZIP is
+     * deleted at the latest one interval after it expires
+     */
+    private void startSweeping() {
+        if (!sweeping.compareAndSet(false, true)) {
+            return;
+        }
+        long interval = Math.max(10, Math.min(resultTtl.toMillis(), Duration.ofMinutes(1).toMillis()));
+        sweeper.scheduleWithFixedDelay(() -> {
+            try {
+                expireFinishedJobs();
+            } catch (RuntimeException e) {
+                // An exception would cancel the schedule
+                System.err.println("Could not expire finished jobs: " + e.getMessage());
+            }
+        }, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sweeper.shutdownNow();
+        executor.shutdownNow();
+        jobs.values().forEach(job -> {
+            job.getInput().delete();
+            if (job.getResult() != null) {
+                job.getResult().delete();
+            }
+        });
+        jobs.clear();
+    }
+
+    private static ThreadFactory sweeperThread() {
+        return runnable -> {
+            Thread thread = new Thread(runnable, "packing-job-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private static ThreadFactory workerThreads() {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "packing-job-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
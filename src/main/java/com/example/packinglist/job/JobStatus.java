@@ -0,0 +1,32 @@
+package com.example.packinglist.job;
+
+import lombok.Value;
+
+import java.time.Instant;
+
+/**
+ * JSON snapshot of a job returned by GET /jobs/{id}
+ */
+@Value
+public class JobStatus {
+    String id;
+    String fileName;
+    Job.State state;
+    String stage;
+    long rowsParsed;
+    int pagesRendered;
+    int totalPages;
+    Instant submittedAt;
+    Instant startedAt;
+    Instant finishedAt;
+    String error;
+    String resultUrl;   // Only set once the ZIP can be downloaded
+
+    public static JobStatus of(Job job) {
+        String resultUrl = job.getState() == Job.State.SUCCEEDED ? "/jobs/" + job.getId() + "/result" : null;
+        String stage = job.getState() == Job.State.QUEUED ? null : job.getProgress().getStage().name();
+        return new JobStatus(job.getId(), job.getFileName(), job.getState(), stage,
+                job.getStats().getRows(), job.getProgress().getPagesRendered(), job.getProgress().getTotalPages(),
+                job.getSubmittedAt(), job.getStartedAt(), job.getFinishedAt(), job.getError(), resultUrl);
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.packinglist.metrics;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.Locale;
+
+/**
+ * Times reading the multipart body of an upload. The container parses parts once and keeps
+ * them, so reading them here first moves that cost into the timer without doing it twice.
+ */
+@Component
+public class MultipartTimingFilter extends OncePerRequestFilter {
+
+    private final PipelineMetrics metrics;
+
+    public MultipartTimingFilter(PipelineMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String contentType = request.getContentType();
+        return !"POST".equals(request.getMethod())
+                || contentType == null || !contentType.toLowerCase(Locale.ROOT).startsWith("multipart/");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        long start = System.nanoTime();
+        try {
+            request.getParts();
+            metrics.record(PipelineMetrics.Stage.MULTIPART_READ, System.nanoTime() - start);
+        } catch (IOException | ServletException | IllegalStateException e) {
+            // Too large or malformed: Spring's multipart resolver fails the same way and reports it
+        }
+        chain.doFilter(request, response);
+    }
+}
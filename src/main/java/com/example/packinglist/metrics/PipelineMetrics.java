@@ -0,0 +1,104 @@
+package com.example.packinglist.metrics;
+
+import com.example.packinglist.csv.ParseStats;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Timers for each stage of the upload pipeline and counters for what flows through it.
+ * Stage timers publish percentile histograms, so p95/p99 per stage can be computed in Prometheus.
+ */
+@Component
+public class PipelineMetrics {
+
+    public enum Stage {
+        /** Tomcat reading and storing the multipart request */
+        MULTIPART_READ,
+        /** Finding tracking numbers in an uploaded carrier manifest */
+        TRACKING_SCAN,
+        /** CSV records to InvoiceEntry, excluding time spent in the sorter */
+        PARSE,
+        /** In-memory sorting and spilling sorted runs */
+        SORT,
+        PACKING_LIST_CSV,
+        /** HTML rendering, including the duplicate marking */
+        HTML,
+        /** PDF rendering, for the standalone PDF download */
+        PDF,
+        IMPORT_CSV,
+        /** All three files into the ZIP */
+        ZIP,
+        /** Whole response body, from the first byte to the last */
+        RESPONSE_WRITE;
+
+        final String tag = name().toLowerCase(Locale.ROOT);
+    }
+
+    private final Map<Stage, Timer> timers = new EnumMap<>(Stage.class);
+    private final Counter rowsParsed;
+    private final Counter invalidQuantities;
+    private final Counter invalidUnitValues;
+    private final Counter pagesRendered;
+    private final Counter outputBytes;
+
+    public PipelineMetrics(MeterRegistry registry) {
+        for (Stage stage : Stage.values()) {
+            timers.put(stage, Timer.builder("packinglist.stage")
+                    .description("Time spent in one stage of the packing list pipeline")
+                    .tag("stage", stage.tag)
+                    .publishPercentileHistogram()
+                    .register(registry));
+        }
+        rowsParsed = Counter.builder("packinglist.rows.parsed")
+                .description("Invoice rows read from uploaded CSV files")
+                .register(registry);
+        invalidQuantities = Counter.builder("packinglist.rows.invalid")
+                .description("Rows whose value could not be parsed and was replaced by 0")
+                .tag("column", "qty")
+                .register(registry);
+        invalidUnitValues = Counter.builder("packinglist.rows.invalid")
+                .description("Rows whose value could not be parsed and was replaced by 0")
+                .tag("column", "unit_value")
+                .register(registry);
+        pagesRendered = Counter.builder("packinglist.pages.rendered")
+                .description("HTML packing list pages rendered")
+                .register(registry);
+        outputBytes = Counter.builder("packinglist.output.bytes")
+                .description("Bytes of generated ZIP files sent to clients")
+                .baseUnit("bytes")
+                .register(registry);
+    }
+
+    /**
+     * Metrics that go nowhere, for services built outside Spring
+     */
+    public static PipelineMetrics noop() {
+        return new PipelineMetrics(new CompositeMeterRegistry());
+    }
+
+    public void record(Stage stage, long nanos) {
+        timers.get(stage).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void rowsParsed(ParseStats stats) {
+        rowsParsed.increment(stats.getRows());
+        invalidQuantities.increment(stats.getInvalidQuantities());
+        invalidUnitValues.increment(stats.getInvalidUnitValues());
+    }
+
+    public void pagesRendered(int pages) {
+        pagesRendered.increment(pages);
+    }
+
+    public void outputBytes(long bytes) {
+        outputBytes.increment(bytes);
+    }
+}
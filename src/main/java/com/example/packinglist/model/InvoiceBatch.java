@@ -0,0 +1,173 @@
+package com.example.packinglist.model;
+
+import java.util.Arrays;
+
+/**
+ * Invoice rows stored by column: PO numbers, item numbers and descriptions are dictionary
+ * encoded, quantities and unit values are primitive arrays. A row costs 24 bytes plus its
+ * share of the distinct strings, against a few hundred bytes as an {@link InvoiceEntry}
+ * with its own three strings. Immutable once built.
+ */
+public final class InvoiceBatch {
+
+    private final StringDictionary poNumbers;
+    private final StringDictionary itemNumbers;
+    private final StringDictionary descriptions;
+    private final int[] po;
+    private final int[] item;
+    private final int[] description;
+    private final int[] qty;
+    private final long[] unitValueCents;
+    private final int size;
+    private final int totalQty;
+
+    private InvoiceBatch(StringDictionary poNumbers, StringDictionary itemNumbers, StringDictionary descriptions,
+                         int[] po, int[] item, int[] description, int[] qty, long[] unitValueCents, int size, int totalQty) {
+        this.poNumbers = poNumbers;
+        this.itemNumbers = itemNumbers;
+        this.descriptions = descriptions;
+        this.po = po;
+        this.item = item;
+        this.description = description;
+        this.qty = qty;
+        this.unitValueCents = unitValueCents;
+        this.size = size;
+        this.totalQty = totalQty;
+    }
+
+    public static Builder builder() {
+        return new Builder(1024);
+    }
+
+    public static InvoiceBatch of(Iterable<InvoiceEntry> entries) {
+        Builder builder = builder();
+        entries.forEach(builder::add);
+        return builder.build();
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getTotalQty() {
+        return totalQty;
+    }
+
+    public String poNo(int row) {
+        return poNumbers.decode(po[row]);
+    }
+
+    public String itemNo(int row) {
+        return itemNumbers.decode(item[row]);
+    }
+
+    public String description(int row) {
+        return descriptions.decode(description[row]);
+    }
+
+    public int qty(int row) {
+        return qty[row];
+    }
+
+    public long unitValueCents(int row) {
+        return unitValueCents[row];
+    }
+
+    /**
+     * Dictionary code of the row's item number: rows with equal item numbers have equal codes
+     */
+    public int itemCode(int row) {
+        return item[row];
+    }
+
+    /**
+     * The row as an object, for callers that need one
+     */
+    public InvoiceEntry entry(int row) {
+        return new InvoiceEntry(poNo(row), itemNo(row), description(row), qty[row], unitValueCents[row]);
+    }
+
+    /**
+     * The same rows in another order: row {@code i} of the result is row {@code order[i]} of
+     * this batch. The dictionaries are shared, not copied.
+     */
+    public InvoiceBatch reorder(int[] order) {
+        int[] newPo = new int[size];
+        int[] newItem = new int[size];
+        int[] newDescription = new int[size];
+        int[] newQty = new int[size];
+        long[] newUnitValue = new long[size];
+        for (int i = 0; i < size; i++) {
+            int from = order[i];
+            newPo[i] = po[from];
+            newItem[i] = item[from];
+            newDescription[i] = description[from];
+            newQty[i] = qty[from];
+            newUnitValue[i] = unitValueCents[from];
+        }
+        return new InvoiceBatch(poNumbers, itemNumbers, descriptions, newPo, newItem, newDescription, newQty, newUnitValue, size, totalQty);
+    }
+
+    /**
+     * Appends rows column by column; arrays grow by doubling
+     */
+    public static final class Builder {
+        private final StringDictionary poNumbers = new StringDictionary();
+        private final StringDictionary itemNumbers = new StringDictionary();
+        private final StringDictionary descriptions = new StringDictionary();
+        private int[] po;
+        private int[] item;
+        private int[] description;
+        private int[] qty;
+        private long[] unitValueCents;
+        private int size;
+        private int totalQty;
+
+        private Builder(int capacity) {
+            po = new int[capacity];
+            item = new int[capacity];
+            description = new int[capacity];
+            qty = new int[capacity];
+            unitValueCents = new long[capacity];
+        }
+
+        public Builder add(InvoiceEntry entry) {
+            return add(entry.getPoNo(), entry.getItemNo(), entry.getDescription(), entry.getQty(), entry.getUnitValueCents());
+        }
+
+        public Builder add(String poNo, String itemNo, String descriptionText, int quantity, long cents) {
+            if (size == po.length) {
+                int capacity = size * 2;
+                po = Arrays.copyOf(po, capacity);
+                item = Arrays.copyOf(item, capacity);
+                description = Arrays.copyOf(description, capacity);
+                qty = Arrays.copyOf(qty, capacity);
+                unitValueCents = Arrays.copyOf(unitValueCents, capacity);
+            }
+            po[size] = poNumbers.encode(poNo);
+            item[size] = itemNumbers.encode(itemNo);
+            description[size] = descriptions.encode(descriptionText);
+            qty[size] = quantity;
+            unitValueCents[size] = cents;
+            totalQty += quantity;
+            size++;
+            return this;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        /**
+         * The batch of all rows added so far; the builder must not be used afterwards
+         */
+        public InvoiceBatch build() {
+            poNumbers.freeze();
+            itemNumbers.freeze();
+            descriptions.freeze();
+            return new InvoiceBatch(poNumbers, itemNumbers, descriptions,
+                    Arrays.copyOf(po, size), Arrays.copyOf(item, size), Arrays.copyOf(description, size),
+                    Arrays.copyOf(qty, size), Arrays.copyOf(unitValueCents, size), size, totalQty);
+        }
+    }
+}
@@ -10,5 +10,5 @@ public class InvoiceEntry {
     private String itemNo;      // ITEM NO.
     private String description; // DESCRIPTION OF GOODS
     private int qty;           // QTY
-    private double unitValue;  // UNIT VALUE (USD) - FOB
+    private long unitValueCents; // UNIT VALUE (USD) - FOB, in cents
 }
\ No newline at end of file
@@ -0,0 +1,113 @@
+package com.example.packinglist.model;
+
+import java.util.*;
+
+/**
+ * Figures every output needs about a whole invoice: total quantity, quantity and FOB value
+ * per PO, and the item numbers that appear on more than one row. Collected in the same pass
+ * that parses the rows, so the renderers never walk the rows just to count them.
+ */
+public final class InvoiceSummary {
+
+    private static final InvoiceSummary EMPTY = new InvoiceSummary(0, 0, Collections.emptyList(), Collections.emptySet());
+
+    private final int rows;
+    private final int totalQty;
+    private final List<PoSubtotal> poSubtotals;
+    private final Set<String> repeatedItemNumbers;
+
+    private InvoiceSummary(int rows, int totalQty, List<PoSubtotal> poSubtotals, Set<String> repeatedItemNumbers) {
+        this.rows = rows;
+        this.totalQty = totalQty;
+        this.poSubtotals = poSubtotals;
+        this.repeatedItemNumbers = repeatedItemNumbers;
+    }
+
+    public static InvoiceSummary empty() {
+        return EMPTY;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static InvoiceSummary of(Iterable<InvoiceEntry> entries) {
+        Builder builder = builder();
+        entries.forEach(builder::add);
+        return builder.build();
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getTotalQty() {
+        return totalQty;
+    }
+
+    /**
+     * One subtotal per PO number, in PO number order
+     */
+    public List<PoSubtotal> getPoSubtotals() {
+        return poSubtotals;
+    }
+
+    public Set<String> getRepeatedItemNumbers() {
+        return repeatedItemNumbers;
+    }
+
+    /**
+     * Whether the item number appears on more than one row
+     */
+    public boolean isRepeatedItem(String itemNo) {
+        return !repeatedItemNumbers.isEmpty() && repeatedItemNumbers.contains(itemNo);
+    }
+
+    /**
+     * Accumulates rows one at a time. Item numbers are counted exactly in a
+     * {@link StringDictionary}, which holds each distinct item number once; this is the only
+     * place repeated items are worked out, for rows in memory and spilled rows alike.
+     */
+    public static final class Builder {
+        private final Map<String, long[]> perPo = new HashMap<>();
+        private final StringDictionary itemNumbers = new StringDictionary();
+        private int rows;
+        private int totalQty;
+
+        private Builder() {
+        }
+
+        public Builder add(InvoiceEntry entry) {
+            return add(entry.getPoNo(), entry.getItemNo(), entry.getQty(), entry.getUnitValueCents());
+        }
+
+        public Builder add(String poNo, String itemNo, int qty, long unitValueCents) {
+            rows++;
+            totalQty += qty;
+            // lines, qty, FOB cents
+            long[] po = perPo.computeIfAbsent(poNo, key -> new long[3]);
+            po[0]++;
+            po[1] += qty;
+            po[2] += qty * unitValueCents;
+            itemNumbers.encode(itemNo);
+            return this;
+        }
+
+        public InvoiceSummary build() {
+            if (rows == 0) {
+                return EMPTY;
+            }
+            List<PoSubtotal> subtotals = new ArrayList<>(perPo.size());
+            perPo.forEach((poNo, po) -> subtotals.add(new PoSubtotal(poNo, (int) po[0], po[1], po[2])));
+            subtotals.sort(Comparator.comparing(PoSubtotal::getPoNo, Comparator.nullsFirst(Comparator.naturalOrder())));
+            Set<String> repeated = new HashSet<>();
+            for (int code = 0; code < itemNumbers.size(); code++) {
+                if (itemNumbers.count(code) > 1) {
+                    repeated.add(itemNumbers.decode(code));
+                }
+            }
+            return new InvoiceSummary(rows, totalQty, Collections.unmodifiableList(subtotals),
+                    repeated.isEmpty() ? Collections.emptySet() : Collections.unmodifiableSet(repeated));
+        }
+    }
+}
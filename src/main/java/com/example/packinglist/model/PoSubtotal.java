@@ -0,0 +1,14 @@
+package com.example.packinglist.model;
+
+import lombok.Value;
+
+/**
+ * Quantity and FOB value of one PO on an invoice
+ */
+@Value
+public class PoSubtotal {
+    String poNo;
+    int lines;
+    long qty;
+    long fobCents;  // Sum of QTY × UNIT VALUE, in cents
+}
@@ -0,0 +1,48 @@
+package com.example.packinglist.model;
+
+import lombok.Value;
+
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Values typed into the upload form that go into the packing list header
+ */
+@Value
+public class ShipmentDetails {
+    String tracking;   // UPS TRACKING#, empty if not given
+    double rmb;        // UPS freight in RMB
+    double rate;       // RMB per USD
+    int boxes;
+    double weight;     // Gross weight in KG
+
+    public static ShipmentDetails of(String manualTracking, double rmb, double rate, int boxes, double weight) {
+        String tracking = manualTracking != null ? manualTracking.trim() : "";
+        return new ShipmentDetails(tracking, rmb, rate, boxes, weight);
+    }
+
+    /**
+     * Header values for one packing list covering several shipments: boxes, weight and
+     * freight are added up, the tracking numbers listed, and the first exchange rate used
+     */
+    public static ShipmentDetails combine(Collection<ShipmentDetails> shipments) {
+        Set<String> trackings = new LinkedHashSet<>();
+        double rmb = 0;
+        double rate = 0;
+        int boxes = 0;
+        double weight = 0;
+        for (ShipmentDetails shipment : shipments) {
+            if (!shipment.getTracking().isEmpty()) {
+                trackings.add(shipment.getTracking());
+            }
+            if (rate == 0) {
+                rate = shipment.getRate();
+            }
+            rmb += shipment.getRmb();
+            boxes += shipment.getBoxes();
+            weight += shipment.getWeight();
+        }
+        return new ShipmentDetails(String.join(" / ", trackings), rmb, rate, boxes, weight);
+    }
+}
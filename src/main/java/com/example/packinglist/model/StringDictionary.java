@@ -0,0 +1,69 @@
+package com.example.packinglist.model;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Maps each distinct string to a small int code and back. Repeated values, such as the few
+ * dozen PO numbers of an invoice with thousands of rows, are stored once and referred to
+ * by code. Null is a value like any other.
+ */
+public final class StringDictionary {
+
+    private Map<String, Integer> codes = new HashMap<>();
+    private String[] values = new String[16];
+    private int[] counts = new int[16];
+    private int size;
+
+    /**
+     * Code of {@code value}, adding it on first use
+     *
+     * @throws IllegalStateException once the dictionary is frozen
+     */
+    public int encode(String value) {
+        if (codes == null) {
+            throw new IllegalStateException("Dictionary is frozen");
+        }
+        Integer code = codes.get(value);
+        if (code == null) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+                counts = Arrays.copyOf(counts, size * 2);
+            }
+            code = size;
+            values[size++] = value;
+            codes.put(value, code);
+        }
+        counts[code]++;
+        return code;
+    }
+
+    public String decode(int code) {
+        return values[code];
+    }
+
+    /**
+     * How many times {@link #encode} was called for the value with this code
+     */
+    public int count(int code) {
+        return counts[code];
+    }
+
+    /**
+     * Drops the lookup table, which for mostly distinct values such as item numbers takes
+     * more heap than the values themselves. Decoding still works, encoding no longer does.
+     */
+    public void freeze() {
+        codes = null;
+        values = Arrays.copyOf(values, size);
+        counts = Arrays.copyOf(counts, size);
+    }
+
+    /**
+     * Number of distinct values
+     */
+    public int size() {
+        return size;
+    }
+}
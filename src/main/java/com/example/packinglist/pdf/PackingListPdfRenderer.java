@@ -0,0 +1,101 @@
+package com.example.packinglist.pdf;
+
+import com.example.packinglist.html.PackingListHtmlRenderer;
+import com.example.packinglist.model.ShipmentDetails;
+import com.example.packinglist.service.PipelineProgress;
+import com.example.packinglist.sort.InvoiceCursor;
+import com.example.packinglist.sort.SortedInvoices;
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.springframework.util.StreamUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Writes the packing list as a PDF laid out like the printed HTML: the same header boxes and
+ * two columns of rows per page, but placed at fixed positions, so every workstation prints
+ * the same pages. Uses the standard Helvetica fonts, which every PDF viewer has, so nothing
+ * is embedded or read from disk. Page writers, with their fonts and measured glyph widths,
+ * come from a small pool and are reused by later documents.
+ */
+public class PackingListPdfRenderer {
+
+    // Page content past this stays in a temporary file until the document is saved
+    private static final long MAX_MAIN_MEMORY_BYTES = 16L * 1024 * 1024;
+    // Enough for every renderer running at once on a busy server, extra writers are just dropped
+    private static final int MAX_POOLED = 16;
+
+    private final Queue<PdfPageWriter> pool = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pooled = new AtomicInteger();
+
+    /**
+     * Writes the whole document. The stream is not closed.
+     */
+    public void render(OutputStream out, String date, SortedInvoices invoiceEntries, ShipmentDetails details,
+                       int itemsPerPage, PipelineProgress progress) throws IOException {
+        int totalPages = (int) Math.ceil((double) invoiceEntries.size() / itemsPerPage);
+        int rowsPerColumn = (itemsPerPage + 1) / 2;
+        progress.setTotalPages(totalPages);
+
+        PdfPageWriter writer = acquire();
+        writer.startDocument();
+        try (PDDocument document = new PDDocument(MemoryUsageSetting.setupMixed(MAX_MAIN_MEMORY_BYTES).streamCache)) {
+            document.getDocumentInformation().setTitle("Packing List - " + date);
+            PdfHeader header = header(writer, date, details);
+
+            InvoiceCursor rows = invoiceEntries.cursor();
+            boolean hasNext = rows.next();
+            for (int pageNum = 0; pageNum < totalPages; pageNum++) {
+                writer.startPage(itemsPerPage);
+                for (int i = 0; i < itemsPerPage && hasNext; i++) {
+                    writer.add(rows.poNo(), rows.itemNo(), rows.qty(), rows.repeatedItem());
+                    hasNext = rows.next();
+                }
+                writer.writePage(document, header, pageNum, totalPages, rowsPerColumn,
+                        pageNum == totalPages - 1, invoiceEntries.getTotalQty());
+                progress.pageRendered();
+            }
+            // Saving closes the stream it writes to
+            document.save(StreamUtils.nonClosing(out));
+        } finally {
+            release(writer);
+        }
+    }
+
+    private PdfPageWriter acquire() {
+        PdfPageWriter writer = pool.poll();
+        if (writer == null) {
+            return new PdfPageWriter();
+        }
+        pooled.decrementAndGet();
+        return writer;
+    }
+
+    private void release(PdfPageWriter writer) {
+        if (pooled.incrementAndGet() <= MAX_POOLED) {
+            pool.offer(writer);
+        } else {
+            pooled.decrementAndGet();
+        }
+    }
+
+    private static PdfHeader header(PdfPageWriter writer, String date, ShipmentDetails details) {
+        Date now = new Date();
+        String monthDay = new SimpleDateFormat("MMdd").format(now);
+        double upsFreight = details.getRmb() / details.getRate();
+        return new PdfHeader(
+                PackingListHtmlRenderer.arrival(date),
+                "P.O.#W25" + monthDay + "=>AMNT:",
+                "P.O.#WONA25" + monthDay + ",8%DISC$321.07=>AMNT:",
+                String.format("%.0f RMB / %.2f RATE = $%.2f", details.getRmb(), details.getRate(), upsFreight),
+                String.format("%.1f", details.getWeight()),
+                Integer.toString(details.getBoxes()),
+                writer.printable(details.getTracking()));
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.packinglist.pdf;
+
+/**
+ * Text of the page header boxes, worked out once per document
+ */
+final class PdfHeader {
+
+    final String arrival;
+    final String purchaseOrder;
+    final String discountOrder;
+    final String freight;
+    final String weight;
+    final String boxes;
+    final String tracking;
+
+    PdfHeader(String arrival, String purchaseOrder, String discountOrder, String freight,
+              String weight, String boxes, String tracking) {
+        this.arrival = arrival;
+        this.purchaseOrder = purchaseOrder;
+        this.discountOrder = discountOrder;
+        this.freight = freight;
+        this.weight = weight;
+        this.boxes = boxes;
+        this.tracking = tracking;
+    }
+}
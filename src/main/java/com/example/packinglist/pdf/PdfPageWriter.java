@@ -0,0 +1,366 @@
+package com.example.packinglist.pdf;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.font.Standard14Fonts;
+
+import java.io.IOException;
+
+/**
+ * Draws packing list pages onto a PDF document: the header boxes and the two item tables,
+ * positioned in points on an A4 page. Holds its own font objects, whose glyph widths are
+ * cached as they are measured, and the row arrays of the page being drawn, so it is only
+ * ever used by one renderer at a time and is pooled by {@link PackingListPdfRenderer}.
+ */
+final class PdfPageWriter {
+
+    static final PDRectangle PAGE_SIZE = PDRectangle.A4;
+
+    // Same margins as the @page rule of the HTML version: 0.4in top and bottom, 0.3in at the sides
+    private static final float MARGIN_X = 21.6f;
+    private static final float MARGIN_Y = 28.8f;
+    private static final float PAGE_TOP = PAGE_SIZE.getHeight() - MARGIN_Y;
+
+    private static final float HEADER_HEIGHT = 104;
+    private static final float LEFT_BOX_WIDTH = 170;
+    private static final float RIGHT_BOX_WIDTH = 250;
+    private static final float RIGHT_BOX_X = PAGE_SIZE.getWidth() - MARGIN_X - RIGHT_BOX_WIDTH;
+    private static final float BOX_PADDING = 5;
+
+    private static final float TABLES_TOP = PAGE_TOP - HEADER_HEIGHT - 8;
+    private static final float TABLE_GAP = 8;
+    private static final float TABLE_WIDTH = (PAGE_SIZE.getWidth() - 2 * MARGIN_X - TABLE_GAP) / 2;
+    private static final float TABLE_HEADER_HEIGHT = 18;
+    private static final float MAX_ROW_HEIGHT = 18;
+
+    // PO/NO, ITEM NO., QTY, RECEIVE CHECK and NOTES, as wide as the HTML columns
+    private static final float[] COLUMN_SHARES = {0.15f, 0.25f, 0.10f, 0.12f, 0.38f};
+    private static final String[][] COLUMN_TITLES = {{"PO/NO"}, {"ITEM NO."}, {"QTY"}, {"RECEIVE", "CHECK"}, {"NOTES"}};
+    private static final float[] COLUMN_TITLE_SIZES = {7, 9, 9, 6, 7};
+    private static final float[] COLUMN_X = new float[COLUMN_SHARES.length + 1];
+
+    static {
+        for (int i = 0; i < COLUMN_SHARES.length; i++) {
+            COLUMN_X[i + 1] = COLUMN_X[i] + COLUMN_SHARES[i] * TABLE_WIDTH;
+        }
+    }
+
+    private static final int PO = 0;
+    private static final int ITEM = 1;
+    private static final int QTY = 2;
+    private static final int CHECK = 3;
+
+    private static final float PO_SIZE = 7;
+    private static final float ITEM_SIZE = 12;
+    private static final float LABEL_SIZE = 8;
+    private static final float CHECKBOX_SIZE = 7;
+    // Helvetica capitals are about 0.72em tall, used to centre a line of text vertically
+    private static final float CAP_HEIGHT = 0.72f;
+    private static final float DUPLICATE_GREY = 0.94f;
+
+    private final PDFont regular = new PDType1Font(Standard14Fonts.FontName.HELVETICA);
+    private final PDFont bold = new PDType1Font(Standard14Fonts.FontName.HELVETICA_BOLD);
+
+    // Rows of the page being drawn
+    private String[] poNo = new String[0];
+    private String[] itemNo = new String[0];
+    private int[] qty = new int[0];
+    private boolean[] duplicate = new boolean[0];
+    private int size;
+
+    // Text state of the content stream being written, so moves and font changes are relative
+    private PDFont currentFont;
+    private float currentSize;
+    private float textX;
+    private float textY;
+
+    /**
+     * Readies the fonts for another document. Saving a document numbers the objects in it,
+     * these font dictionaries included, and the next document must number them afresh.
+     */
+    void startDocument() {
+        regular.getCOSObject().setKey(null);
+        bold.getCOSObject().setKey(null);
+    }
+
+    /**
+     * Empties the page and makes room for {@code capacity} rows
+     */
+    void startPage(int capacity) {
+        if (poNo.length < capacity) {
+            poNo = new String[capacity];
+            itemNo = new String[capacity];
+            qty = new int[capacity];
+            duplicate = new boolean[capacity];
+        }
+        size = 0;
+    }
+
+    void add(String po, String item, int quantity, boolean isDuplicate) {
+        poNo[size] = printable(po);
+        itemNo[size] = printable(item);
+        qty[size] = quantity;
+        duplicate[size] = isDuplicate;
+        size++;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Draws the rows added since {@link #startPage} as a new page of {@code document}
+     *
+     * @param rowsPerColumn rows a column of a full page has, which fixes the row height
+     * @param totalQty      written below the right column when {@code isLastPage}
+     */
+    void writePage(PDDocument document, PdfHeader header, int pageNum, int totalPages, int rowsPerColumn,
+                   boolean isLastPage, int totalQty) throws IOException {
+        PDPage page = new PDPage(PAGE_SIZE);
+        document.addPage(page);
+        // One extra row of room for the TOTAL QTY row under the right column
+        float rowHeight = Math.min(MAX_ROW_HEIGHT, (TABLES_TOP - TABLE_HEADER_HEIGHT - MARGIN_Y) / (rowsPerColumn + 1));
+        int leftRows = (size + 1) / 2;
+        int rightRows = size - leftRows;
+        float leftX = MARGIN_X;
+        float rightX = MARGIN_X + TABLE_WIDTH + TABLE_GAP;
+
+        try (PDPageContentStream content = new PDPageContentStream(document, page)) {
+            // Lines and fills first, then all of the text in one text object
+            drawHeaderBoxes(content, pageNum == 0);
+            drawTable(content, leftX, 0, leftRows, rowHeight, 0);
+            drawTable(content, rightX, leftRows, rightRows, rowHeight, isLastPage ? 1 : 0);
+            if (isLastPage) {
+                float y = TABLES_TOP - TABLE_HEADER_HEIGHT - rightRows * rowHeight;
+                content.setLineWidth(2);
+                line(content, rightX, y, rightX + TABLE_WIDTH, y);
+                content.stroke();
+            }
+
+            content.beginText();
+            currentFont = null;
+            textX = 0;
+            textY = 0;
+            writeHeaderText(content, header, pageNum, totalPages);
+            writeTableText(content, leftX, 0, leftRows, rowHeight);
+            writeTableText(content, rightX, leftRows, rightRows, rowHeight);
+            if (isLastPage) {
+                float bottom = TABLES_TOP - TABLE_HEADER_HEIGHT - (rightRows + 1) * rowHeight;
+                centred(content, bold, LABEL_SIZE, "TOTAL QTY:", rightX + COLUMN_X[ITEM], cellWidth(ITEM), bottom, rowHeight);
+                centred(content, bold, ITEM_SIZE, Integer.toString(totalQty), rightX + COLUMN_X[QTY], cellWidth(QTY), bottom, rowHeight);
+            }
+            content.endText();
+        }
+    }
+
+    private void drawHeaderBoxes(PDPageContentStream content, boolean firstPage) throws IOException {
+        float bottom = PAGE_TOP - HEADER_HEIGHT;
+        content.setLineWidth(1.5f);
+        content.addRect(MARGIN_X, bottom, LEFT_BOX_WIDTH, HEADER_HEIGHT);
+        content.addRect(RIGHT_BOX_X, bottom, RIGHT_BOX_WIDTH, HEADER_HEIGHT);
+        content.stroke();
+
+        // Lines to write on: values on the left, handwriting rows under each P.O. label
+        content.setLineWidth(0.5f);
+        float valueX = MARGIN_X + 58;
+        float leftEnd = MARGIN_X + LEFT_BOX_WIDTH - BOX_PADDING;
+        if (firstPage) {
+            line(content, valueX, PAGE_TOP - 16, leftEnd, PAGE_TOP - 16);
+        }
+        line(content, valueX, PAGE_TOP - 32, leftEnd, PAGE_TOP - 32);
+        line(content, MARGIN_X + BOX_PADDING, PAGE_TOP - 62, leftEnd, PAGE_TOP - 62);
+        line(content, MARGIN_X + BOX_PADDING, PAGE_TOP - 94, leftEnd, PAGE_TOP - 94);
+
+        float rightValueX = RIGHT_BOX_X + 85;
+        float rightEnd = RIGHT_BOX_X + RIGHT_BOX_WIDTH - BOX_PADDING;
+        for (float y : new float[]{PAGE_TOP - 52, PAGE_TOP - 66, PAGE_TOP - 80}) {
+            line(content, rightValueX, y, rightEnd, y);
+        }
+        content.stroke();
+    }
+
+    private void writeHeaderText(PDPageContentStream content, PdfHeader header, int pageNum, int totalPages) throws IOException {
+        float x = MARGIN_X + BOX_PADDING;
+        float valueX = MARGIN_X + 60;
+        float labelWidth = LEFT_BOX_WIDTH - 2 * BOX_PADDING;
+        // Only show ARRIVAL# on the first page
+        if (pageNum == 0) {
+            show(content, bold, LABEL_SIZE, "ARRIVAL#:", x, PAGE_TOP - 14);
+            show(content, regular, LABEL_SIZE, header.arrival, valueX, PAGE_TOP - 14);
+        }
+        show(content, bold, LABEL_SIZE, "DATE:", x, PAGE_TOP - 30);
+        show(content, bold, fit(bold, LABEL_SIZE, header.purchaseOrder, labelWidth), header.purchaseOrder, x, PAGE_TOP - 46);
+        show(content, bold, fit(bold, LABEL_SIZE, header.discountOrder, labelWidth), header.discountOrder, x, PAGE_TOP - 78);
+
+        float right = RIGHT_BOX_X + BOX_PADDING;
+        float rightWidth = RIGHT_BOX_WIDTH - 2 * BOX_PADDING;
+        float rightValueX = RIGHT_BOX_X + 87;
+        centred(content, bold, 9, "UPS FREIGHT:", right, rightWidth, PAGE_TOP - 16, 0);
+        centred(content, regular, 13, header.freight, right, rightWidth, PAGE_TOP - 34, 0);
+        show(content, regular, 7, "GROSS WEIGHT:", right, PAGE_TOP - 50);
+        show(content, regular, LABEL_SIZE, header.weight, rightValueX, PAGE_TOP - 50);
+        show(content, regular, 7, "BOXES:", right, PAGE_TOP - 64);
+        show(content, regular, LABEL_SIZE, header.boxes, rightValueX, PAGE_TOP - 64);
+        show(content, regular, 7, "UPS TRACKING#:", right, PAGE_TOP - 78);
+        show(content, regular, fit(regular, LABEL_SIZE, header.tracking, rightWidth - 82), header.tracking, rightValueX, PAGE_TOP - 78);
+        if (totalPages > 1) {
+            centred(content, bold, 8, "Page " + (pageNum + 1) + " of " + totalPages, right, rightWidth, PAGE_TOP - 98, 0);
+        }
+    }
+
+    /**
+     * Borders, the grey title row and the duplicate highlights of one table. {@code extraRows}
+     * leaves room below the rows, for the TOTAL QTY row.
+     */
+    private void drawTable(PDPageContentStream content, float x, int first, int rows, float rowHeight, int extraRows) throws IOException {
+        float rowsTop = TABLES_TOP - TABLE_HEADER_HEIGHT;
+        float bottom = rowsTop - (rows + extraRows) * rowHeight;
+
+        content.setNonStrokingColor(DUPLICATE_GREY);
+        content.addRect(x, rowsTop, TABLE_WIDTH, TABLE_HEADER_HEIGHT);
+        for (int i = 0; i < rows; i++) {
+            if (duplicate[first + i]) {
+                content.addRect(x + COLUMN_X[ITEM], rowsTop - (i + 1) * rowHeight, cellWidth(ITEM), rowHeight);
+            }
+        }
+        content.fill();
+        content.setNonStrokingColor(0f);
+
+        content.setLineWidth(0.5f);
+        for (int i = 0; i < rows + extraRows; i++) {
+            float y = rowsTop - i * rowHeight;
+            line(content, x, y, x + TABLE_WIDTH, y);
+        }
+        for (int column = 1; column < COLUMN_SHARES.length; column++) {
+            line(content, x + COLUMN_X[column], TABLES_TOP, x + COLUMN_X[column], bottom);
+        }
+        // An empty box to tick for each row
+        float boxX = x + COLUMN_X[CHECK] + (cellWidth(CHECK) - CHECKBOX_SIZE) / 2;
+        for (int i = 0; i < rows; i++) {
+            float boxY = rowsTop - (i + 1) * rowHeight + (rowHeight - CHECKBOX_SIZE) / 2;
+            content.addRect(boxX, boxY, CHECKBOX_SIZE, CHECKBOX_SIZE);
+        }
+        content.stroke();
+
+        // Repeated item numbers get a heavy frame, like the printed HTML
+        content.setLineWidth(2.5f);
+        for (int i = 0; i < rows; i++) {
+            if (duplicate[first + i]) {
+                content.addRect(x + COLUMN_X[ITEM] + 1.25f, rowsTop - (i + 1) * rowHeight + 1.25f, cellWidth(ITEM) - 2.5f, rowHeight - 2.5f);
+            }
+        }
+        content.stroke();
+
+        content.setLineWidth(1.5f);
+        content.addRect(x, bottom, TABLE_WIDTH, TABLES_TOP - bottom);
+        content.stroke();
+    }
+
+    private void writeTableText(PDPageContentStream content, float x, int first, int rows, float rowHeight) throws IOException {
+        float rowsTop = TABLES_TOP - TABLE_HEADER_HEIGHT;
+        for (int column = 0; column < COLUMN_TITLES.length; column++) {
+            String[] lines = COLUMN_TITLES[column];
+            float lineHeight = TABLE_HEADER_HEIGHT / lines.length;
+            for (int line = 0; line < lines.length; line++) {
+                centred(content, bold, COLUMN_TITLE_SIZES[column], lines[line], x + COLUMN_X[column], cellWidth(column),
+                        TABLES_TOP - (line + 1) * lineHeight, lineHeight);
+            }
+        }
+        for (int i = 0; i < rows; i++) {
+            int row = first + i;
+            float bottom = rowsTop - (i + 1) * rowHeight;
+            centred(content, regular, fit(regular, PO_SIZE, poNo[row], cellWidth(PO) - 2), poNo[row],
+                    x + COLUMN_X[PO], cellWidth(PO), bottom, rowHeight);
+            PDFont itemFont = duplicate[row] ? bold : regular;
+            centred(content, itemFont, fit(itemFont, ITEM_SIZE, itemNo[row], cellWidth(ITEM) - 6), itemNo[row],
+                    x + COLUMN_X[ITEM], cellWidth(ITEM), bottom, rowHeight);
+            String quantity = Integer.toString(qty[row]);
+            centred(content, regular, fit(regular, ITEM_SIZE, quantity, cellWidth(QTY) - 2), quantity,
+                    x + COLUMN_X[QTY], cellWidth(QTY), bottom, rowHeight);
+        }
+    }
+
+    private static float cellWidth(int column) {
+        return COLUMN_X[column + 1] - COLUMN_X[column];
+    }
+
+    private static void line(PDPageContentStream content, float x1, float y1, float x2, float y2) throws IOException {
+        content.moveTo(x1, y1);
+        content.lineTo(x2, y2);
+    }
+
+    /**
+     * Shows text centred in a cell. With a {@code height} of 0, {@code bottom} is the baseline.
+     */
+    private void centred(PDPageContentStream content, PDFont font, float fontSize, String text,
+                         float x, float width, float bottom, float height) throws IOException {
+        float textWidth = width(font, fontSize, text);
+        float baseline = height == 0 ? bottom : bottom + (height - CAP_HEIGHT * fontSize) / 2;
+        show(content, font, fontSize, text, x + (width - textWidth) / 2, baseline);
+    }
+
+    private void show(PDPageContentStream content, PDFont font, float fontSize, String text, float x, float y) throws IOException {
+        if (text.isEmpty()) {
+            return;
+        }
+        if (font != currentFont || fontSize != currentSize) {
+            content.setFont(font, fontSize);
+            currentFont = font;
+            currentSize = fontSize;
+        }
+        content.newLineAtOffset(x - textX, y - textY);
+        textX = x;
+        textY = y;
+        content.showText(text);
+    }
+
+    /**
+     * The font size up to {@code fontSize} at which {@code text} is no wider than {@code width}
+     */
+    private static float fit(PDFont font, float fontSize, String text, float width) throws IOException {
+        float textWidth = width(font, fontSize, text);
+        return textWidth <= width ? fontSize : fontSize * width / textWidth;
+    }
+
+    private static float width(PDFont font, float fontSize, String text) throws IOException {
+        return font.getStringWidth(text) / 1000 * fontSize;
+    }
+
+    /**
+     * The standard fonts only cover Windows-1252; anything else is shown as '?' instead of
+     * failing the whole document
+     */
+    String printable(String text) {
+        if (text == null) {
+            return "";
+        }
+        int length = text.length();
+        int i = 0;
+        while (i < length && text.charAt(i) >= 0x20 && text.charAt(i) < 0x7F) {
+            i++;
+        }
+        if (i == length) {
+            return text;
+        }
+        StringBuilder printable = new StringBuilder(length).append(text, 0, i);
+        for (; i < length; i++) {
+            char c = text.charAt(i);
+            printable.append(c >= 0x20 && c < 0x7F || canEncode(c) ? c : '?');
+        }
+        return printable.toString();
+    }
+
+    private boolean canEncode(char c) {
+        try {
+            // Both fonts use the same encoding
+            regular.encode(String.valueOf(c));
+            return !Character.isISOControl(c);
+        } catch (IllegalArgumentException | IOException e) {
+            return false;
+        }
+    }
+}
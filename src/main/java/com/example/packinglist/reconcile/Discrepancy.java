@@ -0,0 +1,34 @@
+package com.example.packinglist.reconcile;
+
+import lombok.Value;
+
+/**
+ * One (PO, item) pair where the received count does not match the invoice
+ */
+@Value
+public class Discrepancy {
+
+    public enum Type {
+        /** Received fewer than invoiced */
+        SHORTAGE,
+        /** Received more than invoiced */
+        OVERAGE,
+        /** Received but not on the invoice */
+        UNEXPECTED,
+        /** On the invoice but not in the received counts at all */
+        MISSING
+    }
+
+    Type type;
+    String poNo;
+    String itemNo;
+    String description;
+    int invoicedQty;
+    int receivedQty;
+    String notes;
+
+    /** Received minus invoiced: negative for shortages */
+    public int getDifference() {
+        return receivedQty - invoicedQty;
+    }
+}
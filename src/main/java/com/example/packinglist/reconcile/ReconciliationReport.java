@@ -0,0 +1,27 @@
+package com.example.packinglist.reconcile;
+
+import lombok.Value;
+
+import java.util.List;
+
+/**
+ * Outcome of comparing an invoice with the received packing counts. Lines of the same
+ * (PO, item) pair are added up on each side before comparing.
+ */
+@Value
+public class ReconciliationReport {
+    String invoiceFile;
+    String receivedFile;
+    long invoiceLines;
+    long receivedLines;
+    /** (PO, item) pairs whose counts agree */
+    int matched;
+    long totalInvoiced;
+    long totalReceived;
+    /** Shortages first, then overages, unexpected and missing items, each in file order */
+    List<Discrepancy> discrepancies;
+
+    public long count(Discrepancy.Type type) {
+        return discrepancies.stream().filter(d -> d.getType() == type).count();
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.packinglist.reconcile;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVPrinter;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writes a {@link ReconciliationReport} as a discrepancy CSV or a printable HTML page.
+ * Neither closes the writer.
+ */
+public final class ReconciliationReportWriter {
+
+    private static final String[] CSV_HEADER = {
+            "TYPE", "PO/NO.", "ITEM NO.", "DESCRIPTION", "INVOICED QTY", "RECEIVED QTY", "DIFFERENCE", "NOTES"};
+
+    private ReconciliationReportWriter() {
+    }
+
+    /**
+     * One row per discrepancy; matching lines are left out
+     */
+    public static void writeCsv(Writer writer, ReconciliationReport report) throws IOException {
+        CSVPrinter csv = new CSVPrinter(writer, CSVFormat.DEFAULT.builder().setRecordSeparator('\n').build());
+        csv.printRecord((Object[]) CSV_HEADER);
+        for (Discrepancy d : report.getDiscrepancies()) {
+            csv.printRecord(d.getType(), d.getPoNo(), d.getItemNo(), d.getDescription(),
+                    d.getInvoicedQty(), d.getReceivedQty(), d.getDifference(), d.getNotes());
+        }
+        csv.flush();
+    }
+
+    public static void writeHtml(Writer writer, ReconciliationReport report) throws IOException {
+        writer.write("<!DOCTYPE html>\n<html>\n<head>\n<meta charset=\"UTF-8\">\n<title>Reconciliation</title>\n<style>\n");
+        writer.write("body { font-family: Arial, sans-serif; font-size: 12px; margin: 20px; }\n");
+        writer.write("table { border-collapse: collapse; margin-top: 10px; }\n");
+        writer.write("th, td { border: 1px solid #333; padding: 3px 6px; text-align: left; }\n");
+        writer.write("td.num { text-align: right; }\n");
+        writer.write("tr.SHORTAGE td, tr.MISSING td { background: #fde2e2; }\n");
+        writer.write("tr.OVERAGE td, tr.UNEXPECTED td { background: #fff4d6; }\n");
+        writer.write("</style>\n</head>\n<body>\n");
+
+        writer.write("<h2>Reconciliation: " + escape(report.getInvoiceFile()) + " vs " + escape(report.getReceivedFile()) + "</h2>\n");
+        writer.write("<table class=\"summary\">\n");
+        summaryRow(writer, "Invoice lines", report.getInvoiceLines());
+        summaryRow(writer, "Received lines", report.getReceivedLines());
+        summaryRow(writer, "Total invoiced", report.getTotalInvoiced());
+        summaryRow(writer, "Total received", report.getTotalReceived());
+        summaryRow(writer, "Matched", report.getMatched());
+        for (Discrepancy.Type type : Discrepancy.Type.values()) {
+            summaryRow(writer, type.name().charAt(0) + type.name().substring(1).toLowerCase(), report.count(type));
+        }
+        writer.write("</table>\n");
+
+        if (report.getDiscrepancies().isEmpty()) {
+            writer.write("<p>All received counts match the invoice.</p>\n");
+        } else {
+            writer.write("<table class=\"discrepancies\">\n<tr>");
+            for (String column : CSV_HEADER) {
+                writer.write("<th>" + column + "</th>");
+            }
+            writer.write("</tr>\n");
+            for (Discrepancy d : report.getDiscrepancies()) {
+                writer.write("<tr class=\"" + d.getType() + "\"><td>" + d.getType()
+                        + "</td><td>" + escape(d.getPoNo())
+                        + "</td><td>" + escape(d.getItemNo())
+                        + "</td><td>" + escape(d.getDescription())
+                        + "</td><td class=\"num\">" + d.getInvoicedQty()
+                        + "</td><td class=\"num\">" + d.getReceivedQty()
+                        + "</td><td class=\"num\">" + d.getDifference()
+                        + "</td><td>" + escape(d.getNotes()) + "</td></tr>\n");
+            }
+            writer.write("</table>\n");
+        }
+        writer.write("</body>\n</html>\n");
+        writer.flush();
+    }
+
+    private static void summaryRow(Writer writer, String label, long value) throws IOException {
+        writer.write("<tr><th>" + label + "</th><td class=\"num\">" + value + "</td></tr>\n");
+    }
+
+    // Descriptions and notes are free text typed by suppliers and warehouse staff
+    private static String escape(String text) {
+        if (text == null) {
+            return "";
+        }
+        StringBuilder escaped = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '<' -> escaped.append("&lt;");
+                case '>' -> escaped.append("&gt;");
+                case '&' -> escaped.append("&amp;");
+                case '"' -> escaped.append("&quot;");
+                default -> escaped.append(c);
+            }
+        }
+        return escaped.toString();
+    }
+}
@@ -0,0 +1,170 @@
+package com.example.packinglist.reconcile;
+
+import com.example.packinglist.csv.CsvHeaderException;
+import com.example.packinglist.csv.ParseStats;
+import com.example.packinglist.model.InvoiceEntry;
+import com.example.packinglist.model.PackingEntry;
+import com.example.packinglist.service.PackingListService;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Compares what was received against what was invoiced with a hash join on (PO, item):
+ * the invoice is read once into a hash table, then the received counts are streamed
+ * through it. Both files are read a single time, so the cost grows linearly with their size.
+ */
+@Service
+public class ReconciliationService {
+
+    // Separates PO and item in the join key, neither can contain it
+    private static final char KEY_SEPARATOR = '\u001F';
+
+    private final PackingListService packingListService;
+
+    public ReconciliationService(PackingListService packingListService) {
+        this.packingListService = packingListService;
+    }
+
+    /**
+     * Both streams are closed afterwards
+     *
+     * @throws CsvHeaderException if either file lacks the PO, item or quantity column; the message names the file
+     */
+    public ReconciliationReport reconcile(InputStream invoice, String invoiceFile,
+                                          InputStream received, String receivedFile) throws IOException {
+        // Build side: the invoice, keeping the order (PO, item) pairs first appear in
+        Map<String, Line> lines = new HashMap<>();
+        List<Line> order = new ArrayList<>();
+        ParseStats invoiceStats = new ParseStats();
+        long[] totalInvoiced = new long[1];
+        Consumer<InvoiceEntry> build = entry -> {
+            Line line = lines.computeIfAbsent(key(entry.getPoNo(), entry.getItemNo()), k -> {
+                Line added = new Line(entry.getPoNo(), entry.getItemNo(), true);
+                order.add(added);
+                return added;
+            });
+            if (line.description == null || line.description.isEmpty()) {
+                line.description = entry.getDescription();
+            }
+            line.invoiced += entry.getQty();
+            totalInvoiced[0] += entry.getQty();
+        };
+        try {
+            packingListService.forEachInvoiceRow(invoice, invoiceFile, invoiceStats, build);
+        } catch (CsvHeaderException e) {
+            received.close();
+            throw named(invoiceFile, e);
+        } catch (IOException | RuntimeException e) {
+            // The received counts will not be read now, release them too
+            received.close();
+            throw e;
+        }
+
+        // Probe side: every received row is looked up once, pairs not invoiced are added as they come
+        ParseStats receivedStats = new ParseStats();
+        long[] totalReceived = new long[1];
+        Consumer<PackingEntry> probe = entry -> {
+            String key = key(entry.getPo(), entry.getItemNo());
+            Line line = lines.get(key);
+            if (line == null) {
+                line = new Line(entry.getPo(), entry.getItemNo(), false);
+                lines.put(key, line);
+                order.add(line);
+            }
+            line.seen = true;
+            line.received += entry.getQty();
+            line.addNote(entry.getNotes());
+            totalReceived[0] += entry.getQty();
+        };
+        try {
+            packingListService.forEachPackingRow(received, receivedFile, receivedStats, probe);
+        } catch (CsvHeaderException e) {
+            throw named(receivedFile, e);
+        }
+
+        Map<Discrepancy.Type, List<Discrepancy>> byType = new EnumMap<>(Discrepancy.Type.class);
+        for (Discrepancy.Type type : Discrepancy.Type.values()) {
+            byType.put(type, new ArrayList<>());
+        }
+        int matched = 0;
+        for (Line line : order) {
+            Discrepancy.Type type = line.classify();
+            if (type == null) {
+                matched++;
+            } else {
+                byType.get(type).add(new Discrepancy(type, line.poNo, line.itemNo, line.description == null ? "" : line.description,
+                        line.invoiced, line.received, line.notes == null ? "" : line.notes.toString()));
+            }
+        }
+        List<Discrepancy> discrepancies = new ArrayList<>();
+        byType.values().forEach(discrepancies::addAll);
+
+        return new ReconciliationReport(invoiceFile, receivedFile, invoiceStats.getRows(), receivedStats.getRows(),
+                matched, totalInvoiced[0], totalReceived[0], discrepancies);
+    }
+
+    // The user uploads two files, so say which one is wrong
+    private static CsvHeaderException named(String fileName, CsvHeaderException e) {
+        return new CsvHeaderException(fileName + ": " + e.getMessage());
+    }
+
+    private static String key(String poNo, String itemNo) {
+        return poNo + KEY_SEPARATOR + itemNo;
+    }
+
+    /**
+     * Running totals of one (PO, item) pair on both sides
+     */
+    private static class Line {
+        final String poNo;
+        final String itemNo;
+        final boolean invoicedLine;
+        String description;
+        int invoiced;
+        int received;
+        boolean seen;
+        StringBuilder notes;
+
+        Line(String poNo, String itemNo, boolean invoicedLine) {
+            this.poNo = poNo;
+            this.itemNo = itemNo;
+            this.invoicedLine = invoicedLine;
+        }
+
+        void addNote(String note) {
+            if (note == null || note.isEmpty()) {
+                return;
+            }
+            if (notes == null) {
+                notes = new StringBuilder(note);
+            } else {
+                notes.append("; ").append(note);
+            }
+        }
+
+        /** @return null when the counts agree */
+        Discrepancy.Type classify() {
+            if (!invoicedLine) {
+                return Discrepancy.Type.UNEXPECTED;
+            }
+            if (!seen) {
+                return Discrepancy.Type.MISSING;
+            }
+            if (received < invoiced) {
+                return Discrepancy.Type.SHORTAGE;
+            }
+            if (received > invoiced) {
+                return Discrepancy.Type.OVERAGE;
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.packinglist.service;
+
+import com.example.packinglist.model.ShipmentDetails;
+import lombok.Value;
+import org.springframework.core.io.InputStreamSource;
+
+/**
+ * One invoice of a batch upload with the shipment values typed in for it
+ */
+@Value
+public class BatchInvoice {
+    String fileName;
+    InputStreamSource content;
+    ShipmentDetails details;
+}
@@ -0,0 +1,152 @@
+package com.example.packinglist.service;
+
+import com.example.packinglist.history.HistoryService;
+import com.example.packinglist.history.ShipmentRecord;
+import com.example.packinglist.model.ShipmentDetails;
+import com.example.packinglist.sort.SortedInvoices;
+import com.example.packinglist.zip.ZipWriter;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The generated files of every invoice in a batch, spooled until they are written into
+ * the combined archive. Must be closed to release the spools and any kept rows; closing a
+ * written result hands the rows to the shipment history.
+ */
+public class BatchResult implements Closeable {
+
+    /**
+     * Generated files of one invoice, or the reason it could not be processed
+     */
+    static class InvoiceOutput {
+        final String folder;
+        final String fileName;
+        ShipmentDetails details;    // Given tracking numbers from a manifest once the invoice is read
+        SpoolBuffer packingList;
+        SpoolBuffer packingListHtml;
+        SpoolBuffer importCsv;
+        SortedInvoices rows;    // Only kept for a merged packing list or the shipment history
+        String error;
+
+        InvoiceOutput(String folder, String fileName, ShipmentDetails details) {
+            this.folder = folder;
+            this.fileName = fileName;
+            this.details = details;
+        }
+
+        void close() throws IOException {
+            for (SpoolBuffer spool : new SpoolBuffer[]{packingList, packingListHtml, importCsv}) {
+                if (spool != null) {
+                    spool.close();
+                }
+            }
+            if (rows != null) {
+                rows.close();
+            }
+        }
+    }
+
+    private final PackingListService packingListService;
+    private final HistoryService history;
+    private final String date;
+    private final boolean merge;
+    private final List<InvoiceOutput> outputs;
+    private boolean written;
+
+    BatchResult(PackingListService packingListService, HistoryService history, String date, boolean merge, List<InvoiceOutput> outputs) {
+        this.packingListService = packingListService;
+        this.history = history;
+        this.date = date;
+        this.merge = merge;
+        this.outputs = outputs;
+    }
+
+    public int size() {
+        return outputs.size();
+    }
+
+    /**
+     * One line per invoice that failed, naming the file
+     */
+    public List<String> getErrors() {
+        List<String> errors = new ArrayList<>();
+        for (InvoiceOutput output : outputs) {
+            if (output.error != null) {
+                errors.add(output.fileName + ": " + output.error);
+            }
+        }
+        return errors;
+    }
+
+    /**
+     * Writes one folder per invoice with its three files and, when asked for,
+     * a {@code merged} folder with the packing list of all invoices together.
+     * The stream itself is left open for the caller.
+     */
+    public void writeZip(OutputStream out) throws IOException {
+        ZipWriter zip = packingListService.newZipWriter(out);
+        for (InvoiceOutput output : outputs) {
+            addEntry(zip, output.folder + "/packing-list-" + date + ".csv", output.packingList);
+            addEntry(zip, output.folder + "/packing-list-" + date + ".html", output.packingListHtml);
+            addEntry(zip, output.folder + "/import_inv-" + date + ".csv", output.importCsv);
+        }
+        if (merge && !outputs.isEmpty()) {
+            writeMerged(zip);
+        }
+        zip.finish();
+        written = true;
+    }
+
+    private void writeMerged(ZipWriter zip) throws IOException {
+        List<SortedInvoices> invoices = new ArrayList<>();
+        List<ShipmentDetails> shipments = new ArrayList<>();
+        for (InvoiceOutput output : outputs) {
+            invoices.add(output.rows);
+            shipments.add(output.details);
+        }
+        ShipmentDetails details = ShipmentDetails.combine(shipments);
+
+        try (SortedInvoices merged = packingListService.mergeInvoices(invoices)) {
+            // Closing the writer closes the ZIP entry, not the response
+            try (Writer writer = new BufferedWriter(new OutputStreamWriter(zip.newEntry("merged/packing-list-" + date + ".csv"), StandardCharsets.UTF_8))) {
+                packingListService.writePackingList(writer, date, merged, details.getTracking(), details.getWeight(),
+                        details.getBoxes(), details.getRmb(), details.getRate());
+            }
+
+            // Duplicates are flagged across invoices, the merge collects them over all merged rows
+            try (OutputStream entry = zip.newEntry("merged/packing-list-" + date + ".html")) {
+                packingListService.writePackingListHtml(entry, date, merged, details.getTracking(), details.getWeight(),
+                        details.getBoxes(), details.getRmb(), details.getRate(), PackingListService.DEFAULT_ITEMS_PER_PAGE);
+            }
+        }
+    }
+
+    private static void addEntry(ZipWriter zip, String name, SpoolBuffer content) throws IOException {
+        try (OutputStream entry = zip.newEntry(name)) {
+            content.copyTo(entry);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        IOException failure = null;
+        for (InvoiceOutput output : outputs) {
+            if (written && output.rows != null) {
+                // Only a delivered archive counts as shipped; the history closes the rows when written
+                history.record(ShipmentRecord.of(output.fileName, date, output.details), output.rows);
+                output.rows = null;
+            }
+            try {
+                output.close();
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+}
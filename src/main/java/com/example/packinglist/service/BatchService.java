@@ -0,0 +1,288 @@
+package com.example.packinglist.service;
+
+import com.example.packinglist.config.PackingListProperties;
+import com.example.packinglist.csv.CsvHeaderException;
+import com.example.packinglist.csv.ParseStats;
+import com.example.packinglist.history.HistoryService;
+import com.example.packinglist.sort.SortedInvoices;
+import com.example.packinglist.tracking.TrackingManifest;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Generates the packing list files for many invoices at once. Every invoice is parsed and
+ * rendered on a shared worker pool; the results are spooled and returned as a {@link BatchResult}.
+ */
+@Service
+public class BatchService {
+
+    private final PackingListService packingListService;
+    private final HistoryService history;
+    private final PackingListProperties properties;
+    private final ThreadPoolExecutor executor;
+
+    public BatchService(PackingListProperties properties, PackingListService packingListService) {
+        this(properties, packingListService, HistoryService.disabled());
+    }
+
+    @Autowired
+    public BatchService(PackingListProperties properties, PackingListService packingListService, HistoryService history) {
+        this.properties = properties;
+        this.packingListService = packingListService;
+        this.history = history;
+        int threads = properties.getBatch().getThreads();
+        AtomicInteger count = new AtomicInteger();
+        // Threads are only started by the first batch and stop again when idle. A batch that
+        // does not fit in the queue is turned away as a whole, see process()
+        this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(properties.getBatch().getQueueDepth()), runnable -> {
+            Thread thread = new Thread(runnable, "packing-batch-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    public int getMaxInvoices() {
+        return properties.getBatch().getMaxInvoices();
+    }
+
+    /**
+     * Parses and renders all invoices in parallel and waits for them. Invoices that fail are
+     * reported through {@link BatchResult#getErrors()} rather than failing the others.
+     *
+     * @param merge keep the rows of every invoice so a merged packing list can be written
+     * @throws RejectedExecutionException when the queue has no room for the batch's invoices
+     */
+    public BatchResult process(List<BatchInvoice> invoices, String date, boolean merge) throws IOException {
+        return process(invoices, date, merge, null);
+    }
+
+    /**
+     * Same as {@link #process(List, String, boolean)}, giving each invoice without a typed-in
+     * tracking number the numbers the manifest lists for its POs
+     */
+    public BatchResult process(List<BatchInvoice> invoices, String date, boolean merge, TrackingManifest manifest) throws IOException {
+        int spoolThreshold = (int) Math.min(Integer.MAX_VALUE, properties.getOutput().getSpoolThreshold().toBytes());
+        List<BatchResult.InvoiceOutput> outputs = new ArrayList<>(invoices.size());
+        List<Future<?>> pending = new ArrayList<>(invoices.size());
+        Set<String> folders = new HashSet<>();
+
+        BatchResult result = new BatchResult(packingListService, history, date, merge, outputs);
+        try {
+            for (BatchInvoice invoice : invoices) {
+                BatchResult.InvoiceOutput output = new BatchResult.InvoiceOutput(
+                        folderName(invoice.getFileName(), folders), invoice.getFileName(), invoice.getDetails());
+                outputs.add(output);
+                pending.add(executor.submit(() -> render(invoice, output, date, merge, manifest, spoolThreshold)));
+            }
+            for (Future<?> future : pending) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    // render() records its own failures, anything else is a bug
+                    throw new IllegalStateException("Batch invoice failed unexpectedly", e.getCause());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            pending.forEach(future -> future.cancel(true));
+            result.close();
+            throw new InterruptedIOException("Interrupted while waiting for batch invoices");
+        } catch (RuntimeException e) {
+            pending.forEach(future -> future.cancel(true));
+            result.close();
+            throw e;
+        }
+        return result;
+    }
+
+    private void render(BatchInvoice invoice, BatchResult.InvoiceOutput output, String date, boolean merge,
+                        TrackingManifest manifest, int spoolThreshold) {
+        SortedInvoices rows = null;
+        try {
+            rows = packingListService.readInvoiceCsv(invoice.getContent().getInputStream(), invoice.getFileName(), new ParseStats());
+            if (rows.isEmpty()) {
+                output.error = "no invoice rows found";
+                return;
+            }
+            // Only numbers listed for this invoice's POs; the rest of the manifest belongs to the others
+            output.details = packingListService.withManifestTracking(invoice.getDetails(), manifest, rows, false);
+            String tracking = output.details.getTracking();
+            double weight = output.details.getWeight();
+            int boxes = output.details.getBoxes();
+            double rmb = output.details.getRmb();
+            double rate = output.details.getRate();
+
+            output.packingList = new SpoolBuffer(spoolThreshold);
+            Writer writer = writer(output.packingList);
+            packingListService.writePackingList(writer, date, rows, tracking, weight, boxes, rmb, rate);
+            writer.flush();
+
+            output.packingListHtml = new SpoolBuffer(spoolThreshold);
+            packingListService.writePackingListHtml(output.packingListHtml, date, rows, tracking, weight, boxes, rmb, rate, PackingListService.DEFAULT_ITEMS_PER_PAGE);
+
+            output.importCsv = new SpoolBuffer(spoolThreshold);
+            writer = writer(output.importCsv);
+            packingListService.writeMsdosCsv(writer, rows);
+            writer.flush();
+
+            // Kept for the merged list and for the history, which records them once the archive is written
+            if (merge || history.isEnabled()) {
+                output.rows = rows;
+                rows = null;
+            }
+        } catch (CsvHeaderException e) {
+            output.error = e.getMessage();
+        } catch (Exception e) {
+            System.err.println("Error processing batch invoice " + invoice.getFileName() + ": " + e.getMessage());
+            e.printStackTrace();
+            output.error = "could not be processed, please check the file format";
+        } finally {
+            if (rows != null) {
+                rows.close();
+            }
+        }
+    }
+
+    private static Writer writer(OutputStream out) {
+        return new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Unpacks the CSV files of an uploaded ZIP, in archive order. Folders and other files are skipped.
+     *
+     * @throws IllegalArgumentException if the archive holds more than {@code maxInvoices} CSV files
+     * @throws ArchiveTooLargeException if a CSV file, or all of them together, unpack to more than allowed
+     */
+    public List<SpooledFile> unpackCsvFiles(InputStream zip, int maxInvoices) throws IOException {
+        int spoolThreshold = (int) Math.min(Integer.MAX_VALUE, properties.getOutput().getSpoolThreshold().toBytes());
+        DataSize maxEntrySize = properties.getBatch().getMaxEntrySize();
+        DataSize maxUnpackedSize = properties.getBatch().getMaxUnpackedSize();
+        List<SpooledFile> files = new ArrayList<>();
+        try (ZipInputStream zis = new ZipInputStream(zip)) {
+            ZipEntry entry;
+            long unpacked = 0;
+            byte[] buffer = new byte[8192];
+            while ((entry = zis.getNextEntry()) != null) {
+                String name = entry.getName();
+                if (entry.isDirectory() || name.startsWith("__MACOSX/") || !name.toLowerCase(Locale.ROOT).endsWith(".csv")) {
+                    continue;
+                }
+                if (files.size() == maxInvoices) {
+                    throw new IllegalArgumentException("A batch can contain at most " + maxInvoices + " invoices");
+                }
+                SpoolBuffer spool = new SpoolBuffer(spoolThreshold);
+                files.add(new SpooledFile(name.substring(name.lastIndexOf('/') + 1), spool));
+                // Counted as it inflates: the sizes in the archive are the sender's word for it
+                long size = 0;
+                int read;
+                while ((read = zis.read(buffer)) > 0) {
+                    size += read;
+                    unpacked += read;
+                    if (size > maxEntrySize.toBytes()) {
+                        throw new ArchiveTooLargeException(name + " unpacks to more than " + readable(maxEntrySize));
+                    }
+                    if (unpacked > maxUnpackedSize.toBytes()) {
+                        throw new ArchiveTooLargeException("The CSV files in the ZIP unpack to more than " + readable(maxUnpackedSize));
+                    }
+                    spool.write(buffer, 0, read);
+                }
+                spool.flush();
+            }
+        } catch (IOException | RuntimeException e) {
+            closeAll(files);
+            throw e;
+        }
+        return files;
+    }
+
+    private static String readable(DataSize size) {
+        return size.toBytes() % DataSize.ofMegabytes(1).toBytes() == 0 ? size.toMegabytes() + " MB" : size.toKilobytes() + " KB";
+    }
+
+    /**
+     * An uploaded ZIP that unpacks to more than a batch may hold
+     */
+    public static class ArchiveTooLargeException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        ArchiveTooLargeException(String message) {
+            super(message);
+        }
+    }
+
+    public static void closeAll(List<SpooledFile> files) {
+        for (SpooledFile file : files) {
+            try {
+                file.close();
+            } catch (IOException ignored) {
+                // Temp file cleanup is best effort
+            }
+        }
+    }
+
+    /**
+     * A CSV taken out of an uploaded ZIP, held until the batch is done with it
+     */
+    public static class SpooledFile implements InputStreamSource, Closeable {
+        private final String name;
+        private final SpoolBuffer content;
+
+        SpooledFile(String name, SpoolBuffer content) {
+            this.name = name;
+            this.content = content;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            return content.openInputStream();
+        }
+
+        @Override
+        public void close() throws IOException {
+            content.close();
+        }
+    }
+
+    /**
+     * Folder for an invoice inside the archive: the file name without extension, made
+     * safe for ZIP tools and numbered when two invoices share a name
+     */
+    static String folderName(String fileName, Set<String> taken) {
+        String base = fileName == null ? "" : fileName;
+        base = base.substring(Math.max(base.lastIndexOf('/'), base.lastIndexOf('\\')) + 1);
+        if (base.toLowerCase(Locale.ROOT).endsWith(".csv")) {
+            base = base.substring(0, base.length() - 4);
+        }
+        base = base.replaceAll("[^A-Za-z0-9._-]", "_");
+        if (base.isEmpty() || base.startsWith(".")) {
+            base = "invoice" + base;
+        }
+        String folder = base;
+        for (int n = 2; !taken.add(folder); n++) {
+            folder = base + "-" + n;
+        }
+        return folder;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
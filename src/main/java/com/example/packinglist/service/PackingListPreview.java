@@ -0,0 +1,14 @@
+package com.example.packinglist.service;
+
+import lombok.Value;
+
+/**
+ * Some pages of the HTML packing list, rendered on their own
+ */
+@Value
+public class PackingListPreview {
+    int totalPages;  // Pages of the whole packing list
+    int fromPage;    // First page rendered, from 1
+    int toPage;      // Last page rendered, 0 when nothing was
+    byte[] html;     // Empty when fromPage is past the last page
+}
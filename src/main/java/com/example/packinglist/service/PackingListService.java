@@ -0,0 +1,1114 @@
+package com.example.packinglist.service;
+
+import com.example.packinglist.config.PackingListProperties;
+import com.example.packinglist.csv.CsvHeaderException;
+import com.example.packinglist.csv.HeaderPlan;
+import com.example.packinglist.csv.InvoiceColumn;
+import com.example.packinglist.csv.NumberParser;
+import com.example.packinglist.csv.ParseStats;
+import com.example.packinglist.html.PackingListHtmlRenderer;
+import com.example.packinglist.metrics.PipelineMetrics;
+import com.example.packinglist.model.InvoiceEntry;
+import com.example.packinglist.model.InvoiceSummary;
+import com.example.packinglist.model.PackingEntry;
+import com.example.packinglist.model.PoSubtotal;
+import com.example.packinglist.model.ShipmentDetails;
+import com.example.packinglist.pdf.PackingListPdfRenderer;
+import com.example.packinglist.sort.ExternalInvoiceSorter;
+import com.example.packinglist.sort.InvoiceCursor;
+import com.example.packinglist.sort.KeySorter;
+import com.example.packinglist.sort.LeadingRows;
+import com.example.packinglist.sort.SortedInvoices;
+import com.example.packinglist.tracking.TrackingManifest;
+import com.example.packinglist.tracking.TrackingScanner;
+import com.example.packinglist.xlsx.XlsxSheetReader;
+import com.example.packinglist.zip.CompressionPolicy;
+import com.example.packinglist.zip.DeflatedSegment;
+import com.example.packinglist.zip.ZipWriter;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVRecord;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.text.SimpleDateFormat;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Parses supplier invoices, as CSV or as .xlsx workbooks, and generates the packing list files from them:
+ * the packing list CSV, the printable HTML packing list and the MS-DOS import CSV.
+ */
+@Service
+public class PackingListService {
+
+    // 36 items per column × 2 columns per page
+    public static final int DEFAULT_ITEMS_PER_PAGE = 72;
+
+    /** Answer to an invoice that gave no rows, whichever endpoint it was uploaded to */
+    public static final String EMPTY_INVOICE_MESSAGE = "CSV file appears to be empty or has invalid format. "
+            + "Please check your CSV file contains the required columns: PO/NO., ITEM NO., DESCRIPTION OF GOODS, QTY, UNIT VALUE (USD)";
+
+    private static final Set<InvoiceColumn> INVOICE_REQUIRED_COLUMNS =
+            EnumSet.of(InvoiceColumn.PO, InvoiceColumn.ITEM, InvoiceColumn.QTY);
+    private static final Set<InvoiceColumn> PACKING_REQUIRED_COLUMNS =
+            EnumSet.of(InvoiceColumn.PO, InvoiceColumn.ITEM, InvoiceColumn.QTY);
+    private static final String XLSX_CONTENT_TYPE = "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet";
+
+    private final PackingListProperties properties;
+    private final PackingListHtmlRenderer htmlRenderer = new PackingListHtmlRenderer();
+    private final PackingListPdfRenderer pdfRenderer = new PackingListPdfRenderer();
+    private final PipelineMetrics metrics;
+    // Renders the HTML and import CSV next to the packing list CSV, null when output is sequential
+    private final Executor renderExecutor;
+    // Deflates the blocks of large ZIP entries, on all cores when there is more than one
+    private final CompressionPolicy compression;
+
+    public PackingListService(PackingListProperties properties) {
+        this(properties, PipelineMetrics.noop());
+    }
+
+    @Autowired
+    public PackingListService(PackingListProperties properties, PipelineMetrics metrics) {
+        this.properties = properties;
+        this.metrics = metrics;
+        this.renderExecutor = properties.getOutput().isConcurrent() ? renderExecutor(properties.getOutput()) : null;
+        this.compression = new CompressionPolicy((int) properties.getOutput().getCompressionBlockSize().toBytes(),
+                properties.getOutput().isParallelCompression() ? compressionExecutor() : null);
+    }
+
+    private static Executor renderExecutor(PackingListProperties.Output output) {
+        if (output.isVirtualThreads()) {
+            try {
+                return new VirtualThreadTaskExecutor("packing-render-");
+            } catch (UnsupportedOperationException e) {
+                System.err.println("Virtual threads need Java 21, rendering on platform threads instead");
+            }
+        }
+        // Bounded and without a queue: once every thread is busy the request thread renders the file itself
+        int threads = Math.max(2, Runtime.getRuntime().availableProcessors() * 2);
+        AtomicInteger count = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new SynchronousQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "packing-render-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }, new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    private static Executor compressionExecutor() {
+        int threads = Runtime.getRuntime().availableProcessors();
+        if (threads < 2) {
+            return null;
+        }
+        // One thread per core and no queue: once every thread is busy the writing thread deflates the block itself
+        AtomicInteger count = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new SynchronousQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "packing-deflate-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }, new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (renderExecutor instanceof ExecutorService) {
+            ((ExecutorService) renderExecutor).shutdown();
+        }
+        if (compression.getExecutor() instanceof ExecutorService) {
+            ((ExecutorService) compression.getExecutor()).shutdown();
+        }
+    }
+
+    /**
+     * Writes a ZIP file to the stream, compressing its entries as configured
+     */
+    public ZipWriter newZipWriter(OutputStream out) {
+        return new ZipWriter(out, compression);
+    }
+
+    /**
+     * Checks that an uploaded invoice is present and looks like a CSV file or an .xlsx workbook
+     *
+     * @return a message for the user if the upload is not acceptable, otherwise null
+     */
+    public String validateUpload(MultipartFile csvFile) {
+        if (csvFile == null || csvFile.isEmpty()) {
+            return "CSV file is required and cannot be empty";
+        }
+        String csvContentType = csvFile.getContentType();
+        String fileName = csvFile.getOriginalFilename();
+        // Some browsers send workbooks as application/octet-stream, the name still tells
+        boolean workbook = XLSX_CONTENT_TYPE.equals(csvContentType)
+                || fileName != null && fileName.toLowerCase(Locale.ROOT).endsWith(".xlsx");
+        if (!workbook && (csvContentType == null || (!csvContentType.equals("text/csv") && !csvContentType.equals("application/vnd.ms-excel")))) {
+            return "Please upload a valid CSV or Excel (.xlsx) file";
+        }
+        return null;
+    }
+
+    public List<InvoiceEntry> parseInvoiceCsv(MultipartFile file) throws IOException {
+        List<InvoiceEntry> result = new ArrayList<>();
+        ParseStats stats = new ParseStats();
+        
+        // Use try-with-resources to ensure proper cleanup of streams
+        try (InvoiceRows rows = invoiceRows(file.getInputStream(), stats)) {
+            rows.forEachRemaining(result::add);
+        }
+        reportInvalidValues(file.getOriginalFilename(), stats);
+        
+        // Sort by item number, lexical unless packinglist.sort.order says otherwise
+        sortRows(result, InvoiceEntry::getPoNo, InvoiceEntry::getItemNo);
+        
+        return result;
+    }
+
+    /**
+     * Streaming variant of {@link #parseInvoiceCsv}: records are read one at a time and
+     * sorted by item number with an external merge sort, so large invoices are spilled
+     * to disk instead of being held on the heap. The caller must close the result.
+     */
+    public SortedInvoices readInvoiceCsv(MultipartFile file) throws IOException {
+        return readInvoiceCsv(file, new ParseStats());
+    }
+
+    /**
+     * Same as {@link #readInvoiceCsv(MultipartFile)}, collecting row and invalid value counts into {@code stats}
+     */
+    public SortedInvoices readInvoiceCsv(MultipartFile file, ParseStats stats) throws IOException {
+        return readInvoiceCsv(file.getInputStream(), file.getOriginalFilename(), stats);
+    }
+
+    /**
+     * Reads and sorts an invoice CSV or .xlsx workbook from a stream, which is closed afterwards
+     */
+    public SortedInvoices readInvoiceCsv(InputStream in, String fileName, ParseStats stats) throws IOException {
+        long start = System.nanoTime();
+        ExternalInvoiceSorter sorter = invoiceSorter();
+        SortedInvoices sorted;
+        try (InvoiceRows rows = invoiceRows(in, stats)) {
+            sorted = sorter.sort(rows);
+        }
+        // Parsing feeds the sorter row by row, whatever the sorter did not spend is parse time
+        metrics.record(PipelineMetrics.Stage.PARSE, System.nanoTime() - start - sorter.getSortNanos());
+        metrics.record(PipelineMetrics.Stage.SORT, sorter.getSortNanos());
+        metrics.rowsParsed(stats);
+        reportInvalidValues(fileName, stats);
+        return sorted;
+    }
+
+    /**
+     * Invoice rows being read from an upload. Closing releases the stream, and for a
+     * workbook the temporary copy it is read from.
+     */
+    private interface InvoiceRows extends Iterator<InvoiceEntry>, Closeable {
+    }
+
+    /**
+     * Rows of an invoice CSV, or of the first sheet of an .xlsx workbook. Workbooks are told
+     * apart by the ZIP signature they start with, so a renamed or mislabelled upload still
+     * works. The workbook is copied to a temporary file, since the sheet has to be found
+     * through the ZIP directory at the end, and its rows are then read as a stream of XML
+     * events, with the same header aliases as a CSV.
+     *
+     * @throws CsvHeaderException if the PO, item or quantity column is missing, or a
+     *                            workbook cannot be read
+     */
+    private InvoiceRows invoiceRows(InputStream in, ParseStats stats) throws IOException {
+        BufferedInputStream buffered = new BufferedInputStream(in);
+        try {
+            if (!isZip(buffered)) {
+                Reader reader = new InputStreamReader(buffered);
+                Iterator<InvoiceEntry> rows = invoiceRows(reader, stats);
+                return new InvoiceRows() {
+                    @Override
+                    public boolean hasNext() {
+                        return rows.hasNext();
+                    }
+
+                    @Override
+                    public InvoiceEntry next() {
+                        return rows.next();
+                    }
+
+                    @Override
+                    public void close() throws IOException {
+                        reader.close();
+                    }
+                };
+            }
+        } catch (IOException | RuntimeException e) {
+            buffered.close();
+            throw e;
+        }
+
+        File copy = File.createTempFile("invoice-", ".xlsx", spillDirectory());
+        XlsxSheetReader sheet;
+        try (InputStream source = buffered) {
+            Files.copy(source, copy.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            try {
+                sheet = XlsxSheetReader.open(copy);
+            } catch (IOException e) {
+                throw new CsvHeaderException("The file could not be read as an Excel workbook. Please save it as .xlsx or CSV and try again.");
+            }
+        } catch (IOException | RuntimeException e) {
+            copy.delete();
+            throw e;
+        }
+
+        try {
+            HeaderPlan plan = sheet.hasNext()
+                    ? HeaderPlan.resolve(Arrays.asList(sheet.next()), INVOICE_REQUIRED_COLUMNS)
+                    : null;
+            return new InvoiceRows() {
+                @Override
+                public boolean hasNext() {
+                    return plan != null && sheet.hasNext();
+                }
+
+                @Override
+                public InvoiceEntry next() {
+                    String[] cells = sheet.next();
+                    return toInvoiceEntry(plan.get(cells, InvoiceColumn.PO), plan.get(cells, InvoiceColumn.ITEM),
+                            plan.get(cells, InvoiceColumn.DESCRIPTION), plan.get(cells, InvoiceColumn.QTY),
+                            plan.get(cells, InvoiceColumn.UNIT_VALUE), sheet.getRowNumber(), stats);
+                }
+
+                @Override
+                public void close() throws IOException {
+                    try {
+                        sheet.close();
+                    } finally {
+                        copy.delete();
+                    }
+                }
+            };
+        } catch (RuntimeException e) {
+            sheet.close();
+            copy.delete();
+            throw e;
+        }
+    }
+
+    private static boolean isZip(BufferedInputStream in) throws IOException {
+        byte[] signature = new byte[4];
+        in.mark(signature.length);
+        int read = in.readNBytes(signature, 0, signature.length);
+        in.reset();
+        return read == 4 && signature[0] == 'P' && signature[1] == 'K' && signature[2] == 3 && signature[3] == 4;
+    }
+
+    /**
+     * Reads the header line once, resolves it to a column plan and then maps each
+     * following record to an InvoiceEntry by column index.
+     *
+     * @throws CsvHeaderException if the PO, item or quantity column is missing
+     */
+    private Iterator<InvoiceEntry> invoiceRows(Reader reader, ParseStats stats) throws IOException {
+        Iterator<CSVRecord> records = CSVFormat.DEFAULT.parse(reader).iterator();
+        if (!records.hasNext()) {
+            return Collections.emptyIterator();
+        }
+        HeaderPlan plan = HeaderPlan.resolve(records.next(), INVOICE_REQUIRED_COLUMNS);
+
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return records.hasNext();
+            }
+
+            @Override
+            public InvoiceEntry next() {
+                return toInvoiceEntry(plan, records.next(), stats);
+            }
+        };
+    }
+
+    /**
+     * Reads an invoice CSV row by row in file order, without sorting or keeping the rows.
+     * The stream is closed afterwards.
+     */
+    public void forEachInvoiceRow(InputStream in, String fileName, ParseStats stats, Consumer<InvoiceEntry> action) throws IOException {
+        try (InvoiceRows rows = invoiceRows(in, stats)) {
+            rows.forEachRemaining(action);
+        }
+        metrics.rowsParsed(stats);
+        reportInvalidValues(fileName, stats);
+    }
+
+    /**
+     * Reads a received packing count CSV row by row in file order. The stream is closed afterwards.
+     */
+    public void forEachPackingRow(InputStream in, String fileName, ParseStats stats, Consumer<PackingEntry> action) throws IOException {
+        try (Reader reader = new InputStreamReader(in)) {
+            packingRows(reader, stats).forEachRemaining(action);
+        }
+        reportInvalidValues(fileName, stats);
+    }
+
+    private Iterator<PackingEntry> packingRows(Reader reader, ParseStats stats) throws IOException {
+        Iterator<CSVRecord> records = CSVFormat.DEFAULT.parse(reader).iterator();
+        if (!records.hasNext()) {
+            return Collections.emptyIterator();
+        }
+        HeaderPlan plan = HeaderPlan.resolve(records.next(), PACKING_REQUIRED_COLUMNS);
+
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return records.hasNext();
+            }
+
+            @Override
+            public PackingEntry next() {
+                return toPackingEntry(plan, records.next(), stats);
+            }
+        };
+    }
+
+    private PackingEntry toPackingEntry(HeaderPlan plan, CSVRecord record, ParseStats stats) {
+        stats.countRow();
+        String poNo = plan.get(record, InvoiceColumn.PO);
+        String itemNo = plan.get(record, InvoiceColumn.ITEM);
+        String notes = plan.get(record, InvoiceColumn.NOTES);
+        
+        // Safely parse quantity with proper error handling
+        int qty = parseQuantity(plan.get(record, InvoiceColumn.QTY), record.getRecordNumber(), stats);
+        
+        return new PackingEntry(
+                poNo,
+                itemNo,
+                qty,
+                // Safely handle NOTES field to prevent null pointer exceptions
+                (notes != null && !notes.isEmpty()) ? notes : ""
+        );
+    }
+
+    /**
+     * Combines several sorted invoices into one, in item number order. Rows with the same
+     * item number keep the order of the invoices they came from. The caller must close the result.
+     */
+    public SortedInvoices mergeInvoices(List<SortedInvoices> invoices) throws IOException {
+        Iterator<SortedInvoices> remaining = invoices.iterator();
+        Iterator<InvoiceEntry> rows = new Iterator<>() {
+            private Iterator<InvoiceEntry> current = Collections.emptyIterator();
+
+            @Override
+            public boolean hasNext() {
+                while (!current.hasNext() && remaining.hasNext()) {
+                    current = remaining.next().iterator();
+                }
+                return current.hasNext();
+            }
+
+            @Override
+            public InvoiceEntry next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return current.next();
+            }
+        };
+        return invoiceSorter().sort(rows);
+    }
+
+    private ExternalInvoiceSorter invoiceSorter() {
+        PackingListProperties.Sort sort = properties.getSort();
+        return new ExternalInvoiceSorter(sort.getMaxRowsInMemory(), spillDirectory(), sort.getOrder(), sort.getParallelThreshold());
+    }
+
+    private File spillDirectory() {
+        String directory = properties.getSort().getSpillDirectory();
+        return directory != null ? new File(directory) : null;
+    }
+
+    private <T> void sortRows(List<T> rows, Function<T, String> poNo, Function<T, String> itemNo) {
+        PackingListProperties.Sort sort = properties.getSort();
+        KeySorter.sort(rows, sort.getOrder(), poNo, itemNo, sort.getParallelThreshold());
+    }
+
+    private InvoiceEntry toInvoiceEntry(HeaderPlan plan, CSVRecord record, ParseStats stats) {
+        return toInvoiceEntry(plan.get(record, InvoiceColumn.PO), plan.get(record, InvoiceColumn.ITEM),
+                plan.get(record, InvoiceColumn.DESCRIPTION), plan.get(record, InvoiceColumn.QTY),
+                plan.get(record, InvoiceColumn.UNIT_VALUE), record.getRecordNumber(), stats);
+    }
+
+    private InvoiceEntry toInvoiceEntry(String poNo, String itemNo, String description, String qtyText,
+                                        String unitValueText, long line, ParseStats stats) {
+        stats.countRow();
+        
+        // Safely parse quantity with proper error handling
+        int qty = parseQuantity(qtyText, line, stats);
+        
+        // Parse unit value (FOB) as fixed-point cents
+        long unitValueCents = parseUnitValue(unitValueText, line, stats);
+        
+        return new InvoiceEntry(
+                poNo,
+                itemNo,
+                description,
+                qty,
+                unitValueCents
+        );
+    }
+
+    public List<PackingEntry> parseCsv(MultipartFile file) throws IOException {
+        List<PackingEntry> result = new ArrayList<>();
+        ParseStats stats = new ParseStats();
+        
+        // Use try-with-resources to ensure proper cleanup of streams
+        try (Reader reader = new InputStreamReader(file.getInputStream())) {
+            packingRows(reader, stats).forEachRemaining(result::add);
+        }
+        reportInvalidValues(file.getOriginalFilename(), stats);
+        
+        // Sort by item number, lexical unless packinglist.sort.order says otherwise
+        sortRows(result, PackingEntry::getPo, PackingEntry::getItemNo);
+        
+        return result;
+    }
+
+    public File generatePackingList(String date, Iterable<InvoiceEntry> invoiceEntries, String tracking, double weight, int boxes, double rmb, double rate) throws IOException {
+        File file = File.createTempFile("packing-list-" + date, ".csv");
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(file))) {
+            writePackingList(writer, date, invoiceEntries, tracking, weight, boxes, rmb, rate);
+        }
+        return file;
+    }
+
+    /**
+     * Writes the packing list CSV to the given writer
+     */
+    public void writePackingList(Writer writer, String date, Iterable<InvoiceEntry> invoiceEntries, String tracking, double weight, int boxes, double rmb, double rate) throws IOException {
+        writePackingListHeader(writer, date, tracking, weight, boxes, rmb, rate);
+        writePackingListBody(writer, date, invoiceEntries);
+    }
+
+    /**
+     * The lines of the packing list CSV above the P.O# line, the only ones that hold the shipment details
+     */
+    private void writePackingListHeader(Writer writer, String date, String tracking, double weight, int boxes, double rmb, double rate) throws IOException {
+        String arrival = "XR" + date;
+        double upsFreight = rmb / rate;
+
+        // Get today's date for dynamic formatting
+        String todayMonth = new SimpleDateFormat("MM").format(new Date());
+        String todayDate = new SimpleDateFormat("dd").format(new Date());
+        
+        writer.write("ARRIVAL#: " + arrival + "\n");
+        writer.write("DATE:\n");
+        writer.write("P.O.#W25" + todayMonth + todayDate + "=>AMNT:\n");
+        writer.write("\n");
+        writer.write("P.O.#WONA25" + todayMonth + todayDate + ",8%DISC$321.07=>AMNT:\n");
+        writer.write("\n");
+        writer.write("\n"); // Empty row between DATE: and UPS FREIGHT:
+        writer.write(String.format("UPS FREIGHT: %.0f RMB / %.2f RATE = $%.2f\n", rmb, rate, upsFreight));
+        // Combine weight and boxes info in one cell with new format
+        writer.write(String.format("WEIGHT & BOXES: %.1f KG || %d BOXES\n", weight, boxes));
+        if (tracking != null && !tracking.isEmpty()) {
+            writer.write("UPS TRACKING#: " + tracking + "\n\n");
+        } else {
+            writer.write("UPS TRACKING#: \n\n");
+        }
+    }
+
+    private void writePackingListBody(Writer writer, String date, Iterable<InvoiceEntry> invoiceEntries) throws IOException {
+        String po = "W" + date;
+        writer.write("P.O#: " + po + "\n");
+        // Add empty column between QTY and NOTES
+        writer.write("PO#,ITEM#,QTY,,NOTES\n");
+        
+        InvoiceCursor row = InvoiceCursor.of(invoiceEntries);
+        while (row.next()) {
+            writer.write(String.valueOf(row.poNo()));
+            writer.write(',');
+            writer.write(String.valueOf(row.itemNo()));
+            writer.write(',');
+            writer.write(Integer.toString(row.qty()));
+            writer.write(",,\n"); // Empty column, then the empty notes field as per requirement
+        }
+        
+        // Add total qty row at the end
+        InvoiceSummary summary = summaryOf(invoiceEntries);
+        writer.write(",,TOTAL QTY: " + summary.getTotalQty() + ",,\n");
+
+        // Quantity and FOB amount per PO, for the AMNT lines in the header
+        writer.write("\nPO SUBTOTALS\n");
+        writer.write("PO#,LINES,QTY,,FOB (USD)\n");
+        for (PoSubtotal subtotal : summary.getPoSubtotals()) {
+            writer.write(String.valueOf(subtotal.getPoNo()));
+            writer.write(',');
+            writer.write(Integer.toString(subtotal.getLines()));
+            writer.write(',');
+            writer.write(Long.toString(subtotal.getQty()));
+            writer.write(",,");
+            writer.write(NumberParser.formatCents(subtotal.getFobCents()));
+            writer.write('\n');
+        }
+    }
+
+    /**
+     * The summary collected while sorting, or one pass over rows that did not come from the sorter
+     */
+    private static InvoiceSummary summaryOf(Iterable<InvoiceEntry> invoiceEntries) {
+        if (invoiceEntries instanceof SortedInvoices) {
+            return ((SortedInvoices) invoiceEntries).getSummary();
+        }
+        return InvoiceSummary.of(invoiceEntries);
+    }
+
+    public File generatePackingListHtml(String date, List<InvoiceEntry> invoiceEntries, String tracking, double weight, int boxes, double rmb, double rate) throws IOException {
+        return generatePackingListHtml(date, SortedInvoices.of(invoiceEntries, properties.getSort().getOrder()), tracking, weight, boxes, rmb, rate);
+    }
+
+    public File generatePackingListHtml(String date, SortedInvoices invoiceEntries, String tracking, double weight, int boxes, double rmb, double rate) throws IOException {
+        return generatePackingListHtmlWithPagination(date, invoiceEntries, tracking, weight, boxes, rmb, rate, DEFAULT_ITEMS_PER_PAGE);
+    }
+
+    /**
+     * Generates a multi-page HTML packing list with configurable pagination.
+     * Each page contains two columns: left column has first N items, right column has next N items.
+     * Header information (arrival, amount, date, PO#, UPS freight) appears once at the top.
+     * 
+     * Entries must be sorted by item number, as returned by {@link #parseInvoiceCsv}.
+     * 
+     * @param itemsPerPage Total items per page (will be split evenly between left and right columns, default 72 for 36 rows each)
+     */
+    public File generatePackingListHtmlWithPagination(String date, List<InvoiceEntry> invoiceEntries, String tracking, double weight, int boxes, double rmb, double rate, int itemsPerPage) throws IOException {
+        return generatePackingListHtmlWithPagination(date, SortedInvoices.of(invoiceEntries, properties.getSort().getOrder()), tracking, weight, boxes, rmb, rate, itemsPerPage);
+    }
+
+    public File generatePackingListHtmlWithPagination(String date, SortedInvoices invoiceEntries, String tracking, double weight, int boxes, double rmb, double rate, int itemsPerPage) throws IOException {
+        File file = File.createTempFile("packing-list-" + date, ".html");
+        try (OutputStream out = new FileOutputStream(file)) {
+            writePackingListHtml(out, date, invoiceEntries, tracking, weight, boxes, rmb, rate, itemsPerPage);
+        }
+        return file;
+    }
+
+    /**
+     * Writes the paginated HTML packing list to the given stream as UTF-8. The stream is not closed.
+     */
+    public void writePackingListHtml(OutputStream out, String date, SortedInvoices invoiceEntries, String tracking, double weight, int boxes, double rmb, double rate, int itemsPerPage) throws IOException {
+        htmlRenderer.render(out, date, invoiceEntries, new ShipmentDetails(tracking, rmb, rate, boxes, weight), itemsPerPage, new PipelineProgress());
+    }
+
+    /**
+     * Scans a carrier manifest or other shipping document for tracking numbers, or returns null
+     * if no file was uploaded
+     */
+    public TrackingManifest readTrackingManifest(MultipartFile file) throws IOException {
+        if (file == null || file.isEmpty()) {
+            return null;
+        }
+        long start = System.nanoTime();
+        TrackingManifest manifest;
+        try (InputStream in = file.getInputStream()) {
+            manifest = TrackingScanner.scan(in);
+        }
+        metrics.record(PipelineMetrics.Stage.TRACKING_SCAN, System.nanoTime() - start);
+        System.out.println("Found " + manifest.getNumbers().size() + " tracking number(s) in " + file.getOriginalFilename());
+        return manifest;
+    }
+
+    /**
+     * The shipment values with the tracking numbers the manifest lists for the invoice's POs,
+     * unless a tracking number was typed in. With {@code allIfUnmatched}, a manifest that names
+     * none of the POs, such as one for this shipment only, gives all of its numbers, as long as
+     * it holds no more than {@code packinglist.tracking.max-unmatched-numbers} of them; with
+     * more it is most likely another shipment's, and the tracking number is left empty.
+     */
+    public ShipmentDetails withManifestTracking(ShipmentDetails details, TrackingManifest manifest,
+                                                SortedInvoices invoiceEntries, boolean allIfUnmatched) {
+        if (manifest == null || !details.getTracking().isEmpty()) {
+            return details;
+        }
+        List<String> poNumbers = new ArrayList<>();
+        for (PoSubtotal subtotal : invoiceEntries.getSummary().getPoSubtotals()) {
+            poNumbers.add(subtotal.getPoNo());
+        }
+        List<String> numbers = manifest.numbersFor(poNumbers);
+        if (numbers.isEmpty() && allIfUnmatched) {
+            List<String> all = manifest.numbersOtherThan(poNumbers);
+            int limit = properties.getTracking().getMaxUnmatchedNumbers();
+            if (all.size() <= limit) {
+                numbers = all;
+            } else {
+                System.out.println("Tracking manifest names none of the invoice's POs and holds " + all.size()
+                        + " numbers, more than the " + limit + " used without a PO; leaving the tracking number empty");
+            }
+        }
+        // Listed the same way as the numbers of a merged packing list
+        return new ShipmentDetails(String.join(" / ", numbers), details.getRmb(), details.getRate(),
+                details.getBoxes(), details.getWeight());
+    }
+
+    /**
+     * Writes the packing list as a PDF with the same pages as the HTML. The stream is not closed.
+     */
+    public void writePackingListPdf(OutputStream out, String date, SortedInvoices invoiceEntries, ShipmentDetails details) throws IOException {
+        long start = System.nanoTime();
+        pdfRenderer.render(out, date, invoiceEntries, details, DEFAULT_ITEMS_PER_PAGE, new PipelineProgress());
+        metrics.record(PipelineMetrics.Stage.PDF, System.nanoTime() - start);
+    }
+
+    /**
+     * Renders pages {@code fromPage} to {@code toPage} (from 1, inclusive) of the HTML packing
+     * list for an invoice. The whole invoice is parsed for its page count, totals and repeated
+     * item numbers, but only the rows up to the end of {@code toPage} are kept, picked with a
+     * bounded heap instead of a full sort, and only the requested pages are rendered. When
+     * that is more rows than {@code packinglist.sort.max-rows-in-memory} the usual external
+     * sort is used and the earlier pages are skipped.
+     */
+    public PackingListPreview previewPackingListHtml(MultipartFile file, String date, ShipmentDetails details,
+                                                     int fromPage, int toPage, int itemsPerPage) throws IOException {
+        long rowsNeeded = (long) toPage * itemsPerPage;
+        int skip = (fromPage - 1) * itemsPerPage;
+        ParseStats stats = new ParseStats();
+        if (rowsNeeded <= properties.getSort().getMaxRowsInMemory()) {
+            LeadingRows leading;
+            try (InvoiceRows rows = invoiceRows(file.getInputStream(), stats)) {
+                leading = invoiceSorter().leading(rows, (int) rowsNeeded);
+            }
+            reportInvalidValues(file.getOriginalFilename(), stats);
+            InvoiceSummary summary = leading.getSummary();
+            return renderPreview(leading.cursor(skip), summary.getRows(), summary.getTotalQty(), date, details,
+                    fromPage, toPage, itemsPerPage);
+        }
+        try (SortedInvoices sorted = readInvoiceCsv(file, stats)) {
+            InvoiceCursor rows = sorted.cursor();
+            // Step over the pages before fromPage; the renderer moves onto the next row itself
+            int skipped = 0;
+            while (skipped < skip && rows.next()) {
+                skipped++;
+            }
+            return renderPreview(rows, sorted.size(), sorted.getTotalQty(), date, details, fromPage, toPage, itemsPerPage);
+        }
+    }
+
+    private PackingListPreview renderPreview(InvoiceCursor rows, int totalRows, int totalQty, String date, ShipmentDetails details,
+                                             int fromPage, int toPage, int itemsPerPage) throws IOException {
+        int totalPages = (int) Math.ceil((double) totalRows / itemsPerPage);
+        int lastPage = Math.min(toPage, totalPages);
+        if (fromPage > lastPage) {
+            return new PackingListPreview(totalPages, fromPage, 0, new byte[0]);
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        htmlRenderer.renderPages(out, date, rows, totalRows, totalQty, details, itemsPerPage, fromPage - 1, lastPage, new PipelineProgress());
+        return new PackingListPreview(totalPages, fromPage, lastPage, out.toByteArray());
+    }
+
+    public File generateMsdosCsv(String date, Iterable<InvoiceEntry> invoiceEntries) throws IOException {
+        File file = File.createTempFile("import_inv-" + date, ".csv");
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(file))) {
+            writeMsdosCsv(writer, invoiceEntries);
+        }
+        return file;
+    }
+
+    /**
+     * Writes the MS-DOS style import CSV to the given writer
+     */
+    public void writeMsdosCsv(Writer writer, Iterable<InvoiceEntry> invoiceEntries) throws IOException {
+        // Write MS-DOS style CSV with headers: PO#, ITEM#, CASE_QTY, FOB
+        writer.write("PO#,ITEM#,CASE_QTY,FOB\r\n"); // MS-DOS line ending
+        InvoiceCursor row = InvoiceCursor.of(invoiceEntries);
+        while (row.next()) {
+            writer.write(String.valueOf(row.poNo()));
+            writer.write(',');
+            writer.write(String.valueOf(row.itemNo()));
+            writer.write(',');
+            writer.write(Integer.toString(row.qty()));
+            writer.write(',');
+            writer.write(NumberParser.formatCents(row.unitValueCents()));
+            writer.write("\r\n"); // MS-DOS line ending
+        }
+    }
+
+    /**
+     * Writes the ZIP with all three generated files directly to the given stream.
+     * Each generator writes straight into its ZIP entry, so nothing is staged on disk.
+     * The stream itself is left open for the caller.
+     */
+    public void writeZip(OutputStream out, String date, SortedInvoices invoiceEntries, String tracking, double weight, int boxes, double rmb, double rate) throws IOException {
+        writeZip(out, date, invoiceEntries, new ShipmentDetails(tracking, rmb, rate, boxes, weight), new PipelineProgress());
+    }
+
+    /**
+     * Same as {@link #writeZip(OutputStream, String, SortedInvoices, String, double, int, double, double)},
+     * reporting the current stage and rendered pages to {@code progress}
+     */
+    public void writeZip(OutputStream out, String date, SortedInvoices invoiceEntries, ShipmentDetails details, PipelineProgress progress) throws IOException {
+        long start = System.nanoTime();
+        if (renderExecutor != null) {
+            writeZipConcurrently(out, date, invoiceEntries, details, progress);
+        } else {
+            writeZipSequentially(out, date, invoiceEntries, details, progress);
+        }
+        metrics.record(PipelineMetrics.Stage.ZIP, System.nanoTime() - start);
+        metrics.pagesRendered(progress.getPagesRendered());
+    }
+
+    private void writeZipSequentially(OutputStream out, String date, SortedInvoices invoiceEntries, ShipmentDetails details, PipelineProgress progress) throws IOException {
+        String tracking = details.getTracking();
+        double weight = details.getWeight();
+        int boxes = details.getBoxes();
+        double rmb = details.getRmb();
+        double rate = details.getRate();
+
+        ZipWriter zip = newZipWriter(out);
+
+        progress.setStage(PipelineProgress.Stage.PACKING_LIST);
+        long start = System.nanoTime();
+        // Closing the writer closes the ZIP entry, not the response
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(zip.newEntry("packing-list-" + date + ".csv"), StandardCharsets.UTF_8))) {
+            writePackingList(writer, date, invoiceEntries, tracking, weight, boxes, rmb, rate);
+        }
+        metrics.record(PipelineMetrics.Stage.PACKING_LIST_CSV, System.nanoTime() - start);
+
+        progress.setStage(PipelineProgress.Stage.HTML);
+        start = System.nanoTime();
+        try (OutputStream entry = zip.newEntry("packing-list-" + date + ".html")) {
+            htmlRenderer.render(entry, date, invoiceEntries, details, DEFAULT_ITEMS_PER_PAGE, progress);
+        }
+        metrics.record(PipelineMetrics.Stage.HTML, System.nanoTime() - start);
+
+        progress.setStage(PipelineProgress.Stage.IMPORT_CSV);
+        start = System.nanoTime();
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(zip.newEntry("import_inv-" + date + ".csv"), StandardCharsets.UTF_8))) {
+            writeMsdosCsv(writer, invoiceEntries);
+        }
+        metrics.record(PipelineMetrics.Stage.IMPORT_CSV, System.nanoTime() - start);
+
+        zip.finish();
+        progress.setStage(PipelineProgress.Stage.DONE);
+    }
+
+    /**
+     * Renders the HTML and the import CSV on the render executor while this thread streams
+     * the packing list CSV into the ZIP, then appends the two spooled files in the usual order.
+     * Each renderer iterates the sorted rows on its own, spilled runs are opened once per pass.
+     */
+    private void writeZipConcurrently(OutputStream out, String date, SortedInvoices invoiceEntries, ShipmentDetails details, PipelineProgress progress) throws IOException {
+        String tracking = details.getTracking();
+        double weight = details.getWeight();
+        int boxes = details.getBoxes();
+        double rmb = details.getRmb();
+        double rate = details.getRate();
+        int spoolThreshold = (int) Math.min(Integer.MAX_VALUE, properties.getOutput().getSpoolThreshold().toBytes());
+
+        try (SpoolBuffer html = new SpoolBuffer(spoolThreshold);
+             SpoolBuffer msdos = new SpoolBuffer(spoolThreshold)) {
+            CompletableFuture<Void> htmlDone = renderAsync(PipelineMetrics.Stage.HTML, () ->
+                    htmlRenderer.render(html, date, invoiceEntries, details, DEFAULT_ITEMS_PER_PAGE, progress));
+            CompletableFuture<Void> msdosDone = renderAsync(PipelineMetrics.Stage.IMPORT_CSV, () -> {
+                Writer writer = new BufferedWriter(new OutputStreamWriter(msdos, StandardCharsets.UTF_8));
+                writeMsdosCsv(writer, invoiceEntries);
+                writer.flush();
+            });
+
+            try {
+                ZipWriter zip = newZipWriter(out);
+
+                progress.setStage(PipelineProgress.Stage.PACKING_LIST);
+                long start = System.nanoTime();
+                // Closing the writer closes the ZIP entry, not the response
+                try (Writer writer = new BufferedWriter(new OutputStreamWriter(zip.newEntry("packing-list-" + date + ".csv"), StandardCharsets.UTF_8))) {
+                    writePackingList(writer, date, invoiceEntries, tracking, weight, boxes, rmb, rate);
+                }
+                metrics.record(PipelineMetrics.Stage.PACKING_LIST_CSV, System.nanoTime() - start);
+
+                progress.setStage(PipelineProgress.Stage.HTML);
+                await(htmlDone);
+                try (OutputStream entry = zip.newEntry("packing-list-" + date + ".html")) {
+                    html.copyTo(entry);
+                }
+
+                progress.setStage(PipelineProgress.Stage.IMPORT_CSV);
+                await(msdosDone);
+                try (OutputStream entry = zip.newEntry("import_inv-" + date + ".csv")) {
+                    msdos.copyTo(entry);
+                }
+
+                zip.finish();
+                progress.setStage(PipelineProgress.Stage.DONE);
+            } finally {
+                // The spools are deleted on the way out, so the renderers must be finished with them
+                htmlDone.exceptionally(e -> null).join();
+                msdosDone.exceptionally(e -> null).join();
+            }
+        }
+    }
+
+    private interface Renderer {
+        void render() throws IOException;
+    }
+
+    private CompletableFuture<Void> renderAsync(PipelineMetrics.Stage stage, Renderer renderer) {
+        return CompletableFuture.runAsync(() -> {
+            try {
+                long start = System.nanoTime();
+                renderer.render();
+                metrics.record(stage, System.nanoTime() - start);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, renderExecutor);
+    }
+
+    private static void await(CompletableFuture<Void> rendering) throws IOException {
+        try {
+            rendering.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) cause).getCause();
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException("Rendering failed", cause);
+        }
+    }
+
+    /**
+     * Renders and compresses the three files once without the shipment details, so that a change
+     * to them only renders and compresses the headers again. The rows are not needed afterwards.
+     */
+    public RenderedInvoice renderWithoutDetails(String date, SortedInvoices invoiceEntries) throws IOException {
+        return renderWithoutDetails(date, invoiceEntries, Long.MAX_VALUE);
+    }
+
+    /**
+     * As {@link #renderWithoutDetails(String, SortedInvoices)}, but gives up and returns null as
+     * soon as the files rendered so far are more than maxBytes, the least the result would hold,
+     * so an invoice too large to keep never ends up in memory whole.
+     */
+    public RenderedInvoice renderWithoutDetails(String date, SortedInvoices invoiceEntries, long maxBytes) throws IOException {
+        RenderBudget budget = new RenderBudget(maxBytes);
+        try {
+            ByteArrayOutputStream packingListBody = budget.newBuffer();
+            Writer writer = new BufferedWriter(new OutputStreamWriter(packingListBody, StandardCharsets.UTF_8));
+            writePackingListBody(writer, date, invoiceEntries);
+            writer.flush();
+
+            List<byte[]> pieces = htmlRenderer.renderWithoutHeader(date, invoiceEntries, DEFAULT_ITEMS_PER_PAGE, budget.newBuffer());
+
+            ByteArrayOutputStream importCsv = budget.newBuffer();
+            writer = new BufferedWriter(new OutputStreamWriter(importCsv, StandardCharsets.UTF_8));
+            writeMsdosCsv(writer, invoiceEntries);
+            writer.flush();
+
+            List<DeflatedSegment> htmlPieces = new ArrayList<>(pieces.size());
+            for (byte[] piece : pieces) {
+                htmlPieces.add(DeflatedSegment.of(piece));
+            }
+            return new RenderedInvoice(date, invoiceEntries.size(), DeflatedSegment.of(packingListBody.toByteArray()),
+                    htmlPieces, DeflatedSegment.of(importCsv.toByteArray()));
+        } catch (RenderBudget.Exceeded e) {
+            return null;
+        }
+    }
+
+    /**
+     * Counts the bytes written to all of its buffers, failing the write that takes them past the
+     * budget. Every byte rendered is kept, plain as well as compressed, so the count is never
+     * more than the rendered invoice will hold.
+     */
+    private static final class RenderBudget {
+        private final long maxBytes;
+        private long written;
+
+        RenderBudget(long maxBytes) {
+            this.maxBytes = maxBytes;
+        }
+
+        ByteArrayOutputStream newBuffer() {
+            return new ByteArrayOutputStream() {
+                @Override
+                public void write(int b) {
+                    count(1);
+                    super.write(b);
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) {
+                    count(len);
+                    super.write(b, off, len);
+                }
+            };
+        }
+
+        private void count(int bytes) {
+            written += bytes;
+            if (written > maxBytes) {
+                throw new Exceeded();
+            }
+        }
+
+        /**
+         * Unchecked, as ByteArrayOutputStream writes are; caught where the rendering started
+         */
+        static final class Exceeded extends RuntimeException {
+            Exceeded() {
+                super("Rendered invoice is over the budget", null, false, false);
+            }
+        }
+    }
+
+    /**
+     * Writes the same files as {@link #writeZip(OutputStream, String, SortedInvoices, ShipmentDetails, PipelineProgress)}
+     * from an invoice rendered earlier. Only the headers are rendered and compressed, the rest of
+     * each ZIP entry is copied as it is. The stream is left open.
+     */
+    public void writeZip(OutputStream out, RenderedInvoice rendered, ShipmentDetails details) throws IOException {
+        String date = rendered.getDate();
+        StringWriter header = new StringWriter();
+        writePackingListHeader(header, date, details.getTracking(), details.getWeight(), details.getBoxes(), details.getRmb(), details.getRate());
+
+        ZipWriter zip = new ZipWriter(out);
+        zip.putEntry("packing-list-" + date + ".csv", List.of(
+                DeflatedSegment.of(header.toString().getBytes(StandardCharsets.UTF_8)), rendered.getPackingListBody()));
+        zip.putEntry("packing-list-" + date + ".html", htmlSegments(rendered, details));
+        zip.putEntry("import_inv-" + date + ".csv", List.of(rendered.getImportCsv()));
+        zip.finish();
+    }
+
+    /**
+     * Writes the HTML packing list of an invoice rendered earlier, with the header of the given details
+     */
+    public void writePackingListHtml(OutputStream out, RenderedInvoice rendered, ShipmentDetails details) throws IOException {
+        byte[] headerBody = PackingListHtmlRenderer.headerBody(details);
+        List<DeflatedSegment> pieces = rendered.getHtmlPieces();
+        out.write(pieces.get(0).getData());
+        for (int i = 1; i < pieces.size(); i++) {
+            out.write(headerBody);
+            out.write(pieces.get(i).getData());
+        }
+    }
+
+    private static List<DeflatedSegment> htmlSegments(RenderedInvoice rendered, ShipmentDetails details) {
+        DeflatedSegment headerBody = DeflatedSegment.of(PackingListHtmlRenderer.headerBody(details));
+        List<DeflatedSegment> pieces = rendered.getHtmlPieces();
+        List<DeflatedSegment> segments = new ArrayList<>(pieces.size() * 2);
+        segments.add(pieces.get(0));
+        for (int i = 1; i < pieces.size(); i++) {
+            segments.add(headerBody);
+            segments.add(pieces.get(i));
+        }
+        return segments;
+    }
+
+    public File createZipFile(String date, File packingList, File msdosCsv, File packingListHtml) throws IOException {
+        File zipFile = File.createTempFile("packing-files-" + date, ".zip");
+        
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(zipFile))) {
+            ZipWriter zip = newZipWriter(out);
+            // Add packing list CSV to zip
+            addFileToZip(zip, packingList, "packing-list-" + date + ".csv");
+            
+            // Add packing list HTML to zip (with bold borders)
+            addFileToZip(zip, packingListHtml, "packing-list-" + date + ".html");
+            
+            // Add MS-DOS CSV to zip
+            addFileToZip(zip, msdosCsv, "import_inv-" + date + ".csv");
+            zip.finish();
+        }
+        
+        return zipFile;
+    }
+
+    private void addFileToZip(ZipWriter zip, File file, String entryName) throws IOException {
+        try (OutputStream entry = zip.newEntry(entryName)) {
+            Files.copy(file.toPath(), entry);
+        }
+    }
+
+    public File generateCsv(String date, List<PackingEntry> entries, String tracking, double weight, int boxes, double rmb, double rate) throws IOException {
+        String arrival = "XR" + date;
+        String po = "W" + date;
+        double upsFreight = rmb / rate;
+
+        File file = File.createTempFile("packing-list-" + date, ".csv");
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(file))) {
+            writer.write("ARRIVAL#: " + arrival + "\n");
+            writer.write("AMNT:\n");
+            writer.write("DATE:\n");
+            writer.write(String.format("UPS FREIGHT: %.0f RMB / %.2f RATE = $%.2f\n", rmb, rate, upsFreight));
+            writer.write(String.format("GROSS WEIGHT: %.1f KG, %d BOXES\n", weight, boxes));
+            if (tracking != null && !tracking.isEmpty()) {
+                writer.write("UPS TRACKING#: " + tracking + "\n\n");
+            } else {
+                writer.write("UPS TRACKING#: \n\n");
+            }
+
+            writer.write("P.O#: " + po + "\n");
+            writer.write("PO/NO.,ITEM NO,QTY,NOTES\n");
+            for (PackingEntry entry : entries) {
+                writer.write(
+                        entry.getPo() + "," +
+                                entry.getItemNo() + "," +
+                                entry.getQty() + "," +
+                                entry.getNotes() + "\n"
+                );
+
+            }
+        }
+        return file;
+    }
+
+    /**
+     * Parses a quantity cell, counting it in the file's stats if it is not a number.
+     *
+     * @return The parsed quantity, or 0 if parsing fails
+     */
+    private int parseQuantity(String qtyString, long line, ParseStats stats) {
+        int qty = NumberParser.parseQuantity(qtyString);
+        if (qty == NumberParser.INVALID_QUANTITY) {
+            stats.invalidQuantity(line, qtyString);
+            return 0;
+        }
+        return qty;
+    }
+
+    /**
+     * Parses a unit value cell to cents, counting it in the file's stats if it is not an amount.
+     *
+     * @return The parsed unit value in cents, or 0 if parsing fails
+     */
+    private long parseUnitValue(String unitValueString, long line, ParseStats stats) {
+        long cents = NumberParser.parseCents(unitValueString);
+        if (cents == NumberParser.INVALID_CENTS) {
+            stats.invalidUnitValue(line, unitValueString);
+            return 0;
+        }
+        return cents;
+    }
+
+    /**
+     * Reports the invalid values of one file in a single log line
+     */
+    private void reportInvalidValues(String fileName, ParseStats stats) {
+        if (stats.hasInvalidValues()) {
+            System.err.println("Warning: " + stats.summary(fileName));
+        }
+    }
+}
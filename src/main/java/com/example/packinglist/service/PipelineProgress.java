@@ -0,0 +1,45 @@
+package com.example.packinglist.service;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Live progress of one pipeline run, written by the worker and read by status requests
+ */
+public class PipelineProgress {
+
+    public enum Stage {
+        PARSING,
+        PACKING_LIST,
+        HTML,
+        IMPORT_CSV,
+        DONE
+    }
+
+    private volatile Stage stage = Stage.PARSING;
+    private volatile int totalPages;
+    private final AtomicInteger pagesRendered = new AtomicInteger();
+
+    public Stage getStage() {
+        return stage;
+    }
+
+    public void setStage(Stage stage) {
+        this.stage = stage;
+    }
+
+    public int getTotalPages() {
+        return totalPages;
+    }
+
+    public void setTotalPages(int totalPages) {
+        this.totalPages = totalPages;
+    }
+
+    public int getPagesRendered() {
+        return pagesRendered.get();
+    }
+
+    public void pageRendered() {
+        pagesRendered.incrementAndGet();
+    }
+}
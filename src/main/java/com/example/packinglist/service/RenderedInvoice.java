@@ -0,0 +1,31 @@
+package com.example.packinglist.service;
+
+import com.example.packinglist.zip.DeflatedSegment;
+import lombok.Value;
+
+import java.util.List;
+
+/**
+ * The three generated files of one invoice without the shipment details, which only appear in
+ * the headers. Everything else is kept compressed as well, ready to go into the ZIP.
+ * See {@link PackingListService#renderWithoutDetails}.
+ */
+@Value
+public class RenderedInvoice {
+    String date;
+    int rows;
+    DeflatedSegment packingListBody;   // Packing list CSV from the P.O# line on
+    List<DeflatedSegment> htmlPieces;  // HTML packing list split where each page's header body goes
+    DeflatedSegment importCsv;         // Has no header, kept whole
+
+    /**
+     * Bytes held, roughly what the invoice costs in memory
+     */
+    public long getSize() {
+        long size = packingListBody.getSize() + importCsv.getSize();
+        for (DeflatedSegment piece : htmlPieces) {
+            size += piece.getSize();
+        }
+        return size;
+    }
+}
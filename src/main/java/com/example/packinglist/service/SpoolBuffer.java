@@ -0,0 +1,88 @@
+package com.example.packinglist.service;
+
+import java.io.*;
+import java.nio.file.Files;
+
+/**
+ * Holds one rendered file until it can be copied into the ZIP. Stays in memory up to
+ * the threshold, then moves what it has to a temp file and keeps writing there.
+ */
+class SpoolBuffer extends OutputStream {
+
+    private final int threshold;
+    private ByteArrayOutputStream memory = new ByteArrayOutputStream(8 * 1024);
+    private File file;
+    private OutputStream out;
+
+    SpoolBuffer(int threshold) {
+        this.threshold = threshold;
+        this.out = memory;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        spillIfNeeded(1);
+        out.write(b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        spillIfNeeded(len);
+        out.write(b, off, len);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    private void spillIfNeeded(int len) throws IOException {
+        if (memory == null || memory.size() + len <= threshold) {
+            return;
+        }
+        file = File.createTempFile("packing-spool-", ".tmp");
+        out = new BufferedOutputStream(new FileOutputStream(file), 64 * 1024);
+        memory.writeTo(out);
+        memory = null;
+    }
+
+    /**
+     * Copies everything written so far to {@code target}
+     */
+    void copyTo(OutputStream target) throws IOException {
+        if (memory != null) {
+            memory.writeTo(target);
+            return;
+        }
+        out.flush();
+        Files.copy(file.toPath(), target);
+    }
+
+    /**
+     * Reads back everything written so far
+     */
+    InputStream openInputStream() throws IOException {
+        if (memory != null) {
+            return new ByteArrayInputStream(memory.toByteArray());
+        }
+        out.flush();
+        return new BufferedInputStream(new FileInputStream(file), 64 * 1024);
+    }
+
+    /**
+     * Releases the buffer and deletes the temp file, if any
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            if (file != null) {
+                out.close();
+            }
+        } finally {
+            memory = null;
+            if (file != null) {
+                file.delete();
+            }
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.packinglist.session;
+
+import com.example.packinglist.service.RenderedInvoice;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+/**
+ * One invoice kept open for editing: read, sorted and rendered once when it was uploaded,
+ * so that changing the header values costs only the header
+ */
+public final class InvoiceSession {
+
+    private final String id;
+    private final String fileName;
+    private final RenderedInvoice rendered;
+    // System.nanoTime() of the last use, for the idle timeout
+    volatile long lastUsed;
+
+    InvoiceSession(String id, String fileName, RenderedInvoice rendered) {
+        this.id = id;
+        this.fileName = fileName;
+        this.rendered = rendered;
+        this.lastUsed = System.nanoTime();
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    /** Date the session was opened, which all its files are dated */
+    public String getDate() {
+        return rendered.getDate();
+    }
+
+    public int getRows() {
+        return rendered.getRows();
+    }
+
+    /** Bytes held for the session */
+    public long getSize() {
+        return rendered.getSize();
+    }
+
+    @JsonIgnore
+    public RenderedInvoice getRendered() {
+        return rendered;
+    }
+}
@@ -0,0 +1,165 @@
+package com.example.packinglist.session;
+
+import com.example.packinglist.config.PackingListProperties;
+import com.example.packinglist.service.PackingListService;
+import com.example.packinglist.service.RenderedInvoice;
+import com.example.packinglist.sort.SortedInvoices;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Invoices open for editing. Staff often notice a wrong box count or exchange rate right after
+ * downloading; with a session the corrected files are spliced together from the rendered rows
+ * instead of parsing, sorting and rendering the whole invoice again.
+ * <p>
+ * Sessions are closed once they have not been used for the idle timeout, and least-recently-used
+ * first once their total size exceeds the budget. Idle sessions are swept on a schedule from the
+ * first session on, so their memory is released even when no one opens or looks up another,
+ * and whenever sessions are opened or looked up, so an expired session is never handed out.
+ */
+@Service
+public class SessionService {
+
+    private final PackingListService packingListService;
+    private final long maxBytes;
+    private final long idleNanos;
+
+    // Access-ordered, so iteration starts at the least recently used session
+    private final LinkedHashMap<String, InvoiceSession> sessions = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes;
+
+    private final ScheduledThreadPoolExecutor sweeper = new ScheduledThreadPoolExecutor(1, sweeperThread());
+    private final AtomicBoolean sweeping = new AtomicBoolean();
+
+    @Autowired
+    public SessionService(PackingListProperties properties, PackingListService packingListService) {
+        this(packingListService, properties.getSessions().getMaxSize().toBytes(), properties.getSessions().getIdleTimeout());
+    }
+
+    public SessionService(PackingListService packingListService, long maxBytes, Duration idleTimeout) {
+        this.packingListService = packingListService;
+        this.maxBytes = maxBytes;
+        this.idleNanos = idleTimeout.toNanos();
+    }
+
+    /**
+     * Renders the sorted rows and keeps them as a new session. The rows are not needed
+     * afterwards and stay the caller's to close.
+     *
+     * @return the session, or null if the invoice is larger than all sessions together may be;
+     *         rendering stops as soon as that is certain
+     */
+    public InvoiceSession open(String fileName, String date, SortedInvoices entries) throws IOException {
+        RenderedInvoice rendered = packingListService.renderWithoutDetails(date, entries, maxBytes);
+        if (rendered == null || rendered.getSize() > maxBytes) {
+            return null;
+        }
+        InvoiceSession session = new InvoiceSession(UUID.randomUUID().toString(), fileName, rendered);
+        startSweeping();
+        synchronized (this) {
+            closeIdleSessions();
+            sessions.put(session.getId(), session);
+            totalBytes += session.getSize();
+
+            Iterator<Map.Entry<String, InvoiceSession>> eldest = sessions.entrySet().iterator();
+            while (totalBytes > maxBytes && eldest.hasNext()) {
+                InvoiceSession evicted = eldest.next().getValue();
+                totalBytes -= evicted.getSize();
+                eldest.remove();
+                System.out.println("Closed editing session " + evicted.getId() + " to make room");
+            }
+        }
+        System.out.println("Opened editing session " + session.getId() + " for " + fileName + " ("
+                + rendered.getRows() + " rows, " + rendered.getSize() / 1024 + " KB)");
+        return session;
+    }
+
+    /**
+     * Looks up an open session and counts this as a use of it
+     */
+    public synchronized Optional<InvoiceSession> get(String id) {
+        closeIdleSessions();
+        InvoiceSession session = sessions.get(id);
+        if (session != null) {
+            session.lastUsed = System.nanoTime();
+        }
+        return Optional.ofNullable(session);
+    }
+
+    public synchronized boolean close(String id) {
+        InvoiceSession closed = sessions.remove(id);
+        if (closed == null) {
+            return false;
+        }
+        totalBytes -= closed.getSize();
+        return true;
+    }
+
+    private void closeIdleSessions() {
+        long now = System.nanoTime();
+        Iterator<InvoiceSession> it = sessions.values().iterator();
+        while (it.hasNext()) {
+            InvoiceSession session = it.next();
+            // Sessions are in the order of their last use, the first one still in use ends the sweep
+            if (now - session.lastUsed <= idleNanos) {
+                break;
+            }
+            totalBytes -= session.getSize();
+            it.remove();
+        }
+    }
+
+    /**
+     * Sweeps idle sessions at the idle timeout, at most a minute apart, until shutdown
+     */
+    private void startSweeping() {
+        if (!sweeping.compareAndSet(false, true)) {
+            return;
+        }
+        long interval = Math.max(10, Math.min(TimeUnit.NANOSECONDS.toMillis(idleNanos), Duration.ofMinutes(1).toMillis()));
+        sweeper.scheduleWithFixedDelay(() -> {
+            try {
+                synchronized (this) {
+                    closeIdleSessions();
+                }
+            } catch (RuntimeException e) {
+                // An exception would cancel the schedule
+                System.err.println("Could not close idle editing sessions: " + e.getMessage());
+            }
+        }, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sweeper.shutdownNow();
+    }
+
+    private static ThreadFactory sweeperThread() {
+        return runnable -> {
+            Thread thread = new Thread(runnable, "editing-session-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    public synchronized int size() {
+        return sessions.size();
+    }
+
+    public synchronized long getTotalBytes() {
+        return totalBytes;
+    }
+}
@@ -0,0 +1,197 @@
+package com.example.packinglist.sort;
+
+import com.example.packinglist.model.InvoiceBatch;
+import com.example.packinglist.model.InvoiceEntry;
+import com.example.packinglist.model.InvoiceSummary;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Sorts invoice rows by item number (or another {@link ItemOrdering}) with bounded memory.
+ * Rows are buffered up to {@code maxRowsInMemory}; past that each buffer is sorted
+ * and spilled to a run file on disk, and the runs are merged lazily on iteration.
+ */
+public class ExternalInvoiceSorter {
+
+    /** Pure lexical comparison of item numbers - treats everything as strings */
+    public static final Comparator<InvoiceEntry> ITEM_NUMBER_ORDER = Comparator.comparing(InvoiceEntry::getItemNo);
+
+    private final int maxRowsInMemory;
+    private final File spillDirectory;
+    private final ItemOrdering ordering;
+    private final int parallelThreshold;
+    private long sortNanos;
+
+    public ExternalInvoiceSorter(int maxRowsInMemory, File spillDirectory) {
+        this(maxRowsInMemory, spillDirectory, ItemOrdering.LEXICAL, KeySorter.DEFAULT_PARALLEL_THRESHOLD);
+    }
+
+    public ExternalInvoiceSorter(int maxRowsInMemory, File spillDirectory, ItemOrdering ordering, int parallelThreshold) {
+        if (maxRowsInMemory < 1) {
+            throw new IllegalArgumentException("maxRowsInMemory must be at least 1");
+        }
+        this.maxRowsInMemory = maxRowsInMemory;
+        this.spillDirectory = spillDirectory;
+        this.ordering = ordering;
+        this.parallelThreshold = parallelThreshold;
+    }
+
+    /**
+     * Consumes all rows and returns them in sorted order. The caller must close the
+     * result to delete any spilled run files.
+     */
+    public SortedInvoices sort(Iterator<InvoiceEntry> rows) throws IOException {
+        // Buffered by column, so a full buffer takes a fraction of the heap of as many InvoiceEntry objects
+        InvoiceBatch.Builder buffer = InvoiceBatch.builder();
+        List<File> runs = new ArrayList<>();
+        // Every renderer reads its totals and duplicates from here instead of walking the rows again
+        InvoiceSummary.Builder summary = InvoiceSummary.builder();
+        sortNanos = 0;
+
+        try {
+            while (rows.hasNext()) {
+                InvoiceEntry entry = rows.next();
+                buffer.add(entry);
+                summary.add(entry);
+
+                if (buffer.size() >= maxRowsInMemory) {
+                    long start = System.nanoTime();
+                    runs.add(spill(buffer.build()));
+                    sortNanos += System.nanoTime() - start;
+                    buffer = InvoiceBatch.builder();
+                }
+            }
+
+            long start = System.nanoTime();
+            if (runs.isEmpty()) {
+                // Everything fit in memory, no need to touch the disk
+                InvoiceBatch sorted = KeySorter.sort(buffer.build(), ordering, parallelThreshold);
+                sortNanos += System.nanoTime() - start;
+                return new SortedInvoices(sorted, ordering, summary.build());
+            }
+            if (buffer.size() > 0) {
+                runs.add(spill(buffer.build()));
+            }
+            sortNanos += System.nanoTime() - start;
+            return new SortedInvoices(runs, ordering, summary.build());
+        } catch (IOException | RuntimeException e) {
+            for (File run : runs) {
+                run.delete();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Time the last {@link #sort} spent sorting and writing runs, as opposed to
+     * waiting for the rows it consumed
+     */
+    public long getSortNanos() {
+        return sortNanos;
+    }
+
+    /**
+     * Consumes all rows but keeps only the first {@code limit} of them in sort order, picked
+     * with a bounded heap, so memory and sort work depend on the limit rather than the invoice.
+     * Rows that tie keep their input order, as in {@link #sort}.
+     */
+    public LeadingRows leading(Iterator<InvoiceEntry> rows, int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("limit must be at least 1");
+        }
+        // Largest kept row on top, so each new row is compared against the one it would replace
+        Comparator<Candidate> order = Comparator.<Candidate, String>comparing(candidate -> candidate.key)
+                .thenComparingLong(candidate -> candidate.sequence);
+        PriorityQueue<Candidate> kept = new PriorityQueue<>(Math.min(limit, 1024), order.reversed());
+        InvoiceSummary.Builder summary = InvoiceSummary.builder();
+        long sequence = 0;
+        while (rows.hasNext()) {
+            InvoiceEntry entry = rows.next();
+            summary.add(entry);
+            Candidate candidate = new Candidate(ordering.sortKey(entry.getPoNo(), entry.getItemNo()), sequence++, entry);
+            if (kept.size() < limit) {
+                kept.add(candidate);
+            } else if (order.compare(candidate, kept.peek()) < 0) {
+                kept.poll();
+                kept.add(candidate);
+            }
+        }
+        List<Candidate> sorted = new ArrayList<>(kept);
+        sorted.sort(order);
+        List<InvoiceEntry> leading = new ArrayList<>(sorted.size());
+        for (Candidate candidate : sorted) {
+            leading.add(candidate.entry);
+        }
+        return new LeadingRows(leading, summary.build());
+    }
+
+    private static final class Candidate {
+        final String key;
+        final long sequence;
+        final InvoiceEntry entry;
+
+        Candidate(String key, long sequence, InvoiceEntry entry) {
+            this.key = key;
+            this.sequence = sequence;
+            this.entry = entry;
+        }
+    }
+
+    private File spill(InvoiceBatch buffer) throws IOException {
+        InvoiceBatch sorted = KeySorter.sort(buffer, ordering, parallelThreshold);
+        File run = File.createTempFile("invoice-run-", ".bin", spillDirectory);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(run), 64 * 1024))) {
+            out.writeInt(sorted.size());
+            for (int row = 0; row < sorted.size(); row++) {
+                writeEntry(out, sorted.poNo(row), sorted.itemNo(row), sorted.description(row), sorted.qty(row), sorted.unitValueCents(row));
+            }
+        } catch (IOException e) {
+            run.delete();
+            throw e;
+        }
+        return run;
+    }
+
+    /**
+     * One row of a run file. Text fields are written as their UTF-8 length and bytes rather than
+     * with writeUTF, which is limited to 65,535 bytes and cannot tell null from empty.
+     */
+    static void writeEntry(DataOutputStream out, String poNo, String itemNo, String description, int qty, long unitValueCents) throws IOException {
+        writeString(out, poNo);
+        writeString(out, itemNo);
+        writeString(out, description);
+        out.writeInt(qty);
+        out.writeLong(unitValueCents);
+    }
+
+    static InvoiceEntry readEntry(DataInputStream in) throws IOException {
+        return new InvoiceEntry(readString(in), readString(in), readString(in), in.readInt(), in.readLong());
+    }
+
+    // Length -1 stands for null
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
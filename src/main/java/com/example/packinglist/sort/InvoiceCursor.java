@@ -0,0 +1,143 @@
+package com.example.packinglist.sort;
+
+import com.example.packinglist.model.InvoiceBatch;
+import com.example.packinglist.model.InvoiceEntry;
+
+import java.util.Iterator;
+import java.util.Set;
+
+/**
+ * Forward-only walk over invoice rows that reads the current row's fields in place.
+ * Over an {@link InvoiceBatch} nothing is allocated per row, which is how the generators
+ * read rows held in memory; other sources are read through their iterator.
+ */
+public interface InvoiceCursor {
+
+    /**
+     * Moves to the next row
+     *
+     * @return false once there are no more rows
+     */
+    boolean next();
+
+    String poNo();
+
+    String itemNo();
+
+    String description();
+
+    int qty();
+
+    long unitValueCents();
+
+    /**
+     * Whether the current row's item number appears on more than one row of the invoice
+     *
+     * @throws IllegalStateException for plain rows, where that was never worked out
+     */
+    boolean repeatedItem();
+
+    /**
+     * Cursor over any rows: sorted invoices give their own cursor, anything else is iterated
+     */
+    static InvoiceCursor of(Iterable<InvoiceEntry> rows) {
+        if (rows instanceof SortedInvoices) {
+            return ((SortedInvoices) rows).cursor();
+        }
+        return of(rows.iterator(), null);
+    }
+
+    /**
+     * Cursor over a batch, answering {@link #repeatedItem()} from the given set, as
+     * {@link #of(Iterator, Set)} does, so rows in memory and spilled rows agree
+     */
+    static InvoiceCursor of(InvoiceBatch batch, Set<String> repeatedItemNumbers) {
+        return new InvoiceCursor() {
+            private int row = -1;
+
+            @Override
+            public boolean next() {
+                return ++row < batch.size();
+            }
+
+            @Override
+            public String poNo() {
+                return batch.poNo(row);
+            }
+
+            @Override
+            public String itemNo() {
+                return batch.itemNo(row);
+            }
+
+            @Override
+            public String description() {
+                return batch.description(row);
+            }
+
+            @Override
+            public int qty() {
+                return batch.qty(row);
+            }
+
+            @Override
+            public long unitValueCents() {
+                return batch.unitValueCents(row);
+            }
+
+            @Override
+            public boolean repeatedItem() {
+                return !repeatedItemNumbers.isEmpty() && repeatedItemNumbers.contains(batch.itemNo(row));
+            }
+        };
+    }
+
+    /**
+     * Cursor over iterated rows, answering {@link #repeatedItem()} from the given set, or
+     * not at all when it is null
+     */
+    static InvoiceCursor of(Iterator<InvoiceEntry> rows, Set<String> repeatedItemNumbers) {
+        return new InvoiceCursor() {
+            private InvoiceEntry current;
+
+            @Override
+            public boolean next() {
+                current = rows.hasNext() ? rows.next() : null;
+                return current != null;
+            }
+
+            @Override
+            public String poNo() {
+                return current.getPoNo();
+            }
+
+            @Override
+            public String itemNo() {
+                return current.getItemNo();
+            }
+
+            @Override
+            public String description() {
+                return current.getDescription();
+            }
+
+            @Override
+            public int qty() {
+                return current.getQty();
+            }
+
+            @Override
+            public long unitValueCents() {
+                return current.getUnitValueCents();
+            }
+
+            @Override
+            public boolean repeatedItem() {
+                if (repeatedItemNumbers == null) {
+                    throw new IllegalStateException("Repeated item numbers are only known for sorted invoices");
+                }
+                return repeatedItemNumbers.contains(current.getItemNo());
+            }
+        };
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.packinglist.sort;
+
+import com.example.packinglist.model.InvoiceEntry;
+
+import java.util.Comparator;
+
+/**
+ * Orders invoice and packing rows. Each ordering turns a row into a sort key string once,
+ * so sorting compares plain strings instead of re-deriving the order on every comparison.
+ */
+public enum ItemOrdering {
+
+    /** Pure lexical comparison of item numbers - treats everything as strings: 100 < 1015 < 2 */
+    LEXICAL {
+        @Override
+        public String sortKey(String poNo, String itemNo) {
+            return itemNo;
+        }
+    },
+
+    /** Digit runs compare by value: 2 < 100 < 1015 < 1016B < 23463 */
+    NATURAL {
+        @Override
+        public String sortKey(String poNo, String itemNo) {
+            return naturalKey(itemNo);
+        }
+    },
+
+    /** PO number first, then lexical item number within each PO */
+    PO_THEN_ITEM {
+        @Override
+        public String sortKey(String poNo, String itemNo) {
+            // NUL sorts below every other character, so a shorter PO number comes first
+            return (poNo == null ? "" : poNo) + '\u0000' + itemNo;
+        }
+
+        @Override
+        public boolean groupsItemNumbers() {
+            return false;
+        }
+    };
+
+    // Stands in for a digit run in a natural key; digits themselves never appear in one
+    private static final char NUMBER = '0';
+
+    /**
+     * Key whose plain String order is this ordering
+     */
+    public abstract String sortKey(String poNo, String itemNo);
+
+    /**
+     * Whether rows with the same item number always end up next to each other
+     */
+    public boolean groupsItemNumbers() {
+        return true;
+    }
+
+    public Comparator<InvoiceEntry> comparator() {
+        return Comparator.comparing(entry -> sortKey(entry.getPoNo(), entry.getItemNo()));
+    }
+
+    /**
+     * Each digit run becomes a marker, its length without leading zeros and the digits,
+     * so longer numbers sort after shorter ones and equal lengths compare digit by digit.
+     * Numbers keep the place digits have among other characters in lexical order. The
+     * original item number is appended so "01" and "1" stay apart and in a fixed order.
+     */
+    static String naturalKey(String itemNo) {
+        StringBuilder key = new StringBuilder(itemNo.length() + 8);
+        int i = 0;
+        int length = itemNo.length();
+        while (i < length) {
+            char c = itemNo.charAt(i);
+            if (c < '0' || c > '9') {
+                key.append(c);
+                i++;
+                continue;
+            }
+            int start = i;
+            while (i < length && itemNo.charAt(i) == '0') {
+                i++;
+            }
+            int significant = i;
+            while (i < length && itemNo.charAt(i) >= '0' && itemNo.charAt(i) <= '9') {
+                i++;
+            }
+            if (significant == i && i > start) {
+                significant = i - 1;    // All zeros: keep one so the value is 0
+            }
+            key.append(NUMBER).append((char) (i - significant)).append(itemNo, significant, i);
+        }
+        return key.append('\u0000').append(itemNo).toString();
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.packinglist.sort;
+
+import com.example.packinglist.model.InvoiceBatch;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+
+/**
+ * Sorts rows by a precomputed {@link ItemOrdering} key: every key is built once up front,
+ * then rows are compared on the key's first four characters packed into a long and only
+ * fall back to the full string when those are equal. Large inputs are sorted with
+ * {@link Arrays#parallelSort}; both sorts are stable.
+ */
+public final class KeySorter {
+
+    /** Rows at which the fork/join parallel sort starts to pay off */
+    public static final int DEFAULT_PARALLEL_THRESHOLD = 20_000;
+
+    private KeySorter() {
+    }
+
+    /**
+     * Sorts {@code rows} in place
+     */
+    public static <T> void sort(List<T> rows, ItemOrdering ordering, Function<T, String> poNo, Function<T, String> itemNo,
+                                int parallelThreshold) {
+        if (rows.size() < 2) {
+            return;
+        }
+        int[] order = order(rows.size(), row -> poNo.apply(rows.get(row)), row -> itemNo.apply(rows.get(row)),
+                ordering, parallelThreshold);
+        List<T> sorted = new ArrayList<>(rows.size());
+        for (int row : order) {
+            sorted.add(rows.get(row));
+        }
+        for (int i = 0; i < order.length; i++) {
+            rows.set(i, sorted.get(i));
+        }
+    }
+
+    /**
+     * The batch's rows in sorted order
+     */
+    public static InvoiceBatch sort(InvoiceBatch batch, ItemOrdering ordering, int parallelThreshold) {
+        if (batch.size() < 2) {
+            return batch;
+        }
+        return batch.reorder(order(batch.size(), batch::poNo, batch::itemNo, ordering, parallelThreshold));
+    }
+
+    /**
+     * Row numbers {@code 0..size-1} in sorted order
+     */
+    static int[] order(int size, IntFunction<String> poNo, IntFunction<String> itemNo, ItemOrdering ordering,
+                       int parallelThreshold) {
+        Keyed[] keyed = new Keyed[size];
+        for (int i = 0; i < size; i++) {
+            keyed[i] = new Keyed(ordering.sortKey(poNo.apply(i), itemNo.apply(i)), i);
+        }
+        if (size >= parallelThreshold) {
+            Arrays.parallelSort(keyed);
+        } else {
+            Arrays.sort(keyed);
+        }
+        int[] order = new int[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = keyed[i].row;
+        }
+        return order;
+    }
+
+    /**
+     * First four characters of a key as an unsigned long that orders like the string;
+     * shorter keys are padded with zeros
+     */
+    static long prefix(String key) {
+        long prefix = 0;
+        for (int i = 0; i < 4; i++) {
+            prefix = (prefix << 16) | (i < key.length() ? key.charAt(i) : 0);
+        }
+        return prefix;
+    }
+
+    private static final class Keyed implements Comparable<Keyed> {
+        final long prefix;
+        final String key;
+        final int row;
+
+        Keyed(String key, int row) {
+            this.prefix = prefix(key);
+            this.key = key;
+            this.row = row;
+        }
+
+        @Override
+        public int compareTo(Keyed other) {
+            int cmp = Long.compareUnsigned(prefix, other.prefix);
+            return cmp != 0 ? cmp : key.compareTo(other.key);
+        }
+    }
+}
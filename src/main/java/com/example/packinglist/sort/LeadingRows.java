@@ -0,0 +1,43 @@
+package com.example.packinglist.sort;
+
+import com.example.packinglist.model.InvoiceEntry;
+import com.example.packinglist.model.InvoiceSummary;
+
+import java.util.List;
+
+/**
+ * The first rows of an invoice in sort order, with the summary of all of its rows.
+ * Enough to render the opening pages of a packing list without keeping or sorting the rest.
+ */
+public final class LeadingRows {
+
+    private final List<InvoiceEntry> rows;
+    private final InvoiceSummary summary;
+
+    LeadingRows(List<InvoiceEntry> rows, InvoiceSummary summary) {
+        this.rows = rows;
+        this.summary = summary;
+    }
+
+    /**
+     * The kept rows, in sort order
+     */
+    public List<InvoiceEntry> getRows() {
+        return rows;
+    }
+
+    /**
+     * Totals and repeated item numbers of the whole invoice, not just the kept rows
+     */
+    public InvoiceSummary getSummary() {
+        return summary;
+    }
+
+    /**
+     * Walks the kept rows from {@code from} on; duplicates are those of the whole invoice
+     */
+    public InvoiceCursor cursor(int from) {
+        return InvoiceCursor.of(rows.subList(Math.min(from, rows.size()), rows.size()).iterator(),
+                summary.getRepeatedItemNumbers());
+    }
+}
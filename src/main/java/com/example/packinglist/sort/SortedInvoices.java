@@ -0,0 +1,262 @@
+package com.example.packinglist.sort;
+
+import com.example.packinglist.model.InvoiceBatch;
+import com.example.packinglist.model.InvoiceEntry;
+import com.example.packinglist.model.InvoiceSummary;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * Invoice rows in item number order (or another {@link ItemOrdering}), either held in
+ * memory as an {@link InvoiceBatch} or as sorted run files on disk. Can be iterated any
+ * number of times; spilled runs are k-way merged on each pass, so only one row per run
+ * is held in memory.
+ */
+public class SortedInvoices implements Iterable<InvoiceEntry>, Closeable {
+
+    private final InvoiceBatch batch;
+    private final List<File> runs;
+    private final ItemOrdering ordering;
+    private final int size;
+    private final InvoiceSummary summary;
+    private final List<Closeable> openMerges = new ArrayList<>();
+
+    SortedInvoices(List<File> runs, ItemOrdering ordering, InvoiceSummary summary) {
+        this.batch = null;
+        this.runs = runs;
+        this.ordering = ordering;
+        this.size = summary.getRows();
+        this.summary = summary;
+    }
+
+    SortedInvoices(InvoiceBatch batch, ItemOrdering ordering, InvoiceSummary summary) {
+        this.batch = batch;
+        this.runs = Collections.emptyList();
+        this.ordering = ordering;
+        this.size = batch.size();
+        this.summary = summary;
+    }
+
+    /**
+     * Wraps a list that is already sorted by item number
+     */
+    public static SortedInvoices of(List<InvoiceEntry> sortedEntries) {
+        return of(sortedEntries, ItemOrdering.LEXICAL);
+    }
+
+    /**
+     * Wraps a list that is already in the given order
+     */
+    public static SortedInvoices of(List<InvoiceEntry> sortedEntries, ItemOrdering ordering) {
+        return new SortedInvoices(InvoiceBatch.of(sortedEntries), ordering, InvoiceSummary.of(sortedEntries));
+    }
+
+    /**
+     * Wraps a batch that is already in the given order
+     */
+    public static SortedInvoices of(InvoiceBatch sortedBatch, ItemOrdering ordering) {
+        InvoiceSummary.Builder summary = InvoiceSummary.builder();
+        for (int row = 0; row < sortedBatch.size(); row++) {
+            summary.add(sortedBatch.poNo(row), sortedBatch.itemNo(row), sortedBatch.qty(row), sortedBatch.unitValueCents(row));
+        }
+        return new SortedInvoices(sortedBatch, ordering, summary.build());
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int getTotalQty() {
+        return summary.getTotalQty();
+    }
+
+    /**
+     * Totals, PO subtotals and repeated item numbers, collected while the rows were read
+     */
+    public InvoiceSummary getSummary() {
+        return summary;
+    }
+
+    public ItemOrdering getOrdering() {
+        return ordering;
+    }
+
+    /**
+     * Whether the rows were spilled to disk rather than sorted in memory
+     */
+    public boolean isSpilled() {
+        return !runs.isEmpty();
+    }
+
+    /**
+     * The rows in columnar form, or null when they were spilled to disk
+     */
+    public InvoiceBatch getBatch() {
+        return batch;
+    }
+
+    /**
+     * Walks the rows without creating an {@link InvoiceEntry} per row when they are in memory
+     */
+    public InvoiceCursor cursor() {
+        // Repeated items always come from the summary, however the rows are held
+        Set<String> repeated = summary.getRepeatedItemNumbers();
+        return batch != null ? InvoiceCursor.of(batch, repeated) : InvoiceCursor.of(iterator(), repeated);
+    }
+
+    @Override
+    public Iterator<InvoiceEntry> iterator() {
+        if (batch != null) {
+            return new Iterator<>() {
+                private int row;
+
+                @Override
+                public boolean hasNext() {
+                    return row < batch.size();
+                }
+
+                @Override
+                public InvoiceEntry next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    return batch.entry(row++);
+                }
+            };
+        }
+        try {
+            MergeIterator merge = new MergeIterator();
+            synchronized (openMerges) {
+                openMerges.add(merge);
+            }
+            return merge;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open sorted invoice runs", e);
+        }
+    }
+
+    /**
+     * Closes any merge still in progress and deletes the run files
+     */
+    @Override
+    public void close() {
+        List<Closeable> merges;
+        synchronized (openMerges) {
+            merges = new ArrayList<>(openMerges);
+            openMerges.clear();
+        }
+        for (Closeable merge : merges) {
+            try {
+                merge.close();
+            } catch (IOException ignored) {
+                // Best effort, the run files are deleted below anyway
+            }
+        }
+        for (File run : runs) {
+            run.delete();
+        }
+    }
+
+    /**
+     * One open run file with its current head row
+     */
+    private static class RunReader implements Closeable {
+        private final DataInputStream in;
+        private final int index;
+        private final ItemOrdering ordering;
+        private int remaining;
+        private InvoiceEntry head;
+        private String headKey;
+
+        RunReader(File run, int index, ItemOrdering ordering) throws IOException {
+            this.in = new DataInputStream(new BufferedInputStream(new FileInputStream(run), 64 * 1024));
+            this.index = index;
+            this.ordering = ordering;
+            this.remaining = in.readInt();
+        }
+
+        boolean advance() throws IOException {
+            if (remaining == 0) {
+                head = null;
+                headKey = null;
+                return false;
+            }
+            head = ExternalInvoiceSorter.readEntry(in);
+            // Keyed once per row, not on every heap comparison
+            headKey = ordering.sortKey(head.getPoNo(), head.getItemNo());
+            remaining--;
+            return true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    private class MergeIterator implements Iterator<InvoiceEntry>, Closeable {
+        private final PriorityQueue<RunReader> queue;
+        private final List<RunReader> readers = new ArrayList<>();
+
+        MergeIterator() throws IOException {
+            // Ties go to the earlier run, which keeps the sort stable like List.sort
+            Comparator<RunReader> byHead = (a, b) -> {
+                int cmp = a.headKey.compareTo(b.headKey);
+                return cmp != 0 ? cmp : Integer.compare(a.index, b.index);
+            };
+            queue = new PriorityQueue<>(Math.max(1, runs.size()), byHead);
+            try {
+                for (int i = 0; i < runs.size(); i++) {
+                    RunReader reader = new RunReader(runs.get(i), i, ordering);
+                    readers.add(reader);
+                    if (reader.advance()) {
+                        queue.add(reader);
+                    }
+                }
+            } catch (IOException e) {
+                close();
+                throw e;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !queue.isEmpty();
+        }
+
+        @Override
+        public InvoiceEntry next() {
+            RunReader reader = queue.poll();
+            if (reader == null) {
+                throw new NoSuchElementException();
+            }
+            InvoiceEntry entry = reader.head;
+            try {
+                if (reader.advance()) {
+                    queue.add(reader);
+                }
+                if (queue.isEmpty()) {
+                    close();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not read sorted invoice run", e);
+            }
+            return entry;
+        }
+
+        @Override
+        public void close() throws IOException {
+            for (RunReader reader : readers) {
+                reader.close();
+            }
+            synchronized (openMerges) {
+                openMerges.remove(this);
+            }
+        }
+    }
+}
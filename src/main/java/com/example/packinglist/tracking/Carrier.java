@@ -0,0 +1,13 @@
+package com.example.packinglist.tracking;
+
+/**
+ * Carriers whose tracking numbers can be recognised in shipping documents
+ */
+public enum Carrier {
+    /** 1Z followed by 16 letters and digits */
+    UPS,
+    /** 12 digit Express or 15 digit Ground numbers, with their check digit */
+    FEDEX,
+    /** 10 digit Express waybill numbers, the last digit being the first nine modulo 7 */
+    DHL
+}
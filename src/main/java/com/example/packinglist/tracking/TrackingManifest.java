@@ -0,0 +1,147 @@
+package com.example.packinglist.tracking;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Tracking numbers found in a shipping document, in the order they first appear, each with
+ * the other words of the lines it was found on. A PO number on the same line as a tracking
+ * number is how a manifest says which shipment the number belongs to.
+ */
+public final class TrackingManifest {
+
+    /** Most distinct numbers kept, so a hostile document cannot grow the result without end */
+    static final int MAX_NUMBERS = 100_000;
+    /** Most words kept per number from the lines it is on */
+    static final int MAX_WORDS_PER_NUMBER = 64;
+
+    private final Map<String, Found> numbers = new LinkedHashMap<>();
+    private long bytesScanned;
+
+    private static final class Found {
+        final Carrier carrier;
+        final Set<String> lineWords = new LinkedHashSet<>();
+
+        Found(Carrier carrier) {
+            this.carrier = carrier;
+        }
+    }
+
+    TrackingManifest() {
+    }
+
+    /**
+     * Records a number, returning false if it is not kept because the manifest is full
+     */
+    boolean add(String number, Carrier carrier) {
+        if (numbers.containsKey(number)) {
+            return true;
+        }
+        if (numbers.size() >= MAX_NUMBERS) {
+            return false;
+        }
+        numbers.put(number, new Found(carrier));
+        return true;
+    }
+
+    void addLineWord(String number, String word) {
+        Found found = numbers.get(number);
+        if (found != null && found.lineWords.size() < MAX_WORDS_PER_NUMBER) {
+            found.lineWords.add(word);
+        }
+    }
+
+    void addBytesScanned(long bytes) {
+        bytesScanned += bytes;
+    }
+
+    public List<TrackingNumber> getNumbers() {
+        List<TrackingNumber> result = new ArrayList<>(numbers.size());
+        numbers.forEach((number, found) -> result.add(new TrackingNumber(number, found.carrier)));
+        return result;
+    }
+
+    public long getBytesScanned() {
+        return bytesScanned;
+    }
+
+    /**
+     * Numbers found on a line together with one of the given PO numbers, compared ignoring case.
+     * A number that is itself one of the PO numbers is never a tracking number.
+     */
+    public List<String> numbersFor(Collection<String> poNumbers) {
+        Set<String> wanted = normalise(poNumbers);
+        List<String> result = new ArrayList<>();
+        numbers.forEach((number, found) -> {
+            if (wanted.contains(number)) {
+                return;
+            }
+            for (String word : found.lineWords) {
+                if (wanted.contains(word)) {
+                    result.add(number);
+                    break;
+                }
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Every number found except those that are one of the given PO numbers
+     */
+    public List<String> numbersOtherThan(Collection<String> poNumbers) {
+        Set<String> excluded = normalise(poNumbers);
+        List<String> result = new ArrayList<>();
+        for (String number : numbers.keySet()) {
+            if (!excluded.contains(number)) {
+                result.add(number);
+            }
+        }
+        return result;
+    }
+
+    private static Set<String> normalise(Collection<String> poNumbers) {
+        Set<String> result = new HashSet<>();
+        for (String poNumber : poNumbers) {
+            if (poNumber != null && !poNumber.isBlank()) {
+                result.add(poNumber.trim().toUpperCase(Locale.ROOT));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * SHA-256 over every number with the words of its lines, fed to the digest one at a time
+     * rather than joined into one string first. Two manifests with the same digest give every
+     * invoice the same tracking numbers.
+     */
+    public String digest() {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+        numbers.forEach((number, found) -> {
+            // Separator bytes keep the numbers and their words apart
+            digest.update(number.getBytes(StandardCharsets.ISO_8859_1));
+            for (String word : found.lineWords) {
+                digest.update((byte) 0);
+                digest.update(word.getBytes(StandardCharsets.UTF_8));
+            }
+            digest.update((byte) 1);
+        });
+        return HexFormat.of().formatHex(digest.digest());
+    }
+}
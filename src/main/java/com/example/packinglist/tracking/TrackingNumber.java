@@ -0,0 +1,12 @@
+package com.example.packinglist.tracking;
+
+import lombok.Value;
+
+/**
+ * A tracking number found in a shipping document
+ */
+@Value
+public class TrackingNumber {
+    String number;
+    Carrier carrier;
+}
@@ -0,0 +1,288 @@
+package com.example.packinglist.tracking;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Set;
+
+/**
+ * Finds carrier tracking numbers in a text or CSV document of any size, in one pass over its
+ * bytes and without holding more than a buffer and the current line's words in memory.
+ * <p>
+ * The bytes are split into words at spaces, line breaks and the usual CSV and sentence punctuation.
+ * A word is a tracking number when it has the shape of one ({@link Carrier}) and, for FedEx and
+ * DHL, a valid check digit; numbers split by spaces are not recognised. Plain digits with a
+ * valid check digit are common in other numbers too, phone and PO numbers among them, so a
+ * FedEx or DHL number must also follow a label such as "Tracking" or "DHL" within the same
+ * field, or sit in a column whose header has such a label. The header is the first line with
+ * more than one field, fields being split at commas, semicolons, tabs and bars outside quotes.
+ * <p>
+ * The other words of a line that holds a tracking number are kept with it, to match PO
+ * numbers against later. Letters are compared without case and numbers are returned in upper case.
+ */
+public final class TrackingScanner {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    /** Longer words are neither tracking numbers nor PO numbers and are skipped */
+    private static final int MAX_WORD = 32;
+    /** Words of one line kept as PO candidates */
+    private static final int MAX_LINE_WORDS = 64;
+    /** Most words between a label and the number it labels, as in "Tracking No. 1234567890" */
+    private static final int LABEL_REACH = 3;
+    /** Columns beyond this many are never tracking columns */
+    private static final int MAX_COLUMNS = 64;
+
+    private static final byte SEPARATOR = 0;
+    private static final byte FIELD_END = 1;
+    private static final byte QUOTE = 2;
+    private static final byte LINE_END = 3;
+    private static final byte DIGIT = 4;
+    private static final byte LETTER = 5;
+    /** Part of a word but never of a tracking number: dashes, slashes, non-ASCII text */
+    private static final byte OTHER = 6;
+
+    /** Words that make the numbers after them, or the column under them, tracking numbers */
+    private static final Set<String> LABELS = Set.of("TRK", "AWB", "WAYBILL", "AIRWAYBILL", "FEDEX", "DHL");
+
+    private static final byte[] CLASSES = new byte[256];
+
+    static {
+        Arrays.fill(CLASSES, OTHER);
+        for (int b = 0; b <= ' '; b++) {
+            CLASSES[b] = SEPARATOR;
+        }
+        // Sentence and label punctuation too, as in "Tracking#: 1Z999AA10123456784."
+        for (char c : ",;|:\"'()[]{}<>=#.!?".toCharArray()) {
+            CLASSES[c] = SEPARATOR;
+        }
+        for (char c : ",;|\t".toCharArray()) {
+            CLASSES[c] = FIELD_END;
+        }
+        CLASSES['"'] = QUOTE;
+        CLASSES['\n'] = LINE_END;
+        CLASSES['\r'] = LINE_END;
+        for (int b = '0'; b <= '9'; b++) {
+            CLASSES[b] = DIGIT;
+        }
+        for (int b = 'A'; b <= 'Z'; b++) {
+            CLASSES[b] = LETTER;
+            CLASSES[b + ('a' - 'A')] = LETTER;
+        }
+        CLASSES[0x7F] = SEPARATOR;
+    }
+
+    private final TrackingManifest manifest = new TrackingManifest();
+
+    // The word being read; its length keeps counting past MAX_WORD so long words are skipped
+    private final byte[] word = new byte[MAX_WORD];
+    private int wordLength;
+    private boolean wordAlphanumeric = true;
+    private boolean wordDigits = true;
+
+    // Words of the current line, one after another, and the numbers found on it
+    private final byte[] lineWords = new byte[MAX_WORD * MAX_LINE_WORDS];
+    private final int[] lineWordEnds = new int[MAX_LINE_WORDS];
+    private int lineWordCount;
+    private String[] lineNumbers = new String[4];
+    private int lineNumberCount;
+
+    // Where the current word is on its line, and the label it may follow
+    private int field;
+    private boolean quoted;
+    private int labelField = -1;
+    private int wordsSinceLabel;
+
+    // Columns labelled in the header line, one bit each; until the header is found, those of the current line
+    private long trackingColumns;
+    private long lineLabelColumns;
+    private boolean headerFound;
+
+    private TrackingScanner() {
+    }
+
+    /**
+     * Reads the document to its end. The stream is not closed.
+     */
+    public static TrackingManifest scan(InputStream in) throws IOException {
+        TrackingScanner scanner = new TrackingScanner();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            scanner.scan(buffer, read);
+            scanner.manifest.addBytesScanned(read);
+        }
+        scanner.endWord();
+        scanner.endLine();
+        return scanner.manifest;
+    }
+
+    private void scan(byte[] buffer, int length) {
+        byte[] classes = CLASSES;
+        for (int i = 0; i < length; i++) {
+            byte b = buffer[i];
+            byte type = classes[b & 0xFF];
+            if (type >= DIGIT) {
+                if (wordLength < MAX_WORD) {
+                    // Upper case ASCII letters, the scanner's only case folding
+                    word[wordLength] = type == LETTER ? (byte) (b & 0xDF) : b;
+                }
+                wordLength++;
+                wordDigits &= type == DIGIT;
+                wordAlphanumeric &= type != OTHER;
+            } else {
+                if (wordLength > 0) {
+                    endWord();
+                }
+                if (type == LINE_END) {
+                    endLine();
+                } else if (type == FIELD_END) {
+                    if (!quoted) {
+                        field++;
+                    }
+                } else if (type == QUOTE) {
+                    quoted = !quoted;
+                }
+            }
+        }
+    }
+
+    private void endWord() {
+        int length = wordLength;
+        if (length > 0 && length <= MAX_WORD) {
+            Carrier carrier = wordAlphanumeric ? carrier(word, length, wordDigits) : null;
+            if (carrier != null && carrier != Carrier.UPS && !isLabelled()) {
+                carrier = null;
+            }
+            if (isLabel(word, length)) {
+                labelField = field;
+                wordsSinceLabel = 0;
+                if (!headerFound && field < MAX_COLUMNS) {
+                    lineLabelColumns |= 1L << field;
+                }
+            } else if (wordsSinceLabel <= LABEL_REACH) {
+                wordsSinceLabel++;
+            }
+            if (carrier != null) {
+                String number = new String(word, 0, length, StandardCharsets.ISO_8859_1);
+                if (manifest.add(number, carrier)) {
+                    if (lineNumberCount == lineNumbers.length) {
+                        lineNumbers = Arrays.copyOf(lineNumbers, lineNumberCount * 2);
+                    }
+                    lineNumbers[lineNumberCount++] = number;
+                }
+            } else if (lineWordCount < MAX_LINE_WORDS) {
+                int start = lineWordCount == 0 ? 0 : lineWordEnds[lineWordCount - 1];
+                System.arraycopy(word, 0, lineWords, start, length);
+                lineWordEnds[lineWordCount++] = start + length;
+            }
+        }
+        wordLength = 0;
+        wordAlphanumeric = true;
+        wordDigits = true;
+    }
+
+    private void endLine() {
+        if (lineNumberCount > 0) {
+            int start = 0;
+            for (int w = 0; w < lineWordCount; w++) {
+                int end = lineWordEnds[w];
+                String lineWord = new String(lineWords, start, end - start, StandardCharsets.UTF_8);
+                for (int n = 0; n < lineNumberCount; n++) {
+                    manifest.addLineWord(lineNumbers[n], lineWord);
+                }
+                start = end;
+            }
+        }
+        lineWordCount = 0;
+        lineNumberCount = 0;
+
+        if (!headerFound && field > 0) {
+            headerFound = true;
+            trackingColumns = lineLabelColumns;
+        }
+        lineLabelColumns = 0;
+        field = 0;
+        quoted = false;
+        labelField = -1;
+    }
+
+    /**
+     * Whether the word being ended follows a label closely enough, or is in a tracking column
+     */
+    private boolean isLabelled() {
+        if (labelField == field && wordsSinceLabel <= LABEL_REACH) {
+            return true;
+        }
+        return field < MAX_COLUMNS && (trackingColumns & 1L << field) != 0;
+    }
+
+    /**
+     * "Tracking", "Track#", "TrackingNo" and the like, or one of the other {@link #LABELS}
+     */
+    static boolean isLabel(byte[] word, int length) {
+        if (length >= 5 && word[0] == 'T' && word[1] == 'R' && word[2] == 'A' && word[3] == 'C' && word[4] == 'K') {
+            return true;
+        }
+        // Most words start with another letter, and are not turned into a string to look up
+        byte first = word[0];
+        return length >= 3 && length <= 10 && (first == 'T' || first == 'A' || first == 'W' || first == 'F' || first == 'D')
+                && LABELS.contains(new String(word, 0, length, StandardCharsets.ISO_8859_1));
+    }
+
+    /**
+     * Carrier of an upper-cased word of letters and digits, or null if it is no tracking number
+     */
+    static Carrier carrier(byte[] word, int length, boolean digits) {
+        if (length == 18 && word[0] == '1' && word[1] == 'Z') {
+            return Carrier.UPS;
+        }
+        if (!digits) {
+            return null;
+        }
+        switch (length) {
+            case 10:
+                return isDhlExpress(word) ? Carrier.DHL : null;
+            case 12:
+                return isFedExExpress(word) ? Carrier.FEDEX : null;
+            case 15:
+                return isFedExGround(word) ? Carrier.FEDEX : null;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * FedEx Express: the first 11 digits weighted 1, 3, 7 from the right, sum modulo 11, then modulo 10
+     */
+    static boolean isFedExExpress(byte[] digits) {
+        int[] weights = {1, 3, 7};
+        int sum = 0;
+        for (int i = 10, w = 0; i >= 0; i--, w = (w + 1) % 3) {
+            sum += (digits[i] - '0') * weights[w];
+        }
+        return sum % 11 % 10 == digits[11] - '0';
+    }
+
+    /**
+     * FedEx Ground: the first 14 digits weighted 3, 1 from the right, the check digit completing a multiple of 10
+     */
+    static boolean isFedExGround(byte[] digits) {
+        int sum = 0;
+        for (int i = 13, weight = 3; i >= 0; i--, weight = 4 - weight) {
+            sum += (digits[i] - '0') * weight;
+        }
+        return (10 - sum % 10) % 10 == digits[14] - '0';
+    }
+
+    /**
+     * DHL Express: the first nine digits as a number, modulo 7
+     */
+    static boolean isDhlExpress(byte[] digits) {
+        int value = 0;
+        for (int i = 0; i < 9; i++) {
+            value = value * 10 + (digits[i] - '0');
+        }
+        return value % 7 == digits[9] - '0';
+    }
+}
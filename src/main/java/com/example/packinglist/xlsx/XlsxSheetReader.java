@@ -0,0 +1,313 @@
+package com.example.packinglist.xlsx;
+
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFCellStyle;
+import org.apache.poi.util.XMLHelper;
+import org.xml.sax.SAXException;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads the first sheet of an .xlsx workbook row by row, pulling XML events from the sheet
+ * as the rows are consumed, so the sheet is never held in memory. Only the shared strings
+ * table and the cell styles are loaded up front. Each row comes back as its cell texts by
+ * column, formatted as Excel shows them, which is what saving the sheet as CSV would give.
+ * Rows without any values are skipped. Not thread safe.
+ */
+public final class XlsxSheetReader implements Iterator<String[]>, Closeable {
+
+    private static final String[] NO_CELLS = new String[0];
+    private static final int MAX_FORMATTED = 16 * 1024;
+
+    private final OPCPackage workbook;
+    private final ReadOnlySharedStringsTable sharedStrings;
+    private final StylesTable styles;
+    // Locale.US so decimals come out with a point, as the number parser expects
+    private final DataFormatter formatter = new DataFormatter(Locale.US);
+    private final InputStream sheet;
+    private final XMLStreamReader xml;
+    // Formatted numbers by style and stored value; prices and quantities repeat a lot, and
+    // DataFormatter re-checks the format for dates on every call
+    private final Map<String, Map<String, String>> formatted = new HashMap<>();
+    private int formattedCount;
+
+    private String[] next;
+    private int nextRowNumber;
+    private int rowNumber;
+
+    private XlsxSheetReader(OPCPackage workbook, ReadOnlySharedStringsTable sharedStrings, StylesTable styles,
+                            InputStream sheet) throws XMLStreamException {
+        this.workbook = workbook;
+        this.sharedStrings = sharedStrings;
+        this.styles = styles;
+        this.sheet = sheet;
+        this.xml = XMLHelper.newXMLInputFactory().createXMLStreamReader(sheet);
+    }
+
+    /**
+     * Opens a workbook file for reading. The file is read in place, not copied into memory.
+     *
+     * @throws IOException if the file is not a readable .xlsx workbook or has no sheets
+     */
+    public static XlsxSheetReader open(File file) throws IOException {
+        OPCPackage workbook;
+        try {
+            workbook = OPCPackage.open(file, PackageAccess.READ);
+        } catch (OpenXML4JException | RuntimeException e) {
+            throw new IOException("Not an Excel .xlsx workbook", e);
+        }
+        try {
+            XSSFReader reader = new XSSFReader(workbook);
+            Iterator<InputStream> sheets = reader.getSheetsData();
+            if (!sheets.hasNext()) {
+                throw new IOException("The workbook has no sheets");
+            }
+            return new XlsxSheetReader(workbook, new ReadOnlySharedStringsTable(workbook, false), reader.getStylesTable(), sheets.next());
+        } catch (OpenXML4JException | SAXException | XMLStreamException | RuntimeException e) {
+            workbook.revert();
+            throw new IOException("Could not read the Excel workbook", e);
+        } catch (IOException e) {
+            workbook.revert();
+            throw e;
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next == null) {
+            try {
+                next = readRow();
+            } catch (XMLStreamException e) {
+                throw new UncheckedIOException(new IOException("Could not read the Excel sheet", e));
+            }
+        }
+        return next != NO_CELLS;
+    }
+
+    @Override
+    public String[] next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        String[] row = next;
+        next = null;
+        rowNumber = nextRowNumber;
+        return row;
+    }
+
+    /**
+     * Row number in the sheet, counted from 1 as Excel shows it, of the row last returned
+     */
+    public int getRowNumber() {
+        return rowNumber;
+    }
+
+    /**
+     * The next row with a value in it, or {@link #NO_CELLS} at the end of the sheet
+     */
+    private String[] readRow() throws XMLStreamException {
+        while (xml.hasNext()) {
+            if (xml.next() == XMLStreamConstants.START_ELEMENT && "row".equals(xml.getLocalName())) {
+                String r = xml.getAttributeValue(null, "r");
+                nextRowNumber = r != null ? Integer.parseInt(r) : nextRowNumber + 1;
+                String[] cells = readCells();
+                if (cells != null) {
+                    return cells;
+                }
+            }
+        }
+        return NO_CELLS;
+    }
+
+    /**
+     * Cells of the current row up to its last value, or null if it has none
+     */
+    private String[] readCells() throws XMLStreamException {
+        String[] cells = new String[8];
+        int width = 0;
+        int column = -1;
+        while (xml.hasNext()) {
+            int event = xml.next();
+            if (event == XMLStreamConstants.END_ELEMENT && "row".equals(xml.getLocalName())) {
+                break;
+            }
+            if (event != XMLStreamConstants.START_ELEMENT || !"c".equals(xml.getLocalName())) {
+                continue;
+            }
+            String reference = xml.getAttributeValue(null, "r");
+            column = reference != null ? columnIndex(reference) : column + 1;
+            String value = readCell(xml.getAttributeValue(null, "t"), xml.getAttributeValue(null, "s"));
+            if (value.isEmpty()) {
+                continue;
+            }
+            if (column >= cells.length) {
+                cells = Arrays.copyOf(cells, Math.max(cells.length * 2, column + 1));
+            }
+            cells[column] = value;
+            width = Math.max(width, column + 1);
+        }
+        if (width == 0) {
+            return null;
+        }
+        String[] row = Arrays.copyOf(cells, width);
+        for (int i = 0; i < width; i++) {
+            if (row[i] == null) {
+                row[i] = "";
+            }
+        }
+        return row;
+    }
+
+    /**
+     * Text of the current {@code <c>} element, leaving the reader on its end tag
+     */
+    private String readCell(String type, String style) throws XMLStreamException {
+        String raw = null;
+        StringBuilder inline = null;
+        int depth = 1;
+        while (depth > 0) {
+            int event = xml.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+                String name = xml.getLocalName();
+                if ("v".equals(name)) {
+                    raw = xml.getElementText();
+                    depth--;
+                } else if ("rPh".equals(name)) {
+                    // Phonetic guide text is not part of the cell value
+                    skipElement();
+                    depth--;
+                } else if ("t".equals(name)) {
+                    // Inline strings, possibly split into rich text runs
+                    if (inline == null) {
+                        inline = new StringBuilder();
+                    }
+                    inline.append(xml.getElementText());
+                    depth--;
+                }
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+        }
+
+        if ("inlineStr".equals(type)) {
+            return inline != null ? inline.toString() : "";
+        }
+        if (raw == null) {
+            return "";
+        }
+        if (type == null || "n".equals(type)) {
+            return formatNumber(raw, style);
+        }
+        switch (type) {
+            case "s":
+                return sharedStrings.getItemAt(Integer.parseInt(raw.trim())).getString();
+            case "b":
+                return "1".equals(raw) ? "TRUE" : "FALSE";
+            default:
+                // Formula results ("str"), errors and ISO dates are stored as their text
+                return raw;
+        }
+    }
+
+    private void skipElement() throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0) {
+            int event = xml.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+        }
+    }
+
+    private String formatNumber(String raw, String style) {
+        XSSFCellStyle cellStyle = style != null && styles != null ? styles.getStyleAt(Integer.parseInt(style)) : null;
+        short formatIndex = cellStyle != null ? cellStyle.getDataFormat() : 0;
+        // General shows whole numbers of up to 11 digits as stored, which covers item numbers and quantities
+        if (formatIndex == 0 && isShortInteger(raw)) {
+            return raw;
+        }
+        if (formattedCount >= MAX_FORMATTED) {
+            formatted.clear();
+            formattedCount = 0;
+        }
+        Map<String, String> byValue = formatted.computeIfAbsent(style != null ? style : "", key -> new HashMap<>());
+        String text = byValue.get(raw);
+        if (text == null) {
+            double value;
+            try {
+                value = Double.parseDouble(raw);
+            } catch (NumberFormatException e) {
+                return raw;
+            }
+            String formatString = cellStyle != null ? cellStyle.getDataFormatString() : "General";
+            text = formatter.formatRawCellContents(value, formatIndex, formatString);
+            byValue.put(raw, text);
+            formattedCount++;
+        }
+        return text;
+    }
+
+    private static boolean isShortInteger(String raw) {
+        int start = raw.startsWith("-") ? 1 : 0;
+        int length = raw.length() - start;
+        if (length == 0 || length > 11 || length > 1 && raw.charAt(start) == '0') {
+            return false;
+        }
+        for (int i = start; i < raw.length(); i++) {
+            char c = raw.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Zero-based column of a cell reference such as {@code AB12}
+     */
+    static int columnIndex(String reference) {
+        int column = 0;
+        for (int i = 0; i < reference.length(); i++) {
+            char c = reference.charAt(i);
+            if (c < 'A' || c > 'Z') {
+                break;
+            }
+            column = column * 26 + (c - 'A' + 1);
+        }
+        return column - 1;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            xml.close();
+        } catch (XMLStreamException e) {
+            // Closing the stream below is what matters
+        }
+        sheet.close();
+        // Opened read-only; revert closes the file without trying to save anything
+        workbook.revert();
+    }
+}
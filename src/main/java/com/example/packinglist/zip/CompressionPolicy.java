@@ -0,0 +1,105 @@
+package com.example.packinglist.zip;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.zip.Deflater;
+
+/**
+ * How {@link ZipWriter} compresses the entries it streams. An entry that fits in one block is
+ * deflated at the default level, or stored when that does not make it smaller. A larger entry
+ * gets the fastest level that still compresses its type well, and with an executor its blocks
+ * are deflated in parallel, pigz style: each block on its own with the end of the block before
+ * as its dictionary, ended with a sync flush so that the blocks join into one deflate stream.
+ */
+public final class CompressionPolicy {
+
+    /** Blocks of 128 KB deflated one after another on the writing thread */
+    public static final CompressionPolicy SEQUENTIAL = new CompressionPolicy(128 * 1024, null);
+
+    // Deflate looks back at most 32 KB, more dictionary than that is never used
+    private static final int DICTIONARY_SIZE = 32 * 1024;
+
+    // Already compressed, deflating them again only costs time
+    private static final Set<String> COMPRESSED_TYPES = Set.of("zip", "gz", "xlsx", "docx", "pdf", "png", "jpg", "jpeg");
+
+    private final int blockSize;
+    private final Executor executor;
+
+    /**
+     * @param blockSize bytes buffered before an entry counts as large and a block is deflated
+     * @param executor  deflates the blocks of large entries, or null to deflate them on the writing thread
+     */
+    public CompressionPolicy(int blockSize, Executor executor) {
+        if (blockSize < DICTIONARY_SIZE) {
+            throw new IllegalArgumentException("Compression blocks must be at least 32 KB, not " + blockSize);
+        }
+        this.blockSize = blockSize;
+        this.executor = executor;
+    }
+
+    int getBlockSize() {
+        return blockSize;
+    }
+
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    boolean isCompressed(String name) {
+        int dot = name.lastIndexOf('.');
+        return dot >= 0 && COMPRESSED_TYPES.contains(name.substring(dot + 1).toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * Deflate level for an entry. For large ones the level was measured on the generated files
+     * (50,000 rows, see BENCHMARKS.md): level 3 deflates the HTML three times as fast as the
+     * default for 5.6 % instead of 4.7 % of its size, for the CSV files level 4 does better than 3.
+     */
+    int level(String name, boolean large) {
+        if (isCompressed(name)) {
+            return Deflater.NO_COMPRESSION;
+        }
+        if (!large) {
+            return Deflater.DEFAULT_COMPRESSION;
+        }
+        String lowerCase = name.toLowerCase(Locale.ROOT);
+        return lowerCase.endsWith(".html") || lowerCase.endsWith(".htm") ? 3 : 4;
+    }
+
+    /**
+     * Raw deflate data of one block. Unless it is the last block of the entry it ends with a sync
+     * flush, so the next block's data can follow it in the same stream.
+     *
+     * @param dictionary the block before, whose end the data may refer back to, or null
+     */
+    static byte[] deflateBlock(byte[] data, int length, byte[] dictionary, int level, boolean last) {
+        Deflater deflater = new Deflater(level, true);
+        try {
+            if (dictionary != null) {
+                int dictionaryLength = Math.min(DICTIONARY_SIZE, dictionary.length);
+                deflater.setDictionary(dictionary, dictionary.length - dictionaryLength, dictionaryLength);
+            }
+            deflater.setInput(data, 0, length);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(length / 4 + 64);
+            byte[] buffer = new byte[16 * 1024];
+            if (last) {
+                deflater.finish();
+                while (!deflater.finished()) {
+                    out.write(buffer, 0, deflater.deflate(buffer));
+                }
+            } else {
+                int written;
+                // A full buffer means there may be more to come, see Deflater.deflate
+                do {
+                    written = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+                    out.write(buffer, 0, written);
+                } while (written == buffer.length);
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.packinglist.zip;
+
+import java.io.ByteArrayOutputStream;
+import java.util.zip.Deflater;
+
+/**
+ * A piece of a file together with its raw deflate data, compressed on its own and ended with a
+ * sync flush. Deflated segments can be joined in any order into one deflate stream, so the
+ * parts of a file that never change are compressed once and only the rest is compressed again.
+ */
+public final class DeflatedSegment {
+
+    /** An empty final block, which ends a stream of joined segments */
+    static final byte[] END_OF_STREAM = {0x03, 0x00};
+
+    private final byte[] data;
+    private final byte[] deflated;
+
+    private DeflatedSegment(byte[] data, byte[] deflated) {
+        this.data = data;
+        this.deflated = deflated;
+    }
+
+    public static DeflatedSegment of(byte[] data) {
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        try {
+            deflater.setInput(data);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 4 + 64);
+            byte[] buffer = new byte[8192];
+            int written;
+            // A full buffer means there may be more to come, see Deflater.deflate
+            do {
+                written = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+                out.write(buffer, 0, written);
+            } while (written == buffer.length);
+            return new DeflatedSegment(data, out.toByteArray());
+        } finally {
+            deflater.end();
+        }
+    }
+
+    public byte[] getData() {
+        return data;
+    }
+
+    public byte[] getDeflated() {
+        return deflated;
+    }
+
+    /** Bytes held, both plain and compressed */
+    public long getSize() {
+        return data.length + deflated.length;
+    }
+}
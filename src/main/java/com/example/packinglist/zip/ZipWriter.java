@@ -0,0 +1,359 @@
+package com.example.packinglist.zip;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipException;
+
+/**
+ * Writes a ZIP file, either of entries whose compressed data is already at hand as
+ * {@link DeflatedSegment}s, which {@link java.util.zip.ZipOutputStream} has no way to accept,
+ * or of entries streamed through {@link #newEntry} and compressed as the
+ * {@link CompressionPolicy} decides. Writes only what the generated files need: stored and
+ * deflated entries under 4 GB, without Zip64. The target stream is not closed.
+ */
+public final class ZipWriter {
+
+    private static final int LOCAL_HEADER = 0x04034b50;
+    private static final int CENTRAL_HEADER = 0x02014b50;
+    private static final int DATA_DESCRIPTOR = 0x08074b50;
+    private static final int END_OF_CENTRAL_DIRECTORY = 0x06054b50;
+    private static final int VERSION = 20;
+    // Names are UTF-8, as with ZipOutputStream
+    private static final int UTF8_NAMES = 0x0800;
+    // CRC and sizes follow the data, as with ZipOutputStream, for entries larger than one block
+    private static final int SIZES_AFTER_DATA = 0x0008;
+    private static final int STORED = 0;
+    private static final int DEFLATED = 8;
+    private static final long MAX_SIZE = 0xFFFFFFFFL;
+
+    private final OutputStream out;
+    private final CompressionPolicy compression;
+    private final int dosTime;
+    private final int dosDate;
+    private final ByteArrayOutputStream centralDirectory = new ByteArrayOutputStream();
+    private EntryStream openEntry;
+    private int entries;
+    private long written;
+
+    public ZipWriter(OutputStream out) {
+        this(out, CompressionPolicy.SEQUENTIAL);
+    }
+
+    public ZipWriter(OutputStream out, CompressionPolicy compression) {
+        this.out = out;
+        this.compression = compression;
+        LocalDateTime now = LocalDateTime.now();
+        this.dosTime = now.getHour() << 11 | now.getMinute() << 5 | now.getSecond() / 2;
+        this.dosDate = (now.getYear() - 1980) << 9 | now.getMonthValue() << 5 | now.getDayOfMonth();
+    }
+
+    /**
+     * Starts an entry whose content is written to the returned stream. Closing the stream ends
+     * the entry, not the ZIP file; the next entry can only be started after that.
+     */
+    public OutputStream newEntry(String name) {
+        checkNoOpenEntry();
+        openEntry = new EntryStream(name);
+        return openEntry;
+    }
+
+    /**
+     * Writes one entry holding the segments one after another
+     */
+    public void putEntry(String name, List<DeflatedSegment> segments) throws IOException {
+        checkNoOpenEntry();
+        CRC32 crc = new CRC32();
+        long size = 0;
+        long compressedSize = DeflatedSegment.END_OF_STREAM.length;
+        for (DeflatedSegment segment : segments) {
+            crc.update(segment.getData());
+            size += segment.getData().length;
+            compressedSize += segment.getDeflated().length;
+        }
+        checkSizes(name, size, compressedSize);
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        long offset = written;
+
+        writeLocalHeader(nameBytes, 0, DEFLATED, crc.getValue(), compressedSize, size);
+        for (DeflatedSegment segment : segments) {
+            write(segment.getDeflated());
+        }
+        write(DeflatedSegment.END_OF_STREAM);
+        addToCentralDirectory(nameBytes, 0, DEFLATED, crc.getValue(), compressedSize, size, offset);
+    }
+
+    /**
+     * Writes the central directory, which ends the ZIP file
+     */
+    public void finish() throws IOException {
+        checkNoOpenEntry();
+        if (written > MAX_SIZE || entries > 0xFFFF) {
+            throw new ZipException("ZIP file is too large");
+        }
+        long directoryOffset = written;
+        write(centralDirectory.toByteArray());
+
+        ByteArrayOutputStream end = new ByteArrayOutputStream(22);
+        writeInt(end, END_OF_CENTRAL_DIRECTORY);
+        writeShort(end, 0);         // This disk
+        writeShort(end, 0);         // Disk of the central directory
+        writeShort(end, entries);   // Entries on this disk
+        writeShort(end, entries);
+        writeInt(end, centralDirectory.size());
+        writeInt(end, (int) directoryOffset);
+        writeShort(end, 0);         // Comment length
+        write(end.toByteArray());
+    }
+
+    private void checkNoOpenEntry() {
+        if (openEntry != null) {
+            throw new IllegalStateException("ZIP entry " + openEntry.name + " has not been closed");
+        }
+    }
+
+    private void checkSizes(String name, long size, long compressedSize) throws ZipException {
+        if (size > MAX_SIZE || compressedSize > MAX_SIZE || written > MAX_SIZE) {
+            throw new ZipException("ZIP entry " + name + " is too large");
+        }
+    }
+
+    private void writeLocalHeader(byte[] nameBytes, int flags, int method, long crc, long compressedSize, long size) throws IOException {
+        ByteArrayOutputStream header = new ByteArrayOutputStream(30 + nameBytes.length);
+        writeInt(header, LOCAL_HEADER);
+        writeShort(header, VERSION);
+        writeEntryFields(header, flags, method, crc, compressedSize, size, nameBytes.length);
+        writeShort(header, 0);   // Extra field length
+        header.write(nameBytes);
+        write(header.toByteArray());
+    }
+
+    private void addToCentralDirectory(byte[] nameBytes, int flags, int method, long crc, long compressedSize, long size, long offset) {
+        writeInt(centralDirectory, CENTRAL_HEADER);
+        writeShort(centralDirectory, VERSION);   // Made by
+        writeShort(centralDirectory, VERSION);   // Needed to extract
+        writeEntryFields(centralDirectory, flags, method, crc, compressedSize, size, nameBytes.length);
+        writeShort(centralDirectory, 0);   // Extra field length
+        writeShort(centralDirectory, 0);   // Comment length
+        writeShort(centralDirectory, 0);   // Disk number
+        writeShort(centralDirectory, 0);   // Internal attributes
+        writeInt(centralDirectory, 0);     // External attributes
+        writeInt(centralDirectory, (int) offset);
+        centralDirectory.write(nameBytes, 0, nameBytes.length);
+        entries++;
+    }
+
+    private void writeEntryFields(ByteArrayOutputStream header, int flags, int method, long crc, long compressedSize, long size, int nameLength) {
+        writeShort(header, UTF8_NAMES | flags);
+        writeShort(header, method);
+        writeShort(header, dosTime);
+        writeShort(header, dosDate);
+        writeInt(header, (int) crc);
+        writeInt(header, (int) compressedSize);
+        writeInt(header, (int) size);
+        writeShort(header, nameLength);
+    }
+
+    private void write(byte[] bytes) throws IOException {
+        write(bytes, 0, bytes.length);
+    }
+
+    private void write(byte[] bytes, int offset, int length) throws IOException {
+        out.write(bytes, offset, length);
+        written += length;
+    }
+
+    private static void writeShort(ByteArrayOutputStream out, int value) {
+        out.write(value);
+        out.write(value >>> 8);
+    }
+
+    private static void writeInt(ByteArrayOutputStream out, int value) {
+        writeShort(out, value & 0xFFFF);
+        writeShort(out, value >>> 16);
+    }
+
+    /**
+     * Content of one streamed entry. The first block is held back: an entry that ends within it
+     * is written with its sizes in the header, stored if deflating does not make it smaller. A
+     * longer one is written with a data descriptor, block by block as the blocks fill up.
+     */
+    private final class EntryStream extends OutputStream {
+
+        private final String name;
+        private final byte[] nameBytes;
+        private final long offset = written;
+        private final CRC32 crc = new CRC32();
+        private byte[] block;
+        private int filled;
+        private long size;
+        private long compressedSize;
+        private boolean large;
+        private int level;
+        // Large entries deflated on this thread, in one stream
+        private Deflater deflater;
+        private byte[] deflated;
+        // Large entries deflated on the executor: the blocks in flight, oldest first, and the last block handed over
+        private final ArrayDeque<CompletableFuture<byte[]>> pending = new ArrayDeque<>();
+        private byte[] previous;
+        private boolean closed;
+
+        EntryStream(String name) {
+            this.name = name;
+            this.nameBytes = name.getBytes(StandardCharsets.UTF_8);
+            this.block = new byte[compression.getBlockSize()];
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (closed) {
+                throw new IOException("ZIP entry " + name + " is closed");
+            }
+            if (filled == block.length) {
+                blockFull();
+            }
+            block[filled++] = (byte) b;
+            crc.update(b);
+            size++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (closed) {
+                throw new IOException("ZIP entry " + name + " is closed");
+            }
+            crc.update(b, off, len);
+            size += len;
+            while (len > 0) {
+                if (filled == block.length) {
+                    blockFull();
+                }
+                int copied = Math.min(len, block.length - filled);
+                System.arraycopy(b, off, block, filled, copied);
+                filled += copied;
+                off += copied;
+                len -= copied;
+            }
+        }
+
+        /**
+         * Called when more data arrives for a full block, so an entry that ends exactly at the
+         * end of its first block is still written with its sizes in the header
+         */
+        private void blockFull() throws IOException {
+            if (!large) {
+                large = true;
+                level = compression.level(name, true);
+                writeLocalHeader(nameBytes, SIZES_AFTER_DATA, DEFLATED, 0, 0, 0);
+            }
+            deflate(false);
+            filled = 0;
+        }
+
+        private void deflate(boolean last) throws IOException {
+            if (compression.getExecutor() == null) {
+                deflateHere(last);
+                return;
+            }
+            byte[] data = block;
+            int length = filled;
+            byte[] dictionary = previous;
+            pending.add(CompletableFuture.supplyAsync(() ->
+                    CompressionPolicy.deflateBlock(data, length, dictionary, level, last), compression.getExecutor()));
+            previous = data;
+            block = last ? null : new byte[block.length];
+            // Enough blocks in flight to keep every thread busy, without holding the whole entry
+            int inFlight = last ? 0 : Runtime.getRuntime().availableProcessors() * 2;
+            while (pending.size() > inFlight) {
+                writeCompressed(await(pending.remove()));
+            }
+        }
+
+        private void deflateHere(boolean last) throws IOException {
+            if (deflater == null) {
+                deflater = new Deflater(level, true);
+                deflated = new byte[64 * 1024];
+            }
+            deflater.setInput(block, 0, filled);
+            if (last) {
+                deflater.finish();
+                while (!deflater.finished()) {
+                    writeCompressed(deflated, deflater.deflate(deflated));
+                }
+            } else {
+                while (!deflater.needsInput()) {
+                    writeCompressed(deflated, deflater.deflate(deflated));
+                }
+            }
+        }
+
+        private void writeCompressed(byte[] data) throws IOException {
+            writeCompressed(data, data.length);
+        }
+
+        private void writeCompressed(byte[] data, int length) throws IOException {
+            ZipWriter.this.write(data, 0, length);
+            compressedSize += length;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                if (large) {
+                    deflate(true);
+                    checkSizes(name, size, compressedSize);
+                    ByteArrayOutputStream descriptor = new ByteArrayOutputStream(16);
+                    writeInt(descriptor, DATA_DESCRIPTOR);
+                    writeInt(descriptor, (int) crc.getValue());
+                    writeInt(descriptor, (int) compressedSize);
+                    writeInt(descriptor, (int) size);
+                    ZipWriter.this.write(descriptor.toByteArray());
+                    addToCentralDirectory(nameBytes, SIZES_AFTER_DATA, DEFLATED, crc.getValue(), compressedSize, size, offset);
+                } else {
+                    byte[] data = compression.isCompressed(name) ? null
+                            : CompressionPolicy.deflateBlock(block, filled, null, compression.level(name, false), true);
+                    boolean stored = data == null || data.length >= filled;
+                    int method = stored ? STORED : DEFLATED;
+                    long length = stored ? filled : data.length;
+                    writeLocalHeader(nameBytes, 0, method, crc.getValue(), length, size);
+                    if (stored) {
+                        ZipWriter.this.write(block, 0, filled);
+                    } else {
+                        ZipWriter.this.write(data);
+                    }
+                    addToCentralDirectory(nameBytes, 0, method, crc.getValue(), length, size, offset);
+                }
+            } finally {
+                if (deflater != null) {
+                    deflater.end();
+                }
+                // The blocks still in flight are not needed after a failure, but must not be left running
+                for (CompletableFuture<byte[]> inFlight : pending) {
+                    inFlight.cancel(false);
+                }
+                block = null;
+                openEntry = null;
+            }
+        }
+
+        private byte[] await(CompletableFuture<byte[]> deflating) throws IOException {
+            try {
+                return deflating.join();
+            } catch (CompletionException e) {
+                throw new IOException("Compressing ZIP entry " + name + " failed", e.getCause());
+            }
+        }
+    }
+}
@@ -0,0 +1,34 @@
+-- Shipment history, one row per processed invoice and one per invoice line
+CREATE TABLE IF NOT EXISTS shipment (
+    id            BIGINT AUTO_INCREMENT PRIMARY KEY,
+    file_name     VARCHAR,
+    shipped_on    DATE NOT NULL,
+    arrival_date  DATE NOT NULL,
+    tracking      VARCHAR,
+    boxes         INT,
+    weight        DOUBLE PRECISION,
+    rmb           DOUBLE PRECISION,
+    rate          DOUBLE PRECISION,
+    row_count     INT NOT NULL,
+    total_qty     INT NOT NULL,
+    content_hash  CHAR(64) NOT NULL,
+    recorded_at   TIMESTAMP NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS shipment_item (
+    shipment_id       BIGINT NOT NULL REFERENCES shipment(id) ON DELETE CASCADE,
+    arrival_date      DATE NOT NULL,
+    po_no             VARCHAR NOT NULL,
+    item_no           VARCHAR NOT NULL,
+    description       VARCHAR,
+    qty               INT NOT NULL,
+    unit_value_cents  BIGINT NOT NULL
+);
+
+-- Arrival date is copied onto each line so item and PO lookups are answered from one index
+CREATE INDEX IF NOT EXISTS shipment_item_item_idx ON shipment_item(item_no, arrival_date);
+CREATE INDEX IF NOT EXISTS shipment_item_po_idx ON shipment_item(po_no, arrival_date);
+CREATE INDEX IF NOT EXISTS shipment_item_arrival_idx ON shipment_item(arrival_date);
+CREATE INDEX IF NOT EXISTS shipment_item_shipment_idx ON shipment_item(shipment_id);
+CREATE INDEX IF NOT EXISTS shipment_arrival_idx ON shipment(arrival_date);
+CREATE INDEX IF NOT EXISTS shipment_content_idx ON shipment(content_hash, shipped_on);
@@ -0,0 +1,148 @@
+package com.example.packinglist;
+
+import com.example.packinglist.zip.CompressionPolicy;
+import com.example.packinglist.zip.ZipWriter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ArchiveCompressionTest {
+
+    private static final int BLOCK_SIZE = 64 * 1024;
+
+    @TempDir
+    Path tempDir;
+
+    private static Map<String, byte[]> entries() {
+        Map<String, byte[]> entries = new LinkedHashMap<>();
+        entries.put("empty.csv", new byte[0]);
+        entries.put("tiny.csv", "PO#\r\n".getBytes(StandardCharsets.UTF_8));
+        entries.put("small.csv", "PO#,ITEM#,CASE_QTY,FOB\r\n".repeat(5).getBytes(StandardCharsets.UTF_8));
+        byte[] noise = new byte[5000];
+        new Random(1).nextBytes(noise);
+        entries.put("noise.bin", noise);
+        entries.put("exactly-one-block.csv", text(BLOCK_SIZE));
+        entries.put("packing-list.html", text(BLOCK_SIZE * 7 + 123));
+        byte[] workbook = new byte[BLOCK_SIZE * 2 + 1];
+        new Random(2).nextBytes(workbook);
+        entries.put("invoice.xlsx", workbook);
+        entries.put("folder/ünïcode.csv", text(3 * BLOCK_SIZE));
+        return entries;
+    }
+
+    private static byte[] text(int length) {
+        StringBuilder text = new StringBuilder(length + 64);
+        Random random = new Random(length);
+        while (text.length() < length) {
+            text.append("<tr><td>W2406").append(random.nextInt(20)).append("</td><td>").append(1000 + random.nextInt(5000)).append("</td></tr>\n");
+        }
+        return text.substring(0, length).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] zip(Map<String, byte[]> entries, CompressionPolicy compression) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ZipWriter zip = new ZipWriter(out, compression);
+        for (Map.Entry<String, byte[]> entry : entries.entrySet()) {
+            try (OutputStream content = zip.newEntry(entry.getKey())) {
+                byte[] data = entry.getValue();
+                // Uneven writes, so that blocks fill up in the middle of a write
+                for (int offset = 0; offset < data.length; offset += 10_007) {
+                    content.write(data, offset, Math.min(10_007, data.length - offset));
+                }
+            }
+        }
+        zip.finish();
+        return out.toByteArray();
+    }
+
+    @Test
+    public void testParallelBlocksGiveAStandardZipWithTheSameContent() throws IOException {
+        Map<String, byte[]> entries = entries();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            byte[] sequential = zip(entries, new CompressionPolicy(BLOCK_SIZE, null));
+            byte[] parallel = zip(entries, new CompressionPolicy(BLOCK_SIZE, executor));
+
+            for (byte[] zip : new byte[][]{sequential, parallel}) {
+                // Through the local headers and data descriptors, as a streaming reader sees it
+                Map<String, byte[]> streamed = new LinkedHashMap<>();
+                try (ZipInputStream in = new ZipInputStream(new ByteArrayInputStream(zip))) {
+                    ZipEntry entry;
+                    while ((entry = in.getNextEntry()) != null) {
+                        streamed.put(entry.getName(), in.readAllBytes());
+                    }
+                }
+                assertEquals(entries.keySet(), streamed.keySet());
+                for (String name : entries.keySet()) {
+                    assertArrayEquals(entries.get(name), streamed.get(name), name);
+                }
+
+                // Through the central directory, as Windows Explorer reads it
+                Path file = Files.write(tempDir.resolve("archive.zip"), zip);
+                try (ZipFile zipFile = new ZipFile(file.toFile())) {
+                    for (ZipEntry entry : Collections.list(zipFile.entries())) {
+                        try (InputStream in = zipFile.getInputStream(entry)) {
+                            assertArrayEquals(entries.get(entry.getName()), in.readAllBytes(), entry.getName());
+                        }
+                        assertEquals(entries.get(entry.getName()).length, entry.getSize());
+                    }
+                }
+            }
+            // Each block starts again, without the dictionary a single stream keeps across blocks
+            assertTrue(parallel.length < sequential.length * 1.05, parallel.length + " against " + sequential.length);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testSmallEntriesAreStoredWhenDeflatingDoesNotHelp() throws IOException {
+        Map<String, byte[]> entries = entries();
+        Path file = Files.write(tempDir.resolve("archive.zip"), zip(entries, new CompressionPolicy(BLOCK_SIZE, null)));
+
+        try (ZipFile zipFile = new ZipFile(file.toFile())) {
+            assertEquals(ZipEntry.STORED, zipFile.getEntry("empty.csv").getMethod());
+            assertEquals(ZipEntry.STORED, zipFile.getEntry("noise.bin").getMethod());
+            assertEquals(ZipEntry.STORED, zipFile.getEntry("tiny.csv").getMethod());
+            assertEquals(ZipEntry.DEFLATED, zipFile.getEntry("small.csv").getMethod());
+            assertEquals(ZipEntry.DEFLATED, zipFile.getEntry("exactly-one-block.csv").getMethod());
+            ZipEntry html = zipFile.getEntry("packing-list.html");
+            assertEquals(ZipEntry.DEFLATED, html.getMethod());
+            assertTrue(html.getCompressedSize() < html.getSize() / 5, html.getCompressedSize() + " of " + html.getSize());
+            // Already compressed and larger than a block: deflate without compression, stored blocks inside
+            ZipEntry workbook = zipFile.getEntry("invoice.xlsx");
+            assertTrue(workbook.getCompressedSize() < workbook.getSize() + 100, workbook.getCompressedSize() + " of " + workbook.getSize());
+        }
+    }
+
+    @Test
+    public void testEntriesMustBeClosedInTurn() throws IOException {
+        ZipWriter zip = new ZipWriter(OutputStream.nullOutputStream());
+        OutputStream first = zip.newEntry("a.csv");
+        assertThrows(IllegalStateException.class, () -> zip.newEntry("b.csv"));
+        assertThrows(IllegalStateException.class, zip::finish);
+        first.close();
+        assertThrows(IOException.class, () -> first.write(1));
+        zip.newEntry("b.csv").close();
+        zip.finish();
+    }
+}
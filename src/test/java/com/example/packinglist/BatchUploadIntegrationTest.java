@@ -0,0 +1,177 @@
+package com.example.packinglist;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static com.example.packinglist.ZipTestSupport.unzip;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+// Small unpack limits so the archives below can exceed them
+@SpringBootTest(properties = {"packinglist.batch.max-entry-size=64KB", "packinglist.batch.max-unpacked-size=256KB"})
+@AutoConfigureMockMvc
+public class BatchUploadIntegrationTest {
+
+    private static final String HEADER = "PO/NO.,ITEM NO.,DESCRIPTION,QTY,UNIT VALUE\n";
+    private static final String FIRST = HEADER + "PO001,1015,Item A,10,$5.00\nPO001,200,Item B,4,$3.00\n";
+    private static final String SECOND = HEADER + "PO002,1015,Item A,6,$5.00\nPO002,300,Item C,1,$1.00\n";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    public void testMultipleCsvFilesWithOwnValuesAndMergedList() throws Exception {
+        MvcResult started = mockMvc.perform(multipart("/batch")
+                .file(csv("first.csv", FIRST))
+                .file(csv("second.csv", SECOND))
+                .param("rmb", "100").param("rate", "7.1")
+                .param("boxes", "3", "5")
+                .param("weight", "12.5", "20")
+                .param("merged", "true"))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+
+        byte[] zip = mockMvc.perform(asyncDispatch(started))
+            .andExpect(status().isOk())
+            .andExpect(header().string("Content-Disposition", org.hamcrest.Matchers.startsWith("attachment; filename=packing-files-batch-")))
+            .andReturn().getResponse().getContentAsByteArray();
+
+        Map<String, String> entries = unzip(zip);
+        List<String> folders = entries.keySet().stream().map(name -> name.substring(0, name.indexOf('/'))).distinct().toList();
+        assertEquals(List.of("first", "second", "merged"), folders);
+        assertEquals(8, entries.size(), entries.keySet().toString());
+
+        String firstList = find(entries, "first/packing-list-", ".csv");
+        assertTrue(firstList.contains("TOTAL QTY: 14"));
+        assertTrue(find(entries, "second/packing-list-", ".html").contains(">300<"));
+
+        // Boxes and weight add up, item 1015 appears in both invoices
+        String mergedList = find(entries, "merged/packing-list-", ".csv");
+        assertTrue(mergedList.contains("TOTAL QTY: 21"));
+        String mergedHtml = find(entries, "merged/packing-list-", ".html");
+        assertEquals(2, count(mergedHtml, "class=\"duplicate-item item-data\""));
+    }
+
+    @Test
+    public void testZipOfCsvFiles() throws Exception {
+        ByteArrayOutputStream archive = new ByteArrayOutputStream();
+        try (ZipOutputStream zos = new ZipOutputStream(archive)) {
+            for (String[] file : new String[][]{{"invoices/a.csv", FIRST}, {"invoices/readme.txt", "skip me"}, {"invoices/b.csv", SECOND}}) {
+                zos.putNextEntry(new ZipEntry(file[0]));
+                zos.write(file[1].getBytes(StandardCharsets.UTF_8));
+                zos.closeEntry();
+            }
+        }
+        MockMultipartFile zipFile = new MockMultipartFile("zipFile", "invoices.zip", "application/zip", archive.toByteArray());
+
+        MvcResult started = mockMvc.perform(multipart("/batch").file(zipFile)
+                .param("rmb", "100").param("rate", "7.1")
+                .param("boxes", "3").param("weight", "12.5"))
+            .andReturn();
+        byte[] zip = mockMvc.perform(asyncDispatch(started))
+            .andExpect(status().isOk())
+            .andReturn().getResponse().getContentAsByteArray();
+
+        Map<String, String> entries = unzip(zip);
+        assertEquals(6, entries.size(), entries.keySet().toString());
+        assertTrue(entries.keySet().iterator().next().startsWith("a/"));
+    }
+
+    @Test
+    public void testZipThatUnpacksTooLargeIsRejected() throws Exception {
+        // Compresses to almost nothing, like a zip bomb
+        String oversized = HEADER + "PO001,1015,Item A,10,$5.00\n".repeat(3000);
+        assertEquals(413, batchOfZip(archive("a.csv", FIRST, "big.csv", oversized)).getStatus());
+
+        // Every file within the limit, but not all of them together
+        String large = HEADER + "PO001,1015,Item A,10,$5.00\n".repeat(2000);
+        MockHttpServletResponse response = batchOfZip(archive("a.csv", large, "b.csv", large, "c.csv", large, "d.csv", large, "e.csv", large));
+        assertEquals(413, response.getStatus());
+        assertEquals("The CSV files in the ZIP unpack to more than 256 KB", response.getContentAsString());
+    }
+
+    private MockHttpServletResponse batchOfZip(byte[] archive) throws Exception {
+        MvcResult started = mockMvc.perform(multipart("/batch")
+                .file(new MockMultipartFile("zipFile", "invoices.zip", "application/zip", archive))
+                .param("rmb", "100").param("rate", "7.1")
+                .param("boxes", "3").param("weight", "12.5"))
+            .andReturn();
+        return mockMvc.perform(asyncDispatch(started)).andReturn().getResponse();
+    }
+
+    private static byte[] archive(String... namesAndContents) throws IOException {
+        ByteArrayOutputStream archive = new ByteArrayOutputStream();
+        try (ZipOutputStream zos = new ZipOutputStream(archive)) {
+            for (int i = 0; i < namesAndContents.length; i += 2) {
+                zos.putNextEntry(new ZipEntry(namesAndContents[i]));
+                zos.write(namesAndContents[i + 1].getBytes(StandardCharsets.UTF_8));
+                zos.closeEntry();
+            }
+        }
+        return archive.toByteArray();
+    }
+
+    @Test
+    public void testValueCountMustMatchInvoices() throws Exception {
+        MvcResult started = mockMvc.perform(multipart("/batch")
+                .file(csv("first.csv", FIRST))
+                .file(csv("second.csv", SECOND))
+                .param("rmb", "100").param("rate", "7.1")
+                .param("boxes", "3", "5", "7").param("weight", "12.5"))
+            .andReturn();
+
+        mockMvc.perform(asyncDispatch(started))
+            .andExpect(status().isBadRequest())
+            .andExpect(content().string("Expected 1 or 2 values for boxes, got 3"));
+    }
+
+    @Test
+    public void testFailedInvoiceIsNamed() throws Exception {
+        MvcResult started = mockMvc.perform(multipart("/batch")
+                .file(csv("first.csv", FIRST))
+                .file(csv("broken.csv", "PO/NO.,DESCRIPTION\nPO001,Item A\n"))
+                .param("rmb", "100").param("rate", "7.1")
+                .param("boxes", "3").param("weight", "12.5"))
+            .andReturn();
+
+        mockMvc.perform(asyncDispatch(started))
+            .andExpect(status().isBadRequest())
+            .andExpect(content().string(org.hamcrest.Matchers.containsString("broken.csv: CSV file is missing required column(s)")));
+    }
+
+    private static MockMultipartFile csv(String name, String content) {
+        return new MockMultipartFile("csvFile", name, "text/csv", content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String find(Map<String, String> entries, String prefix, String suffix) {
+        return entries.entrySet().stream()
+            .filter(e -> e.getKey().startsWith(prefix) && e.getKey().endsWith(suffix))
+            .map(Map.Entry::getValue)
+            .findFirst()
+            .orElseThrow(() -> new AssertionError("No " + prefix + "*" + suffix + " in " + entries.keySet()));
+    }
+
+    private static int count(String text, String needle) {
+        int count = 0;
+        for (int i = text.indexOf(needle); i >= 0; i = text.indexOf(needle, i + 1)) {
+            count++;
+        }
+        return count;
+    }
+}
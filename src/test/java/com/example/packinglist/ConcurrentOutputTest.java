@@ -0,0 +1,57 @@
+package com.example.packinglist;
+
+import com.example.packinglist.config.PackingListProperties;
+import com.example.packinglist.model.InvoiceEntry;
+import com.example.packinglist.service.PackingListService;
+import com.example.packinglist.sort.ExternalInvoiceSorter;
+import com.example.packinglist.sort.SortedInvoices;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static com.example.packinglist.ZipTestSupport.unzip;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConcurrentOutputTest {
+
+    @TempDir
+    File spillDirectory;
+
+    @Test
+    public void testConcurrentRenderingMatchesSequentialOutput() throws IOException {
+        List<InvoiceEntry> rows = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            rows.add(new InvoiceEntry("PO" + (i % 7), String.valueOf(1000 + (i * 37) % 400), "Item " + i, i % 9, 100 + i));
+        }
+
+        PackingListProperties concurrent = new PackingListProperties();
+        concurrent.getOutput().setConcurrent(true);
+        concurrent.getOutput().setVirtualThreads(true);
+        // Small enough that both spooled files move to disk
+        concurrent.getOutput().setSpoolThreshold(DataSize.ofBytes(1024));
+
+        // Spilled runs, so both renderers merge the same run files at the same time
+        try (SortedInvoices sorted = new ExternalInvoiceSorter(64, spillDirectory).sort(rows.iterator())) {
+            Map<String, String> expected = unzip(zip(new PackingListService(new PackingListProperties()), sorted));
+            Map<String, String> actual = unzip(zip(new PackingListService(concurrent), sorted));
+
+            assertEquals(List.copyOf(expected.keySet()), List.copyOf(actual.keySet()));
+            assertEquals(expected, actual);
+        }
+        assertEquals(0, spillDirectory.listFiles().length);
+    }
+
+    private static byte[] zip(PackingListService service, SortedInvoices sorted) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        service.writeZip(out, "250101", sorted, "1Z999AA12345678901", 12.5, 3, 100, 7.1);
+        service.shutdown();
+        return out.toByteArray();
+    }
+}
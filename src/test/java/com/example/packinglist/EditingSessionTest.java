@@ -0,0 +1,161 @@
+package com.example.packinglist;
+
+import com.example.packinglist.config.PackingListProperties;
+import com.example.packinglist.model.InvoiceEntry;
+import com.example.packinglist.service.PackingListService;
+import com.example.packinglist.session.InvoiceSession;
+import com.example.packinglist.session.SessionService;
+import com.example.packinglist.sort.SortedInvoices;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static com.example.packinglist.ZipTestSupport.unzip;
+import static com.example.packinglist.ZipTestSupport.unzipFile;
+import static com.example.packinglist.ZipTestSupport.withoutDates;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+public class EditingSessionTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    private static byte[] invoiceCsv() {
+        StringBuilder csv = new StringBuilder("PO/NO.,ITEM NO.,DESCRIPTION,QTY,UNIT VALUE\n");
+        for (int i = 0; i < 200; i++) {
+            // Enough rows for three pages, with some item numbers repeated
+            csv.append("W2406").append(10 + i % 3).append(',').append(1000 + i % 170)
+                    .append(",Item ").append(i).append(',').append(1 + i % 7).append(",$2.50\n");
+        }
+        return csv.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testSessionGivesTheSameFilesAsAnUploadForAnyHeaderValues() throws Exception {
+        MockMultipartFile csvFile = new MockMultipartFile("csvFile", "invoice.csv", "text/csv", invoiceCsv());
+        String body = mockMvc.perform(multipart("/sessions").file(csvFile))
+            .andExpect(status().isCreated())
+            .andExpect(jsonPath("$.rows").value(200))
+            .andReturn().getResponse().getContentAsString();
+        String id = new ObjectMapper().readTree(body).get("id").asText();
+
+        String[][] edits = {
+            {"1Z999AA10123456784", "1500", "7.1", "3", "12.5"},
+            {"", "1620", "7.25", "4", "13"},
+        };
+        for (String[] edit : edits) {
+            Map<String, String> fromSession = withoutDates(unzip(download(get("/sessions/" + id + "/zip")
+                    .param("manualTracking", edit[0]).param("rmb", edit[1]).param("rate", edit[2])
+                    .param("boxes", edit[3]).param("weight", edit[4]))));
+            Map<String, String> fromUpload = withoutDates(unzip(download(multipart("/upload").file(csvFile)
+                    .param("manualTracking", edit[0]).param("rmb", edit[1]).param("rate", edit[2])
+                    .param("boxes", edit[3]).param("weight", edit[4]))));
+
+            assertEquals(3, fromUpload.size(), fromUpload.keySet().toString());
+            assertEquals(fromUpload, fromSession);
+            assertEquals(fromUpload, withoutDates(unzipFile(download(get("/sessions/" + id + "/zip")
+                    .param("manualTracking", edit[0]).param("rmb", edit[1]).param("rate", edit[2])
+                    .param("boxes", edit[3]).param("weight", edit[4])))));
+            String html = new String(download(get("/sessions/" + id + "/html")
+                    .param("manualTracking", edit[0]).param("rmb", edit[1]).param("rate", edit[2])
+                    .param("boxes", edit[3]).param("weight", edit[4])), StandardCharsets.UTF_8);
+            assertEquals(fromUpload.get("packing-list.html"), html);
+            assertTrue(html.contains("<span class=\"header-value\">" + edit[3] + "</span>"));
+        }
+
+        mockMvc.perform(delete("/sessions/" + id)).andExpect(status().isNoContent());
+        mockMvc.perform(get("/sessions/" + id + "/zip").param("rmb", "1").param("rate", "1").param("boxes", "1").param("weight", "1"))
+            .andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void testUploadFormLeadsToAnEditPageWithTheTypedValues() throws Exception {
+        String location = mockMvc.perform(multipart("/sessions/form")
+                .file(new MockMultipartFile("csvFile", "invoice.csv", "text/csv", invoiceCsv()))
+                .param("manualTracking", "1Z 999").param("rmb", "1500").param("rate", "7.1").param("boxes", "3").param("weight", ""))
+            .andExpect(status().isSeeOther())
+            .andReturn().getResponse().getHeader("Location");
+        assertTrue(location.matches("/sessions/[0-9a-f-]+/edit\\?manualTracking=1Z%20999&rmb=1500&rate=7.1&boxes=3&weight="), location);
+
+        String id = location.split("/")[2];
+        mockMvc.perform(get(location.substring(0, location.indexOf('?'))).param("boxes", "3").param("manualTracking", "1Z 999"))
+            .andExpect(status().isOk())
+            .andExpect(content().string(org.hamcrest.Matchers.containsString("action=\"/sessions/" + id + "/zip\"")))
+            .andExpect(content().string(org.hamcrest.Matchers.containsString("value=\"3\"")))
+            .andExpect(content().string(org.hamcrest.Matchers.containsString("value=\"1Z 999\"")));
+
+        mockMvc.perform(get("/sessions/no-such-session/edit"))
+            .andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void testSessionsAreClosedWhenIdleOrOverTheMemoryBudget() throws Exception {
+        PackingListService packingListService = new PackingListService(new PackingListProperties());
+        List<InvoiceEntry> rows = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            rows.add(new InvoiceEntry("PO1", String.valueOf(1000 + i), "Item", 1, 100));
+        }
+        long sessionSize = packingListService.renderWithoutDetails("240613", SortedInvoices.of(rows)).getSize();
+
+        // Room for two sessions: opening a third closes the least recently used one
+        SessionService sessions = new SessionService(packingListService, sessionSize * 2 + sessionSize / 2, Duration.ofMinutes(30));
+        InvoiceSession first = sessions.open("a.csv", "240613", SortedInvoices.of(rows));
+        InvoiceSession second = sessions.open("b.csv", "240613", SortedInvoices.of(rows));
+        assertTrue(sessions.get(first.getId()).isPresent());
+        sessions.open("c.csv", "240613", SortedInvoices.of(rows));
+        assertTrue(sessions.get(first.getId()).isPresent());
+        assertFalse(sessions.get(second.getId()).isPresent());
+        assertEquals(2, sessions.size());
+        assertEquals(sessionSize * 2, sessions.getTotalBytes());
+
+        // An invoice larger than the whole budget is not kept at all
+        assertNull(new SessionService(packingListService, sessionSize - 1, Duration.ofMinutes(30))
+                .open("big.csv", "240613", SortedInvoices.of(rows)));
+
+        // Rendering gives up once the files so far are over the budget, not after the whole invoice
+        List<InvoiceEntry> manyRows = new ArrayList<>();
+        for (int i = 0; i < 200_000; i++) {
+            manyRows.add(new InvoiceEntry("PO" + i / 1000, String.valueOf(100_000 + i), "Item", 1, 100));
+        }
+        assertNull(packingListService.renderWithoutDetails("240613", SortedInvoices.of(manyRows), 64 * 1024));
+        assertNotNull(packingListService.renderWithoutDetails("240613", SortedInvoices.of(rows), sessionSize));
+
+        SessionService idle = new SessionService(packingListService, Long.MAX_VALUE, Duration.ofMillis(50));
+        InvoiceSession session = idle.open("a.csv", "240613", SortedInvoices.of(rows));
+        Thread.sleep(100);
+        assertFalse(idle.get(session.getId()).isPresent());
+        assertEquals(0, idle.getTotalBytes());
+
+        // Without any further open or lookup, the scheduled sweep closes it
+        idle.open("b.csv", "240613", SortedInvoices.of(rows));
+        for (int i = 0; i < 50 && idle.size() > 0; i++) {
+            Thread.sleep(20);
+        }
+        assertEquals(0, idle.size());
+        assertEquals(0, idle.getTotalBytes());
+        idle.shutdown();
+    }
+
+    private byte[] download(RequestBuilder request) throws Exception {
+        MvcResult started = mockMvc.perform(request).andReturn();
+        return mockMvc.perform(asyncDispatch(started))
+            .andExpect(status().isOk())
+            .andReturn().getResponse().getContentAsByteArray();
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.packinglist;
+
+import com.example.packinglist.model.InvoiceEntry;
+import com.example.packinglist.sort.ExternalInvoiceSorter;
+import com.example.packinglist.sort.SortedInvoices;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ExternalInvoiceSorterTest {
+
+    @TempDir
+    File spillDirectory;
+
+    @Test
+    public void testSpilledRunsMergeInLexicalOrder() throws IOException {
+        String[] items = {"1015", "100", "2", "1016B", "a8921", "23463", "b3549", "1001", "1015", "2"};
+        List<InvoiceEntry> rows = new ArrayList<>();
+        for (int i = 0; i < items.length; i++) {
+            rows.add(new InvoiceEntry("PO" + i, items[i], "Item " + i, i + 1, 125));
+        }
+
+        // Three rows per run forces four runs on disk
+        ExternalInvoiceSorter sorter = new ExternalInvoiceSorter(3, spillDirectory);
+        try (SortedInvoices sorted = sorter.sort(rows.iterator())) {
+            assertTrue(sorted.isSpilled());
+            assertEquals(10, sorted.size());
+            assertEquals(55, sorted.getTotalQty());
+            assertEquals(4, spillDirectory.listFiles().length);
+
+            List<InvoiceEntry> expected = new ArrayList<>(rows);
+            expected.sort(ExternalInvoiceSorter.ITEM_NUMBER_ORDER);
+
+            // Iterating twice must give the same stable order as List.sort
+            for (int pass = 0; pass < 2; pass++) {
+                List<InvoiceEntry> actual = new ArrayList<>();
+                sorted.forEach(actual::add);
+                assertEquals(expected, actual);
+            }
+        }
+
+        assertEquals(0, spillDirectory.listFiles().length, "Run files should be deleted on close");
+    }
+
+    @Test
+    public void testSpilledRowsKeepLongTextAndNulls() throws IOException {
+        // Over the 65,535 bytes DataOutputStream.writeUTF can write, in multi-byte characters
+        String longDescription = "Größe XL ".repeat(8000);
+        List<InvoiceEntry> rows = List.of(
+            new InvoiceEntry("PO1", "b", longDescription, 1, 100),
+            new InvoiceEntry(null, "a", null, 2, 200),
+            new InvoiceEntry("PO2", "c", "", 3, 300));
+
+        List<InvoiceEntry> inMemory = new ArrayList<>();
+        try (SortedInvoices sorted = new ExternalInvoiceSorter(10, spillDirectory).sort(rows.iterator())) {
+            assertFalse(sorted.isSpilled());
+            sorted.forEach(inMemory::add);
+        }
+        List<InvoiceEntry> spilled = new ArrayList<>();
+        try (SortedInvoices sorted = new ExternalInvoiceSorter(1, spillDirectory).sort(rows.iterator())) {
+            assertTrue(sorted.isSpilled());
+            sorted.forEach(spilled::add);
+        }
+
+        assertEquals(inMemory, spilled);
+        assertNull(spilled.get(0).getPoNo());
+        assertNull(spilled.get(0).getDescription());
+        assertEquals(longDescription, spilled.get(1).getDescription());
+    }
+
+    @Test
+    public void testSmallInputStaysInMemory() throws IOException {
+        List<InvoiceEntry> rows = List.of(
+            new InvoiceEntry("PO1", "b", "", 1, 0),
+            new InvoiceEntry("PO2", "a", "", 2, 0));
+
+        try (SortedInvoices sorted = new ExternalInvoiceSorter(10, spillDirectory).sort(rows.iterator())) {
+            assertFalse(sorted.isSpilled());
+            assertEquals("a", sorted.iterator().next().getItemNo());
+        }
+        assertEquals(0, spillDirectory.listFiles().length);
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.packinglist;
+
+import com.example.packinglist.controller.UploadController;
+import com.example.packinglist.csv.CsvHeaderException;
+import com.example.packinglist.csv.HeaderPlan;
+import com.example.packinglist.csv.InvoiceColumn;
+import com.example.packinglist.model.InvoiceEntry;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.io.IOException;
+import java.util.EnumSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HeaderPlanTest {
+
+    @Test
+    public void testImportStyleAliasesAreResolved() throws IOException {
+        // Same layout as the generated import_inv-*.csv files
+        String csvContent = "PO#,ITEM#,CASE_QTY,FOB\n" +
+                           "W240613,1016B,36,3.35\n" +
+                           "W240613,1015,24,3.50\n";
+        MockMultipartFile file = new MockMultipartFile("file", "test.csv", "text/csv", csvContent.getBytes());
+
+        List<InvoiceEntry> result = new UploadController().parseInvoiceCsv(file);
+
+        assertEquals(2, result.size());
+        assertEquals(new InvoiceEntry("W240613", "1015", "", 24, 350), result.get(0));
+        assertEquals(new InvoiceEntry("W240613", "1016B", "", 36, 335), result.get(1));
+    }
+
+    @Test
+    public void testHeadersAreMatchedIgnoringCaseSpacesAndBom() {
+        HeaderPlan plan = HeaderPlan.resolve(
+            List.of("\uFEFFpo/no.", " Item No ", "Description of Goods", "qty", "Unit Value (USD)"),
+            EnumSet.of(InvoiceColumn.PO, InvoiceColumn.ITEM, InvoiceColumn.DESCRIPTION, InvoiceColumn.QTY, InvoiceColumn.UNIT_VALUE));
+
+        assertTrue(plan.has(InvoiceColumn.PO));
+        assertTrue(plan.has(InvoiceColumn.UNIT_VALUE));
+        assertFalse(plan.has(InvoiceColumn.NOTES));
+    }
+
+    @Test
+    public void testMissingRequiredColumnFailsWithClearMessage() {
+        String csvContent = "PO/NO.,DESCRIPTION,QTY\n" +
+                           "PO001,Item A,10\n";
+        MockMultipartFile file = new MockMultipartFile("file", "test.csv", "text/csv", csvContent.getBytes());
+
+        CsvHeaderException e = assertThrows(CsvHeaderException.class,
+            () -> new UploadController().parseInvoiceCsv(file));
+        assertTrue(e.getMessage().contains("ITEM NO."), e.getMessage());
+        assertTrue(e.getMessage().contains("ITEM#"), e.getMessage());
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.packinglist;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import javax.sql.DataSource;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+public class HistoryIntegrationTest {
+
+    // A fresh database per run, removed afterwards
+    @TempDir
+    static Path historyDirectory;
+
+    @DynamicPropertySource
+    static void history(DynamicPropertyRegistry registry) {
+        registry.add("packinglist.history.enabled", () -> "true");
+        registry.add("packinglist.history.directory", historyDirectory::toString);
+    }
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ApplicationContext context;
+
+    private final ObjectMapper json = new ObjectMapper();
+
+    @Test
+    public void testDatabaseIsCreatedInTheHistoryDirectory() {
+        assertEquals(1, context.getBeanNamesForType(DataSource.class).length);
+        assertTrue(historyDirectory.resolve("shipment-history.mv.db").toFile().exists());
+    }
+
+    @Test
+    public void testUploadIsRecordedAndSearchable() throws Exception {
+        // Item numbers no other test uses
+        String item = "H" + UUID.randomUUID().toString().substring(0, 8);
+        String po = "PO-" + item;
+        String csv = "PO/NO.,ITEM NO.,DESCRIPTION,QTY,UNIT VALUE\n"
+                + po + "," + item + ",Widget,10,$5.25\n"
+                + po + "," + item + "-B,Gadget,4,$3.00\n";
+
+        upload(csv, "3");
+        JsonNode found = awaitSearch(item, 1);
+        JsonNode line = found.get(0);
+        assertEquals(po, line.get("poNo").asText());
+        assertEquals(10, line.get("qty").asInt());
+        assertEquals(5.25, line.get("unitValue").asDouble());
+        assertEquals("history.csv", line.get("fileName").asText());
+        assertEquals(LocalDate.now().plusDays(7).toString(), line.get("arrivalDate").asText());
+
+        String last = mockMvc.perform(get("/history/items/{item}/last", item))
+            .andExpect(status().isOk())
+            .andReturn().getResponse().getContentAsString();
+        assertEquals(10, json.readTree(last).get("qty").asInt());
+
+        // Same invoice again with another box count replaces the first record instead of adding to it
+        long firstShipment = line.get("shipmentId").asLong();
+        upload(csv, "4");
+        JsonNode replaced = awaitSearch(item, 1);
+        for (int i = 0; i < 50 && replaced.get(0).get("shipmentId").asLong() == firstShipment; i++) {
+            Thread.sleep(100);
+            replaced = awaitSearch(item, 1);
+        }
+        assertNotEquals(firstShipment, replaced.get(0).get("shipmentId").asLong());
+
+        String totals = mockMvc.perform(get("/history/aggregate").param("groupBy", "po").param("po", po))
+            .andExpect(status().isOk())
+            .andReturn().getResponse().getContentAsString();
+        JsonNode total = json.readTree(totals);
+        assertEquals(1, total.size());
+        assertEquals(14, total.get(0).get("totalQty").asLong());
+        assertEquals(1, total.get(0).get("shipments").asInt());
+    }
+
+    @Test
+    public void testUnknownItemAndBadParameters() throws Exception {
+        mockMvc.perform(get("/history/items/{item}/last", "never-shipped-" + UUID.randomUUID()))
+            .andExpect(status().isNotFound());
+        mockMvc.perform(get("/history/aggregate").param("groupBy", "colour"))
+            .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/history/search").param("limit", "0"))
+            .andExpect(status().isBadRequest());
+    }
+
+    private void upload(String csv, String boxes) throws Exception {
+        MockMultipartFile file = new MockMultipartFile("csvFile", "history.csv", "text/csv", csv.getBytes(StandardCharsets.UTF_8));
+        MvcResult started = mockMvc.perform(multipart("/upload").file(file)
+                .param("rmb", "100").param("rate", "7.1")
+                .param("boxes", boxes).param("weight", "12.5"))
+            .andReturn();
+        mockMvc.perform(asyncDispatch(started)).andExpect(status().isOk());
+    }
+
+    /** History writes happen after the response, so poll until they land */
+    private JsonNode awaitSearch(String item, int expected) throws Exception {
+        JsonNode results = null;
+        for (int i = 0; i < 50; i++) {
+            String body = mockMvc.perform(get("/history/search").param("item", item))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+            results = json.readTree(body);
+            if (results.size() >= expected) {
+                return results;
+            }
+            Thread.sleep(100);
+        }
+        fail("History has " + results.size() + " rows for " + item + ", expected " + expected);
+        return results;
+    }
+}
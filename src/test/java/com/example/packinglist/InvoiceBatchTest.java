@@ -0,0 +1,101 @@
+package com.example.packinglist;
+
+import com.example.packinglist.config.PackingListProperties;
+import com.example.packinglist.model.InvoiceBatch;
+import com.example.packinglist.model.InvoiceEntry;
+import com.example.packinglist.service.PackingListService;
+import com.example.packinglist.sort.InvoiceCursor;
+import com.example.packinglist.sort.ItemOrdering;
+import com.example.packinglist.sort.KeySorter;
+import com.example.packinglist.sort.SortedInvoices;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class InvoiceBatchTest {
+
+    private static final List<InvoiceEntry> ROWS = List.of(
+            new InvoiceEntry("PO2", "B200", "Widget", 3, 150),
+            new InvoiceEntry("PO1", "A100", "Gadget", 5, 99),
+            new InvoiceEntry("PO1", "B200", "Widget", 2, 150),
+            new InvoiceEntry("PO3", "C300", null, 7, 1234));
+
+    @Test
+    public void testRowsRoundTrip() {
+        InvoiceBatch batch = InvoiceBatch.of(ROWS);
+
+        assertEquals(4, batch.size());
+        assertEquals(17, batch.getTotalQty());
+        for (int row = 0; row < ROWS.size(); row++) {
+            assertEquals(ROWS.get(row), batch.entry(row));
+        }
+        assertNull(batch.description(3));
+    }
+
+    @Test
+    public void testRepeatedItemsShareACode() {
+        InvoiceBatch batch = InvoiceBatch.of(ROWS);
+
+        assertEquals(batch.itemCode(0), batch.itemCode(2));
+        assertNotEquals(batch.itemCode(0), batch.itemCode(1));
+
+        InvoiceCursor cursor = SortedInvoices.of(ROWS).cursor();
+        List<Boolean> repeated = new ArrayList<>();
+        while (cursor.next()) {
+            repeated.add(cursor.repeatedItem());
+        }
+        assertEquals(List.of(true, false, true, false), repeated);
+    }
+
+    @Test
+    public void testSortReordersEveryColumn() {
+        InvoiceBatch sorted = KeySorter.sort(InvoiceBatch.of(ROWS), ItemOrdering.PO_THEN_ITEM, Integer.MAX_VALUE);
+
+        List<InvoiceEntry> expected = new ArrayList<>(ROWS);
+        expected.sort(ItemOrdering.PO_THEN_ITEM.comparator());
+        List<InvoiceEntry> actual = new ArrayList<>();
+        for (int row = 0; row < sorted.size(); row++) {
+            actual.add(sorted.entry(row));
+        }
+        assertEquals(expected, actual);
+        assertEquals(17, sorted.getTotalQty());
+    }
+
+    @Test
+    public void testCursorMatchesIterator() {
+        SortedInvoices invoices = SortedInvoices.of(ROWS);
+        InvoiceCursor cursor = invoices.cursor();
+
+        for (InvoiceEntry entry : invoices) {
+            assertTrue(cursor.next());
+            assertEquals(entry.getPoNo(), cursor.poNo());
+            assertEquals(entry.getItemNo(), cursor.itemNo());
+            assertEquals(entry.getDescription(), cursor.description());
+            assertEquals(entry.getQty(), cursor.qty());
+            assertEquals(entry.getUnitValueCents(), cursor.unitValueCents());
+        }
+        assertFalse(cursor.next());
+    }
+
+    @Test
+    public void testOutputSameForListAndBatch() throws Exception {
+        PackingListService service = new PackingListService(new PackingListProperties());
+        SortedInvoices fromBatch = SortedInvoices.of(InvoiceBatch.of(ROWS), ItemOrdering.LEXICAL);
+
+        StringWriter fromList = new StringWriter();
+        StringWriter batchOutput = new StringWriter();
+        service.writePackingList(fromList, "250101", ROWS, "1Z999", 12.5, 2, 100, 7.1);
+        service.writePackingList(batchOutput, "250101", fromBatch, "1Z999", 12.5, 2, 100, 7.1);
+        assertEquals(fromList.toString(), batchOutput.toString());
+
+        fromList = new StringWriter();
+        batchOutput = new StringWriter();
+        service.writeMsdosCsv(fromList, ROWS);
+        service.writeMsdosCsv(batchOutput, fromBatch);
+        assertEquals(fromList.toString(), batchOutput.toString());
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.packinglist;
+
+import com.example.packinglist.config.PackingListProperties;
+import com.example.packinglist.model.InvoiceEntry;
+import com.example.packinglist.model.InvoiceSummary;
+import com.example.packinglist.model.PoSubtotal;
+import com.example.packinglist.service.PackingListService;
+import com.example.packinglist.sort.ExternalInvoiceSorter;
+import com.example.packinglist.sort.InvoiceCursor;
+import com.example.packinglist.sort.ItemOrdering;
+import com.example.packinglist.sort.SortedInvoices;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class InvoiceSummaryTest {
+
+    private static final List<InvoiceEntry> ROWS = List.of(
+            new InvoiceEntry("PO2", "B200", "Widget", 3, 150),
+            new InvoiceEntry("PO1", "A100", "Gadget", 5, 99),
+            new InvoiceEntry("PO1", "B200", "Widget", 2, 150),
+            new InvoiceEntry("PO3", "C300", "Gizmo", 7, 1234),
+            new InvoiceEntry("PO2", "D400", "Doohickey", 1, 5));
+
+    @TempDir
+    File spillDirectory;
+
+    @Test
+    public void testTotalsSubtotalsAndRepeats() {
+        InvoiceSummary summary = InvoiceSummary.of(ROWS);
+
+        assertEquals(5, summary.getRows());
+        assertEquals(18, summary.getTotalQty());
+        assertEquals(List.of(
+                new PoSubtotal("PO1", 2, 7, 5 * 99 + 2 * 150),
+                new PoSubtotal("PO2", 2, 4, 3 * 150 + 5),
+                new PoSubtotal("PO3", 1, 7, 7 * 1234)), summary.getPoSubtotals());
+        assertEquals(Set.of("B200"), summary.getRepeatedItemNumbers());
+        assertTrue(summary.isRepeatedItem("B200"));
+        assertFalse(summary.isRepeatedItem("A100"));
+    }
+
+    @Test
+    public void testSpilledRowsGiveTheSameSummary() throws Exception {
+        // Many distinct items so the item dictionary has to grow several times
+        List<InvoiceEntry> rows = new ArrayList<>(ROWS);
+        for (int i = 0; i < 10_000; i++) {
+            rows.add(new InvoiceEntry("PO" + (i % 7), "X" + i, "", 1, 10));
+        }
+        rows.add(new InvoiceEntry("PO9", "X1234", "", 1, 10));
+
+        try (SortedInvoices spilled = new ExternalInvoiceSorter(1_000, spillDirectory, ItemOrdering.PO_THEN_ITEM, Integer.MAX_VALUE)
+                .sort(rows.iterator())) {
+            assertTrue(spilled.isSpilled());
+            InvoiceSummary summary = spilled.getSummary();
+            InvoiceSummary expected = InvoiceSummary.of(rows);
+            assertEquals(expected.getTotalQty(), summary.getTotalQty());
+            assertEquals(expected.getPoSubtotals(), summary.getPoSubtotals());
+            assertEquals(Set.of("B200", "X1234"), summary.getRepeatedItemNumbers());
+
+            int repeatedRows = 0;
+            InvoiceCursor cursor = spilled.cursor();
+            while (cursor.next()) {
+                repeatedRows += cursor.repeatedItem() ? 1 : 0;
+            }
+            assertEquals(4, repeatedRows);
+
+            // The same rows sorted in memory mark the same rows
+            try (SortedInvoices inMemory = new ExternalInvoiceSorter(100_000, spillDirectory, ItemOrdering.PO_THEN_ITEM, Integer.MAX_VALUE)
+                    .sort(rows.iterator())) {
+                assertFalse(inMemory.isSpilled());
+                InvoiceCursor spilledRows = spilled.cursor();
+                InvoiceCursor memoryRows = inMemory.cursor();
+                while (spilledRows.next()) {
+                    assertTrue(memoryRows.next());
+                    assertEquals(spilledRows.repeatedItem(), memoryRows.repeatedItem(), spilledRows.itemNo());
+                }
+                assertFalse(memoryRows.next());
+            }
+        }
+    }
+
+    @Test
+    public void testPackingListShowsPoSubtotals() throws Exception {
+        PackingListService service = new PackingListService(new PackingListProperties());
+        StringWriter out = new StringWriter();
+        service.writePackingList(out, "250101", SortedInvoices.of(ROWS), "", 1, 1, 1, 1);
+
+        String packingList = out.toString();
+        assertTrue(packingList.contains(",,TOTAL QTY: 18,,\n\nPO SUBTOTALS\nPO#,LINES,QTY,,FOB (USD)\n"));
+        assertTrue(packingList.endsWith("PO1,2,7,,7.95\nPO2,2,4,,4.55\nPO3,1,7,,86.38\n"));
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.packinglist;
+
+import com.example.packinglist.model.InvoiceEntry;
+import com.example.packinglist.sort.ExternalInvoiceSorter;
+import com.example.packinglist.sort.ItemOrdering;
+import com.example.packinglist.sort.KeySorter;
+import com.example.packinglist.sort.SortedInvoices;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ItemOrderingTest {
+
+    private static final String[] ITEMS = {"1015", "100", "2", "1016B", "a8921", "23463", "b3549", "1001", "a10", "a9", "007", "7"};
+
+    @TempDir
+    File spillDirectory;
+
+    @Test
+    public void testNaturalOrder() {
+        List<String> items = new ArrayList<>(Arrays.asList(ITEMS));
+        KeySorter.sort(items, ItemOrdering.NATURAL, item -> "", item -> item, Integer.MAX_VALUE);
+        assertEquals(List.of("2", "007", "7", "100", "1001", "1015", "1016B", "23463", "a9", "a10", "a8921", "b3549"), items);
+    }
+
+    @Test
+    public void testLexicalMatchesStringOrder() {
+        List<String> items = new ArrayList<>(Arrays.asList(ITEMS));
+        KeySorter.sort(items, ItemOrdering.LEXICAL, item -> "", item -> item, Integer.MAX_VALUE);
+        List<String> expected = new ArrayList<>(Arrays.asList(ITEMS));
+        expected.sort(String::compareTo);
+        assertEquals(expected, items);
+    }
+
+    @Test
+    public void testParallelSortIsStableAndSameAsSequential() {
+        Random random = new Random(3);
+        List<InvoiceEntry> rows = new ArrayList<>();
+        for (int i = 0; i < 50_000; i++) {
+            rows.add(new InvoiceEntry("PO" + random.nextInt(30), Integer.toString(random.nextInt(5_000)), "", i, 0));
+        }
+        for (ItemOrdering ordering : ItemOrdering.values()) {
+            List<InvoiceEntry> sequential = new ArrayList<>(rows);
+            List<InvoiceEntry> parallel = new ArrayList<>(rows);
+            KeySorter.sort(sequential, ordering, InvoiceEntry::getPoNo, InvoiceEntry::getItemNo, Integer.MAX_VALUE);
+            KeySorter.sort(parallel, ordering, InvoiceEntry::getPoNo, InvoiceEntry::getItemNo, 1);
+            assertEquals(sequential, parallel, ordering.name());
+
+            List<InvoiceEntry> expected = new ArrayList<>(rows);
+            expected.sort(ordering.comparator());   // List.sort is stable, qty holds the input position
+            assertEquals(expected, parallel, ordering.name());
+        }
+    }
+
+    @Test
+    public void testSpilledRunsMergeInPoThenItemOrder() throws IOException {
+        List<InvoiceEntry> rows = new ArrayList<>();
+        for (int i = 0; i < ITEMS.length; i++) {
+            rows.add(new InvoiceEntry(i % 2 == 0 ? "PO10" : "PO1", ITEMS[i], "", i, 0));
+        }
+        ExternalInvoiceSorter sorter = new ExternalInvoiceSorter(3, spillDirectory, ItemOrdering.PO_THEN_ITEM, 1);
+        try (SortedInvoices sorted = sorter.sort(rows.iterator())) {
+            assertTrue(sorted.isSpilled());
+            List<InvoiceEntry> actual = new ArrayList<>();
+            sorted.forEach(actual::add);
+            List<InvoiceEntry> expected = new ArrayList<>(rows);
+            expected.sort((a, b) -> a.getPoNo().equals(b.getPoNo())
+                    ? a.getItemNo().compareTo(b.getItemNo())
+                    : a.getPoNo().compareTo(b.getPoNo()));
+            assertEquals(expected, actual);
+            assertFalse(sorted.getOrdering().groupsItemNumbers());
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.example.packinglist;
+
+import com.example.packinglist.config.PackingListProperties;
+import com.example.packinglist.job.Job;
+import com.example.packinglist.job.JobService;
+import com.example.packinglist.model.ShipmentDetails;
+import com.example.packinglist.service.PackingListService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+import static com.example.packinglist.ZipTestSupport.entryNames;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+// Small threshold so /upload hands the second invoice below to the job queue
+@SpringBootTest(properties = "packinglist.jobs.async-threshold=200B")
+@AutoConfigureMockMvc
+public class JobApiIntegrationTest {
+
+    private static final String HEADER = "PO/NO.,ITEM NO.,DESCRIPTION,QTY,UNIT VALUE\n";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    public void testSubmitPollAndDownload() throws Exception {
+        MockMultipartFile file = csv("job.csv", HEADER +
+                "PO001,1015,Item A,10,$5.00\n" +
+                "PO002,100,Item B,20,$3.00\n");
+
+        MvcResult submitted = mockMvc.perform(multipart("/jobs").file(file)
+                .param("rmb", "100").param("rate", "7.1")
+                .param("boxes", "3").param("weight", "12.5"))
+            .andExpect(status().isAccepted())
+            .andExpect(header().exists("Location"))
+            .andReturn();
+        String location = submitted.getResponse().getHeader("Location");
+
+        JsonNode status = awaitFinished(location);
+        assertEquals("SUCCEEDED", status.get("state").asText());
+        assertEquals(2, status.get("rowsParsed").asLong());
+        assertEquals(1, status.get("pagesRendered").asInt());
+        assertEquals(location + "/result", status.get("resultUrl").asText());
+
+        byte[] zip = mockMvc.perform(get(location + "/result"))
+            .andExpect(status().isOk())
+            .andExpect(header().string("Content-Disposition", org.hamcrest.Matchers.startsWith("attachment; filename=packing-files-")))
+            .andReturn().getResponse().getContentAsByteArray();
+        assertEquals(3, entryNames(zip).size());
+    }
+
+    @Test
+    public void testFailedJobReportsTheMissingColumns() throws Exception {
+        MockMultipartFile file = csv("broken.csv", "PO/NO.,DESCRIPTION\nPO001,Item A\n");
+
+        String location = mockMvc.perform(multipart("/jobs").file(file)
+                .param("rmb", "100").param("rate", "7.1")
+                .param("boxes", "3").param("weight", "12.5"))
+            .andExpect(status().isAccepted())
+            .andReturn().getResponse().getHeader("Location");
+
+        JsonNode status = awaitFinished(location);
+        assertEquals("FAILED", status.get("state").asText());
+        assertTrue(status.get("error").asText().contains("ITEM NO."));
+
+        mockMvc.perform(get(location + "/result"))
+            .andExpect(status().isUnprocessableEntity());
+    }
+
+    @Test
+    public void testUnknownJobIsNotFound() throws Exception {
+        mockMvc.perform(get("/jobs/does-not-exist")).andExpect(status().isNotFound());
+        mockMvc.perform(get("/jobs/does-not-exist/result")).andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void testLargeUploadIsRoutedToJobQueue() throws Exception {
+        StringBuilder content = new StringBuilder(HEADER);
+        for (int i = 0; i < 20; i++) {
+            content.append("PO00").append(i % 3).append(',').append(2000 + i).append(",Item ").append(i).append(",1,$1.00\n");
+        }
+
+        MvcResult started = mockMvc.perform(multipart("/upload").file(csv("large.csv", content.toString()))
+                .param("rmb", "100").param("rate", "7.1")
+                .param("boxes", "3").param("weight", "12.5"))
+            .andReturn();
+        MvcResult response = mockMvc.perform(asyncDispatch(started))
+            .andExpect(status().isAccepted())
+            .andExpect(header().string("Location", org.hamcrest.Matchers.startsWith("/jobs/")))
+            .andReturn();
+
+        JsonNode status = awaitFinished(response.getResponse().getHeader("Location"));
+        assertEquals("SUCCEEDED", status.get("state").asText());
+        assertEquals(20, status.get("rowsParsed").asLong());
+    }
+
+    @Test
+    public void testExpiredResultIsDeletedWithoutANewSubmit() throws Exception {
+        PackingListProperties properties = new PackingListProperties();
+        properties.getJobs().setResultTtl(Duration.ofMillis(100));
+        JobService jobService = new JobService(properties, new PackingListService(properties));
+        try {
+            Job job = jobService.submit(csv("job.csv", HEADER + "PO001,1015,Item A,10,$5.00\n"), "250101",
+                    ShipmentDetails.of(null, 100, 7.1, 3, 12.5));
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (!job.isFinished()) {
+                assertTrue(System.currentTimeMillis() < deadline, "Job did not finish");
+                Thread.sleep(20);
+            }
+            File result = job.getResult();
+            assertTrue(result.exists());
+
+            // Nothing touches the service from here on, the sweep alone has to delete it
+            while (result.exists()) {
+                assertTrue(System.currentTimeMillis() < deadline, "Expired result was not deleted");
+                Thread.sleep(20);
+            }
+            assertFalse(jobService.get(job.getId()).isPresent());
+        } finally {
+            jobService.shutdown();
+        }
+    }
+
+    private JsonNode awaitFinished(String location) throws Exception {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (true) {
+            String body = mockMvc.perform(get(location))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+            JsonNode status = objectMapper.readTree(body);
+            String state = status.get("state").asText();
+            if (state.equals("SUCCEEDED") || state.equals("FAILED")) {
+                return status;
+            }
+            assertTrue(System.currentTimeMillis() < deadline, "Job did not finish: " + body);
+            Thread.sleep(20);
+        }
+    }
+
+    private static MockMultipartFile csv(String name, String content) {
+        return new MockMultipartFile("csvFile", name, "text/csv", content.getBytes(StandardCharsets.UTF_8));
+    }
+}
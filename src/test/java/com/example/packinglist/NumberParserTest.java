@@ -0,0 +1,68 @@
+package com.example.packinglist;
+
+import com.example.packinglist.csv.NumberParser;
+import org.junit.jupiter.api.Test;
+
+import static com.example.packinglist.csv.NumberParser.INVALID_CENTS;
+import static com.example.packinglist.csv.NumberParser.INVALID_QUANTITY;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class NumberParserTest {
+
+    @Test
+    public void testQuantities() {
+        assertEquals(24, NumberParser.parseQuantity("24"));
+        assertEquals(24, NumberParser.parseQuantity(" 24 "));
+        assertEquals(1200, NumberParser.parseQuantity("1,200"));
+        assertEquals(1234567, NumberParser.parseQuantity("1,234,567"));
+        assertEquals(1201, NumberParser.parseQuantity("1,200.5"));
+        assertEquals(3, NumberParser.parseQuantity("2.5"));
+        assertEquals(2, NumberParser.parseQuantity("2.49"));
+        assertEquals(-5, NumberParser.parseQuantity("-5"));
+        // Half up towards positive infinity, as Math.round did before
+        assertEquals(-2, NumberParser.parseQuantity("-2.5"));
+        assertEquals(-2, NumberParser.parseQuantity("-2.50"));
+        assertEquals(-3, NumberParser.parseQuantity("-2.501"));
+        assertEquals(-3, NumberParser.parseQuantity("-2.6"));
+        assertEquals(-2, NumberParser.parseQuantity("-2.4"));
+        assertEquals(0, NumberParser.parseQuantity("-0.5"));
+        assertEquals(0, NumberParser.parseQuantity(""));
+        assertEquals(0, NumberParser.parseQuantity(null));
+
+        assertEquals(INVALID_QUANTITY, NumberParser.parseQuantity("abc"));
+        assertEquals(INVALID_QUANTITY, NumberParser.parseQuantity("12 pcs"));
+        assertEquals(INVALID_QUANTITY, NumberParser.parseQuantity("1.2.3"));
+        assertEquals(INVALID_QUANTITY, NumberParser.parseQuantity("99999999999"));
+        // Commas only as thousands separators
+        assertEquals(INVALID_QUANTITY, NumberParser.parseQuantity("1,2,3"));
+        assertEquals(INVALID_QUANTITY, NumberParser.parseQuantity("12,34.5"));
+        assertEquals(INVALID_QUANTITY, NumberParser.parseQuantity("1,2345"));
+        assertEquals(INVALID_QUANTITY, NumberParser.parseQuantity("1234,567"));
+        assertEquals(INVALID_QUANTITY, NumberParser.parseQuantity("1,200,"));
+        assertEquals(INVALID_QUANTITY, NumberParser.parseQuantity(",200"));
+    }
+
+    @Test
+    public void testUnitValuesInCents() {
+        assertEquals(350, NumberParser.parseCents("$3.50"));
+        assertEquals(350, NumberParser.parseCents("3.5"));
+        assertEquals(300, NumberParser.parseCents("3"));
+        assertEquals(123450, NumberParser.parseCents("$1,234.50"));
+        assertEquals(336, NumberParser.parseCents("3.355"));
+        assertEquals(335, NumberParser.parseCents("USD 3.354"));
+        assertEquals(-125, NumberParser.parseCents("-$1.25"));
+        assertEquals(0, NumberParser.parseCents(" "));
+
+        assertEquals(INVALID_CENTS, NumberParser.parseCents("N/A"));
+        assertEquals(INVALID_CENTS, NumberParser.parseCents("1.2.3"));
+        assertEquals(INVALID_CENTS, NumberParser.parseCents("3.50-"));
+    }
+
+    @Test
+    public void testFormatCents() {
+        assertEquals("3.50", NumberParser.formatCents(350));
+        assertEquals("0.05", NumberParser.formatCents(5));
+        assertEquals("-1.25", NumberParser.formatCents(-125));
+        assertEquals("1234.00", NumberParser.formatCents(123400));
+    }
+}
@@ -1,13 +1,27 @@
 package com.example.packinglist;
 
 import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
 
-@SpringBootTest
+import javax.sql.DataSource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest(properties = "packinglist.history.enabled=false")
 class PackinglistApplicationTests {
 
+	@Autowired
+	private ApplicationContext context;
+
 	@Test
 	void contextLoads() {
 	}
 
+	@Test
+	void noDatabaseWithoutHistory() {
+		assertEquals(0, context.getBeanNamesForType(DataSource.class).length);
+	}
+
 }
@@ -0,0 +1,119 @@
+package com.example.packinglist;
+
+import com.example.packinglist.config.PackingListProperties;
+import com.example.packinglist.model.ShipmentDetails;
+import com.example.packinglist.service.PackingListService;
+import com.example.packinglist.sort.SortedInvoices;
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+public class PdfIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    // 95 rows, items 1000..1094 in reverse; 1000 appears again at the very end
+    private static MockMultipartFile invoice() {
+        StringBuilder csv = new StringBuilder("PO/NO.,ITEM NO.,DESCRIPTION,QTY,UNIT VALUE\n");
+        for (int i = 94; i >= 0; i--) {
+            csv.append("PO").append(i % 3).append(',').append(1000 + i).append(",Item,1,$1.00\n");
+        }
+        csv.append("PO9,1000,Item,5,$1.00\n");
+        return new MockMultipartFile("csvFile", "pdf.csv", "text/csv", csv.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String text(byte[] pdf, int expectedPages) throws IOException {
+        try (PDDocument document = Loader.loadPDF(pdf)) {
+            assertEquals(expectedPages, document.getNumberOfPages());
+            return new PDFTextStripper().getText(document);
+        }
+    }
+
+    @Test
+    public void testPdfHasTheHtmlPages() throws Exception {
+        MvcResult started = mockMvc.perform(multipart("/pdf").file(invoice()).param("manualTracking", "1Z999")
+                .param("rmb", "100").param("rate", "7.1").param("boxes", "3").param("weight", "12.5"))
+            .andReturn();
+        byte[] pdf = mockMvc.perform(asyncDispatch(started))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType("application/pdf"))
+            .andExpect(header().string("Content-Disposition", org.hamcrest.Matchers.startsWith("inline; filename=packing-list-")))
+            .andReturn().getResponse().getContentAsByteArray();
+
+        // 96 rows at 72 a page, like the HTML
+        String text = text(pdf, 2);
+        assertTrue(text.contains("ARRIVAL#:"));
+        assertTrue(text.contains("Page 1 of 2"));
+        assertTrue(text.contains("Page 2 of 2"));
+        assertTrue(text.contains("100 RMB / 7.10 RATE = $14.08"));
+        assertTrue(text.contains("1Z999"));
+        assertTrue(text.contains("TOTAL QTY:"));
+        assertTrue(text.contains("1094"));
+        assertEquals(1, text.split("ARRIVAL#:", -1).length - 1);
+    }
+
+    @Test
+    public void testPooledWritersGiveTheSameDocuments() throws Exception {
+        StringBuilder csv = new StringBuilder("PO/NO.,ITEM NO.,DESCRIPTION,QTY,UNIT VALUE\n");
+        for (int i = 0; i < 500; i++) {
+            csv.append("PO").append(i % 7).append(",A-").append(i % 450).append(",Item,2,$1.00\n");
+        }
+        // Not in the standard fonts, shown as '?' instead of failing the document
+        csv.append("PO1,货号-1,Item,1,$1.00\n");
+        MockMultipartFile file = new MockMultipartFile("csvFile", "pooled.csv", "text/csv", csv.toString().getBytes(StandardCharsets.UTF_8));
+        PackingListService service = new PackingListService(new PackingListProperties());
+        ShipmentDetails details = ShipmentDetails.of("1Z999", 100, 7.1, 3, 12.5);
+
+        String expected;
+        try (SortedInvoices rows = service.readInvoiceCsv(file)) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            service.writePackingListPdf(out, "250101", rows, details);
+            expected = text(out.toByteArray(), 7);
+        }
+        assertTrue(expected.contains("??-1"));
+        assertTrue(expected.contains("1001"));
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<String>> documents = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                documents.add(executor.submit(() -> {
+                    try (SortedInvoices rows = service.readInvoiceCsv(file)) {
+                        ByteArrayOutputStream out = new ByteArrayOutputStream();
+                        service.writePackingListPdf(out, "250101", rows, details);
+                        return text(out.toByteArray(), 7);
+                    }
+                }));
+            }
+            for (Future<String> document : documents) {
+                assertEquals(expected, document.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.packinglist;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+// Cache off so the upload goes through every stage
+@SpringBootTest(properties = "packinglist.cache.enabled=false")
+@AutoConfigureMockMvc
+@AutoConfigureObservability
+public class PipelineMetricsIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    public void testUploadStagesAndCountersArePublished() throws Exception {
+        String csvContent = "PO/NO.,ITEM NO.,DESCRIPTION,QTY,UNIT VALUE\n" +
+                           "PO001,1015,Item A,10,$5.00\n" +
+                           "PO002,100,Item B,lots,$3.00\n" +
+                           "PO003,1016,Item C,5,ten\n";
+        MockMultipartFile file = new MockMultipartFile(
+            "csvFile", "metrics.csv", "text/csv", csvContent.getBytes(StandardCharsets.UTF_8));
+
+        MvcResult started = mockMvc.perform(multipart("/upload").file(file)
+                .param("rmb", "100").param("rate", "7.1")
+                .param("boxes", "3").param("weight", "12.5"))
+            .andReturn();
+        mockMvc.perform(asyncDispatch(started)).andExpect(status().isOk());
+
+        String scrape = mockMvc.perform(get("/actuator/prometheus"))
+            .andExpect(status().isOk())
+            .andReturn().getResponse().getContentAsString();
+
+        for (String stage : new String[]{"multipart_read", "parse", "sort", "packing_list_csv", "html", "import_csv", "zip", "response_write"}) {
+            assertTrue(scrape.contains("packinglist_stage_seconds_count{stage=\"" + stage + "\"}"), "Missing stage " + stage);
+            assertTrue(scrape.contains("packinglist_stage_seconds_bucket{stage=\"" + stage + "\""), "Missing histogram for " + stage);
+        }
+        assertTrue(scrape.contains("packinglist_rows_parsed_total"));
+        assertTrue(scrape.contains("packinglist_rows_invalid_total{column=\"qty\"}"));
+        assertTrue(scrape.contains("packinglist_rows_invalid_total{column=\"unit_value\"}"));
+        assertTrue(scrape.contains("packinglist_pages_rendered_total"));
+        assertTrue(scrape.contains("packinglist_output_bytes_total"));
+        assertFalse(scrape.contains("packinglist_output_bytes_total 0.0"), "Response bytes should be counted");
+        assertTrue(scrape.contains("packinglist_cache_gets_total{result=\"miss\"}"));
+        assertTrue(scrape.contains("packinglist_cache_size_bytes"));
+    }
+
+    @Test
+    public void testHealthEndpointForContainerCheck() throws Exception {
+        mockMvc.perform(get("/actuator/health"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.status").value("UP"));
+    }
+}
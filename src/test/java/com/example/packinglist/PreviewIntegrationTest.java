@@ -0,0 +1,114 @@
+package com.example.packinglist;
+
+import com.example.packinglist.config.PackingListProperties;
+import com.example.packinglist.model.ShipmentDetails;
+import com.example.packinglist.service.PackingListPreview;
+import com.example.packinglist.service.PackingListService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+public class PreviewIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    // 95 rows, items 1000..1094 in reverse; 1000 appears again at the very end
+    private static MockMultipartFile invoice() {
+        StringBuilder csv = new StringBuilder("PO/NO.,ITEM NO.,DESCRIPTION,QTY,UNIT VALUE\n");
+        for (int i = 94; i >= 0; i--) {
+            csv.append("PO").append(i % 3).append(',').append(1000 + i).append(",Item,1,$1.00\n");
+        }
+        csv.append("PO9,1000,Item,5,$1.00\n");
+        return new MockMultipartFile("csvFile", "preview.csv", "text/csv", csv.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static MockHttpServletRequestBuilder withShipment(MockHttpServletRequestBuilder request) {
+        return request.param("rmb", "100").param("rate", "7.1").param("boxes", "3").param("weight", "12.5");
+    }
+
+    @Test
+    public void testFirstPageInline() throws Exception {
+        MvcResult started = mockMvc.perform(withShipment(multipart("/preview").file(invoice()).param("itemsPerPage", "10")))
+            .andReturn();
+        String html = mockMvc.perform(asyncDispatch(started))
+            .andExpect(status().isOk())
+            .andExpect(header().string("Content-Disposition", org.hamcrest.Matchers.startsWith("inline; filename=packing-list-")))
+            .andExpect(header().string("X-Total-Pages", "10"))
+            .andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8);
+
+        assertTrue(html.contains("ARRIVAL#:"));
+        assertTrue(html.contains("Page 1 of 10"));
+        assertFalse(html.contains("Page 2 of 10"));
+        assertFalse(html.contains("page-break\"></div>"));
+        // Its second copy is on the last page, but it is still marked as a duplicate
+        assertTrue(html.contains("duplicate-item item-data\">1000<"));
+        assertTrue(html.contains(">1008<"));
+        assertFalse(html.contains(">1009<"));
+    }
+
+    @Test
+    public void testPageRangeMatchesTheFullDocument() throws Exception {
+        MvcResult started = mockMvc.perform(withShipment(multipart("/preview").file(invoice())
+                .param("from", "9").param("to", "12").param("itemsPerPage", "10")))
+            .andReturn();
+        String html = mockMvc.perform(asyncDispatch(started))
+            .andExpect(status().isOk())
+            .andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8);
+
+        assertFalse(html.contains("ARRIVAL#:"));
+        assertFalse(html.contains("Page 8 of 10"));
+        assertTrue(html.contains("Page 9 of 10"));
+        assertTrue(html.contains("Page 10 of 10"));
+        assertEquals(1, html.split("page-break\"></div>", -1).length - 1);
+        assertTrue(html.contains(">1079<"));
+        assertFalse(html.contains(">1078<"));
+        assertTrue(html.contains("TOTAL QTY:</td>\n<td style=\"font-size: 16px;\">100<"));
+    }
+
+    @Test
+    public void testPastTheLastPageIsRejected() throws Exception {
+        MvcResult started = mockMvc.perform(withShipment(multipart("/preview").file(invoice())
+                .param("from", "11").param("itemsPerPage", "10")))
+            .andReturn();
+        mockMvc.perform(asyncDispatch(started))
+            .andExpect(status().isBadRequest())
+            .andExpect(content().string("The packing list only has 10 pages"));
+
+        started = mockMvc.perform(withShipment(multipart("/preview").file(invoice()).param("from", "1").param("to", "50")))
+            .andReturn();
+        mockMvc.perform(asyncDispatch(started))
+            .andExpect(status().isBadRequest())
+            .andExpect(content().string("A preview shows at most 10 pages"));
+    }
+
+    @Test
+    public void testSpilledInvoiceGivesTheSamePages() throws Exception {
+        ShipmentDetails details = ShipmentDetails.of("1Z999", 100, 7.1, 3, 12.5);
+        PackingListPreview selected = new PackingListService(new PackingListProperties())
+                .previewPackingListHtml(invoice(), "250101", details, 4, 6, 10);
+
+        PackingListProperties small = new PackingListProperties();
+        small.getSort().setMaxRowsInMemory(20);
+        PackingListPreview sorted = new PackingListService(small)
+                .previewPackingListHtml(invoice(), "250101", details, 4, 6, 10);
+
+        assertEquals(10, sorted.getTotalPages());
+        assertEquals(6, sorted.getToPage());
+        assertArrayEquals(selected.getHtml(), sorted.getHtml());
+    }
+}
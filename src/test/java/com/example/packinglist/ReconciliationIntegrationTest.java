@@ -0,0 +1,108 @@
+package com.example.packinglist;
+
+import com.example.packinglist.reconcile.Discrepancy;
+import com.example.packinglist.reconcile.ReconciliationReport;
+import com.example.packinglist.reconcile.ReconciliationService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+public class ReconciliationIntegrationTest {
+
+    private static final String INVOICE = "PO/NO.,ITEM NO.,DESCRIPTION,QTY,UNIT VALUE\n"
+            + "PO001,100,Bolt,10,$1.00\n"
+            + "PO001,200,Nut,5,$0.50\n"
+            + "PO001,100,Bolt,2,$1.00\n"     // Same pair again, counts add up to 12
+            + "PO002,100,Bolt,7,$1.00\n"     // Same item, other PO: a separate pair
+            + "PO002,300,Washer,4,$0.10\n"
+            + "PO003,400,Screw,1,$0.20\n";
+
+    private static final String RECEIVED = "PO/NO.,ITEM NO.,QTY,NOTES\n"
+            + "PO001,100,12,\n"
+            + "PO001,200,3,box 2 torn\n"
+            + "PO002,100,9,\n"
+            + "PO002,999,6,not on list\n"
+            + "PO003,400,1,\n";
+
+    @Autowired
+    private ReconciliationService reconciliationService;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    public void testJoinFindsEveryKindOfDiscrepancy() throws Exception {
+        ReconciliationReport report = reconciliationService.reconcile(stream(INVOICE), "invoice.csv", stream(RECEIVED), "received.csv");
+
+        assertEquals(6, report.getInvoiceLines());
+        assertEquals(5, report.getReceivedLines());
+        assertEquals(29, report.getTotalInvoiced());
+        assertEquals(31, report.getTotalReceived());
+        assertEquals(2, report.getMatched());
+
+        List<Discrepancy> found = report.getDiscrepancies();
+        assertEquals(4, found.size(), found.toString());
+        assertDiscrepancy(found.get(0), Discrepancy.Type.SHORTAGE, "PO001", "200", 5, 3);
+        assertEquals("box 2 torn", found.get(0).getNotes());
+        assertDiscrepancy(found.get(1), Discrepancy.Type.OVERAGE, "PO002", "100", 7, 9);
+        assertDiscrepancy(found.get(2), Discrepancy.Type.UNEXPECTED, "PO002", "999", 0, 6);
+        assertDiscrepancy(found.get(3), Discrepancy.Type.MISSING, "PO002", "300", 4, 0);
+        assertEquals("Washer", found.get(3).getDescription());
+        assertEquals(-2, found.get(0).getDifference());
+    }
+
+    @Test
+    public void testEndpointReturnsCsvAndNamesBadFile() throws Exception {
+        MvcResult started = mockMvc.perform(multipart("/reconcile")
+                .file(csv("invoiceFile", "invoice.csv", INVOICE))
+                .file(csv("receivedFile", "received.csv", RECEIVED))
+                .param("format", "csv"))
+            .andReturn();
+        String report = mockMvc.perform(asyncDispatch(started))
+            .andExpect(status().isOk())
+            .andReturn().getResponse().getContentAsString();
+        assertTrue(report.startsWith("TYPE,PO/NO.,ITEM NO.,DESCRIPTION,INVOICED QTY,RECEIVED QTY,DIFFERENCE,NOTES\n"));
+        assertTrue(report.contains("SHORTAGE,PO001,200,Nut,5,3,-2,box 2 torn\n"), report);
+        assertTrue(report.contains("MISSING,PO002,300,Washer,4,0,-4,\n"), report);
+
+        started = mockMvc.perform(multipart("/reconcile")
+                .file(csv("invoiceFile", "invoice.csv", INVOICE))
+                .file(csv("receivedFile", "counts.csv", "PO/NO.,NOTES\nPO001,x\n")))
+            .andReturn();
+        mockMvc.perform(asyncDispatch(started))
+            .andExpect(status().isBadRequest())
+            .andExpect(content().string(org.hamcrest.Matchers.startsWith("counts.csv: ")));
+    }
+
+    private static void assertDiscrepancy(Discrepancy d, Discrepancy.Type type, String po, String item, int invoiced, int received) {
+        assertEquals(type, d.getType());
+        assertEquals(po, d.getPoNo());
+        assertEquals(item, d.getItemNo());
+        assertEquals(invoiced, d.getInvoicedQty());
+        assertEquals(received, d.getReceivedQty());
+    }
+
+    private static InputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static MockMultipartFile csv(String part, String name, String content) {
+        return new MockMultipartFile(part, name, "text/csv", content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.packinglist;
+
+import com.example.packinglist.cache.ResultCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ResultCacheTest {
+
+    @Test
+    public void testKeyDependsOnContentAndParameters() throws IOException {
+        String key = ResultCache.key(new ByteArrayInputStream("a,b".getBytes()), "1Z", 100.0, 7.1, 3, 12.5, "250814");
+
+        assertEquals(key, ResultCache.key(new ByteArrayInputStream("a,b".getBytes()), "1Z", 100.0, 7.1, 3, 12.5, "250814"));
+        assertNotEquals(key, ResultCache.key(new ByteArrayInputStream("a,c".getBytes()), "1Z", 100.0, 7.1, 3, 12.5, "250814"));
+        assertNotEquals(key, ResultCache.key(new ByteArrayInputStream("a,b".getBytes()), "1Z", 100.0, 7.1, 4, 12.5, "250814"));
+        assertNotEquals(key, ResultCache.key(new ByteArrayInputStream("a,b".getBytes()), "1Z", 100.0, 7.1, 3, 12.5, "250815"));
+    }
+
+    @Test
+    public void testLeastRecentlyUsedIsEvictedWhenFull() {
+        ResultCache cache = new ResultCache(true, 30, 20, Duration.ofMinutes(5));
+        cache.put("a", new byte[10]);
+        cache.put("b", new byte[10]);
+        assertNotNull(cache.get("a"));
+
+        // 30 bytes fit, 40 do not: "b" was used least recently
+        cache.put("c", new byte[20]);
+        assertNotNull(cache.get("a"));
+        assertNull(cache.get("b"));
+        assertNotNull(cache.get("c"));
+        assertEquals(30, cache.getTotalBytes());
+        assertEquals(1, cache.getEvictions());
+        assertEquals(3, cache.getHits());
+        assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    public void testCountersAndSizeArePublished() {
+        ResultCache cache = new ResultCache(true, 30, 20, Duration.ofMinutes(5));
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        cache.bindTo(registry);
+
+        cache.put("a", new byte[20]);
+        cache.put("b", new byte[20]);
+        cache.get("a");
+        cache.get("b");
+
+        assertEquals(1, registry.get("packinglist.cache.gets").tag("result", "hit").functionCounter().count());
+        assertEquals(1, registry.get("packinglist.cache.gets").tag("result", "miss").functionCounter().count());
+        assertEquals(1, registry.get("packinglist.cache.evictions").functionCounter().count());
+        assertEquals(20, registry.get("packinglist.cache.size").gauge().value());
+        assertEquals(1, registry.get("packinglist.cache.entries").gauge().value());
+    }
+
+    @Test
+    public void testRecorderOnlyKeepsCompleteResultsWithinTheEntryLimit() throws IOException {
+        ResultCache cache = new ResultCache(true, 100, 8, Duration.ofMinutes(5));
+
+        ByteArrayOutputStream response = new ByteArrayOutputStream();
+        ResultCache.Recorder recorder = cache.recorder("small", response);
+        recorder.write(new byte[]{1, 2, 3});
+        recorder.commit();
+        assertArrayEquals(new byte[]{1, 2, 3}, cache.get("small"));
+
+        ResultCache.Recorder big = cache.recorder("big", response);
+        big.write(new byte[10]);
+        big.commit();
+        assertNull(cache.get("big"));
+        assertEquals(13, response.size(), "Everything must still reach the response");
+
+        cache.recorder("aborted", response).write(new byte[]{1});
+        assertNull(cache.get("aborted"), "Nothing is cached without a commit");
+    }
+
+    @Test
+    public void testExpiredEntriesAreNotReturned() throws InterruptedException {
+        ResultCache cache = new ResultCache(true, 100, 100, Duration.ofMillis(1));
+        cache.put("a", new byte[1]);
+        Thread.sleep(5);
+        assertNull(cache.get("a"));
+        assertEquals(0, cache.size());
+    }
+}
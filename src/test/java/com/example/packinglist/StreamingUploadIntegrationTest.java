@@ -0,0 +1,106 @@
+package com.example.packinglist;
+
+import com.example.packinglist.cache.ResultCache;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import static com.example.packinglist.ZipTestSupport.unzip;
+import static com.example.packinglist.ZipTestSupport.withoutDates;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+public class StreamingUploadIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ResultCache resultCache;
+
+    @Test
+    public void testUploadStreamsZipWithAllThreeFiles() throws Exception {
+        String csvContent = "PO/NO.,ITEM NO.,DESCRIPTION,QTY,UNIT VALUE\n" +
+                           "PO001,1015,Item A,10,$5.00\n" +
+                           "PO002,100,Item B,20,$3.00\n" +
+                           "PO003,1015,Item C,5,$10.00\n";
+        MockMultipartFile file = new MockMultipartFile(
+            "csvFile", "test.csv", "text/csv", csvContent.getBytes(StandardCharsets.UTF_8));
+
+        MvcResult started = mockMvc.perform(multipart("/upload").file(file)
+                .param("rmb", "100").param("rate", "7.1")
+                .param("boxes", "3").param("weight", "12.5"))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+
+        byte[] zip = mockMvc.perform(asyncDispatch(started))
+            .andExpect(status().isOk())
+            .andExpect(header().string("Content-Disposition", org.hamcrest.Matchers.startsWith("attachment; filename=packing-files-")))
+            .andReturn().getResponse().getContentAsByteArray();
+
+        Map<String, String> entries = unzip(zip);
+        List<String> names = List.copyOf(entries.keySet());
+        String packingList = withoutDates(entries).get("packing-list.csv");
+
+        assertEquals(3, names.size(), "ZIP should contain the CSV, HTML and import files: " + names);
+        assertTrue(names.get(1).endsWith(".html"));
+        assertTrue(names.get(2).startsWith("import_inv-"));
+        assertNotNull(packingList);
+        assertTrue(packingList.contains("PO002,100,20,,\n"));
+        assertTrue(packingList.contains("TOTAL QTY: 35"));
+    }
+
+    @Test
+    public void testRepeatUploadIsServedFromCache() throws Exception {
+        String csvContent = "PO/NO.,ITEM NO.,DESCRIPTION,QTY,UNIT VALUE\n" +
+                           "PO001,7001,Item A,10,$5.00\n";
+        MockMultipartFile file = new MockMultipartFile(
+            "csvFile", "cached.csv", "text/csv", csvContent.getBytes(StandardCharsets.UTF_8));
+
+        long hitsBefore = resultCache.getHits();
+        byte[] first = upload(file, "4");
+        byte[] second = upload(file, "4");
+        assertEquals(hitsBefore + 1, resultCache.getHits());
+        assertArrayEquals(first, second);
+
+        // A different box count is a different result
+        upload(file, "5");
+        assertEquals(hitsBefore + 1, resultCache.getHits());
+    }
+
+    private byte[] upload(MockMultipartFile file, String boxes) throws Exception {
+        MvcResult started = mockMvc.perform(multipart("/upload").file(file)
+                .param("rmb", "100").param("rate", "7.1")
+                .param("boxes", boxes).param("weight", "12.5"))
+            .andReturn();
+        return mockMvc.perform(asyncDispatch(started))
+            .andExpect(status().isOk())
+            .andReturn().getResponse().getContentAsByteArray();
+    }
+
+    @Test
+    public void testEmptyUploadIsRejectedAsPlainText() throws Exception {
+        MockMultipartFile file = new MockMultipartFile("csvFile", "test.csv", "text/csv", new byte[0]);
+
+        MvcResult started = mockMvc.perform(multipart("/upload").file(file)
+                .param("rmb", "100").param("rate", "7.1")
+                .param("boxes", "3").param("weight", "12.5"))
+            .andReturn();
+
+        mockMvc.perform(asyncDispatch(started))
+            .andExpect(status().isBadRequest())
+            .andExpect(content().string("CSV file is required and cannot be empty"));
+    }
+}
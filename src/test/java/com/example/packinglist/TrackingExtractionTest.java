@@ -0,0 +1,149 @@
+package com.example.packinglist;
+
+import com.example.packinglist.tracking.Carrier;
+import com.example.packinglist.tracking.TrackingManifest;
+import com.example.packinglist.tracking.TrackingNumber;
+import com.example.packinglist.tracking.TrackingScanner;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import static com.example.packinglist.ZipTestSupport.unzip;
+import static com.example.packinglist.ZipTestSupport.withoutDates;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+public class TrackingExtractionTest {
+
+    private static final String INVOICE = "PO/NO.,ITEM NO.,DESCRIPTION,QTY,UNIT VALUE\n"
+            + "W240613,1015,Item A,10,$5.00\n"
+            + "W240614,1016B,Item B,20,$3.00\n";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    private static TrackingManifest scan(String text) throws IOException {
+        return TrackingScanner.scan(new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    public void testOnlyNumbersWithValidCheckDigitsAreFound() throws IOException {
+        TrackingManifest manifest = scan("UPS Tracking Number: 1z999aa10123456784.\n"
+                + "FedEx 123456789012 and 123456789013 (bad check digit)\n"
+                + "FedEx Ground 449044304137821, 449044304137822\n"
+                + "DHL waybill#3318810025 not 3318810026; phone 555-123-4567\n"
+                + "Too long 1Z999AA101234567845, split 1Z999AA1012 3456784, repeated 1Z999AA10123456784");
+
+        assertEquals(List.of(
+                new TrackingNumber("1Z999AA10123456784", Carrier.UPS),
+                new TrackingNumber("123456789012", Carrier.FEDEX),
+                new TrackingNumber("449044304137821", Carrier.FEDEX),
+                new TrackingNumber("3318810025", Carrier.DHL)), manifest.getNumbers());
+    }
+
+    @Test
+    public void testNumbersAreMatchedToPoNumbersOnTheirLine() throws IOException {
+        StringBuilder text = new StringBuilder("Shipper,Reference,Tracking\r\n");
+        for (int i = 0; i < 5000; i++) {
+            // Lines run across the scanner's buffer boundaries
+            text.append("\"Acme Ltd\",PO").append(i).append(",1Z").append(String.format("%016d", i)).append("\r\n");
+        }
+        text.append("Acme Ltd,W240613,1Z999AA10123456784");   // Last line without a line break
+        TrackingManifest manifest = scan(text.toString());
+
+        assertEquals(5001, manifest.getNumbers().size());
+        assertEquals(text.length(), manifest.getBytesScanned());
+        assertEquals(List.of("1Z0000000000004321", "1Z999AA10123456784"), manifest.numbersFor(List.of("po4321", "W240613 ")));
+        // The header line has no number, so its words belong to none
+        assertTrue(manifest.numbersFor(List.of("PO99999", "Reference")).isEmpty());
+    }
+
+    @Test
+    public void testUploadFillsInTrackingFromTheManifest() throws Exception {
+        String manifest = "Reference\tTracking\n"
+                + "W240613\t1Z999AA10123456784\n"
+                + "X000001\t1Z999AA10000000001\n"
+                + "W240614\t3318810025\n";
+        assertTrue(packingListCsv(upload(manifest)).contains("UPS TRACKING#: 1Z999AA10123456784 / 3318810025\n"));
+
+        // A typed number wins over the manifest
+        MvcResult started = mockMvc.perform(multipart("/upload")
+                .file(new MockMultipartFile("csvFile", "invoice.csv", "text/csv", INVOICE.getBytes(StandardCharsets.UTF_8)))
+                .file(new MockMultipartFile("trackingFile", "manifest.txt", "text/plain", manifest.getBytes(StandardCharsets.UTF_8)))
+                .param("manualTracking", "1ZTYPED")
+                .param("rmb", "100").param("rate", "7.1").param("boxes", "2").param("weight", "5"))
+            .andReturn();
+        byte[] zip = mockMvc.perform(asyncDispatch(started)).andReturn().getResponse().getContentAsByteArray();
+        assertTrue(packingListCsv(zip).contains("UPS TRACKING#: 1ZTYPED\n"));
+
+        mockMvc.perform(multipart("/tracking")
+                .file(new MockMultipartFile("trackingFile", "manifest.txt", "text/plain", manifest.getBytes(StandardCharsets.UTF_8))))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.numbers.length()").value(3))
+            .andExpect(jsonPath("$.numbers[2].carrier").value("DHL"));
+    }
+
+    @Test
+    public void testPhoneAndPoNumbersAreNotTakenForTracking() throws IOException {
+        // The phone numbers pass the DHL check digit and the first PO number the FedEx one
+        TrackingManifest manifest = scan("Shipments for week 33\n"
+                + "Carrier,PO/NO.,Phone,Tracking Number\n"
+                + "DHL,440001234564,5551234566,3318810025\n"
+                + "FedEx,W240613,\"Dock 2, 5559876545\",798700123457\n"
+                + "Questions? Call 5551234566 about PO 440001234564\n");
+
+        assertEquals(List.of(
+                new TrackingNumber("3318810025", Carrier.DHL),
+                new TrackingNumber("798700123457", Carrier.FEDEX)), manifest.getNumbers());
+    }
+
+    @Test
+    public void testInvoicePoNumbersAreNeverTracking() throws IOException {
+        // A PO number typed into the tracking column as well
+        TrackingManifest manifest = scan("Reference\tTracking\n"
+                + "440001234564\t440001234564\n"
+                + "W240613\t798700123457\n");
+
+        assertEquals(2, manifest.getNumbers().size());
+        assertTrue(manifest.numbersFor(List.of("440001234564")).isEmpty());
+        assertEquals(List.of("798700123457"), manifest.numbersOtherThan(List.of("440001234564")));
+    }
+
+    @Test
+    public void testManifestWithoutTheInvoicePosOnlyFillsInASingleNumber() throws Exception {
+        assertTrue(packingListCsv(upload("1Z999AA10000000001\n")).contains("UPS TRACKING#: 1Z999AA10000000001\n"));
+        // Most likely another shipment's manifest
+        assertTrue(packingListCsv(upload("1Z999AA10000000001\n1Z999AA10000000002\n")).contains("UPS TRACKING#: \n"));
+    }
+
+    private byte[] upload(String manifest) throws Exception {
+        MvcResult started = mockMvc.perform(multipart("/upload")
+                .file(new MockMultipartFile("csvFile", "invoice.csv", "text/csv", INVOICE.getBytes(StandardCharsets.UTF_8)))
+                .file(new MockMultipartFile("trackingFile", "manifest.txt", "text/plain", manifest.getBytes(StandardCharsets.UTF_8)))
+                .param("rmb", "100").param("rate", "7.1").param("boxes", "2").param("weight", "5"))
+            .andReturn();
+        return mockMvc.perform(asyncDispatch(started))
+            .andExpect(status().isOk())
+            .andReturn().getResponse().getContentAsByteArray();
+    }
+
+    private static String packingListCsv(byte[] zip) throws IOException {
+        Map<String, String> files = withoutDates(unzip(zip));
+        assertTrue(files.containsKey("packing-list.csv"), files.keySet().toString());
+        return files.get("packing-list.csv");
+    }
+}
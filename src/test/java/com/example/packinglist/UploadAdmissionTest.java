@@ -0,0 +1,149 @@
+package com.example.packinglist;
+
+import com.example.packinglist.admission.UploadAdmissionFilter;
+import com.example.packinglist.config.PackingListProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class UploadAdmissionTest {
+
+    private static PackingListProperties properties(int maxQueued, Duration queueTimeout) {
+        PackingListProperties properties = new PackingListProperties();
+        properties.getUploads().setMaxConcurrentBytes(DataSize.ofMegabytes(10));
+        properties.getUploads().setMinWeight(DataSize.ofMegabytes(1));
+        properties.getUploads().setMaxQueued(maxQueued);
+        properties.getUploads().setQueueTimeout(queueTimeout);
+        properties.getUploads().setRetryAfter(Duration.ofSeconds(7));
+        return properties;
+    }
+
+    private static MockHttpServletRequest upload(long megabytes) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/upload");
+        request.setContentType("multipart/form-data; boundary=x");
+        request.setContent(new byte[(int) megabytes * 1024 * 1024]);
+        request.setAsyncSupported(true);
+        return request;
+    }
+
+    @Test
+    public void testUploadsBeyondTheBudgetAreTurnedAway() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        UploadAdmissionFilter filter = new UploadAdmissionFilter(properties(1, Duration.ofMillis(200)), registry);
+
+        // A streamed response keeps its 8 MB admitted after the filter returns
+        MockHttpServletRequest streaming = upload(8);
+        filter.doFilter(streaming, new MockHttpServletResponse(), (request, response) -> request.startAsync());
+        assertEquals(8.0 * 1024 * 1024, registry.get("packinglist.uploads.admitted").gauge().value());
+
+        // 2 MB still fit in the 10 MB budget
+        MockHttpServletResponse fits = new MockHttpServletResponse();
+        MockFilterChain chain = new MockFilterChain();
+        filter.doFilter(upload(2), fits, chain);
+        assertNotNull(chain.getRequest());
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            // 3 MB waits, then gives up with 503
+            Future<MockHttpServletResponse> waiting = executor.submit(() -> {
+                MockHttpServletResponse response = new MockHttpServletResponse();
+                filter.doFilter(upload(3), response, new MockFilterChain());
+                return response;
+            });
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (registry.get("packinglist.uploads.queued").gauge().value() < 1 && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+
+            // The one queue place is taken, so the next is refused at once
+            MockHttpServletResponse refused = new MockHttpServletResponse();
+            filter.doFilter(upload(1), refused, new MockFilterChain());
+            assertEquals(429, refused.getStatus());
+            assertEquals("7", refused.getHeader("Retry-After"));
+
+            MockHttpServletResponse timedOut = waiting.get(5, TimeUnit.SECONDS);
+            assertEquals(503, timedOut.getStatus());
+            assertEquals("7", timedOut.getHeader("Retry-After"));
+            assertTrue(timedOut.getContentAsString().contains("busy"));
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(1.0, registry.get("packinglist.uploads.rejected").tag("reason", "queue_full").counter().count());
+        assertEquals(1.0, registry.get("packinglist.uploads.rejected").tag("reason", "timeout").counter().count());
+        assertEquals(1, registry.get("packinglist.uploads.queue.wait").timer().count());
+
+        // Finishing the streamed response frees its share
+        streaming.getAsyncContext().complete();
+        assertEquals(0.0, registry.get("packinglist.uploads.admitted").gauge().value());
+        MockHttpServletResponse admitted = new MockHttpServletResponse();
+        filter.doFilter(upload(3), admitted, new MockFilterChain());
+        assertEquals(200, admitted.getStatus());
+    }
+
+    @Test
+    public void testWaitingUploadsAreAdmittedInTurn() throws Exception {
+        UploadAdmissionFilter filter = new UploadAdmissionFilter(properties(4, Duration.ofSeconds(10)), new SimpleMeterRegistry());
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger mostRunning = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(6);
+
+        ExecutorService executor = Executors.newFixedThreadPool(6);
+        try {
+            for (int i = 0; i < 6; i++) {
+                executor.submit(() -> {
+                    MockHttpServletResponse response = new MockHttpServletResponse();
+                    // 4 MB each: two fit in the 10 MB budget at a time
+                    filter.doFilter(upload(4), response, (request, res) -> {
+                        mostRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                        try {
+                            Thread.sleep(20);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                        running.decrementAndGet();
+                    });
+                    assertEquals(200, response.getStatus());
+                    done.countDown();
+                    return null;
+                });
+            }
+            assertTrue(done.await(10, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdown();
+        }
+        assertTrue(mostRunning.get() <= 2, "At most two 4 MB uploads fit at once, saw " + mostRunning.get());
+    }
+
+    @Test
+    public void testOnlyMultipartPostsAreCounted() throws Exception {
+        PackingListProperties properties = properties(0, Duration.ZERO);
+        properties.getUploads().setMaxConcurrentBytes(DataSize.ofMegabytes(1));
+        UploadAdmissionFilter filter = new UploadAdmissionFilter(properties, new SimpleMeterRegistry());
+
+        MockHttpServletRequest held = upload(1);
+        filter.doFilter(held, new MockHttpServletResponse(), (request, response) -> request.startAsync());
+
+        MockHttpServletResponse page = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("GET", "/"), page, new MockFilterChain());
+        assertEquals(200, page.getStatus());
+
+        MockHttpServletResponse upload = new MockHttpServletResponse();
+        filter.doFilter(upload(1), upload, new MockFilterChain());
+        assertEquals(429, upload.getStatus());
+
+        held.getAsyncContext().complete();
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.packinglist;
+
+import com.example.packinglist.html.Utf8Buffer;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class Utf8BufferTest {
+
+    @Test
+    public void testEncodesLikeStringGetBytes() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (Utf8Buffer buffer = Utf8Buffer.acquire(out)) {
+            buffer.write("PO001,").write("Brass Earring é中📦").write(",")
+                .write(0).write(-42).write(Integer.MAX_VALUE).write(Integer.MIN_VALUE)
+                .write("<td>".getBytes(StandardCharsets.UTF_8));
+            buffer.flush();
+        }
+        String expected = "PO001,Brass Earring é中📦" + ",0-42" + Integer.MAX_VALUE + Integer.MIN_VALUE + "<td>";
+        assertArrayEquals(expected.getBytes(StandardCharsets.UTF_8), out.toByteArray());
+    }
+
+    @Test
+    public void testWritesMoreThanOneBufferInOrder() throws IOException {
+        StringBuilder expected = new StringBuilder();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (Utf8Buffer buffer = Utf8Buffer.acquire(out)) {
+            for (int i = 0; i < 20_000; i++) {
+                buffer.write("<tr><td>").write(i).write("</td></tr>\n");
+                expected.append("<tr><td>").append(i).append("</td></tr>\n");
+            }
+            // Larger than the whole buffer
+            String big = "x".repeat(100_000);
+            buffer.write(big);
+            expected.append(big);
+            buffer.flush();
+        }
+        assertEquals(expected.toString(), out.toString(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,181 @@
+package com.example.packinglist;
+
+import com.example.packinglist.config.PackingListProperties;
+import com.example.packinglist.csv.CsvHeaderException;
+import com.example.packinglist.csv.ParseStats;
+import com.example.packinglist.model.InvoiceEntry;
+import com.example.packinglist.service.PackingListService;
+import com.example.packinglist.sort.SortedInvoices;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.example.packinglist.ZipTestSupport.unzip;
+import static com.example.packinglist.ZipTestSupport.withoutDates;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+public class XlsxInvoiceIntegrationTest {
+
+    private static final String XLSX = "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet";
+
+    private static final String CSV = "PO/NO.,ITEM NO.,DESCRIPTION,QTY,UNIT VALUE\n"
+            + "PO001,1015,Item A,10,$5.00\n"
+            + "PO002,A-100,Item B,1200,$3.25\n"
+            + "PO003,1015,Item C,5,$10.00\n";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    /**
+     * The rows of {@link #CSV} as a supplier's workbook: other header spellings, numbers
+     * stored as numbers with currency and thousands formats, and a blank row
+     */
+    private static byte[] workbook() throws IOException {
+        try (XSSFWorkbook workbook = new XSSFWorkbook()) {
+            Sheet sheet = workbook.createSheet("Invoice");
+            CellStyle money = workbook.createCellStyle();
+            money.setDataFormat(workbook.createDataFormat().getFormat("\"$\"#,##0.00"));
+            CellStyle thousands = workbook.createCellStyle();
+            thousands.setDataFormat(workbook.createDataFormat().getFormat("#,##0"));
+
+            Row header = sheet.createRow(0);
+            String[] names = {"PO#", "ITEM NUMBER", "DESCRIPTION OF GOODS", "QUANTITY", "UNIT PRICE"};
+            for (int i = 0; i < names.length; i++) {
+                header.createCell(i).setCellValue(names[i]);
+            }
+            Object[][] rows = {
+                    {"PO001", 1015.0, "Item A", 10.0, 5.0},
+                    {"PO002", "A-100", "Item B", 1200.0, 3.25},
+                    {"PO003", 1015.0, "Item C", 5.0, 10.0}};
+            for (int r = 0; r < rows.length; r++) {
+                // Row 3 is left blank, as spreadsheets often have
+                Row row = sheet.createRow(r < 2 ? r + 1 : r + 2);
+                for (int c = 0; c < rows[r].length; c++) {
+                    Object value = rows[r][c];
+                    if (value instanceof Double) {
+                        row.createCell(c).setCellValue((Double) value);
+                    } else {
+                        row.createCell(c).setCellValue((String) value);
+                    }
+                }
+                row.getCell(3).setCellStyle(thousands);
+                row.getCell(4).setCellStyle(money);
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            workbook.write(out);
+            return out.toByteArray();
+        }
+    }
+
+    private static List<InvoiceEntry> read(PackingListService service, byte[] file, String name) throws IOException {
+        List<InvoiceEntry> rows = new ArrayList<>();
+        try (SortedInvoices sorted = service.readInvoiceCsv(new ByteArrayInputStream(file), name, new ParseStats())) {
+            sorted.forEach(rows::add);
+        }
+        return rows;
+    }
+
+    @Test
+    public void testWorkbookReadsLikeTheSameCsv() throws Exception {
+        PackingListService service = new PackingListService(new PackingListProperties());
+        List<InvoiceEntry> fromCsv = read(service, CSV.getBytes(StandardCharsets.UTF_8), "invoice.csv");
+        List<InvoiceEntry> fromWorkbook = read(service, workbook(), "invoice.xlsx");
+
+        assertEquals(3, fromWorkbook.size());
+        assertEquals(fromCsv, fromWorkbook);
+        assertEquals(1200, fromWorkbook.get(2).getQty());
+        assertEquals(325, fromWorkbook.get(2).getUnitValueCents());
+    }
+
+    @Test
+    public void testLargeWorkbookIsSpilled() throws Exception {
+        PackingListProperties properties = new PackingListProperties();
+        properties.getSort().setMaxRowsInMemory(100);
+        PackingListService service = new PackingListService(properties);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (SXSSFWorkbook workbook = new SXSSFWorkbook(100)) {
+            Sheet sheet = workbook.createSheet();
+            Row header = sheet.createRow(0);
+            header.createCell(0).setCellValue("PO/NO.");
+            header.createCell(1).setCellValue("ITEM NO.");
+            header.createCell(2).setCellValue("QTY");
+            for (int i = 1; i <= 1000; i++) {
+                Row row = sheet.createRow(i);
+                row.createCell(0).setCellValue("PO" + i % 5);
+                row.createCell(1).setCellValue("ITEM-" + (1000 - i));
+                row.createCell(2).setCellValue(2);
+            }
+            workbook.write(out);
+        }
+
+        try (SortedInvoices sorted = service.readInvoiceCsv(new ByteArrayInputStream(out.toByteArray()), "big.xlsx", new ParseStats())) {
+            assertEquals(1000, sorted.size());
+            assertEquals(2000, sorted.getTotalQty());
+            assertEquals("ITEM-0", sorted.iterator().next().getItemNo());
+        }
+    }
+
+    @Test
+    public void testUploadAcceptsWorkbook() throws Exception {
+        MockMultipartFile file = new MockMultipartFile("csvFile", "invoice.xlsx", XLSX, workbook());
+        MvcResult started = mockMvc.perform(multipart("/upload").file(file)
+                .param("rmb", "100").param("rate", "7.1").param("boxes", "3").param("weight", "12.5"))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+        byte[] zip = mockMvc.perform(asyncDispatch(started))
+            .andExpect(status().isOk())
+            .andReturn().getResponse().getContentAsByteArray();
+
+        String packingList = withoutDates(unzip(zip)).get("packing-list.csv");
+        assertNotNull(packingList);
+        assertTrue(packingList.contains("A-100"));
+        assertTrue(packingList.contains("TOTAL QTY: 1215"));
+    }
+
+    @Test
+    public void testUnreadableWorkbooksAreRejected() throws Exception {
+        // Starts like a ZIP, but is not one
+        byte[] broken = "PK\u0003\u0004 not really a workbook".getBytes(StandardCharsets.ISO_8859_1);
+        MvcResult started = mockMvc.perform(multipart("/upload").file(new MockMultipartFile("csvFile", "broken.xlsx", XLSX, broken))
+                .param("rmb", "100").param("rate", "7.1").param("boxes", "3").param("weight", "12.5"))
+            .andReturn();
+        mockMvc.perform(asyncDispatch(started))
+            .andExpect(status().isBadRequest())
+            .andExpect(content().string(org.hamcrest.Matchers.containsString("could not be read as an Excel workbook")));
+
+        PackingListService service = new PackingListService(new PackingListProperties());
+        byte[] noItems;
+        try (XSSFWorkbook workbook = new XSSFWorkbook()) {
+            Row header = workbook.createSheet().createRow(0);
+            header.createCell(0).setCellValue("PO");
+            header.createCell(1).setCellValue("QTY");
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            workbook.write(out);
+            noItems = out.toByteArray();
+        }
+        CsvHeaderException missing = assertThrows(CsvHeaderException.class, () -> read(service, noItems, "no-items.xlsx"));
+        assertTrue(missing.getMessage().contains("ITEM NO."));
+    }
+}
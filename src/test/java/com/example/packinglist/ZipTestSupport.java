@@ -0,0 +1,73 @@
+package com.example.packinglist;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Reads the ZIP files the tests get back, entries as UTF-8 text by name in the order of the archive
+ */
+final class ZipTestSupport {
+
+    private ZipTestSupport() {
+    }
+
+    /**
+     * Reads the ZIP through its local headers, as a streaming reader does
+     */
+    static Map<String, String> unzip(byte[] zip) throws IOException {
+        Map<String, String> entries = new LinkedHashMap<>();
+        try (ZipInputStream zis = new ZipInputStream(new ByteArrayInputStream(zip))) {
+            ZipEntry entry;
+            while ((entry = zis.getNextEntry()) != null) {
+                entries.put(entry.getName(), new String(zis.readAllBytes(), StandardCharsets.UTF_8));
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Reads the ZIP through its central directory, as ZipFile does, rather than the local headers
+     */
+    static Map<String, String> unzipFile(byte[] zip) throws IOException {
+        Path file = Files.createTempFile("test-", ".zip");
+        try {
+            Files.write(file, zip);
+            Map<String, String> entries = new LinkedHashMap<>();
+            try (ZipFile zipFile = new ZipFile(file.toFile())) {
+                for (ZipEntry entry : Collections.list(zipFile.entries())) {
+                    try (InputStream in = zipFile.getInputStream(entry)) {
+                        entries.put(entry.getName(), new String(in.readAllBytes(), StandardCharsets.UTF_8));
+                    }
+                }
+            }
+            return entries;
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    static List<String> entryNames(byte[] zip) throws IOException {
+        return new ArrayList<>(unzip(zip).keySet());
+    }
+
+    /**
+     * The entries with the date taken out of their names, "packing-list-250814.csv" becoming "packing-list.csv"
+     */
+    static Map<String, String> withoutDates(Map<String, String> entries) {
+        Map<String, String> result = new LinkedHashMap<>();
+        entries.forEach((name, content) -> result.put(name.replaceAll("-\\d{6}", ""), content));
+        return result;
+    }
+}
@@ -0,0 +1,80 @@
+#!/bin/bash
+
+# Startup benchmark: time from launch to the first successful POST /upload, for the default
+# image and the fast-startup one (or any other images or local commands).
+#
+#   docker build -t packinglist-app:latest .
+#   docker build -t packinglist-app:fast-startup --target fast-startup .
+#   ./startup-benchmark.sh packinglist-app:latest packinglist-app:fast-startup
+#
+# With --cmd each argument is a shell command that starts the app on port 8080 instead:
+#   ./startup-benchmark.sh --cmd "java -jar target/packinglist-0.0.1-SNAPSHOT.jar"
+#
+# RUNS (default 5) sets the launches per image; the median and the range are printed.
+set -e
+
+RUNS=${RUNS:-5}
+PORT=${PORT:-8080}
+MODE=docker
+if [ "$1" == "--cmd" ]; then
+    MODE=cmd
+    shift
+fi
+if [ $# -eq 0 ]; then
+    echo "Usage: $0 [--cmd] <image or command>..." >&2
+    exit 1
+fi
+
+INVOICE=$(mktemp --suffix=.csv)
+trap 'rm -f "$INVOICE"' EXIT
+cat > "$INVOICE" <<'CSV'
+PO/NO.,ITEM NO.,DESCRIPTION OF GOODS,QTY,UNIT VALUE (USD)
+W240613,1015,Cubic zirconia Brass Necklace,24,$3.50
+W240613,1016B,Cubic zirconia Brass bracelet,36,$3.35
+CSV
+
+now_ms() {
+    echo $(( $(date +%s%N) / 1000000 ))
+}
+
+upload_status() {
+    curl -s -o /dev/null -w "%{http_code}" --max-time 10 \
+        -F "csvFile=@$INVOICE;type=text/csv" -F rmb=100 -F rate=7.1 -F boxes=3 -F weight=1 \
+        "http://localhost:$PORT/upload" || true
+}
+
+# Starts the target, waits for the first 200 from /upload and prints the milliseconds taken
+measure() {
+    local target=$1 start pid container elapsed
+    start=$(now_ms)
+    if [ "$MODE" == "docker" ]; then
+        container=$(docker run -d -p "$PORT:8080" "$target")
+    else
+        bash -c "exec $target --server.port=$PORT" > /dev/null 2>&1 &
+        pid=$!
+    fi
+    until [ "$(upload_status)" == "200" ]; do
+        if [ $(( $(now_ms) - start )) -gt 180000 ]; then
+            echo "$target did not answer /upload within 3 minutes" >&2
+            break
+        fi
+        sleep 0.05
+    done
+    elapsed=$(( $(now_ms) - start ))
+    if [ "$MODE" == "docker" ]; then
+        docker rm -f "$container" > /dev/null
+    else
+        kill "$pid" && wait "$pid" 2> /dev/null || true
+    fi
+    echo "$elapsed"
+}
+
+for target in "$@"; do
+    times=()
+    for ((i = 1; i <= RUNS; i++)); do
+        times+=("$(measure "$target")")
+    done
+    sorted=$(printf '%s\n' "${times[@]}" | sort -n)
+    median=$(echo "$sorted" | sed -n "$(( (RUNS + 1) / 2 ))p")
+    echo "$target: median $median ms, range $(echo "$sorted" | head -1)-$(echo "$sorted" | tail -1) ms over $RUNS runs"
+done